@@ -0,0 +1,193 @@
+package com.thumbnailapi.benchmark;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Deterministic synthetic images for the benchmarks.
+ *
+ * Images combine gradients, shapes and noise so that encoders see content that
+ * compresses like a photo with some flat areas, rather than a solid fill.
+ */
+public final class BenchmarkImages {
+
+    private static final long SEED = 0x5EED_1234L;
+
+    private BenchmarkImages() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+
+    /**
+     * Pixel layouts covered by the corpus.
+     */
+    public enum ColorType {
+        RGB(BufferedImage.TYPE_INT_RGB),
+        ARGB(BufferedImage.TYPE_INT_ARGB),
+        BGR(BufferedImage.TYPE_3BYTE_BGR),
+        GRAY(BufferedImage.TYPE_BYTE_GRAY);
+
+        private final int imageType;
+
+        ColorType(int imageType) {
+            this.imageType = imageType;
+        }
+
+        public int imageType() {
+            return imageType;
+        }
+
+        public boolean hasAlpha() {
+            return this == ARGB;
+        }
+    }
+
+    /**
+     * Creates an image of roughly the given megapixels with a 4:3 aspect ratio.
+     *
+     * @param megapixels size in millions of pixels, e.g. 0.3 or 24
+     * @param colorType pixel layout
+     * @return the image
+     */
+    public static BufferedImage create(double megapixels, ColorType colorType) {
+        int width = (int) Math.round(Math.sqrt(megapixels * 1_000_000 * 4 / 3));
+        int height = (int) Math.round(width * 3.0 / 4);
+        return create(width, height, colorType);
+    }
+
+    /**
+     * Creates an image of the given size.
+     */
+    public static BufferedImage create(int width, int height, ColorType colorType) {
+        BufferedImage image = new BufferedImage(width, height, colorType.imageType());
+        Random random = new Random(SEED);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setPaint(new GradientPaint(0, 0, new Color(30, 90, 160),
+                width, height, new Color(240, 200, 120)));
+            graphics.fillRect(0, 0, width, height);
+
+            int shapes = 40;
+            for (int i = 0; i < shapes; i++) {
+                graphics.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256),
+                    colorType.hasAlpha() ? 64 + random.nextInt(192) : 255));
+                int x = random.nextInt(width);
+                int y = random.nextInt(height);
+                int size = 1 + random.nextInt(Math.max(1, Math.min(width, height) / 4));
+                if (i % 2 == 0) {
+                    graphics.fillOval(x, y, size, size);
+                } else {
+                    graphics.fillRect(x, y, size, size / 2 + 1);
+                }
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        // Sparse noise so the content is not trivially compressible
+        for (int i = 0, noise = width * height / 50; i < noise; i++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            image.setRGB(x, y, image.getRGB(x, y) ^ (random.nextInt() & 0x000F0F0F));
+        }
+        return image;
+    }
+
+    /**
+     * Creates a screenshot-like image of the given size: flat panels, rules and
+     * rows of text, which compresses far better than a photo and spends most of
+     * its PNG encode time in deflate.
+     */
+    public static BufferedImage createScreenshot(int width, int height, ColorType colorType) {
+        BufferedImage image = new BufferedImage(width, height, colorType.imageType());
+        Random random = new Random(SEED);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.setColor(new Color(245, 246, 248));
+            graphics.fillRect(0, 0, width, height);
+            graphics.setColor(new Color(38, 50, 72));
+            graphics.fillRect(0, 0, width, Math.max(1, height / 16));
+            graphics.setColor(new Color(225, 229, 235));
+            graphics.fillRect(0, height / 16, Math.max(1, width / 5), height);
+
+            int lineHeight = Math.max(6, height / 40);
+            graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, Math.max(4, lineHeight - 2)));
+            String[] words = {"thumbnail", "request", "latency", "encode", "cache", "status", "200", "ok"};
+            for (int y = height / 16 + lineHeight * 2; y < height; y += lineHeight) {
+                StringBuilder line = new StringBuilder();
+                for (int i = 0, count = 4 + random.nextInt(10); i < count; i++) {
+                    line.append(words[random.nextInt(words.length)]).append(' ');
+                }
+                graphics.setColor(random.nextInt(8) == 0 ? new Color(0, 102, 204) : new Color(33, 37, 41));
+                graphics.drawString(line.toString(), width / 5 + lineHeight, y);
+                if (random.nextInt(6) == 0) {
+                    graphics.setColor(new Color(222, 226, 230));
+                    graphics.drawLine(width / 5, y + 2, width, y + 2);
+                }
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Encodes an image with ImageIO, dropping alpha for formats that cannot store it.
+     *
+     * @param image the image
+     * @param format ImageIO format name
+     * @return the encoded bytes
+     */
+    public static byte[] encode(BufferedImage image, String format) {
+        BufferedImage source = supportsAlpha(format) ? image : withoutAlpha(image);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            if (!ImageIO.write(source, format, out)) {
+                throw new IllegalArgumentException("No ImageIO writer for " + format);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns whether the format keeps an alpha channel.
+     */
+    public static boolean supportsAlpha(String format) {
+        return switch (format.toUpperCase(Locale.ROOT)) {
+            case "PNG", "GIF", "TIFF" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Returns an opaque copy of an image that has alpha, otherwise the image itself.
+     */
+    public static BufferedImage withoutAlpha(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return image;
+        }
+        BufferedImage opaque = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = opaque.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return opaque;
+    }
+}
@@ -0,0 +1,80 @@
+package com.thumbnailapi.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares two JMH JSON result files benchmark by benchmark.
+ *
+ * For every benchmark and parameter combination present in both files it prints
+ * the score and normalized allocation rate ({@code gc.alloc.rate.norm}) of the
+ * baseline and the current run with the relative change. Usage:
+ * <pre>
+ * ResultComparison baseline.json current.json
+ * </pre>
+ */
+public final class ResultComparison {
+
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    private ResultComparison() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ResultComparison <baseline.json> <current.json>");
+            System.exit(2);
+        }
+
+        Map<String, JsonNode> baseline = load(new File(args[0]));
+        Map<String, JsonNode> current = load(new File(args[1]));
+
+        System.out.printf(Locale.ROOT, "%-90s %14s %14s %8s %14s %14s %8s%n",
+            "Benchmark", "Baseline", "Current", "Change", "Alloc base", "Alloc now", "Change");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            JsonNode after = entry.getValue();
+            double scoreBefore = before.path("primaryMetric").path("score").asDouble();
+            double scoreAfter = after.path("primaryMetric").path("score").asDouble();
+            double allocBefore = allocation(before);
+            double allocAfter = allocation(after);
+            System.out.printf(Locale.ROOT, "%-90s %14.3f %14.3f %7.1f%% %14.0f %14.0f %7.1f%%  %s%n",
+                entry.getKey(), scoreBefore, scoreAfter, change(scoreBefore, scoreAfter),
+                allocBefore, allocAfter, change(allocBefore, allocAfter),
+                after.path("primaryMetric").path("scoreUnit").asText());
+        }
+    }
+
+    /**
+     * Reads a result file into a map keyed by benchmark name and parameters.
+     */
+    private static Map<String, JsonNode> load(File file) throws IOException {
+        Map<String, JsonNode> results = new TreeMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            Map<String, String> params = new LinkedHashMap<>();
+            result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            String benchmark = result.path("benchmark").asText().replace("com.thumbnailapi.", "");
+            results.put(params.isEmpty() ? benchmark : benchmark + params, result);
+        }
+        return results;
+    }
+
+    private static double allocation(JsonNode result) {
+        return result.path("secondaryMetrics").path(ALLOCATION_METRIC).path("score").asDouble(Double.NaN);
+    }
+
+    private static double change(double before, double after) {
+        return before == 0 ? Double.NaN : (after - before) / before * 100;
+    }
+}
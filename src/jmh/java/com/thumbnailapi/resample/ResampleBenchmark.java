@@ -0,0 +1,98 @@
+package com.thumbnailapi.resample;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.imgscalr.Scalr;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thumbnailapi.benchmark.BenchmarkImages;
+import com.thumbnailapi.benchmark.BenchmarkImages.ColorType;
+
+/**
+ * Raster resampling engine against the Scalr methods it replaces.
+ *
+ * {@code SCALR_*} engines are the Scalr resizes the service used before, the
+ * others are {@link Resampler} filters. {@code bands} is the parallelism of the
+ * pool the resampler splits rows over; it has no effect on Scalr.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ResampleBenchmark {
+
+    /**
+     * Resize implementations being compared.
+     */
+    public enum Engine {
+        SCALR_BALANCED,
+        SCALR_QUALITY,
+        BOX,
+        BILINEAR,
+        LANCZOS3
+    }
+
+    @Param({"2", "12", "24"})
+    public double megapixels;
+
+    @Param({"RGB", "BGR"})
+    public ColorType colorType;
+
+    @Param({"SCALR_BALANCED", "SCALR_QUALITY", "BOX", "BILINEAR", "LANCZOS3"})
+    public Engine engine;
+
+    @Param({"150", "600"})
+    public int targetSize;
+
+    @Param({"1", "4"})
+    public int bands;
+
+    private ForkJoinPool pool;
+    private Resampler resampler;
+    private BufferedImage source;
+    private int targetWidth;
+    private int targetHeight;
+
+    @Setup
+    public void setUp() {
+        pool = new ForkJoinPool(bands);
+        resampler = new Resampler(pool);
+        source = BenchmarkImages.create(megapixels, colorType);
+        double scale = Math.min((double) targetSize / source.getWidth(), (double) targetSize / source.getHeight());
+        targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public BufferedImage resize() {
+        return switch (engine) {
+            case SCALR_BALANCED -> Scalr.resize(source, Scalr.Method.BALANCED, Scalr.Mode.AUTOMATIC,
+                targetSize, targetSize);
+            case SCALR_QUALITY -> Scalr.resize(source, Scalr.Method.QUALITY, Scalr.Mode.AUTOMATIC,
+                targetSize, targetSize, Scalr.OP_ANTIALIAS);
+            case BOX -> resampler.resize(source, targetWidth, targetHeight, ResampleFilter.BOX);
+            case BILINEAR -> resampler.resize(source, targetWidth, targetHeight, ResampleFilter.BILINEAR);
+            case LANCZOS3 -> resampler.resize(source, targetWidth, targetHeight, ResampleFilter.LANCZOS3);
+        };
+    }
+}
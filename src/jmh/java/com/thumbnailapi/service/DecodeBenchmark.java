@@ -0,0 +1,74 @@
+package com.thumbnailapi.service;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thumbnailapi.benchmark.BenchmarkImages;
+import com.thumbnailapi.benchmark.BenchmarkImages.ColorType;
+import com.thumbnailapi.buffer.EncodeBufferPool;
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.config.ThumbnailProperties.DecodeMode;
+
+/**
+ * Decoding uploaded originals: a full {@code readImage} and the subsampled decode
+ * used when the largest requested size is much smaller than the source.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DecodeBenchmark {
+
+    private static final List<Dimension> DEFAULT_SIZES = List.of(
+        new Dimension(150, 150), new Dimension(300, 300), new Dimension(600, 600));
+
+    @Param({"0.3", "2", "12", "24"})
+    public double megapixels;
+
+    @Param({"RGB", "ARGB", "GRAY"})
+    public ColorType colorType;
+
+    @Param({"JPEG", "PNG"})
+    public String format;
+
+    private ThumbnailGenerator fullGenerator;
+    private ThumbnailGenerator subsamplingGenerator;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        encoded = BenchmarkImages.encode(BenchmarkImages.create(megapixels, colorType), format);
+        fullGenerator = new ThumbnailGenerator();
+
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getDecode().setMode(DecodeMode.SUBSAMPLED);
+        subsamplingGenerator = new ThumbnailGenerator(properties, Runnable::run, new EncodeBufferPool(properties));
+    }
+
+    @Benchmark
+    public BufferedImage readImage() throws IOException {
+        return fullGenerator.readImage(encoded);
+    }
+
+    @Benchmark
+    public BufferedImage readSubsampled() {
+        return subsamplingGenerator.decodeImage(encoded, DEFAULT_SIZES);
+    }
+}
@@ -0,0 +1,122 @@
+package com.thumbnailapi.service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thumbnailapi.benchmark.BenchmarkImages;
+import com.thumbnailapi.benchmark.BenchmarkImages.ColorType;
+import com.thumbnailapi.buffer.EncodeBufferPool;
+import com.thumbnailapi.buffer.PooledImageOutputStream;
+import com.thumbnailapi.config.ThumbnailProperties;
+
+/**
+ * Encoding one resized thumbnail per output format, with and without the pooled
+ * encode buffers, for each encode profile of application.properties.
+ *
+ * Thumbnails come out of Scalr as packed int rasters, so only RGB and ARGB are
+ * covered; formats that cannot store alpha get an opaque copy, as they do when a
+ * request for them is served. Profiles only change JPEG and PNG output; the
+ * encoded size of each trial is printed, since it is what the profiles trade
+ * against encode time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncodeBenchmark {
+
+    @Param({"JPEG", "PNG", "GIF", "BMP", "TIFF"})
+    public String format;
+
+    @Param({"150", "600", "2000"})
+    public int size;
+
+    @Param({"RGB", "ARGB"})
+    public ColorType colorType;
+
+    @Param({"true", "false"})
+    public boolean pooled;
+
+    @Param({"default", "web", "fast", "high"})
+    public String profile;
+
+    @Param({"PHOTO", "SCREENSHOT"})
+    public Content content;
+
+    private ThumbnailGenerator generator;
+    private EncodeProfile encodeProfile;
+    private BufferedImage thumbnail;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getEncode().setPoolEnabled(pooled);
+        properties.getEncode().setProfiles(profiles());
+        generator = new ThumbnailGenerator(properties, Runnable::run, new EncodeBufferPool(properties));
+        encodeProfile = generator.encodeProfile(profile);
+
+        BufferedImage image = content == Content.SCREENSHOT
+            ? BenchmarkImages.createScreenshot(size, size * 3 / 4, colorType)
+            : BenchmarkImages.create(size, size * 3 / 4, colorType);
+        thumbnail = BenchmarkImages.supportsAlpha(format) ? image : BenchmarkImages.withoutAlpha(image);
+    }
+
+    @TearDown(Level.Trial)
+    public void printEncodedSize() throws IOException {
+        System.out.printf("%nencoded size: %s %s %dpx %s %s = %d bytes%n",
+            format, content, size, colorType, profile, encodeImage());
+    }
+
+    @Benchmark
+    public int encodeImage() throws IOException {
+        PooledImageOutputStream encoded = generator.encodeImage(thumbnail, format, encodeProfile);
+        int length = encoded.view().remaining();
+        encoded.release();
+        return length;
+    }
+
+    /**
+     * The encode profiles of application.properties.
+     */
+    private static Map<String, ThumbnailProperties.EncodeProfile> profiles() {
+        ThumbnailProperties.EncodeProfile web = new ThumbnailProperties.EncodeProfile();
+        web.setJpegQuality(0.75f);
+        web.setOptimizeHuffman(true);
+
+        ThumbnailProperties.EncodeProfile fast = new ThumbnailProperties.EncodeProfile();
+        fast.setPngCompressionLevel(1);
+
+        ThumbnailProperties.EncodeProfile high = new ThumbnailProperties.EncodeProfile();
+        high.setJpegQuality(0.9f);
+        high.setChromaSubsampling("4:4:4");
+        high.setPngCompressionLevel(9);
+
+        return Map.of("web", web, "fast", fast, "high", high);
+    }
+
+    /**
+     * Kind of image being encoded.
+     */
+    public enum Content {
+        PHOTO,
+        SCREENSHOT
+    }
+}
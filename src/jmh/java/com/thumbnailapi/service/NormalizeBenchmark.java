@@ -0,0 +1,189 @@
+package com.thumbnailapi.service;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.imgscalr.Scalr;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.thumbnailapi.benchmark.BenchmarkImages;
+import com.thumbnailapi.benchmark.BenchmarkImages.ColorType;
+import com.thumbnailapi.buffer.EncodeBufferPool;
+import com.thumbnailapi.color.ColorNormalizer;
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.config.ThumbnailProperties.ResizeEngine;
+
+/**
+ * Resizing originals in the pixel layouts ImageIO decodes problem images into,
+ * with and without converting them once by the {@link ColorNormalizer} first.
+ *
+ * {@code RGB} is a plain sRGB photo for reference. {@code sizes} resizes the
+ * same original to 600, 300 and 150px, as a request for several sizes does;
+ * without normalization every size converts the original again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class NormalizeBenchmark {
+
+    /**
+     * Decoded layouts of the problem images.
+     */
+    public enum Layout {
+        /** Baseline JPEG decode, {@code TYPE_3BYTE_BGR}. */
+        RGB,
+        /** 16-bit PNG with alpha. */
+        RGBA16,
+        /** Gray PNG with alpha. */
+        GRAY_ALPHA,
+        /** Image with an embedded profile other than sRGB. */
+        ICC,
+        /** CMYK JPEG without a profile. */
+        CMYK,
+        /** Palette PNG or GIF. */
+        INDEXED
+    }
+
+    private static final Dimension[] TARGETS = {
+        new Dimension(600, 600), new Dimension(300, 300), new Dimension(150, 150)
+    };
+
+    @Param({"2", "12"})
+    public double megapixels;
+
+    @Param({"RGB", "RGBA16", "GRAY_ALPHA", "ICC", "CMYK", "INDEXED"})
+    public Layout layout;
+
+    @Param({"SCALR", "RASTER"})
+    public ResizeEngine engine;
+
+    @Param({"false", "true"})
+    public boolean normalized;
+
+    @Param({"1", "3"})
+    public int sizes;
+
+    private ThumbnailGenerator generator;
+    private BufferedImage source;
+
+    @Setup
+    public void setUp() {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getResize().setEngine(engine);
+        generator = new ThumbnailGenerator(properties, Runnable::run, new EncodeBufferPool(properties));
+        source = create(BenchmarkImages.create(megapixels, ColorType.BGR), layout);
+    }
+
+    @Benchmark
+    public BufferedImage normalize() {
+        return ColorNormalizer.normalize(source).image();
+    }
+
+    @Benchmark
+    public void resize(Blackhole blackhole) {
+        BufferedImage original = normalized ? generator.normalize(source).image() : source;
+        for (int i = 0; i < sizes; i++) {
+            blackhole.consume(generator.resizeImage(original, TARGETS[i], Scalr.Method.QUALITY));
+        }
+    }
+
+    private static BufferedImage create(BufferedImage photo, Layout layout) {
+        return switch (layout) {
+            case RGB -> photo;
+            case RGBA16 -> converted(photo, ColorSpace.CS_sRGB, true, DataBuffer.TYPE_USHORT);
+            case GRAY_ALPHA -> converted(photo, ColorSpace.CS_GRAY, true, DataBuffer.TYPE_BYTE);
+            case ICC -> converted(photo, ColorSpace.CS_LINEAR_RGB, false, DataBuffer.TYPE_BYTE);
+            case CMYK -> cmykJpeg(photo);
+            case INDEXED -> drawn(photo, BufferedImage.TYPE_BYTE_INDEXED);
+        };
+    }
+
+    private static BufferedImage converted(BufferedImage photo, int colorSpace, boolean alpha, int dataType) {
+        ComponentColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(colorSpace), alpha, false,
+            alpha ? Transparency.TRANSLUCENT : Transparency.OPAQUE, dataType);
+        BufferedImage image = new BufferedImage(colorModel,
+            colorModel.createCompatibleWritableRaster(photo.getWidth(), photo.getHeight()), false, null);
+        new ColorConvertOp(null).filter(photo, image);
+        return image;
+    }
+
+    /**
+     * Encodes the photo as a four-channel JPEG and decodes it again, so the
+     * image has exactly the layout and color space the JDK reader produces.
+     */
+    private static BufferedImage cmykJpeg(BufferedImage photo) {
+        WritableRaster cmyk = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE,
+            photo.getWidth(), photo.getHeight(), 4, null);
+        int[] pixel = new int[4];
+        for (int y = 0; y < photo.getHeight(); y++) {
+            for (int x = 0; x < photo.getWidth(); x++) {
+                int rgb = photo.getRGB(x, y);
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+                int white = Math.max(r, Math.max(g, b));
+                pixel[0] = white == 0 ? 0 : 255 - r * 255 / white;
+                pixel[1] = white == 0 ? 0 : 255 - g * 255 / white;
+                pixel[2] = white == 0 ? 0 : 255 - b * 255 / white;
+                pixel[3] = 255 - white;
+                cmyk.setPixel(x, y, pixel);
+            }
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(cmyk, null, null), null);
+            output.flush();
+            return ImageIO.read(new ByteArrayInputStream(bytes.toByteArray()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static BufferedImage drawn(BufferedImage photo, int type) {
+        BufferedImage image = new BufferedImage(photo.getWidth(), photo.getHeight(), type);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.drawImage(photo, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+}
@@ -0,0 +1,64 @@
+package com.thumbnailapi.service;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.imgscalr.Scalr;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thumbnailapi.benchmark.BenchmarkImages;
+import com.thumbnailapi.benchmark.BenchmarkImages.ColorType;
+
+/**
+ * Resizing a decoded original to one thumbnail with every {@link Scalr.Method}.
+ *
+ * Sources are built in the pixel layouts ImageIO decodes into, so any conversion
+ * Scalr performs before scaling is part of the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ResizeBenchmark {
+
+    @Param({"0.3", "2", "12", "24"})
+    public double megapixels;
+
+    @Param({"RGB", "ARGB", "BGR", "GRAY"})
+    public ColorType colorType;
+
+    @Param({"SPEED", "BALANCED", "QUALITY", "ULTRA_QUALITY", "AUTOMATIC"})
+    public Scalr.Method method;
+
+    @Param({"150", "600"})
+    public int targetSize;
+
+    private ThumbnailGenerator generator;
+    private BufferedImage source;
+    private Dimension target;
+
+    @Setup
+    public void setUp() {
+        generator = new ThumbnailGenerator();
+        source = BenchmarkImages.create(megapixels, colorType);
+        target = new Dimension(targetSize, targetSize);
+    }
+
+    @Benchmark
+    public BufferedImage resizeImage() {
+        return generator.resizeImage(source, target, method);
+    }
+}
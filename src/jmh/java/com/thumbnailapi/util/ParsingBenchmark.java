@@ -0,0 +1,59 @@
+package com.thumbnailapi.util;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thumbnailapi.benchmark.BenchmarkImages;
+import com.thumbnailapi.benchmark.BenchmarkImages.ColorType;
+
+/**
+ * Per-request parsing on the upload path: format detection from the upload bytes
+ * and parsing of the {@code sizes} parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsingBenchmark {
+
+    @Param({"JPEG", "PNG", "GIF", "BMP", "TIFF"})
+    public String format;
+
+    @Param({"", "small,medium,large", "small,320x240,800x600,1920x1080"})
+    public String sizes;
+
+    private ImageFormatDetector formatDetector;
+    private DimensionParser dimensionParser;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        formatDetector = new ImageFormatDetector();
+        dimensionParser = new DimensionParser();
+        encoded = BenchmarkImages.encode(BenchmarkImages.create(64, 48, ColorType.RGB), format);
+    }
+
+    @Benchmark
+    public String detectFormat() {
+        return formatDetector.detectFormat(encoded);
+    }
+
+    @Benchmark
+    public List<?> parseDimensions() {
+        return dimensionParser.parseDimensions(sizes.isEmpty() ? null : sizes);
+    }
+}
@@ -0,0 +1,188 @@
+package com.thumbnailapi.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.thumbnailapi.ThumbnailApiApplication;
+
+/**
+ * The application under test, started in its own JVM on a free local port with
+ * the CPU, memory and environment of an {@link InstanceProfile}.
+ *
+ * The JVM sees the vCPUs of the instance through {@code -XX:ActiveProcessorCount}
+ * and the memory through {@code -XX:MaxRAM}; the heap settings come from
+ * {@code JAVA_TOOL_OPTIONS} in the profile's environment, as on App Platform.
+ * On Linux the process is additionally pinned to that many CPUs with
+ * {@code taskset}, so that request threads cannot use more cores than the
+ * instance has. JVM statistics are read from the actuator metrics endpoint.
+ */
+final class AppProcess implements AutoCloseable {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final Process process;
+    private final int port;
+    private final HttpClient client;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private AppProcess(Process process, int port) {
+        this.process = process;
+        this.port = port;
+        this.client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    }
+
+    /**
+     * Starts the application and waits until it reports healthy.
+     *
+     * @param profile instance to emulate
+     * @param appArgs extra Spring arguments
+     * @param pinCpus whether to pin the process to the instance's CPU count
+     * @param log file receiving the application's output
+     */
+    static AppProcess start(InstanceProfile profile, List<String> appArgs, boolean pinCpus, Path log)
+            throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        if (pinCpus && canPin()) {
+            command.addAll(List.of("taskset", "-c", "0-" + (profile.cpus() - 1)));
+        }
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-XX:ActiveProcessorCount=" + profile.cpus());
+        command.add("-XX:MaxRAM=" + profile.memoryBytes());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ThumbnailApiApplication.class.getName());
+        command.add("--server.port=" + port);
+        command.addAll(appArgs);
+
+        Files.createDirectories(log.getParent());
+        ProcessBuilder builder = new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(log.toFile());
+        builder.environment().putAll(profile.env());
+
+        AppProcess app = new AppProcess(builder.start(), port);
+        try {
+            app.awaitHealthy();
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            app.close();
+            throw e;
+        }
+        return app;
+    }
+
+    int port() {
+        return port;
+    }
+
+    /**
+     * Reads the heap, GC, allocation and CPU counters of the application.
+     */
+    JvmSnapshot snapshot() throws IOException, InterruptedException {
+        JsonNode gcPause = metric("jvm.gc.pause", null);
+        return new JvmSnapshot(
+            measurement(metric("jvm.memory.used", "area:heap"), "VALUE"),
+            measurement(metric("jvm.memory.max", "area:heap"), "VALUE"),
+            (long) measurement(gcPause, "COUNT"),
+            measurement(gcPause, "TOTAL_TIME"),
+            measurement(gcPause, "MAX"),
+            measurement(metric("jvm.gc.memory.allocated", null), "COUNT"),
+            measurement(metric("process.cpu.usage", null), "VALUE"));
+    }
+
+    private void awaitHealthy() throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IOException("Application exited with status " + process.exitValue() + " during startup");
+            }
+            try {
+                HttpResponse<String> response = get("/actuator/health");
+                if (response.statusCode() == 200 && response.body().contains("\"UP\"")) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IOException("Application did not become healthy within " + STARTUP_TIMEOUT);
+    }
+
+    /**
+     * Fetches a metric from the actuator, or null when the application does not publish it.
+     */
+    private JsonNode metric(String name, String tag) throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/actuator/metrics/" + name + (tag == null ? "" : "?tag=" + tag));
+        return response.statusCode() == 200 ? mapper.readTree(response.body()) : null;
+    }
+
+    private static double measurement(JsonNode metric, String statistic) {
+        if (metric == null) {
+            return Double.NaN;
+        }
+        for (JsonNode measurement : metric.path("measurements")) {
+            if (statistic.equals(measurement.path("statistic").asText())) {
+                return measurement.path("value").asDouble();
+            }
+        }
+        return Double.NaN;
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+            .timeout(Duration.ofSeconds(5))
+            .GET()
+            .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static boolean canPin() {
+        if (!System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("linux")) {
+            return false;
+        }
+        for (String dir : System.getenv().getOrDefault("PATH", "").split(File.pathSeparator)) {
+            if (Files.isExecutable(Path.of(dir, "taskset"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * JVM counters of the application at one point in time. Heap values are in
+     * bytes, GC times in seconds and CPU usage from 0 to 1 of the available CPUs.
+     */
+    record JvmSnapshot(double heapUsed, double heapMax, long gcPauses, double gcPauseSeconds,
+                       double gcPauseMaxSeconds, double allocatedBytes, double cpuUsage) {
+    }
+}
@@ -0,0 +1,84 @@
+package com.thumbnailapi.load;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * CPU, memory and environment of an App Platform instance, read from the
+ * service definition in {@code app.yaml}.
+ *
+ * Only the keys the load test needs are read: {@code instance_size_slug} and
+ * the {@code envs} of the service. The slug is mapped to the vCPUs and memory of
+ * the instance size.
+ */
+record InstanceProfile(String slug, int cpus, long memoryBytes, Map<String, String> env) {
+
+    private static final long MB = 1024L * 1024;
+
+    /** vCPUs and memory (MB) of the App Platform instance sizes. */
+    private static final Map<String, long[]> SIZES = Map.of(
+        "basic-xxs", new long[] {1, 512},
+        "basic-xs", new long[] {1, 1024},
+        "basic-s", new long[] {1, 2048},
+        "basic-m", new long[] {2, 4096},
+        "professional-xs", new long[] {1, 1024},
+        "professional-s", new long[] {1, 2048},
+        "professional-m", new long[] {2, 4096},
+        "professional-1l", new long[] {4, 8192});
+
+    private static final Pattern SERVICE = Pattern.compile("^\\s*-\\s*name:\\s*(\\S+)\\s*$");
+    private static final Pattern SLUG = Pattern.compile("^\\s*instance_size_slug:\\s*(\\S+)\\s*$");
+    private static final Pattern ENV_KEY = Pattern.compile("^\\s*-\\s*key:\\s*(\\S+)\\s*$");
+    private static final Pattern ENV_VALUE = Pattern.compile("^\\s*value:\\s*'?\"?(.*?)\"?'?\\s*$");
+
+    /**
+     * Reads the profile of the named service.
+     *
+     * @throws IllegalArgumentException if the service or its instance size is missing or unknown
+     */
+    static InstanceProfile read(Path appYaml, String service) throws IOException {
+        List<String> lines = Files.readAllLines(appYaml);
+        String slug = null;
+        Map<String, String> env = new LinkedHashMap<>();
+        boolean inService = false;
+        String pendingKey = null;
+
+        for (String line : lines) {
+            Matcher name = SERVICE.matcher(line);
+            if (name.matches()) {
+                inService = name.group(1).equals(service);
+                continue;
+            }
+            if (!inService) {
+                continue;
+            }
+
+            Matcher slugMatch = SLUG.matcher(line);
+            Matcher key = ENV_KEY.matcher(line);
+            Matcher value = ENV_VALUE.matcher(line);
+            if (slugMatch.matches()) {
+                slug = slugMatch.group(1);
+            } else if (key.matches()) {
+                pendingKey = key.group(1);
+            } else if (pendingKey != null && value.matches()) {
+                env.put(pendingKey, value.group(1));
+                pendingKey = null;
+            }
+        }
+
+        if (slug == null) {
+            throw new IllegalArgumentException("No instance_size_slug for service '" + service + "' in " + appYaml);
+        }
+        long[] size = SIZES.get(slug);
+        if (size == null) {
+            throw new IllegalArgumentException("Unknown instance size '" + slug + "', expected one of " + SIZES.keySet());
+        }
+        return new InstanceProfile(slug, (int) size[0], size[1] * MB, env);
+    }
+}
@@ -0,0 +1,157 @@
+package com.thumbnailapi.load;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * Settings of a load test run, parsed from {@code --key=value} arguments.
+ *
+ * Mix entries are separated by {@code ;} and weighted with {@code @}, e.g.
+ * {@code --images=1920x1080/jpeg@3;800x600/png@1} and
+ * {@code --sizes=small,medium@4;small,medium,large@1}.
+ */
+final class LoadOptions {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("app-yaml", "app.yaml");
+        DEFAULTS.put("service", "thumbnail-api");
+        DEFAULTS.put("report-dir", "target/load-report");
+        DEFAULTS.put("rates", "1,2,3,4,5,6,8,10,12");
+        DEFAULTS.put("stage", "60s");
+        DEFAULTS.put("warmup", "30s");
+        DEFAULTS.put("timeout", "30s");
+        DEFAULTS.put("images", "1024x768/jpeg@4;1920x1080/jpeg@3;4000x3000/jpeg@1;800x600/png@2");
+        DEFAULTS.put("sizes", "small,medium@4;small@2;small,medium,large@2;1280x720@1");
+        DEFAULTS.put("variants", "8");
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("pin-cpus", "true");
+        DEFAULTS.put("max-saturated-stages", "2");
+        DEFAULTS.put("knee-p99-factor", "3.0");
+        DEFAULTS.put("max-error-rate", "0.01");
+        DEFAULTS.put("app-args", "--thumbnail.cache.enabled=false;--thumbnail.store.enabled=false;"
+            + "--thumbnail.coalesce.enabled=false");
+    }
+
+    private final Map<String, String> values;
+
+    private LoadOptions(Map<String, String> values) {
+        this.values = values;
+    }
+
+    /**
+     * Parses the arguments over the defaults.
+     *
+     * @throws IllegalArgumentException on an unknown or malformed argument
+     */
+    static LoadOptions parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --key=value, got '" + arg + "'");
+            }
+            String key = arg.substring(2, equals);
+            if (!DEFAULTS.containsKey(key)) {
+                throw new IllegalArgumentException("Unknown option --" + key + ", expected one of " + DEFAULTS.keySet());
+            }
+            values.put(key, arg.substring(equals + 1));
+        }
+        return new LoadOptions(values);
+    }
+
+    Map<String, String> asMap() {
+        return values;
+    }
+
+    Path appYaml() {
+        return Path.of(values.get("app-yaml"));
+    }
+
+    String service() {
+        return values.get("service");
+    }
+
+    Path reportDir() {
+        return Path.of(values.get("report-dir"));
+    }
+
+    /**
+     * Arrival rates of the measured stages in requests per second, in the order run.
+     */
+    double[] rates() {
+        return Arrays.stream(values.get("rates").split(","))
+            .map(String::trim)
+            .mapToDouble(Double::parseDouble)
+            .toArray();
+    }
+
+    Duration stage() {
+        return duration("stage");
+    }
+
+    Duration warmup() {
+        return duration("warmup");
+    }
+
+    Duration timeout() {
+        return duration("timeout");
+    }
+
+    String images() {
+        return values.get("images");
+    }
+
+    String sizes() {
+        return values.get("sizes");
+    }
+
+    int variants() {
+        return Integer.parseInt(values.get("variants"));
+    }
+
+    long seed() {
+        return Long.parseLong(values.get("seed"));
+    }
+
+    boolean pinCpus() {
+        return Boolean.parseBoolean(values.get("pin-cpus"));
+    }
+
+    int maxSaturatedStages() {
+        return Integer.parseInt(values.get("max-saturated-stages"));
+    }
+
+    double kneeP99Factor() {
+        return Double.parseDouble(values.get("knee-p99-factor"));
+    }
+
+    double maxErrorRate() {
+        return Double.parseDouble(values.get("max-error-rate"));
+    }
+
+    /**
+     * Extra Spring arguments for the application; they override its properties.
+     */
+    List<String> appArgs() {
+        List<String> args = new ArrayList<>();
+        for (String arg : values.get("app-args").split(";")) {
+            if (!arg.isBlank()) {
+                args.add(arg.trim());
+            }
+        }
+        return args;
+    }
+
+    private Duration duration(String key) {
+        return DurationStyle.detectAndParse(values.get(key));
+    }
+}
@@ -0,0 +1,166 @@
+package com.thumbnailapi.load;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes the results of a load test as {@code load-report.json} and a
+ * self-contained {@code load-report.html} with the latency curve.
+ */
+final class LoadReport {
+
+    private static final String[] SERIES_COLORS = {"#2b8a3e", "#1971c2", "#e8590c", "#c92a2a"};
+    private static final int CHART_WIDTH = 720;
+    private static final int CHART_HEIGHT = 360;
+    private static final int MARGIN = 50;
+
+    private LoadReport() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+
+    static void write(LoadOptions options, InstanceProfile profile, Workload workload, List<StageResult> results,
+                      LoadTest.Knee knee) throws IOException {
+        Path dir = options.reportDir();
+        Files.createDirectories(dir);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("generated", Instant.now().toString());
+        report.put("endpoint", "POST /api/v1/thumbnails");
+        report.put("instance", Map.of(
+            "slug", profile.slug(),
+            "cpus", profile.cpus(),
+            "memoryMb", profile.memoryBytes() / (1024 * 1024),
+            "env", profile.env()));
+        report.put("options", options.asMap());
+        report.put("images", workload.imageLabels());
+        report.put("sizes", workload.sizeLabels());
+        report.put("stages", results);
+        report.put("knee", knee);
+        new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .writeValue(dir.resolve("load-report.json").toFile(), report);
+
+        Files.writeString(dir.resolve("load-report.html"), html(profile, workload, results, knee),
+            StandardCharsets.UTF_8);
+    }
+
+    private static String html(InstanceProfile profile, Workload workload, List<StageResult> results,
+                               LoadTest.Knee knee) {
+        StringBuilder html = new StringBuilder(16 * 1024);
+        html.append("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>Thumbnail API load test</title>\n")
+            .append("<style>body{font-family:sans-serif;margin:2em}table{border-collapse:collapse}")
+            .append("td,th{border:1px solid #ccc;padding:4px 8px;text-align:right}th{background:#f1f3f5}")
+            .append("tr.saturated td{background:#fff5f5}</style></head><body>\n")
+            .append("<h1>POST /api/v1/thumbnails</h1>\n");
+        html.append(String.format(Locale.ROOT, "<p>Instance <b>%s</b>: %d vCPU, %d MB, env %s</p>%n",
+            escape(profile.slug()), profile.cpus(), profile.memoryBytes() / (1024 * 1024),
+            escape(profile.env().toString())));
+        html.append("<p>Images ").append(escape(workload.imageLabels().toString()))
+            .append("; sizes ").append(escape(workload.sizeLabels().toString())).append("</p>\n");
+        html.append("<p><b>").append(escape(knee.describe())).append("</b></p>\n");
+
+        chart(html, results, knee);
+
+        html.append("<h2>Stages</h2>\n<table><tr><th>Offered req/s</th><th>Sent</th><th>Throughput/s</th>")
+            .append("<th>p50 ms</th><th>p90 ms</th><th>p99 ms</th><th>p99.9 ms</th><th>Max ms</th>")
+            .append("<th>Error rate</th><th>Errors</th><th>Heap peak MB</th><th>Heap max MB</th>")
+            .append("<th>GC pauses</th><th>GC total ms</th><th>GC max ms</th><th>Alloc MB/s</th>")
+            .append("<th>CPU</th></tr>\n");
+        for (StageResult result : results) {
+            boolean saturated = !Double.isNaN(knee.saturatedRate()) && result.offeredRate() >= knee.saturatedRate();
+            StageResult.Jvm jvm = result.jvm();
+            html.append(saturated ? "<tr class=\"saturated\">" : "<tr>")
+                .append(String.format(Locale.ROOT,
+                    "<td>%.1f</td><td>%d</td><td>%.1f</td><td>%.0f</td><td>%.0f</td><td>%.0f</td><td>%.0f</td>"
+                        + "<td>%.0f</td><td>%.2f%%</td><td>%s</td><td>%.0f</td><td>%.0f</td><td>%d</td>"
+                        + "<td>%.0f</td><td>%.0f</td><td>%.0f</td><td>%.0f%%</td>",
+                    result.offeredRate(), result.sent(), result.throughput(), result.p50(), result.p90(),
+                    result.p99(), result.p999(), result.max(), result.errorRate() * 100,
+                    escape(result.errors().toString()), jvm.heapUsedPeakMb(), jvm.heapMaxMb(), jvm.gcPauses(),
+                    jvm.gcPauseTotalMs(), jvm.gcPauseMaxMs(), jvm.allocationMbPerSecond(),
+                    jvm.cpuUsageMean() * 100))
+                .append("</tr>\n");
+        }
+        html.append("</table>\n</body></html>\n");
+        return html.toString();
+    }
+
+    /**
+     * Draws latency percentiles against the offered rate as an inline SVG line chart.
+     */
+    private static void chart(StringBuilder html, List<StageResult> results, LoadTest.Knee knee) {
+        if (results.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, ToDoubleFunction<StageResult>>> series = List.of(
+            Map.entry("p50", StageResult::p50),
+            Map.entry("p90", StageResult::p90),
+            Map.entry("p99", StageResult::p99),
+            Map.entry("p99.9", StageResult::p999));
+
+        double maxRate = results.stream().mapToDouble(StageResult::offeredRate).max().orElse(1);
+        double maxLatency = results.stream()
+            .mapToDouble(StageResult::p999)
+            .filter(value -> !Double.isNaN(value))
+            .max()
+            .orElse(1);
+        double plotWidth = CHART_WIDTH - 2 * MARGIN;
+        double plotHeight = CHART_HEIGHT - 2 * MARGIN;
+
+        html.append("<h2>Latency by arrival rate</h2>\n")
+            .append(String.format(Locale.ROOT, "<svg width=\"%d\" height=\"%d\" font-size=\"11\">%n",
+                CHART_WIDTH, CHART_HEIGHT))
+            .append(String.format(Locale.ROOT,
+                "<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"#000\"/>"
+                    + "<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"#000\"/>%n",
+                MARGIN, MARGIN, MARGIN, CHART_HEIGHT - MARGIN,
+                MARGIN, CHART_HEIGHT - MARGIN, CHART_WIDTH - MARGIN, CHART_HEIGHT - MARGIN))
+            .append(String.format(Locale.ROOT,
+                "<text x=\"%d\" y=\"%d\">%.0f ms</text><text x=\"%d\" y=\"%d\">0</text>"
+                    + "<text x=\"%d\" y=\"%d\" text-anchor=\"end\">%.1f req/s</text>%n",
+                4, MARGIN, maxLatency, MARGIN - 12, CHART_HEIGHT - MARGIN,
+                CHART_WIDTH - MARGIN, CHART_HEIGHT - MARGIN + 16, maxRate));
+
+        if (!Double.isNaN(knee.saturatedRate())) {
+            double x = MARGIN + knee.sustainedRate() / maxRate * plotWidth;
+            html.append(String.format(Locale.ROOT,
+                "<line x1=\"%.1f\" y1=\"%d\" x2=\"%.1f\" y2=\"%d\" stroke=\"#adb5bd\" stroke-dasharray=\"4\"/>"
+                    + "<text x=\"%.1f\" y=\"%d\">knee</text>%n",
+                x, MARGIN, x, CHART_HEIGHT - MARGIN, x + 4, MARGIN + 12));
+        }
+
+        for (int i = 0; i < series.size(); i++) {
+            StringBuilder points = new StringBuilder();
+            for (StageResult result : results) {
+                double latency = series.get(i).getValue().applyAsDouble(result);
+                if (Double.isNaN(latency)) {
+                    continue;
+                }
+                points.append(String.format(Locale.ROOT, "%.1f,%.1f ",
+                    MARGIN + result.offeredRate() / maxRate * plotWidth,
+                    CHART_HEIGHT - MARGIN - latency / maxLatency * plotHeight));
+            }
+            html.append(String.format(Locale.ROOT,
+                "<polyline fill=\"none\" stroke=\"%s\" stroke-width=\"2\" points=\"%s\"/>"
+                    + "<text x=\"%d\" y=\"%d\" fill=\"%s\">%s</text>%n",
+                SERIES_COLORS[i], points.toString().trim(),
+                CHART_WIDTH - MARGIN + 6, MARGIN + 14 * i, SERIES_COLORS[i], series.get(i).getKey()));
+        }
+        html.append("</svg>\n");
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
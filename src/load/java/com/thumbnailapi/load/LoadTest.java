@@ -0,0 +1,308 @@
+package com.thumbnailapi.load;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+import com.thumbnailapi.util.Constants;
+
+/**
+ * Open-model load test of {@code POST /api/v1/thumbnails}.
+ *
+ * Starts the application in its own JVM with the instance profile of a service
+ * in {@code app.yaml}, then sends a weighted mix of uploads at fixed arrival
+ * rates, one stage per rate. Requests are scheduled at evenly spaced times
+ * whether or not earlier ones have completed, as real clients arrive, so
+ * latency grows without bound once the service is past its capacity. The
+ * knee is the last rate before a stage saturates: throughput falls behind the
+ * arrival rate, the error rate exceeds its limit or p99 grows past a multiple
+ * of the first stage's.
+ *
+ * Run with {@code mvn -Pload test-compile exec:exec -Dload.args="--rates=1,2,4"};
+ * see {@link LoadOptions} for every option. Reports are written as
+ * {@code load-report.json} and {@code load-report.html} to the report directory.
+ */
+public final class LoadTest {
+
+    private static final String UPLOAD_PATH = Constants.BASE_API_PATH + "/thumbnails";
+    private static final long MB = 1024L * 1024;
+    /** Stages whose throughput is below this fraction of the arrival rate are saturated. */
+    private static final double MIN_THROUGHPUT_RATIO = 0.95;
+
+    private final AppProcess app;
+    private final Workload workload;
+    private final Duration timeout;
+    private final HttpClient client;
+    private final URI uploadUri;
+
+    private LoadTest(AppProcess app, Workload workload, Duration timeout) {
+        this.app = app;
+        this.workload = workload;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        this.uploadUri = URI.create("http://localhost:" + app.port() + UPLOAD_PATH);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        InstanceProfile profile = InstanceProfile.read(options.appYaml(), options.service());
+        Workload workload = Workload.create(options.images(), options.sizes(), options.variants(), options.seed());
+        System.out.printf(Locale.ROOT, "Instance %s: %d vCPU, %d MB, env %s%n",
+            profile.slug(), profile.cpus(), profile.memoryBytes() / MB, profile.env());
+        System.out.printf(Locale.ROOT, "Images %s, sizes %s%n", workload.imageLabels(), workload.sizeLabels());
+
+        List<StageResult> results = new ArrayList<>();
+        try (AppProcess app = AppProcess.start(profile, options.appArgs(), options.pinCpus(),
+                options.reportDir().resolve("app.log"))) {
+            LoadTest test = new LoadTest(app, workload, options.timeout());
+            double[] rates = options.rates();
+            if (!options.warmup().isZero()) {
+                System.out.printf(Locale.ROOT, "Warming up at %.1f req/s for %s%n", rates[0], options.warmup());
+                test.runStage(rates[0], options.warmup());
+            }
+
+            int saturated = 0;
+            for (double rate : rates) {
+                StageResult result = test.runStage(rate, options.stage());
+                results.add(result);
+                print(result);
+                String reason = saturation(result, results.get(0), options);
+                saturated = reason == null ? 0 : saturated + 1;
+                if (saturated >= options.maxSaturatedStages()) {
+                    System.out.printf(Locale.ROOT, "Stopping after %d saturated stages (%s)%n", saturated, reason);
+                    break;
+                }
+            }
+        }
+
+        Knee knee = findKnee(results, options);
+        System.out.println(knee.describe());
+        LoadReport.write(options, profile, workload, results, knee);
+        System.out.println("Reports written to " + options.reportDir().toAbsolutePath());
+    }
+
+    /**
+     * Sends requests at the given rate for the given time and waits for the last
+     * of them to complete or time out.
+     */
+    private StageResult runStage(double rate, Duration duration) throws IOException, InterruptedException {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long end = start + duration.toNanos();
+        StageRecorder recorder = new StageRecorder(start);
+
+        AppProcess.JvmSnapshot before = app.snapshot();
+        JvmSampler sampler = new JvmSampler(app);
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (long scheduled = start; scheduled < end; scheduled += interval) {
+            waitUntil(scheduled);
+            requests.add(send(workload.next(), scheduled, recorder));
+        }
+
+        try {
+            CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new))
+                .get(timeout.toMillis() + TimeUnit.SECONDS.toMillis(5), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            System.out.printf(Locale.ROOT, "%d requests still in flight after the timeout%n",
+                recorder.sentCount() - recorder.completed());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Request accounting failed", e.getCause());
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        sampler.stop();
+        AppProcess.JvmSnapshot after = app.snapshot();
+
+        StageResult.Jvm jvm = new StageResult.Jvm(
+            maxOf(sampler.heapUsedPeak(), after.heapUsed()) / MB,
+            after.heapMax() / MB,
+            after.gcPauses() - before.gcPauses(),
+            (after.gcPauseSeconds() - before.gcPauseSeconds()) * 1000,
+            maxOf(sampler.gcPauseMaxSeconds(), after.gcPauseMaxSeconds()) * 1000,
+            (after.allocatedBytes() - before.allocatedBytes()) / MB / seconds,
+            sampler.cpuUsageMean());
+        return recorder.result(rate, jvm);
+    }
+
+    private CompletableFuture<Void> send(Workload.Upload upload, long scheduled, StageRecorder recorder) {
+        HttpRequest request = HttpRequest.newBuilder(uploadUri)
+            .timeout(timeout)
+            .header("Content-Type", "multipart/form-data; boundary=" + Workload.BOUNDARY)
+            .POST(HttpRequest.BodyPublishers.ofByteArrays(upload.parts()))
+            .build();
+        recorder.sent();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+            .handle((response, failure) -> {
+                long completed = System.nanoTime();
+                if (failure != null) {
+                    recorder.failed(errorClass(failure), completed);
+                } else if (response.statusCode() / 100 == 2) {
+                    recorder.succeeded(scheduled, completed);
+                } else {
+                    recorder.failed("http_" + response.statusCode(), completed);
+                }
+                return null;
+            });
+    }
+
+    private static String errorClass(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+            ? failure.getCause()
+            : failure;
+        if (cause instanceof HttpTimeoutException) {
+            return "timeout";
+        }
+        if (cause instanceof ConnectException) {
+            return "connect";
+        }
+        return "io";
+    }
+
+    /**
+     * Larger of two samples, ignoring a metric the application did not publish.
+     */
+    private static double maxOf(double sampled, double last) {
+        return Double.isNaN(last) ? sampled : Math.max(sampled, last);
+    }
+
+    private static void waitUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static void print(StageResult result) {
+        System.out.printf(Locale.ROOT,
+            "%6.1f req/s: throughput=%.1f/s p50=%.0fms p90=%.0fms p99=%.0fms p99.9=%.0fms max=%.0fms "
+                + "errors=%.2f%% %s heapPeak=%.0fMB gc=%d (%.0fms, max %.0fms) alloc=%.0fMB/s cpu=%.0f%%%n",
+            result.offeredRate(), result.throughput(), result.p50(), result.p90(), result.p99(), result.p999(),
+            result.max(), result.errorRate() * 100, result.errors(), result.jvm().heapUsedPeakMb(),
+            result.jvm().gcPauses(), result.jvm().gcPauseTotalMs(), result.jvm().gcPauseMaxMs(),
+            result.jvm().allocationMbPerSecond(), result.jvm().cpuUsageMean() * 100);
+    }
+
+    /**
+     * Explains why a stage is saturated compared with the first stage.
+     *
+     * @return the reason, or null when the stage kept up with its arrival rate
+     */
+    static String saturation(StageResult result, StageResult first, LoadOptions options) {
+        if (result.errorRate() > options.maxErrorRate()) {
+            return String.format(Locale.ROOT, "error rate %.2f%% above %.2f%%",
+                result.errorRate() * 100, options.maxErrorRate() * 100);
+        }
+        if (result.throughput() < result.offeredRate() * MIN_THROUGHPUT_RATIO) {
+            return String.format(Locale.ROOT, "throughput %.1f/s behind the arrival rate",
+                result.throughput());
+        }
+        if (result.p99() > first.p99() * options.kneeP99Factor()) {
+            return String.format(Locale.ROOT, "p99 %.0fms above %.1fx the %.0fms of the first stage",
+                result.p99(), options.kneeP99Factor(), first.p99());
+        }
+        return null;
+    }
+
+    static Knee findKnee(List<StageResult> results, LoadOptions options) {
+        StageResult sustained = null;
+        for (StageResult result : results) {
+            String reason = saturation(result, results.get(0), options);
+            if (reason != null) {
+                return new Knee(sustained == null ? 0 : sustained.offeredRate(), result.offeredRate(), reason);
+            }
+            sustained = result;
+        }
+        return new Knee(sustained == null ? 0 : sustained.offeredRate(), Double.NaN, null);
+    }
+
+    /**
+     * Highest arrival rate sustained, and the first rate that saturated with the reason.
+     * The saturated rate is NaN and the reason null when no stage saturated.
+     */
+    record Knee(double sustainedRate, double saturatedRate, String reason) {
+
+        String describe() {
+            if (reason == null) {
+                return String.format(Locale.ROOT, "No knee reached; sustained up to %.1f req/s", sustainedRate);
+            }
+            return String.format(Locale.ROOT, "Knee: sustained %.1f req/s; saturated at %.1f req/s (%s)",
+                sustainedRate, saturatedRate, reason);
+        }
+    }
+
+    /**
+     * Samples the application's heap, GC pauses and CPU once a second during a stage.
+     */
+    private static final class JvmSampler {
+
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        private double heapUsedPeak;
+        private double gcPauseMaxSeconds;
+        private double cpuUsageSum;
+        private int cpuSamples;
+
+        JvmSampler(AppProcess app) {
+            scheduler.scheduleAtFixedRate(() -> {
+                try {
+                    sample(app.snapshot());
+                } catch (IOException e) {
+                    // Missed sample; the application is too busy to answer
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, 0, 1, TimeUnit.SECONDS);
+        }
+
+        private synchronized void sample(AppProcess.JvmSnapshot snapshot) {
+            heapUsedPeak = maxOf(heapUsedPeak, snapshot.heapUsed());
+            gcPauseMaxSeconds = maxOf(gcPauseMaxSeconds, snapshot.gcPauseMaxSeconds());
+            if (!Double.isNaN(snapshot.cpuUsage())) {
+                cpuUsageSum += snapshot.cpuUsage();
+                cpuSamples++;
+            }
+        }
+
+        void stop() throws InterruptedException {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        synchronized double heapUsedPeak() {
+            return heapUsedPeak;
+        }
+
+        synchronized double gcPauseMaxSeconds() {
+            return gcPauseMaxSeconds;
+        }
+
+        synchronized double cpuUsageMean() {
+            return cpuSamples == 0 ? Double.NaN : cpuUsageSum / cpuSamples;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.thumbnailapi.load;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the outcome of every request sent during one stage.
+ *
+ * Latency is measured from the time a request was scheduled to arrive, not from
+ * when it was actually sent, so that a client falling behind does not hide
+ * server queueing (coordinated omission). Completions arrive on the HTTP
+ * client's threads.
+ */
+final class StageRecorder {
+
+    private final long startNanos;
+    private long[] latencies = new long[1024];
+    private int count;
+    private final Map<String, Integer> errors = new TreeMap<>();
+    private int sent;
+    private long lastCompletionNanos;
+
+    StageRecorder(long startNanos) {
+        this.startNanos = startNanos;
+        this.lastCompletionNanos = startNanos;
+    }
+
+    synchronized void sent() {
+        sent++;
+    }
+
+    /**
+     * Records a 2xx response.
+     */
+    synchronized void succeeded(long scheduledNanos, long completedNanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = completedNanos - scheduledNanos;
+        lastCompletionNanos = Math.max(lastCompletionNanos, completedNanos);
+    }
+
+    /**
+     * Records a failed request under an error class such as {@code http_503} or {@code timeout}.
+     */
+    synchronized void failed(String error, long completedNanos) {
+        errors.merge(error, 1, Integer::sum);
+        lastCompletionNanos = Math.max(lastCompletionNanos, completedNanos);
+    }
+
+    synchronized int completed() {
+        return count + errors.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    synchronized int sentCount() {
+        return sent;
+    }
+
+    /**
+     * Summarizes the stage.
+     *
+     * @param offeredRate arrival rate of the stage in requests per second
+     * @param jvm heap, GC and CPU use of the application during the stage
+     */
+    synchronized StageResult result(double offeredRate, StageResult.Jvm jvm) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int failed = sent - count;
+        Map<String, Integer> failures = new TreeMap<>(errors);
+        int incomplete = sent - completed();
+        if (incomplete > 0) {
+            failures.put("incomplete", incomplete);
+        }
+        double seconds = (lastCompletionNanos - startNanos) / 1e9;
+        return new StageResult(
+            offeredRate,
+            sent,
+            count,
+            failed,
+            sent == 0 ? 0 : (double) failed / sent,
+            Collections.unmodifiableMap(failures),
+            seconds <= 0 ? 0 : count / seconds,
+            percentileMillis(sorted, 0.50),
+            percentileMillis(sorted, 0.90),
+            percentileMillis(sorted, 0.99),
+            percentileMillis(sorted, 0.999),
+            sorted.length == 0 ? Double.NaN : toMillis(sorted[sorted.length - 1]),
+            jvm);
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return toMillis(sorted[Math.max(0, index)]);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,35 @@
+package com.thumbnailapi.load;
+
+import java.util.Map;
+
+/**
+ * Outcome of one stage at a fixed arrival rate. Latencies are in milliseconds
+ * and cover successful requests; throughput counts successful requests per second.
+ */
+record StageResult(double offeredRate,
+                   int sent,
+                   int succeeded,
+                   int failed,
+                   double errorRate,
+                   Map<String, Integer> errors,
+                   double throughput,
+                   double p50,
+                   double p90,
+                   double p99,
+                   double p999,
+                   double max,
+                   Jvm jvm) {
+
+    /**
+     * Heap, GC and CPU use of the application during the stage. Heap values are
+     * in megabytes; allocation in megabytes per second of the stage.
+     */
+    record Jvm(double heapUsedPeakMb,
+               double heapMaxMb,
+               long gcPauses,
+               double gcPauseTotalMs,
+               double gcPauseMaxMs,
+               double allocationMbPerSecond,
+               double cpuUsageMean) {
+    }
+}
@@ -0,0 +1,196 @@
+package com.thumbnailapi.load;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Function;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Weighted mix of uploads and {@code sizes} specs replayed by the load test.
+ *
+ * Every image type is pre-encoded in several variants with different content,
+ * so that the server sees distinct uploads, and every request picks an image
+ * variant and a sizes spec at random by weight. The picks are seeded, so two
+ * runs with the same options send the same sequence of requests.
+ */
+final class Workload {
+
+    static final String BOUNDARY = "load-test-boundary";
+
+    private final List<Weighted<ImageType>> images;
+    private final List<Weighted<String>> sizes;
+    private final Random random;
+
+    private Workload(List<Weighted<ImageType>> images, List<Weighted<String>> sizes, long seed) {
+        this.images = images;
+        this.sizes = sizes;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Parses the mix and encodes the images.
+     *
+     * @param imagesSpec e.g. {@code 1920x1080/jpeg@3;800x600/png@1}
+     * @param sizesSpec e.g. {@code small,medium@4;small,medium,large@1}
+     * @param variants distinct images encoded per image type
+     * @param seed seed of the image content and of the request sequence
+     */
+    static Workload create(String imagesSpec, String sizesSpec, int variants, long seed) {
+        Random content = new Random(seed);
+        List<Weighted<ImageType>> images = parse(imagesSpec, spec -> ImageType.create(spec, variants, content));
+        List<Weighted<String>> sizes = parse(sizesSpec, Function.identity());
+        return new Workload(images, sizes, seed);
+    }
+
+    /**
+     * Picks the next request. Only called from the thread that schedules arrivals.
+     */
+    Upload next() {
+        ImageType image = pick(images);
+        byte[] data = image.variants().get(random.nextInt(image.variants().size()));
+        String spec = pick(sizes);
+        return new Upload(image.label(), spec, multipartHead(image), data, multipartTail(spec));
+    }
+
+    List<String> imageLabels() {
+        return images.stream().map(image -> image.value().label() + "@" + image.weight()).toList();
+    }
+
+    List<String> sizeLabels() {
+        return sizes.stream().map(size -> size.value() + "@" + size.weight()).toList();
+    }
+
+    private <T> T pick(List<Weighted<T>> entries) {
+        int total = entries.stream().mapToInt(Weighted::weight).sum();
+        int ticket = random.nextInt(total);
+        for (Weighted<T> entry : entries) {
+            ticket -= entry.weight();
+            if (ticket < 0) {
+                return entry.value();
+            }
+        }
+        throw new IllegalStateException("Weights changed while picking");
+    }
+
+    private static <T> List<Weighted<T>> parse(String spec, Function<String, T> parser) {
+        List<Weighted<T>> entries = new ArrayList<>();
+        for (String entry : spec.split(";")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int at = entry.lastIndexOf('@');
+            int weight = at < 0 ? 1 : Integer.parseInt(entry.substring(at + 1).trim());
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Weight must be positive in '" + entry + "'");
+            }
+            entries.add(new Weighted<>(parser.apply((at < 0 ? entry : entry.substring(0, at)).trim()), weight));
+        }
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("Empty mix '" + spec + "'");
+        }
+        return List.copyOf(entries);
+    }
+
+    private static byte[] multipartHead(ImageType image) {
+        return ("--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"load." + image.format() + "\"\r\n"
+            + "Content-Type: image/" + image.format() + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] multipartTail(String sizes) {
+        return ("\r\n--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"sizes\"\r\n\r\n"
+            + sizes + "\r\n"
+            + "--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * One request of the mix: the multipart body in three parts, so that the
+     * encoded image is sent without being copied.
+     */
+    record Upload(String image, String sizes, byte[] head, byte[] data, byte[] tail) {
+
+        List<byte[]> parts() {
+            return List.of(head, data, tail);
+        }
+    }
+
+    private record Weighted<T>(T value, int weight) {
+    }
+
+    /**
+     * Encoded variants of one image size and format.
+     */
+    private record ImageType(String label, String format, List<byte[]> variants) {
+
+        static ImageType create(String spec, int variants, Random content) {
+            String[] parts = spec.split("/");
+            String[] dimensions = parts[0].split("x");
+            if (parts.length != 2 || dimensions.length != 2) {
+                throw new IllegalArgumentException("Expected WIDTHxHEIGHT/format, got '" + spec + "'");
+            }
+            int width = Integer.parseInt(dimensions[0]);
+            int height = Integer.parseInt(dimensions[1]);
+            String format = parts[1].toLowerCase(Locale.ROOT);
+
+            List<byte[]> encoded = new ArrayList<>(variants);
+            for (int i = 0; i < variants; i++) {
+                encoded.add(encode(render(width, height, format, content), format));
+            }
+            return new ImageType(spec, format, List.copyOf(encoded));
+        }
+
+        /**
+         * Draws gradients, shapes and noise, which compress like a photo with some
+         * flat areas rather than a solid fill.
+         */
+        private static BufferedImage render(int width, int height, String format, Random content) {
+            boolean alpha = format.equals("png");
+            BufferedImage image = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setPaint(new GradientPaint(0, 0, randomColor(content), width, height, randomColor(content)));
+            graphics.fillRect(0, 0, width, height);
+            for (int i = 0; i < 24; i++) {
+                graphics.setColor(randomColor(content));
+                int size = Math.max(1, Math.min(width, height) / (2 + content.nextInt(6)));
+                graphics.fillOval(content.nextInt(width), content.nextInt(height), size, size);
+            }
+            graphics.dispose();
+
+            for (int i = 0; i < width * height / 50; i++) {
+                image.setRGB(content.nextInt(width), content.nextInt(height), content.nextInt() | 0xFF000000);
+            }
+            return image;
+        }
+
+        private static Color randomColor(Random content) {
+            return new Color(content.nextInt(256), content.nextInt(256), content.nextInt(256));
+        }
+
+        private static byte[] encode(BufferedImage image, String format) {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                if (!ImageIO.write(image, format, out)) {
+                    throw new IllegalArgumentException("No ImageIO writer for format '" + format + "'");
+                }
+                return out.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 /**
  * Main Spring Boot application for the Thumbnail API service.
@@ -12,6 +13,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * with support for preset and custom dimensions, and comprehensive error handling.
  */
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class ThumbnailApiApplication {
 
     private static final Logger logger = LogManager.getLogger(ThumbnailApiApplication.class);
@@ -0,0 +1,164 @@
+package com.thumbnailapi.admission;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.exception.ServiceOverloadedException;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Global budget of raster memory shared by every upload being decoded and resized.
+ *
+ * Each upload reserves its estimated peak before decoding and holds it until its
+ * last size is encoded. The budget is a fair semaphore counted in KiB: an upload
+ * that does not fit waits up to the queue timeout and is then rejected with a
+ * {@link ServiceOverloadedException}. An upload larger than the whole budget is
+ * clamped to it, so it can still run, but only on its own.
+ */
+@Component
+public class PixelMemoryBudget implements MeterBinder {
+
+    private static final Logger logger = LogManager.getLogger(PixelMemoryBudget.class);
+
+    static final int UNIT_BYTES = 1024;
+
+    private final boolean enabled;
+    private final int totalUnits;
+    private final Semaphore units;
+    private final Duration queueTimeout;
+    private final Duration retryAfter;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a budget from the {@code thumbnail.admission.*} settings.
+     */
+    public PixelMemoryBudget(ThumbnailProperties properties) {
+        ThumbnailProperties.Admission admission = properties.getAdmission();
+        this.enabled = admission.isEnabled();
+        this.totalUnits = (int) Math.min(Integer.MAX_VALUE,
+            Math.max(1, admission.getMaxPixelMemory().toBytes() / UNIT_BYTES));
+        this.units = new Semaphore(totalUnits, true);
+        this.queueTimeout = admission.getQueueTimeout();
+        this.retryAfter = admission.getRetryAfter();
+        if (enabled) {
+            logger.info("Pixel memory admission enabled: budget {} bytes, queue timeout {}",
+                (long) totalUnits * UNIT_BYTES, queueTimeout);
+        }
+    }
+
+    /**
+     * Returns whether uploads are admitted against the budget.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reserves raster memory, waiting up to the queue timeout for it to free up.
+     *
+     * @param bytes estimated peak raster memory of the upload
+     * @return the reservation; close it once the upload's rasters are released
+     * @throws ServiceOverloadedException if the memory does not become available in time
+     */
+    public Reservation reserve(long bytes) {
+        if (!enabled) {
+            return new Reservation(0);
+        }
+
+        int requested = unitsFor(bytes);
+        try {
+            if (!units.tryAcquire(requested, queueTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                logger.warn("Rejected upload needing {} bytes of raster memory; {} of {} bytes available",
+                    bytes, availableBytes(), (long) totalUnits * UNIT_BYTES);
+                throw new ServiceOverloadedException(
+                    "Server is busy processing other images, please retry later", retryAfter);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.increment();
+            throw new ServiceOverloadedException(
+                "Interrupted while waiting for image processing capacity", retryAfter, e);
+        }
+
+        admitted.increment();
+        return new Reservation(requested);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("thumbnail.admission.memory.reserved.bytes", this, PixelMemoryBudget::reservedBytes)
+            .description("Raster memory reserved by uploads being processed")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("thumbnail.admission.memory.available.bytes", this, PixelMemoryBudget::availableBytes)
+            .description("Raster memory left in the admission budget")
+            .baseUnit("bytes")
+            .register(registry);
+        FunctionCounter.builder("thumbnail.admission.requests", admitted, LongAdder::sum)
+            .description("Uploads checked against the raster memory budget")
+            .tag("result", "admitted")
+            .register(registry);
+        FunctionCounter.builder("thumbnail.admission.requests", rejected, LongAdder::sum)
+            .description("Uploads checked against the raster memory budget")
+            .tag("result", "rejected")
+            .register(registry);
+    }
+
+    long reservedBytes() {
+        return (long) (totalUnits - units.availablePermits()) * UNIT_BYTES;
+    }
+
+    long availableBytes() {
+        return (long) units.availablePermits() * UNIT_BYTES;
+    }
+
+    long rejections() {
+        return rejected.sum();
+    }
+
+    private int unitsFor(long bytes) {
+        long requested = Math.max(0, bytes) / UNIT_BYTES + (bytes % UNIT_BYTES > 0 ? 1 : 0);
+        return (int) Math.max(1, Math.min(totalUnits, requested));
+    }
+
+    /**
+     * Raster memory held by one upload. Closing it more than once has no effect.
+     */
+    public final class Reservation implements AutoCloseable {
+
+        private final int reservedUnits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Reservation(int reservedUnits) {
+            this.reservedUnits = reservedUnits;
+        }
+
+        /**
+         * Returns the reserved memory in bytes.
+         */
+        public long bytes() {
+            return (long) reservedUnits * UNIT_BYTES;
+        }
+
+        @Override
+        public void close() {
+            if (reservedUnits > 0 && released.compareAndSet(false, true)) {
+                units.release(reservedUnits);
+            }
+        }
+    }
+}
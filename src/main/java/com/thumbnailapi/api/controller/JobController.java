@@ -0,0 +1,152 @@
+package com.thumbnailapi.api.controller;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.thumbnailapi.exception.GlobalExceptionHandler;
+import com.thumbnailapi.exception.ThumbnailNotFoundException;
+import com.thumbnailapi.job.JobState;
+import com.thumbnailapi.job.ThumbnailJob;
+import com.thumbnailapi.job.ThumbnailJobs;
+import com.thumbnailapi.model.JobStatus;
+import com.thumbnailapi.model.ThumbnailMetadata;
+import com.thumbnailapi.util.Constants;
+import com.thumbnailapi.util.OutputFormats;
+
+/**
+ * REST controller for asynchronous thumbnail jobs.
+ *
+ * Submitting answers 202 as soon as the upload is validated and queued; the
+ * thumbnails are generated in the background. Clients poll the status URL, or
+ * pass a callback URL to be notified, then download each thumbnail.
+ */
+@RestController
+@RequestMapping(Constants.BASE_API_PATH + "/thumbnails/jobs")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class JobController {
+
+    private static final String JOBS_PATH = Constants.BASE_API_PATH + "/thumbnails/jobs/";
+
+    private final ThumbnailJobs thumbnailJobs;
+    private final GlobalExceptionHandler exceptionHandler;
+
+    public JobController(ThumbnailJobs thumbnailJobs, GlobalExceptionHandler exceptionHandler) {
+        this.thumbnailJobs = thumbnailJobs;
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    /**
+     * POST endpoint queuing a thumbnail job for an uploaded image.
+     *
+     * The upload is validated before the job is queued, so invalid images and
+     * parameters get the same errors as the synchronous endpoint. A full queue
+     * answers 503 with Retry-After.
+     *
+     * @param file the image file to process
+     * @param sizes optional comma-separated list of sizes
+     * @param quality optional resize quality
+     * @param profile optional encode profile
+     * @param callbackUrl optional URL that receives a POST when the job finishes;
+     *                    must match {@code thumbnail.jobs.callback-allowed-urls}
+     * @return 202 with the job status and its URL in the Location header
+     *
+     * Example usage:
+     * curl -X POST \
+     *   -F "file=@scan.tiff" \
+     *   -F "sizes=small,large" \
+     *   -F "callback_url=https://hooks.example.com/thumbnails" \
+     *   http://localhost:8080/api/v1/thumbnails/jobs
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<JobStatus> submitJob(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "sizes", required = false) String sizes,
+            @RequestParam(value = "quality", required = false) String quality,
+            @RequestParam(value = "profile", required = false) String profile,
+            @RequestParam(value = "callback_url", required = false) String callbackUrl,
+            WebRequest webRequest) {
+        ThumbnailJob job = thumbnailJobs.submit(file, sizes, quality, profile, callbackUrl, url(JOBS_PATH));
+        return ResponseEntity.accepted()
+            .location(URI.create(job.statusUrl()))
+            .body(status(job, webRequest));
+    }
+
+    /**
+     * GET endpoint returning the status of a job, and its result once finished.
+     *
+     * @param jobId the id returned on submission
+     * @return the job status
+     */
+    @GetMapping(value = "/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<JobStatus> getJob(@PathVariable String jobId, WebRequest webRequest) {
+        return ResponseEntity.ok(status(thumbnailJobs.find(jobId), webRequest));
+    }
+
+    /**
+     * GET endpoint serving one thumbnail of a succeeded job.
+     *
+     * @param jobId the id returned on submission
+     * @param index position of the thumbnail in the job's result
+     * @return the encoded thumbnail
+     */
+    @GetMapping("/{jobId}/thumbnails/{index}")
+    public ResponseEntity<byte[]> getJobThumbnail(@PathVariable String jobId, @PathVariable int index) {
+        ThumbnailJob job = thumbnailJobs.find(jobId);
+        if (job.state() != JobState.SUCCEEDED || index < 0 || index >= job.thumbnails().size()) {
+            throw new ThumbnailNotFoundException(
+                String.format("Job '%s' has no thumbnail %d (status %s)", jobId, index, job.state().label()));
+        }
+
+        ThumbnailMetadata metadata = job.response().thumbnails().get(index);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(OutputFormats.mediaTypeOf(metadata.format())))
+            .body(job.thumbnails().get(index));
+    }
+
+    private JobStatus status(ThumbnailJob job, WebRequest webRequest) {
+        JobState state = job.state();
+        List<String> thumbnailUrls = null;
+        if (state == JobState.SUCCEEDED) {
+            thumbnailUrls = new ArrayList<>();
+            for (int i = 0; i < job.thumbnails().size(); i++) {
+                thumbnailUrls.add(job.statusUrl() + "/thumbnails/" + i);
+            }
+        }
+
+        return new JobStatus(
+            job.id(),
+            state.label(),
+            job.filename(),
+            format(job.submittedAt()),
+            format(job.startedAt()),
+            format(job.finishedAt()),
+            format(thumbnailJobs.expiresAt(job)),
+            state == JobState.SUCCEEDED ? job.response() : null,
+            thumbnailUrls,
+            state == JobState.FAILED ? exceptionHandler.describe(job.error(), webRequest) : null
+        );
+    }
+
+    private static String format(Instant instant) {
+        return instant == null ? null : instant.toString();
+    }
+
+    private static String url(String path) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath().path(path).toUriString();
+    }
+}
@@ -1,26 +1,54 @@
 package com.thumbnailapi.api.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thumbnailapi.api.stream.MultipartThumbnailWriter;
+import com.thumbnailapi.api.stream.ThumbnailStreamWriter;
+import com.thumbnailapi.api.stream.ZipThumbnailWriter;
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.exception.GlobalExceptionHandler;
+import com.thumbnailapi.exception.GlobalExceptionHandler.ErrorResponse;
+import com.thumbnailapi.metrics.PipelineMetrics;
+import com.thumbnailapi.metrics.PipelineMetrics.Stage;
+import com.thumbnailapi.model.BatchItemResult;
 import com.thumbnailapi.model.ThumbnailResponse;
+import com.thumbnailapi.service.BatchProcessor;
+import com.thumbnailapi.service.ExistingThumbnail;
 import com.thumbnailapi.service.ImageProcessor;
+import com.thumbnailapi.service.ThumbnailPayload;
 import com.thumbnailapi.util.Constants;
+import com.thumbnailapi.util.OutputFormats;
 
 /**
  * REST controller for thumbnail generation API.
  * 
  * Provides endpoints for uploading images and generating thumbnails
- * at preset or custom dimensions.
+ * at preset or custom dimensions, and for fetching previously generated ones.
  */
 @RestController
 @RequestMapping(Constants.BASE_API_PATH + "/thumbnails")
@@ -29,9 +57,25 @@ public class ThumbnailController {
 
     private static final Logger logger = LogManager.getLogger(ThumbnailController.class);
     private final ImageProcessor imageProcessor;
+    private final BatchProcessor batchProcessor;
+    private final GlobalExceptionHandler exceptionHandler;
+    private final ObjectMapper objectMapper;
+    private final PipelineMetrics metrics;
+    private final String thumbnailCacheControl;
 
-    public ThumbnailController(ImageProcessor imageProcessor) {
+    public ThumbnailController(ImageProcessor imageProcessor, BatchProcessor batchProcessor,
+                               GlobalExceptionHandler exceptionHandler, ObjectMapper objectMapper,
+                               PipelineMetrics metrics, ThumbnailProperties properties) {
         this.imageProcessor = imageProcessor;
+        this.batchProcessor = batchProcessor;
+        this.exceptionHandler = exceptionHandler;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.thumbnailCacheControl = CacheControl
+            .maxAge(properties.getDelivery().getCacheMaxAge())
+            .cachePublic()
+            .immutable()
+            .getHeaderValue();
     }
 
     /**
@@ -40,12 +84,18 @@ public class ThumbnailController {
      * @param file the image file to process (multipart form data)
      * @param sizes optional comma-separated list of sizes (e.g., "small,medium,large,500x500")
      *              If not provided, defaults to small, medium, large
+     * @param quality optional resize quality: speed, balanced, quality, ultra or auto.
+     *                If not provided, the configured default is used
+     * @param profile optional name of a configured encode profile, e.g. "web".
+     *                If not provided, the configured default is used
      * @return ThumbnailResponse containing generated thumbnail metadata
      * 
      * Example usage:
      * curl -X POST \
      *   -F "file=@image.jpg" \
      *   -F "sizes=small,medium,large,800x600" \
+     *   -F "quality=auto" \
+     *   -F "profile=web" \
      *   http://localhost:8080/api/v1/thumbnails
      *
      * Response:
@@ -55,6 +105,7 @@ public class ThumbnailController {
      *   "original_width": 2000,
      *   "original_height": 1500,
      *   "original_file_size_bytes": 524288,
+     *   "content_hash": "9b74c9897bac770ffc029102a200c5de3f1d6a4e9a7b1c2d8e0f4a6b2c9d7e15",
      *   "thumbnails": [
      *     {
      *       "size": "small",
@@ -63,7 +114,11 @@ public class ThumbnailController {
      *       "format": "JPEG",
      *       "file_size_bytes": 5120,
      *       "timestamp": "2024-01-15T10:30:45.123456",
-     *       "processing_time_ms": 45
+     *       "processing_time_ms": 45,
+     *       "resize_source": "medium",
+     *       "resize_method": "balanced",
+     *       "resize_time_ms": 38,
+     *       "encode_time_ms": 7
      *     },
      *     ...
      *   ]
@@ -71,20 +126,264 @@ public class ThumbnailController {
      */
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
                  produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<ThumbnailResponse> generateThumbnails(
+    public ResponseEntity<byte[]> generateThumbnails(
             @RequestParam("file") MultipartFile file,
-            @RequestParam(value = "sizes", required = false) String sizes) {
-
-        logger.info("Received thumbnail generation request for file: {} with sizes: {}",
-            file.getOriginalFilename(), sizes != null ? sizes : "default");
+            @RequestParam(value = "sizes", required = false) String sizes,
+            @RequestParam(value = "quality", required = false) String quality,
+            @RequestParam(value = "profile", required = false) String profile) throws IOException {
 
         // Process image and generate thumbnails
-        ThumbnailResponse response = imageProcessor.processImage(file, sizes);
+        ThumbnailResponse response = imageProcessor.processImage(file, sizes, quality, profile);
+
+        // Serialized here rather than by the message converter so the time can be recorded
+        long startTime = System.nanoTime();
+        byte[] body = objectMapper.writeValueAsBytes(response);
+        recordSerialization(response, System.nanoTime() - startTime);
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * POST endpoint returning the thumbnail images as a {@code multipart/mixed} body.
+     * 
+     * Each thumbnail is written as its own part as soon as it is encoded; the
+     * last part is the JSON metadata returned by the default endpoint.
+     * 
+     * Example usage:
+     * curl -X POST \
+     *   -F "file=@image.jpg" \
+     *   -F "sizes=small,medium" \
+     *   -F "response=multipart" \
+     *   http://localhost:8080/api/v1/thumbnails
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, params = "response=multipart")
+    public void streamMultipart(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "sizes", required = false) String sizes,
+            @RequestParam(value = "quality", required = false) String quality,
+            @RequestParam(value = "profile", required = false) String profile,
+            HttpServletResponse response) throws IOException {
+        stream(file, sizes, quality, profile, response,
+            new MultipartThumbnailWriter(response.getOutputStream(), objectMapper),
+            null);
+    }
+
+    /**
+     * POST endpoint returning the thumbnail images as a ZIP archive.
+     * 
+     * Each thumbnail becomes an entry named after its size (e.g. {@code small.jpg})
+     * as soon as it is encoded, followed by a {@code metadata.json} entry.
+     * 
+     * Example usage:
+     * curl -X POST \
+     *   -F "file=@image.jpg" \
+     *   -F "response=zip" \
+     *   -o thumbnails.zip \
+     *   http://localhost:8080/api/v1/thumbnails
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, params = "response=zip")
+    public void streamZip(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "sizes", required = false) String sizes,
+            @RequestParam(value = "quality", required = false) String quality,
+            @RequestParam(value = "profile", required = false) String profile,
+            HttpServletResponse response) throws IOException {
+        stream(file, sizes, quality, profile, response,
+            new ZipThumbnailWriter(response.getOutputStream(), objectMapper),
+            "attachment; filename=\"thumbnails.zip\"");
+    }
+
+    /**
+     * Streams every size through the writer, then the metadata. Response headers
+     * are only set once the first size is ready, so validation and decode errors
+     * still produce the usual JSON error response. Time spent in the writer is
+     * recorded as the serialization stage.
+     */
+    private void stream(MultipartFile file, String sizes, String quality, String profile,
+                        HttpServletResponse response, ThumbnailStreamWriter writer,
+                        String contentDisposition) throws IOException {
+        long[] writeNanos = {0};
+        ThumbnailResponse metadata = imageProcessor.streamImage(file, sizes, quality, profile,
+            (index, thumbnail, payload) -> {
+                startBody(response, writer, contentDisposition);
+                long startTime = System.nanoTime();
+                writer.accept(index, thumbnail, payload);
+                writeNanos[0] += System.nanoTime() - startTime;
+            });
+        startBody(response, writer, contentDisposition);
+        long startTime = System.nanoTime();
+        writer.finish(metadata);
+        recordSerialization(metadata, writeNanos[0] + System.nanoTime() - startTime);
+    }
+
+    /**
+     * POST endpoint generating the same sizes for many images in one request.
+     * 
+     * The response is newline-delimited JSON with one line per file, written as
+     * soon as that file is finished, so lines are not in upload order. Each line
+     * holds the file's {@code index} in the request, its {@code filename} and
+     * HTTP {@code status}, and either the {@code result} the single-file endpoint
+     * returns or the {@code error} it would have sent. A bad file does not fail
+     * the batch; only an invalid {@code sizes}, {@code quality} or {@code profile}, or a batch with
+     * no or too many files, is rejected as a whole.
+     * 
+     * @param files the image files, each as a {@code files} part
+     * @param sizes optional comma-separated list of sizes shared by every file
+     * @param quality optional resize quality shared by every file
+     * @param profile optional encode profile shared by every file
+     * 
+     * Example usage:
+     * curl -X POST \
+     *   -F "files=@a.jpg" -F "files=@b.png" \
+     *   -F "sizes=small,medium" \
+     *   http://localhost:8080/api/v1/thumbnails/batch
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void generateBatch(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "sizes", required = false) String sizes,
+            @RequestParam(value = "quality", required = false) String quality,
+            @RequestParam(value = "profile", required = false) String profile,
+            ServletWebRequest webRequest,
+            HttpServletResponse response) throws IOException {
+        batchProcessor.process(files, sizes, quality, profile, item -> {
+            BatchItemResult line;
+            if (item.isSuccess()) {
+                line = new BatchItemResult(item.index(), item.filename(), HttpStatus.OK.value(),
+                    item.response(), null);
+            } else {
+                ErrorResponse error = exceptionHandler.describe(item.error(), webRequest);
+                line = new BatchItemResult(item.index(), item.filename(), error.status(), null, error);
+            }
+
+            long startTime = System.nanoTime();
+            byte[] body = objectMapper.writeValueAsBytes(line);
+            if (item.isSuccess()) {
+                recordSerialization(item.response(), System.nanoTime() - startTime);
+            }
+
+            if (response.getContentType() == null) {
+                response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            }
+            OutputStream out = response.getOutputStream();
+            out.write(body);
+            out.write('\n');
+            out.flush();
+        });
+    }
+
+    private void recordSerialization(ThumbnailResponse response, long nanos) {
+        metrics.record(Stage.SERIALIZE, nanos, response.originalFormat(),
+            response.originalWidth(), response.originalHeight(), PipelineMetrics.ALL_TARGETS);
+    }
+
+    private static void startBody(HttpServletResponse response, ThumbnailStreamWriter writer,
+                                  String contentDisposition) {
+        if (response.getContentType() != null) {
+            return;
+        }
+        response.setContentType(writer.contentType());
+        if (contentDisposition != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+        }
+    }
+
+    /**
+     * GET endpoint serving one previously generated thumbnail.
+     * 
+     * The thumbnail is addressed by the {@code content_hash} returned from the upload
+     * and its size. Responses carry a strong ETag and a long-lived Cache-Control
+     * header; a matching If-None-Match is answered with 304 before any image bytes
+     * are read. HEAD and single byte ranges are supported.
+     * 
+     * @param contentHash SHA-256 hex hash of the original upload
+     * @param size preset name or WIDTHxHEIGHT
+     * @param format optional output format; any format is accepted when omitted
+     * @param quality optional resize quality the thumbnail was generated at; the configured default when omitted
+     * @param profile optional encode profile the thumbnail was generated with; the configured default when omitted
+     * 
+     * Example usage:
+     * curl -H 'If-None-Match: "3f5a..."' \
+     *   http://localhost:8080/api/v1/thumbnails/9b74c9897bac770ffc029102a200c5de.../small
+     */
+    @GetMapping("/{contentHash}/{size}")
+    public void getThumbnail(
+            @PathVariable String contentHash,
+            @PathVariable String size,
+            @RequestParam(value = "format", required = false) String format,
+            @RequestParam(value = "quality", required = false) String quality,
+            @RequestParam(value = "profile", required = false) String profile,
+            ServletWebRequest webRequest,
+            HttpServletResponse response) throws IOException {
+
+        ExistingThumbnail thumbnail = imageProcessor.findThumbnail(contentHash, size, format, quality, profile);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, thumbnailCacheControl);
+        if (webRequest.checkNotModified(thumbnail.etag())) {
+            logger.debug("Thumbnail {} for {} not modified", size, contentHash);
+            return;
+        }
+
+        writeThumbnail(webRequest.getRequest(), response, thumbnail);
+    }
+
+    /**
+     * Writes the thumbnail body, or the single byte range the request asks for.
+     * 
+     * Multiple ranges and ranges whose If-Range validator no longer matches are
+     * answered with the whole thumbnail, as RFC 9110 allows.
+     */
+    private void writeThumbnail(HttpServletRequest request, HttpServletResponse response,
+                                ExistingThumbnail thumbnail) throws IOException {
+        ThumbnailPayload payload = thumbnail.payload();
+        long length = payload.length();
+        long start = 0;
+        long count = length;
+
+        response.setContentType(OutputFormats.mediaTypeOf(thumbnail.key().format()));
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        List<HttpRange> ranges = requestedRanges(request, thumbnail.etag());
+        if (ranges.size() == 1) {
+            HttpRange range = ranges.get(0);
+            start = range.getRangeStart(length);
+            if (start >= length) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            long end = Math.min(range.getRangeEnd(length), length - 1);
+            count = end - start + 1;
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        response.setContentLengthLong(count);
+        if (!HttpMethod.HEAD.matches(request.getMethod())) {
+            payload.writeTo(response.getOutputStream(), start, count);
+        }
+    }
+
+    /**
+     * Returns the byte ranges to honour: none when there is no usable Range header.
+     */
+    private static List<HttpRange> requestedRanges(HttpServletRequest request, String etag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return List.of();
+        }
 
-        logger.debug("Returning thumbnail response with {} thumbnails",
-            response.thumbnails().size());
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return List.of();
+        }
 
-        return ResponseEntity.ok(response);
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Ignoring invalid Range header: {}", rangeHeader);
+            return List.of();
+        }
     }
 
     /**
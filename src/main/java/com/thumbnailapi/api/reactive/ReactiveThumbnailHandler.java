@@ -0,0 +1,240 @@
+package com.thumbnailapi.api.reactive;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.FormPartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.exception.FileSizeLimitExceededException;
+import com.thumbnailapi.exception.GlobalExceptionHandler;
+import com.thumbnailapi.exception.GlobalExceptionHandler.ErrorResponse;
+import com.thumbnailapi.exception.InvalidImageException;
+import com.thumbnailapi.exception.ServiceOverloadedException;
+import com.thumbnailapi.metrics.PipelineMetrics;
+import com.thumbnailapi.metrics.PipelineMetrics.Stage;
+import com.thumbnailapi.model.ThumbnailResponse;
+import com.thumbnailapi.service.ImageProcessor;
+import com.thumbnailapi.util.Constants;
+import com.thumbnailapi.util.ImageUpload;
+import com.thumbnailapi.util.ImageUploadReader;
+import com.thumbnailapi.util.IncrementalUpload;
+
+/**
+ * Handler of the reactive upload endpoint, {@code POST <thumbnail.reactive.path>/thumbnails}.
+ *
+ * Takes the same form fields and returns the same JSON as the MVC endpoint. The
+ * multipart body is consumed as a stream of part events whose data buffers are
+ * copied into an {@link IncrementalUpload} and released one by one, so the
+ * signature and header are checked while the rest of the body is still on the
+ * wire, and no thread waits on a slow client. Buffers are requested
+ * {@value #PREFETCH} at a time, so a fast client is only read as quickly as the
+ * upload is consumed.
+ *
+ * Once the body is complete the upload runs through the shared
+ * {@link ImageProcessor} pipeline on the bounded {@code reactiveExecutor}. Both
+ * the number of uploads in progress and the executor queue are bounded; beyond
+ * either the request gets 503 with Retry-After.
+ */
+@Component
+@ConditionalOnProperty(name = "thumbnail.reactive.enabled", havingValue = "true")
+public class ReactiveThumbnailHandler {
+
+    private static final int PREFETCH = 8;
+
+    private final ImageUploadReader uploadReader;
+    private final ImageProcessor imageProcessor;
+    private final GlobalExceptionHandler exceptionHandler;
+    private final ObjectMapper objectMapper;
+    private final PipelineMetrics metrics;
+    private final Scheduler scheduler;
+    private final ThumbnailProperties.Reactive settings;
+    private final AtomicInteger uploads = new AtomicInteger();
+    private final Counter rejected;
+
+    public ReactiveThumbnailHandler(ImageUploadReader uploadReader, ImageProcessor imageProcessor,
+                                    GlobalExceptionHandler exceptionHandler, ObjectMapper objectMapper,
+                                    PipelineMetrics metrics, ThumbnailProperties properties,
+                                    @Qualifier("reactiveExecutor") ThreadPoolExecutor reactiveExecutor,
+                                    MeterRegistry registry) {
+        this.uploadReader = uploadReader;
+        this.imageProcessor = imageProcessor;
+        this.exceptionHandler = exceptionHandler;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.scheduler = Schedulers.fromExecutorService(reactiveExecutor, "reactiveExecutor");
+        this.settings = properties.getReactive();
+        Gauge.builder("thumbnail.reactive.uploads", uploads, AtomicInteger::get)
+            .description("Uploads being received or processed by the reactive endpoint")
+            .register(registry);
+        this.rejected = Counter.builder("thumbnail.reactive.rejected")
+            .description("Reactive uploads rejected with 503 because the endpoint was saturated")
+            .register(registry);
+    }
+
+    /**
+     * Generates thumbnails for a multipart upload with a {@code file} part and
+     * optional {@code sizes}, {@code quality} and {@code profile} fields.
+     *
+     * Example usage:
+     * curl -X POST \
+     *   -F "file=@image.jpg" \
+     *   -F "sizes=small,medium" \
+     *   http://localhost:8080/api/v1/reactive/thumbnails
+     *
+     * @param request the multipart request
+     * @return the thumbnail metadata, or the error response of the failure
+     */
+    public Mono<ServerResponse> generateThumbnails(ServerRequest request) {
+        return Mono.defer(() -> {
+            if (uploads.incrementAndGet() > settings.getMaxUploads()) {
+                uploads.decrementAndGet();
+                rejected.increment();
+                return Mono.error(new ServiceOverloadedException(
+                    "Too many uploads in progress, try again later", settings.getRetryAfter()));
+            }
+            return receive(request)
+                .flatMap(this::process)
+                .flatMap(this::respond)
+                .doFinally(signal -> uploads.decrementAndGet());
+        }).onErrorResume(Exception.class, ex -> error(request, ex));
+    }
+
+    /**
+     * Reads the multipart body into an upload form, validating the file as it arrives.
+     */
+    private Mono<UploadForm> receive(ServerRequest request) {
+        UploadForm form = new UploadForm(request.headers().contentLength().orElse(0));
+        return request.bodyToFlux(PartEvent.class)
+            .limitRate(PREFETCH)
+            .doOnNext(form::accept)
+            .then(Mono.fromCallable(() -> form));
+    }
+
+    /**
+     * Queues a received upload on the reactive executor, rejecting it when the queue is full.
+     */
+    private Mono<ThumbnailResponse> process(UploadForm form) {
+        ImageUpload upload = form.finish();
+        imageProcessor.checkOptions(form.sizes, form.quality, form.profile);
+        return Mono.fromCallable(() -> imageProcessor.streamUpload(upload, form.filename, form.sizes,
+                form.quality, form.profile, (index, metadata, payload) -> { }))
+            .subscribeOn(scheduler)
+            .onErrorMap(RejectedExecutionException.class, e -> {
+                rejected.increment();
+                return new ServiceOverloadedException(
+                    "Too many uploads waiting to be processed, try again later", settings.getRetryAfter(), e);
+            });
+    }
+
+    private Mono<ServerResponse> respond(ThumbnailResponse response) {
+        return Mono.fromCallable(() -> {
+            // Serialized here rather than by a codec so the time can be recorded
+            long startTime = System.nanoTime();
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            metrics.record(Stage.SERIALIZE, System.nanoTime() - startTime, response.originalFormat(),
+                response.originalWidth(), response.originalHeight(), PipelineMetrics.ALL_TARGETS);
+            return body;
+        }).flatMap(body -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(body));
+    }
+
+    /**
+     * Answers with the response the global exception handler gives MVC requests.
+     */
+    private Mono<ServerResponse> error(ServerRequest request, Exception ex) {
+        HttpServletRequest servletRequest = ServerHttpRequestDecorator.getNativeRequest(request.exchange().getRequest());
+        ResponseEntity<ErrorResponse> entity = exceptionHandler.handle(ex, new ServletWebRequest(servletRequest));
+        return Mono.fromCallable(() -> objectMapper.writeValueAsBytes(entity.getBody()))
+            .flatMap(body -> ServerResponse.status(entity.getStatusCode())
+                .headers(headers -> headers.addAll(entity.getHeaders()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body));
+    }
+
+    /**
+     * Fields and file of one upload, filled in as the part events arrive.
+     */
+    private final class UploadForm {
+
+        private final long sizeHint;
+        private IncrementalUpload upload;
+        private boolean fileComplete;
+        private long ignoredBytes;
+        private String filename;
+        private String sizes;
+        private String quality;
+        private String profile;
+
+        private UploadForm(long sizeHint) {
+            this.sizeHint = sizeHint;
+        }
+
+        /**
+         * Takes one part event and releases its buffer.
+         */
+        private void accept(PartEvent event) {
+            DataBuffer content = event.content();
+            try {
+                if (event instanceof FilePartEvent file && "file".equals(file.name()) && !fileComplete) {
+                    if (upload == null) {
+                        upload = uploadReader.begin(file.headers().getFirst(HttpHeaders.CONTENT_TYPE), sizeHint);
+                        filename = file.filename();
+                    }
+                    try (DataBuffer.ByteBufferIterator buffers = content.readableByteBuffers()) {
+                        while (buffers.hasNext()) {
+                            upload.append(buffers.next());
+                        }
+                    }
+                    fileComplete = event.isLast();
+                } else if (event instanceof FormPartEvent field) {
+                    switch (field.name()) {
+                        case "sizes" -> sizes = field.value();
+                        case "quality" -> quality = field.value();
+                        case "profile" -> profile = field.value();
+                        default -> { }
+                    }
+                } else {
+                    ignoredBytes += content.readableByteCount();
+                    if (ignoredBytes > Constants.MAX_FILE_SIZE_BYTES) {
+                        throw new FileSizeLimitExceededException(String.format(
+                            "Request carries more than %d bytes besides the file", Constants.MAX_FILE_SIZE_BYTES));
+                    }
+                }
+            } finally {
+                DataBufferUtils.release(content);
+            }
+        }
+
+        private ImageUpload finish() {
+            if (upload == null) {
+                throw new InvalidImageException("Uploaded file is empty or null");
+            }
+            return upload.finish();
+        }
+    }
+}
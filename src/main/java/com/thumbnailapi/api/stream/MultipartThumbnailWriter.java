@@ -0,0 +1,83 @@
+package com.thumbnailapi.api.stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thumbnailapi.model.ThumbnailMetadata;
+import com.thumbnailapi.model.ThumbnailResponse;
+import com.thumbnailapi.service.ThumbnailPayload;
+import com.thumbnailapi.util.OutputFormats;
+
+/**
+ * Writes a {@code multipart/mixed} body (RFC 2046) with one part per thumbnail
+ * and a final {@code application/json} part holding the metadata.
+ *
+ * Each thumbnail part carries its own Content-Type, Content-Length and a
+ * Content-Disposition naming the size, and is flushed as soon as it is written.
+ */
+public class MultipartThumbnailWriter extends ThumbnailStreamWriter {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final OutputStream out;
+    private final ObjectMapper objectMapper;
+    private final String boundary;
+
+    public MultipartThumbnailWriter(OutputStream out, ObjectMapper objectMapper) {
+        this(out, objectMapper, "thumbnails-" + UUID.randomUUID());
+    }
+
+    MultipartThumbnailWriter(OutputStream out, ObjectMapper objectMapper, String boundary) {
+        this.out = out;
+        this.objectMapper = objectMapper;
+        this.boundary = boundary;
+    }
+
+    @Override
+    public String contentType() {
+        return "multipart/mixed; boundary=" + boundary;
+    }
+
+    @Override
+    public void accept(int index, ThumbnailMetadata metadata, ThumbnailPayload payload) throws IOException {
+        String fileName = fileName(metadata.size(), metadata.format());
+        writeHeaders(
+            "Content-Type: " + OutputFormats.mediaTypeOf(metadata.format()),
+            "Content-Disposition: attachment; name=\"" + metadata.size() + "\"; filename=\"" + fileName + "\"",
+            "Content-Length: " + payload.length());
+        payload.writeTo(out);
+        out.write(CRLF);
+        out.flush();
+    }
+
+    @Override
+    public void finish(ThumbnailResponse response) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(response);
+        writeHeaders(
+            "Content-Type: application/json",
+            "Content-Disposition: inline; name=\"metadata\"; filename=\"" + METADATA_NAME + "\"",
+            "Content-Length: " + json.length);
+        out.write(json);
+        out.write(CRLF);
+        writeAscii("--" + boundary + "--");
+        out.write(CRLF);
+        out.flush();
+    }
+
+    private void writeHeaders(String... headers) throws IOException {
+        writeAscii("--" + boundary);
+        out.write(CRLF);
+        for (String header : headers) {
+            writeAscii(header);
+            out.write(CRLF);
+        }
+        out.write(CRLF);
+    }
+
+    private void writeAscii(String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.US_ASCII));
+    }
+}
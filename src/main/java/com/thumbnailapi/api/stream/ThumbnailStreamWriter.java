@@ -0,0 +1,36 @@
+package com.thumbnailapi.api.stream;
+
+import java.io.IOException;
+
+import com.thumbnailapi.model.ThumbnailResponse;
+import com.thumbnailapi.service.ThumbnailSink;
+import com.thumbnailapi.util.OutputFormats;
+
+/**
+ * Writes thumbnails to a response body as they are produced, followed by the
+ * JSON metadata of the whole request.
+ */
+public abstract class ThumbnailStreamWriter implements ThumbnailSink {
+
+    /** Name of the part or entry holding the JSON metadata. */
+    public static final String METADATA_NAME = "metadata.json";
+
+    /**
+     * Returns the Content-Type of the whole response.
+     */
+    public abstract String contentType();
+
+    /**
+     * Writes the metadata and terminates the body. Does not close the underlying stream.
+     *
+     * @param response metadata of the original image and every thumbnail
+     */
+    public abstract void finish(ThumbnailResponse response) throws IOException;
+
+    /**
+     * Returns the file name used for one thumbnail, e.g. {@code small.png}.
+     */
+    static String fileName(String size, String format) {
+        return size + "." + OutputFormats.extensionOf(format);
+    }
+}
@@ -0,0 +1,63 @@
+package com.thumbnailapi.api.stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thumbnailapi.model.ThumbnailMetadata;
+import com.thumbnailapi.model.ThumbnailResponse;
+import com.thumbnailapi.service.ThumbnailPayload;
+
+/**
+ * Writes a ZIP archive with one entry per thumbnail, named after its size, and a
+ * final {@value #METADATA_NAME} entry. A size requested twice gets its request
+ * position appended to the entry name.
+ *
+ * Encoded images do not shrink any further, so entries are written without
+ * compression; sizes and checksums follow each entry in a data descriptor, which
+ * lets every entry be flushed as soon as it is written.
+ */
+public class ZipThumbnailWriter extends ThumbnailStreamWriter {
+
+    private final ZipOutputStream zip;
+    private final ObjectMapper objectMapper;
+    private final Set<String> entryNames = new HashSet<>();
+
+    public ZipThumbnailWriter(OutputStream out, ObjectMapper objectMapper) {
+        this.zip = new ZipOutputStream(out);
+        this.zip.setLevel(Deflater.NO_COMPRESSION);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String contentType() {
+        return "application/zip";
+    }
+
+    @Override
+    public void accept(int index, ThumbnailMetadata metadata, ThumbnailPayload payload) throws IOException {
+        String name = fileName(metadata.size(), metadata.format());
+        if (!entryNames.add(name)) {
+            name = fileName(metadata.size() + "-" + index, metadata.format());
+            entryNames.add(name);
+        }
+        zip.putNextEntry(new ZipEntry(name));
+        payload.writeTo(zip);
+        zip.closeEntry();
+        zip.flush();
+    }
+
+    @Override
+    public void finish(ThumbnailResponse response) throws IOException {
+        zip.putNextEntry(new ZipEntry(METADATA_NAME));
+        zip.write(objectMapper.writeValueAsBytes(response));
+        zip.closeEntry();
+        zip.finish();
+        zip.flush();
+    }
+}
@@ -0,0 +1,200 @@
+package com.thumbnailapi.buffer;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import com.thumbnailapi.config.ThumbnailProperties;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Pool of reusable byte arrays that encoders write thumbnails into.
+ *
+ * Buffers come in power-of-two size classes from {@value #MIN_CLASS_BYTES} bytes
+ * to {@value #MAX_CLASS_BYTES} bytes. Each class keeps a fixed number of idle
+ * buffers in a lock-free slot array, sized so that all classes together stay
+ * within the configured budget. Requests above the largest class, and requests
+ * that find their class empty, fall back to a plain allocation and count as misses.
+ *
+ * Buffers are not tracked while they are lent out: one that is never released
+ * is simply garbage collected.
+ */
+@Component
+public class EncodeBufferPool implements MeterBinder {
+
+    private static final Logger logger = LogManager.getLogger(EncodeBufferPool.class);
+
+    static final int MIN_CLASS_BYTES = 16 * 1024;
+    static final int MAX_CLASS_BYTES = 4 * 1024 * 1024;
+    private static final int CLASS_COUNT =
+        Integer.numberOfTrailingZeros(MAX_CLASS_BYTES / MIN_CLASS_BYTES) + 1;
+
+    private final boolean enabled;
+    private final AtomicReferenceArray<byte[]>[] classes;
+    private final AtomicLong idleBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder grows = new LongAdder();
+
+    /**
+     * Creates a pool sized from the {@code thumbnail.encode.*} settings.
+     */
+    @SuppressWarnings("unchecked")
+    public EncodeBufferPool(ThumbnailProperties properties) {
+        ThumbnailProperties.Encode encode = properties.getEncode();
+        this.enabled = encode.isPoolEnabled();
+        this.classes = new AtomicReferenceArray[CLASS_COUNT];
+
+        long perClassBudget = encode.getPoolMaxSize().toBytes() / CLASS_COUNT;
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            int slots = enabled ? (int) Math.max(1, perClassBudget / classBytes(i)) : 0;
+            classes[i] = new AtomicReferenceArray<>(slots);
+        }
+        if (enabled) {
+            logger.info("Encode buffer pool enabled: {} size classes, budget {} bytes",
+                CLASS_COUNT, encode.getPoolMaxSize().toBytes());
+        }
+    }
+
+    /**
+     * Returns whether buffers are kept for reuse.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Lends a buffer of at least the given capacity.
+     *
+     * @param minCapacity bytes the caller needs
+     * @return a pooled buffer of the matching size class, or a new one
+     */
+    public byte[] acquire(int minCapacity) {
+        int sizeClass = classOf(minCapacity);
+        if (sizeClass < 0) {
+            misses.increment();
+            return new byte[minCapacity];
+        }
+
+        AtomicReferenceArray<byte[]> slots = classes[sizeClass];
+        int length = slots.length();
+        int start = length == 0 ? 0 : (int) (Thread.currentThread().getId() % length);
+        for (int i = 0; i < length; i++) {
+            byte[] buffer = slots.getAndSet((start + i) % length, null);
+            if (buffer != null) {
+                idleBytes.addAndGet(-buffer.length);
+                hits.increment();
+                return buffer;
+            }
+        }
+
+        misses.increment();
+        return new byte[classBytes(sizeClass)];
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #acquire(int)}. Buffers that do not
+     * match a size class, or whose class is full, are dropped.
+     *
+     * @param buffer the buffer; the caller must not use it afterwards
+     */
+    public void release(byte[] buffer) {
+        int sizeClass = classOf(buffer.length);
+        if (sizeClass < 0 || classBytes(sizeClass) != buffer.length) {
+            return;
+        }
+
+        AtomicReferenceArray<byte[]> slots = classes[sizeClass];
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.compareAndSet(i, null, buffer)) {
+                idleBytes.addAndGet(buffer.length);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records that an encode outgrew the buffer chosen from its estimate.
+     */
+    void recordGrow() {
+        grows.increment();
+    }
+
+    /**
+     * Estimates the encoded size of a thumbnail, erring on the large side so that
+     * most encodes fit the first buffer.
+     *
+     * @param width thumbnail width in pixels
+     * @param height thumbnail height in pixels
+     * @param format output format
+     * @return estimated encoded size in bytes
+     */
+    public static int estimateEncodedSize(int width, int height, String format) {
+        long pixels = (long) width * height;
+        long estimate = switch (format.toUpperCase(Locale.ROOT)) {
+            // Uncompressed formats: exact up to headers and row padding
+            case "BMP" -> pixels * 3 + 4L * height + 1024;
+            case "TIFF" -> pixels * 4 + 4096;
+            case "PNG" -> pixels * 2 + 1024;
+            case "GIF" -> pixels + 2048;
+            case "WEBP" -> pixels / 2 + 1024;
+            default -> pixels / 2 + 2048;
+        };
+        return (int) Math.min(Integer.MAX_VALUE - 8, estimate);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("thumbnail.encode.pool.idle.bytes", idleBytes, AtomicLong::get)
+            .description("Bytes held by idle encode buffers")
+            .baseUnit("bytes")
+            .register(registry);
+        FunctionCounter.builder("thumbnail.encode.pool.acquisitions", hits, LongAdder::sum)
+            .description("Encode buffers requested from the pool")
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("thumbnail.encode.pool.acquisitions", misses, LongAdder::sum)
+            .description("Encode buffers requested from the pool")
+            .tag("result", "miss")
+            .register(registry);
+        FunctionCounter.builder("thumbnail.encode.pool.grows", grows, LongAdder::sum)
+            .description("Encodes that outgrew the buffer chosen from their size estimate")
+            .register(registry);
+    }
+
+    long idleBytes() {
+        return idleBytes.get();
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the smallest size class holding the capacity, or -1 above the largest class.
+     */
+    private static int classOf(int capacity) {
+        if (capacity > MAX_CLASS_BYTES) {
+            return -1;
+        }
+        int rounded = Math.max(MIN_CLASS_BYTES, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+        return Integer.numberOfTrailingZeros(rounded / MIN_CLASS_BYTES);
+    }
+
+    private static int classBytes(int sizeClass) {
+        return MIN_CLASS_BYTES << sizeClass;
+    }
+}
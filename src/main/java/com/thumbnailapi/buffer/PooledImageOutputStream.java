@@ -0,0 +1,113 @@
+package com.thumbnailapi.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.imageio.stream.ImageOutputStreamImpl;
+
+/**
+ * Seekable in-memory {@link javax.imageio.stream.ImageOutputStream} backed by
+ * buffers from an {@link EncodeBufferPool}.
+ *
+ * Image writers write straight into the pooled array, with no intermediate
+ * cache stream, and the result is exposed as a view of that array rather than
+ * a copy. When the estimate was too small the stream moves to a buffer of the
+ * next size class and returns the old one to the pool.
+ */
+public final class PooledImageOutputStream extends ImageOutputStreamImpl {
+
+    private final EncodeBufferPool pool;
+    private byte[] buffer;
+    private int length;
+
+    /**
+     * @param pool pool to borrow buffers from
+     * @param estimatedSize expected number of bytes that will be written
+     */
+    public PooledImageOutputStream(EncodeBufferPool pool, int estimatedSize) {
+        this.pool = pool;
+        this.buffer = pool.acquire(estimatedSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkClosed();
+        flushBits();
+        ensureCapacity(streamPos + 1);
+        buffer[(int) streamPos++] = (byte) b;
+        length = Math.max(length, (int) streamPos);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        flushBits();
+        ensureCapacity(streamPos + len);
+        System.arraycopy(b, off, buffer, (int) streamPos, len);
+        streamPos += len;
+        length = Math.max(length, (int) streamPos);
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        return buffer[(int) streamPos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        int count = (int) Math.min(len, length - streamPos);
+        System.arraycopy(buffer, (int) streamPos, b, off, count);
+        streamPos += count;
+        return count;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Returns a read-only view of everything written so far. The view is only
+     * valid until {@link #release()} is called.
+     */
+    public ByteBuffer view() {
+        return ByteBuffer.wrap(buffer, 0, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the buffer to the pool. Views obtained earlier must no longer be read.
+     */
+    public void release() {
+        byte[] released = buffer;
+        buffer = null;
+        if (released != null) {
+            pool.release(released);
+        }
+    }
+
+    private void ensureCapacity(long required) throws IOException {
+        if (required > Integer.MAX_VALUE - 8) {
+            throw new IOException("Encoded image exceeds the maximum buffer size");
+        }
+        if (required <= buffer.length) {
+            return;
+        }
+
+        long doubled = Math.min(Integer.MAX_VALUE - 8, (long) buffer.length * 2);
+        byte[] larger = pool.acquire((int) Math.max(required, doubled));
+        System.arraycopy(buffer, 0, larger, 0, length);
+        pool.release(buffer);
+        pool.recordGrow();
+        buffer = larger;
+    }
+}
@@ -0,0 +1,42 @@
+package com.thumbnailapi.cache;
+
+import java.nio.ByteBuffer;
+
+import com.thumbnailapi.util.ContentHasher;
+
+/**
+ * Encoded thumbnail held outside the Java heap.
+ *
+ * @param data read-only direct buffer with the encoded bytes
+ * @param width thumbnail width in pixels
+ * @param height thumbnail height in pixels
+ * @param format output format
+ * @param etag quoted strong entity tag derived from the encoded bytes
+ */
+public record CachedThumbnail(ByteBuffer data, int width, int height, String format, String etag) {
+
+    /**
+     * Copies the remaining encoded bytes into a new direct buffer and tags them.
+     */
+    static CachedThumbnail copyOf(ByteBuffer encoded, int width, int height, String format) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(encoded.remaining());
+        buffer.put(encoded.duplicate()).flip();
+        String etag = ContentHasher.formatEtag(ContentHasher.etagDigest(buffer));
+        return new CachedThumbnail(buffer.asReadOnlyBuffer(), width, height, format, etag);
+    }
+
+    /**
+     * Returns the encoded size in bytes.
+     */
+    public int sizeBytes() {
+        return data.capacity();
+    }
+
+    /**
+     * Returns an independent view of the bytes that callers may read without
+     * affecting other readers.
+     */
+    public ByteBuffer view() {
+        return data.duplicate();
+    }
+}
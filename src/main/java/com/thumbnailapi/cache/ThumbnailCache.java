@@ -0,0 +1,112 @@
+package com.thumbnailapi.cache;
+
+import java.nio.ByteBuffer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.thumbnailapi.config.ThumbnailProperties;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Content-addressed cache of encoded thumbnails.
+ * 
+ * Payloads are stored in direct buffers so they do not compete with decode rasters
+ * for heap. The cache is bounded by the total payload size and uses Caffeine's
+ * frequency-aware W-TinyLFU policy, so a burst of one-off uploads does not flush
+ * frequently re-uploaded images. Hit, miss and eviction counters are published
+ * under the {@code cache.*} metrics with {@code cache=thumbnails}.
+ */
+@Component
+public class ThumbnailCache implements MeterBinder {
+
+    private static final Logger logger = LogManager.getLogger(ThumbnailCache.class);
+    private static final String CACHE_NAME = "thumbnails";
+
+    private final Cache<ThumbnailKey, CachedThumbnail> cache;
+    private final long maxBytes;
+
+    public ThumbnailCache(ThumbnailProperties properties) {
+        ThumbnailProperties.Cache settings = properties.getCache();
+        this.maxBytes = settings.getMaxSize().toBytes();
+        this.cache = settings.isEnabled()
+            ? Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((ThumbnailKey key, CachedThumbnail value) -> value.sizeBytes())
+                .recordStats()
+                .build()
+            : null;
+
+        logger.info("Thumbnail cache enabled: {}, maxBytes={}", settings.isEnabled(), maxBytes);
+    }
+
+    /**
+     * Returns whether lookups can ever hit.
+     */
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Looks up an encoded thumbnail.
+     * 
+     * @param key the thumbnail identity
+     * @return the cached thumbnail, or null when absent or the cache is disabled
+     */
+    public CachedThumbnail get(ThumbnailKey key) {
+        return cache == null ? null : cache.getIfPresent(key);
+    }
+
+    /**
+     * Stores an encoded thumbnail, copying the bytes off-heap.
+     * 
+     * Payloads larger than the whole budget are not cached.
+     * 
+     * @param key the thumbnail identity
+     * @param encoded the encoded image bytes
+     * @param width thumbnail width in pixels
+     * @param height thumbnail height in pixels
+     */
+    public void put(ThumbnailKey key, byte[] encoded, int width, int height) {
+        put(key, ByteBuffer.wrap(encoded), width, height);
+    }
+
+    /**
+     * Stores an encoded thumbnail, copying the remaining bytes of the buffer off-heap.
+     * The buffer's position is not modified.
+     * 
+     * @param key the thumbnail identity
+     * @param encoded the encoded image bytes
+     * @param width thumbnail width in pixels
+     * @param height thumbnail height in pixels
+     */
+    public void put(ThumbnailKey key, ByteBuffer encoded, int width, int height) {
+        if (cache == null || encoded.remaining() > maxBytes) {
+            return;
+        }
+        cache.put(key, CachedThumbnail.copyOf(encoded, width, height, key.format()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (cache == null) {
+            return;
+        }
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+        Gauge.builder("thumbnail.cache.offheap.bytes", cache,
+                c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L))
+            .description("Encoded thumbnail bytes held in direct memory")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("thumbnail.cache.offheap.max.bytes", () -> maxBytes)
+            .description("Direct memory budget of the thumbnail cache")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+}
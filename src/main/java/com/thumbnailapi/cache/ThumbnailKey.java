@@ -0,0 +1,26 @@
+package com.thumbnailapi.cache;
+
+import java.awt.Dimension;
+
+/**
+ * Content-addressed identity of a generated thumbnail.
+ *
+ * @param contentHash SHA-256 hex hash of the original upload
+ * @param width requested width
+ * @param height requested height
+ * @param format output format
+ * @param settings fingerprint of the decode/resize settings that shaped the pixels
+ */
+public record ThumbnailKey(String contentHash, int width, int height, String format, String settings) {
+
+    public static ThumbnailKey of(String contentHash, Dimension dimension, String format, String settings) {
+        return new ThumbnailKey(contentHash, dimension.width, dimension.height, format, settings);
+    }
+
+    /**
+     * Returns the canonical text form of the key, used wherever it is hashed.
+     */
+    public String identity() {
+        return contentHash + '|' + width + 'x' + height + '|' + format + '|' + settings;
+    }
+}
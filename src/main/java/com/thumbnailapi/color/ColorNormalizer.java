@@ -0,0 +1,273 @@
+package com.thumbnailapi.color;
+
+import java.awt.Graphics2D;
+import java.awt.color.ColorSpace;
+import java.awt.color.ICC_ColorSpace;
+import java.awt.color.ICC_Profile;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.IndexColorModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.WritableRaster;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts decoded images once into a layout that Java2D and the resizers
+ * handle with their fast loops.
+ *
+ * ImageIO decodes 16-bit PNGs, gray images with alpha, JPEGs and PNGs with an
+ * embedded profile and CMYK JPEGs into {@code TYPE_CUSTOM} images. Drawing or
+ * resizing those goes through the color model one pixel at a time, and every
+ * size generated from the original pays for it again. Normalized images are
+ * {@code TYPE_INT_RGB}, {@code TYPE_INT_ARGB} or {@code TYPE_INT_ARGB_PRE};
+ * images that are already in a standard layout are returned as they are. See
+ * {@link ConversionPath} for the conversions.
+ */
+public final class ColorNormalizer {
+
+    private static final ColorSpace GRAY = ColorSpace.getInstance(ColorSpace.CS_GRAY);
+    private static final String SRGB_DESCRIPTION = "sRGB";
+    /** ICC tag type signatures {@code desc} and {@code mluc}. */
+    private static final int DESC_TYPE = 0x64657363;
+    private static final int MLUC_TYPE = 0x6D6C7563;
+    /** sRGB value of each ink product {@code (255 - c) * (255 - k)}, taken as linear light. */
+    private static final byte[] CMYK_TO_SRGB = cmykTable();
+
+    private ColorNormalizer() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+
+    /**
+     * Converts an image into a fast layout if it is not in one already.
+     *
+     * @param image the decoded image
+     * @return the image to resize and the conversion it took
+     */
+    public static NormalizedImage normalize(BufferedImage image) {
+        ConversionPath path = pathOf(image);
+        BufferedImage normalized = switch (path) {
+            case NONE -> image;
+            case INDEXED, GENERIC -> drawn(image);
+            case COMPONENT -> repacked(image, false);
+            case ICC -> colorConverted(image);
+            case CMYK -> repacked(image, true);
+        };
+        return new NormalizedImage(normalized, path);
+    }
+
+    /**
+     * Chooses the conversion for an image without performing it.
+     *
+     * @param image the decoded image
+     * @return the conversion {@link #normalize} takes
+     */
+    public static ConversionPath pathOf(BufferedImage image) {
+        if (isStandardType(image.getType())) {
+            return ConversionPath.NONE;
+        }
+        ColorModel colorModel = image.getColorModel();
+        if (colorModel instanceof IndexColorModel) {
+            return ConversionPath.INDEXED;
+        }
+        ColorSpace colorSpace = colorModel.getColorSpace();
+        boolean repackable = isRepackable(image);
+        if (colorSpace.getType() == ColorSpace.TYPE_CMYK && !(colorSpace instanceof ICC_ColorSpace)) {
+            return repackable ? ConversionPath.CMYK : ConversionPath.GENERIC;
+        }
+        if (repackable && (isSrgb(colorSpace) || colorSpace == GRAY)) {
+            return ConversionPath.COMPONENT;
+        }
+        if (colorSpace instanceof ICC_ColorSpace) {
+            return ConversionPath.ICC;
+        }
+        return ConversionPath.GENERIC;
+    }
+
+    /**
+     * Layouts with native Java2D loops that the raster resizer also reads directly.
+     * 16-bit gray and palette images are missing on purpose.
+     */
+    private static boolean isStandardType(int type) {
+        return switch (type) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_ARGB_PRE,
+                 BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+                 BufferedImage.TYPE_4BYTE_ABGR_PRE, BufferedImage.TYPE_BYTE_GRAY,
+                 BufferedImage.TYPE_USHORT_565_RGB, BufferedImage.TYPE_USHORT_555_RGB -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Whether the samples can be read straight from a single interleaved array
+     * of 8- or 16-bit components.
+     */
+    private static boolean isRepackable(BufferedImage image) {
+        if (!(image.getColorModel() instanceof ComponentColorModel colorModel)) {
+            return false;
+        }
+        WritableRaster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        if (!(raster.getSampleModel() instanceof PixelInterleavedSampleModel sampleModel)
+                || buffer.getNumBanks() != 1
+                || sampleModel.getNumBands() != colorModel.getNumComponents()) {
+            return false;
+        }
+        int bits = buffer instanceof DataBufferByte ? 8 : buffer instanceof DataBufferUShort ? 16 : 0;
+        for (int size : colorModel.getComponentSize()) {
+            if (size != bits) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the color space is sRGB, either Java's own or an embedded profile
+     * whose description starts with sRGB, such as {@code sRGB IEC61966-2.1}.
+     */
+    private static boolean isSrgb(ColorSpace colorSpace) {
+        if (colorSpace.isCS_sRGB()) {
+            return true;
+        }
+        if (!(colorSpace instanceof ICC_ColorSpace icc) || colorSpace.getType() != ColorSpace.TYPE_RGB) {
+            return false;
+        }
+        String description = description(icc.getProfile());
+        return description != null && description.startsWith(SRGB_DESCRIPTION);
+    }
+
+    /**
+     * Reads the profile description from an ICC v2 {@code desc} or the first
+     * entry of an ICC v4 {@code mluc} tag.
+     */
+    private static String description(ICC_Profile profile) {
+        byte[] tag = profile.getData(ICC_Profile.icSigProfileDescriptionTag);
+        if (tag == null || tag.length < 12) {
+            return null;
+        }
+        ByteBuffer data = ByteBuffer.wrap(tag);
+        int type = data.getInt(0);
+        if (type == DESC_TYPE) {
+            int length = Math.min(data.getInt(8), tag.length - 12);
+            return length <= 0 ? null : new String(tag, 12, length, StandardCharsets.US_ASCII);
+        }
+        if (type == MLUC_TYPE && data.getInt(8) > 0 && tag.length >= 28) {
+            int length = data.getInt(20);
+            int offset = data.getInt(24);
+            if (offset >= 0 && length > 0 && offset <= tag.length - length) {
+                return new String(tag, offset, length, StandardCharsets.UTF_16BE);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copies an sRGB, gray or CMYK image sample by sample into a packed int
+     * image, reducing 16-bit samples to 8 bits. Gray is replicated into the
+     * three channels, as Java2D's standard gray loops and the raster resizer
+     * do. Alpha is kept, premultiplied or not as it was.
+     */
+    private static BufferedImage repacked(BufferedImage image, boolean cmyk) {
+        ComponentColorModel colorModel = (ComponentColorModel) image.getColorModel();
+        WritableRaster raster = image.getRaster();
+        PixelInterleavedSampleModel sampleModel = (PixelInterleavedSampleModel) raster.getSampleModel();
+        DataBuffer buffer = raster.getDataBuffer();
+        byte[] bytes = buffer instanceof DataBufferByte byteBuffer ? byteBuffer.getData() : null;
+        short[] shorts = buffer instanceof DataBufferUShort shortBuffer ? shortBuffer.getData() : null;
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int stride = sampleModel.getScanlineStride();
+        int pixelStride = sampleModel.getPixelStride();
+        int origin = buffer.getOffset()
+            - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX() * pixelStride;
+        int[] offsets = sampleModel.getBandOffsets();
+        int colors = colorModel.getNumColorComponents();
+        int red = offsets[0];
+        int green = offsets[colors == 1 ? 0 : 1];
+        int blue = offsets[colors == 1 ? 0 : 2];
+        int black = cmyk ? offsets[3] : -1;
+        int alpha = colorModel.hasAlpha() ? offsets[colors] : -1;
+
+        int type = alpha < 0 ? BufferedImage.TYPE_INT_RGB
+            : colorModel.isAlphaPremultiplied() ? BufferedImage.TYPE_INT_ARGB_PRE
+            : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage result = new BufferedImage(width, height, type);
+        int[] target = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+
+        for (int y = 0, out = 0; y < height; y++) {
+            int offset = origin + y * stride;
+            for (int x = 0; x < width; x++, offset += pixelStride) {
+                int r = sample(bytes, shorts, offset + red);
+                int g = sample(bytes, shorts, offset + green);
+                int b = sample(bytes, shorts, offset + blue);
+                if (black >= 0) {
+                    int white = 255 - sample(bytes, shorts, offset + black);
+                    r = CMYK_TO_SRGB[(255 - r) * white] & 0xFF;
+                    g = CMYK_TO_SRGB[(255 - g) * white] & 0xFF;
+                    b = CMYK_TO_SRGB[(255 - b) * white] & 0xFF;
+                }
+                int a = alpha < 0 ? 0xFF : sample(bytes, shorts, offset + alpha);
+                target[out++] = (a << 24) | (r << 16) | (g << 8) | b;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Encodes the naive ink formula {@code (1 - c) * (1 - k)} to sRGB, which is
+     * how the JDK's own CMYK color space for unprofiled JPEGs converts.
+     */
+    private static byte[] cmykTable() {
+        byte[] table = new byte[255 * 255 + 1];
+        for (int i = 0; i < table.length; i++) {
+            double linear = i / (double) (255 * 255);
+            double encoded = linear <= 0.0031308 ? 12.92 * linear : 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+            table[i] = (byte) Math.round(encoded * 255);
+        }
+        return table;
+    }
+
+    /**
+     * Reads one sample as 8 bits, rounding 16-bit samples to the nearest value.
+     */
+    private static int sample(byte[] bytes, short[] shorts, int index) {
+        if (bytes != null) {
+            return bytes[index] & 0xFF;
+        }
+        return ((shorts[index] & 0xFFFF) * 255 + 32895) >>> 16;
+    }
+
+    /**
+     * Converts an image with an embedded profile to sRGB through the color
+     * management module, which handles the whole raster in one call.
+     */
+    private static BufferedImage colorConverted(BufferedImage image) {
+        BufferedImage result = new BufferedImage(image.getWidth(), image.getHeight(),
+            image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        new ColorConvertOp(null).filter(image, result);
+        return result;
+    }
+
+    /**
+     * Draws an image into a packed int image, with alpha when it has any.
+     */
+    private static BufferedImage drawn(BufferedImage image) {
+        BufferedImage result = new BufferedImage(image.getWidth(), image.getHeight(),
+            image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = result.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,39 @@
+package com.thumbnailapi.color;
+
+/**
+ * How {@link ColorNormalizer} brought a decoded image into a layout that
+ * Java2D and the resizers read with their fast loops.
+ */
+public enum ConversionPath {
+
+    /** Already a standard layout; the image is used as decoded. */
+    NONE("none"),
+
+    /** Palette image expanded by a single blit. */
+    INDEXED("indexed"),
+
+    /** sRGB or gray samples in a non-standard layout or at 16 bits, repacked directly. */
+    COMPONENT("component"),
+
+    /** Embedded ICC profile other than sRGB, converted to sRGB through the color management module. */
+    ICC("icc"),
+
+    /** CMYK without a profile, converted with the naive ink formula. */
+    CMYK("cmyk"),
+
+    /** Anything else, drawn once through the color model. */
+    GENERIC("generic");
+
+    private final String label;
+
+    ConversionPath(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Returns the name logged for this path.
+     */
+    public String label() {
+        return label;
+    }
+}
@@ -0,0 +1,12 @@
+package com.thumbnailapi.color;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A decoded image in a fast layout, with the path taken to get there.
+ *
+ * @param image the normalized image; the decoded image itself for {@link ConversionPath#NONE}
+ * @param path how the image was converted
+ */
+public record NormalizedImage(BufferedImage image, ConversionPath path) {
+}
@@ -0,0 +1,65 @@
+package com.thumbnailapi.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcProperties;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import jakarta.servlet.MultipartConfigElement;
+
+import com.thumbnailapi.util.Constants;
+
+/**
+ * Gives the batch endpoint its own multipart request limit.
+ *
+ * The servlet container applies multipart limits per servlet, so raising
+ * {@code spring.servlet.multipart.max-request-size} for batches would raise it
+ * for every upload endpoint. Instead {@code POST /api/v1/thumbnails/batch} is
+ * mapped to a second DispatcherServlet over the same application context whose
+ * request limit is {@code thumbnail.batch.max-request-size}; every other setting,
+ * including the per-file limit, follows {@code spring.servlet.multipart.*}.
+ */
+@Configuration
+public class BatchEndpointConfig {
+
+    /** Path of the batch endpoint, matched exactly. */
+    public static final String BATCH_PATH = Constants.BASE_API_PATH + "/thumbnails/batch";
+
+    private static final Logger logger = LogManager.getLogger(BatchEndpointConfig.class);
+
+    /**
+     * Registers the DispatcherServlet that serves batch requests.
+     *
+     * @param context the application context the main DispatcherServlet also uses
+     * @param webMvc Spring MVC settings, mirrored from the main DispatcherServlet
+     * @param multipart container-wide multipart settings
+     * @param properties batch settings
+     * @return registration mapped to the batch path only
+     */
+    @Bean
+    public ServletRegistrationBean<DispatcherServlet> batchDispatcherServlet(
+            WebApplicationContext context, WebMvcProperties webMvc,
+            MultipartProperties multipart, ThumbnailProperties properties) {
+        DispatcherServlet servlet = new DispatcherServlet(context);
+        servlet.setDispatchOptionsRequest(webMvc.isDispatchOptionsRequest());
+        servlet.setDispatchTraceRequest(webMvc.isDispatchTraceRequest());
+        servlet.setPublishEvents(webMvc.isPublishRequestHandledEvents());
+        servlet.setEnableLoggingRequestDetails(webMvc.isLogRequestDetails());
+
+        MultipartConfigElement defaults = multipart.createMultipartConfig();
+        long maxRequestSize = properties.getBatch().getMaxRequestSize().toBytes();
+        ServletRegistrationBean<DispatcherServlet> registration = new ServletRegistrationBean<>(servlet, BATCH_PATH);
+        registration.setName("batchDispatcherServlet");
+        registration.setLoadOnStartup(1);
+        registration.setMultipartConfig(new MultipartConfigElement(defaults.getLocation(),
+            defaults.getMaxFileSize(), maxRequestSize, defaults.getFileSizeThreshold()));
+
+        logger.info("Batch endpoint {} accepts multipart requests up to {} bytes", BATCH_PATH, maxRequestSize);
+        return registration;
+    }
+}
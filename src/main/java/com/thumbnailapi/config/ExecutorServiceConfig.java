@@ -1,21 +1,39 @@
 package com.thumbnailapi.config;
 
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+import com.thumbnailapi.config.ThumbnailProperties.ExecutionMode;
 
 /**
  * Configuration for thread pool and concurrent request handling.
  * 
  * Configures an ExecutorService for efficient handling of multiple
  * concurrent thumbnail generation requests.
+ *
+ * With {@code thumbnail.execution.mode=virtual} Tomcat handles every request on
+ * its own virtual thread, so slow uploads and blocking store or response I/O no
+ * longer hold a platform thread. The thumbnail executor then becomes a pool sized
+ * to the CPU count that runs all decode, resize and encode work. Requires Java 21.
  */
 @Configuration
 public class ExecutorServiceConfig {
@@ -32,12 +50,17 @@ public class ExecutorServiceConfig {
      * - Rejection policy: CallerRunsPolicy (backpressure)
      * - Target: handle 50-500 concurrent requests
      * 
+     * In virtual execution mode core and max threads both equal the number of
+     * available processors, since the pool only runs CPU-bound work.
+     * 
+     * @param properties execution settings
      * @return configured ThreadPoolExecutor
      */
     @Bean
-    public ThreadPoolExecutor thumbnailExecutor() {
-        int corePoolSize = 10;
-        int maxPoolSize = 100;
+    public ThreadPoolExecutor thumbnailExecutor(ThumbnailProperties properties) {
+        boolean cpuSized = properties.getExecution().getMode() == ExecutionMode.VIRTUAL;
+        int corePoolSize = cpuSized ? Runtime.getRuntime().availableProcessors() : 10;
+        int maxPoolSize = cpuSized ? corePoolSize : 100;
         int queueCapacity = 500;
         long keepAliveTime = 60;
         TimeUnit timeUnit = TimeUnit.SECONDS;
@@ -63,8 +86,8 @@ public class ExecutorServiceConfig {
             new ThreadPoolExecutor.CallerRunsPolicy()
         );
 
-        logger.info("ThreadPoolExecutor configured: corePoolSize={}, maxPoolSize={}, queueCapacity={}",
-            corePoolSize, maxPoolSize, queueCapacity);
+        logger.info("ThreadPoolExecutor configured: corePoolSize={}, maxPoolSize={}, queueCapacity={}, executionMode={}",
+            corePoolSize, maxPoolSize, queueCapacity, properties.getExecution().getMode());
 
         // Add shutdown hook for graceful shutdown
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -83,4 +106,213 @@ public class ExecutorServiceConfig {
 
         return executor;
     }
+
+    /**
+     * Publishes the pool size, active threads and queue depth of the thumbnail
+     * executor as {@code executor.*} metrics tagged {@code name=thumbnailExecutor}.
+     *
+     * @param thumbnailExecutor the executor to observe
+     * @return binder registered by the actuator
+     */
+    @Bean
+    public ExecutorServiceMetrics thumbnailExecutorMetrics(
+            @Qualifier("thumbnailExecutor") ThreadPoolExecutor thumbnailExecutor) {
+        return new ExecutorServiceMetrics(thumbnailExecutor, "thumbnailExecutor", Tags.empty());
+    }
+
+    /**
+     * Creates the pool that runs the files of batch requests through the pipeline.
+     * 
+     * Each task reads one upload and waits for its sizes, so the pool is separate
+     * from the thumbnail executor that does the decode, resize and encode work.
+     * Every batch keeps at most {@code thumbnail.batch.max-concurrency} tasks
+     * queued or running, which bounds the queue.
+     * 
+     * @param properties batch settings
+     * @return fixed-size executor, shut down with the application context
+     */
+    @Bean
+    public ThreadPoolExecutor batchExecutor(ThumbnailProperties properties) {
+        int threads = properties.getBatch().getThreads();
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            threads,
+            threads,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            r -> {
+                Thread thread = new Thread(r, "thumbnail-batch-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        executor.allowCoreThreadTimeOut(true);
+
+        logger.info("Batch executor configured: threads={}, maxConcurrencyPerBatch={}",
+            threads, properties.getBatch().getMaxConcurrency());
+        return executor;
+    }
+
+    /**
+     * Publishes the {@code executor.*} metrics of the batch executor, tagged
+     * {@code name=batchExecutor}.
+     *
+     * @param batchExecutor the executor to observe
+     * @return binder registered by the actuator
+     */
+    @Bean
+    public ExecutorServiceMetrics batchExecutorMetrics(@Qualifier("batchExecutor") ThreadPoolExecutor batchExecutor) {
+        return new ExecutorServiceMetrics(batchExecutor, "batchExecutor", Tags.empty());
+    }
+
+    /**
+     * Creates the fork-join pool the raster resize engine splits row bands across.
+     * 
+     * Keeping the bands off the JVM-wide common pool stops them competing with
+     * other users of it, and the pool is shut down with the application context.
+     * It is sized to the available processors since the bands are pure CPU work.
+     * 
+     * @return pool with one worker per processor
+     */
+    @Bean
+    public ForkJoinPool resampleExecutor() {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("thumbnail-resample-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+
+        logger.info("Resample pool configured: parallelism={}", parallelism);
+        return pool;
+    }
+
+    /**
+     * Publishes the {@code executor.*} metrics of the resample pool, tagged
+     * {@code name=resampleExecutor}.
+     *
+     * @param resampleExecutor the pool to observe
+     * @return binder registered by the actuator
+     */
+    @Bean
+    public ExecutorServiceMetrics resampleExecutorMetrics(@Qualifier("resampleExecutor") ForkJoinPool resampleExecutor) {
+        return new ExecutorServiceMetrics(resampleExecutor, "resampleExecutor", Tags.empty());
+    }
+
+    /**
+     * Creates the workers that run asynchronous jobs, with the job queue as the
+     * executor's queue.
+     * 
+     * Like the batch executor, workers only wait on the thumbnail executor, so
+     * they are kept apart from it. A full queue rejects the job rather than
+     * running it on the submitting request thread.
+     * 
+     * @param properties job settings
+     * @return fixed-size executor with a queue of {@code thumbnail.jobs.max-queued}
+     */
+    @Bean
+    public ThreadPoolExecutor jobExecutor(ThumbnailProperties properties) {
+        int workers = properties.getJobs().getWorkers();
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(
+            workers,
+            workers,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(Math.max(1, properties.getJobs().getMaxQueued())),
+            r -> {
+                Thread thread = new Thread(r, "thumbnail-job-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Publishes the {@code executor.*} metrics of the job executor, tagged
+     * {@code name=jobExecutor}.
+     *
+     * @param jobExecutor the executor to observe
+     * @return binder registered by the actuator
+     */
+    @Bean
+    public ExecutorServiceMetrics jobExecutorMetrics(@Qualifier("jobExecutor") ThreadPoolExecutor jobExecutor) {
+        return new ExecutorServiceMetrics(jobExecutor, "jobExecutor", Tags.empty());
+    }
+
+    /**
+     * Creates the bounded pool the reactive endpoint hands uploads to once their
+     * body has been read, so decode and resize never run on a request or I/O thread.
+     * Like batch and job workers, its threads wait on the thumbnail executor for
+     * their sizes, so by default there are several per processor.
+     *
+     * The queue is the endpoint's backpressure: when it is full the upload is
+     * rejected with 503 instead of piling up in memory.
+     *
+     * @param properties reactive endpoint settings
+     * @return fixed-size executor with a queue of {@code thumbnail.reactive.max-queued}
+     */
+    @Bean
+    @ConditionalOnProperty(name = "thumbnail.reactive.enabled", havingValue = "true")
+    public ThreadPoolExecutor reactiveExecutor(ThumbnailProperties properties) {
+        ThumbnailProperties.Reactive reactive = properties.getReactive();
+        int threads = reactive.getThreads() > 0
+            ? reactive.getThreads()
+            : 4 * Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            threads,
+            threads,
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, reactive.getMaxQueued())),
+            r -> {
+                Thread thread = new Thread(r, "thumbnail-reactive-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        logger.info("Reactive executor configured: threads={}, maxQueued={}", threads, reactive.getMaxQueued());
+        return executor;
+    }
+
+    /**
+     * Publishes the {@code executor.*} metrics of the reactive executor, tagged
+     * {@code name=reactiveExecutor}.
+     *
+     * @param reactiveExecutor the executor to observe
+     * @return binder registered by the actuator
+     */
+    @Bean
+    @ConditionalOnProperty(name = "thumbnail.reactive.enabled", havingValue = "true")
+    public ExecutorServiceMetrics reactiveExecutorMetrics(
+            @Qualifier("reactiveExecutor") ThreadPoolExecutor reactiveExecutor) {
+        return new ExecutorServiceMetrics(reactiveExecutor, "reactiveExecutor", Tags.empty());
+    }
+
+    /**
+     * Runs Tomcat request processing on virtual threads when virtual execution
+     * mode is configured.
+     *
+     * @return customizer that replaces the connector's worker pool
+     * @throws IllegalStateException if the runtime is older than Java 21
+     */
+    @Bean
+    @ConditionalOnProperty(name = "thumbnail.execution.mode", havingValue = "virtual")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        if (Runtime.version().feature() < 21) {
+            throw new IllegalStateException("thumbnail.execution.mode=virtual requires Java 21 or later, "
+                + "but the runtime is Java " + Runtime.version().feature());
+        }
+
+        VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("tomcat-handler-");
+        logger.info("Tomcat request handling configured on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
 }
@@ -0,0 +1,57 @@
+package com.thumbnailapi.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServletHttpHandlerAdapter;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.thumbnailapi.api.reactive.ReactiveThumbnailHandler;
+
+/**
+ * Serves the reactive upload endpoint from the embedded Tomcat next to Spring MVC.
+ *
+ * The router is mounted as its own asynchronous servlet under
+ * {@code thumbnail.reactive.path}, so requests to it use non-blocking servlet I/O
+ * and never reach the DispatcherServlet or its multipart resolver. No reactive
+ * server is started.
+ */
+@Configuration
+@ConditionalOnProperty(name = "thumbnail.reactive.enabled", havingValue = "true")
+public class ReactiveEndpointConfig {
+
+    private static final Logger logger = LogManager.getLogger(ReactiveEndpointConfig.class);
+
+    /**
+     * Registers the servlet that adapts Tomcat requests to the reactive router.
+     *
+     * @param handler handler of the upload endpoint
+     * @param properties reactive endpoint settings
+     * @return registration mapped to {@code <path>/*}
+     */
+    @Bean
+    public ServletRegistrationBean<ServletHttpHandlerAdapter> reactiveThumbnailServlet(
+            ReactiveThumbnailHandler handler, ThumbnailProperties properties) {
+        RouterFunction<ServerResponse> routes = RouterFunctions.route(
+            RequestPredicates.POST("/thumbnails").and(RequestPredicates.contentType(MediaType.MULTIPART_FORM_DATA)),
+            handler::generateThumbnails);
+        ServletHttpHandlerAdapter servlet = new ServletHttpHandlerAdapter(RouterFunctions.toHttpHandler(routes));
+
+        String path = properties.getReactive().getPath().replaceAll("/+$", "");
+        ServletRegistrationBean<ServletHttpHandlerAdapter> registration =
+            new ServletRegistrationBean<>(servlet, path + "/*");
+        registration.setName("reactiveThumbnailServlet");
+        registration.setAsyncSupported(true);
+        registration.setLoadOnStartup(1);
+
+        logger.info("Reactive thumbnail endpoint mapped to POST {}/thumbnails", path);
+        return registration;
+    }
+}
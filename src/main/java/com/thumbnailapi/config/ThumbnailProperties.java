@@ -0,0 +1,987 @@
+package com.thumbnailapi.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Tunable settings for the thumbnail pipeline, bound from {@code thumbnail.*} properties.
+ *
+ * Defaults here match the behaviour of the service before the setting existed,
+ * so an empty configuration keeps the original pipeline.
+ */
+@ConfigurationProperties(prefix = "thumbnail")
+public class ThumbnailProperties {
+
+    private final Execution execution = new Execution();
+    private final Limits limits = new Limits();
+    private final Admission admission = new Admission();
+    private final Generation generation = new Generation();
+    private final Decode decode = new Decode();
+    private final Resize resize = new Resize();
+    private final Encode encode = new Encode();
+    private final Cache cache = new Cache();
+    private final Coalesce coalesce = new Coalesce();
+    private final Store store = new Store();
+    private final Delivery delivery = new Delivery();
+    private final Batch batch = new Batch();
+    private final Jobs jobs = new Jobs();
+    private final Reactive reactive = new Reactive();
+    private final Logging logging = new Logging();
+
+    public Execution getExecution() {
+        return execution;
+    }
+
+    public Limits getLimits() {
+        return limits;
+    }
+
+    public Admission getAdmission() {
+        return admission;
+    }
+
+    public Generation getGeneration() {
+        return generation;
+    }
+
+    public Decode getDecode() {
+        return decode;
+    }
+
+    public Resize getResize() {
+        return resize;
+    }
+
+    public Encode getEncode() {
+        return encode;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Coalesce getCoalesce() {
+        return coalesce;
+    }
+
+    public Store getStore() {
+        return store;
+    }
+
+    public Delivery getDelivery() {
+        return delivery;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public Jobs getJobs() {
+        return jobs;
+    }
+
+    public Reactive getReactive() {
+        return reactive;
+    }
+
+    public Logging getLogging() {
+        return logging;
+    }
+
+    /**
+     * Settings for the threads that handle requests and run thumbnail work.
+     */
+    public static class Execution {
+
+        /**
+         * Whether requests run on Tomcat's platform thread pool or on virtual
+         * threads. Virtual mode needs Java 21 and keeps decode, resize and encode
+         * on a thumbnailExecutor pool sized to the CPU count.
+         */
+        private ExecutionMode mode = ExecutionMode.PLATFORM;
+
+        public ExecutionMode getMode() {
+            return mode;
+        }
+
+        public void setMode(ExecutionMode mode) {
+            this.mode = mode;
+        }
+    }
+
+    /**
+     * Limits checked against the image header before an upload is decoded.
+     */
+    public static class Limits {
+
+        /**
+         * Whether uploads are rejected when their header exceeds the limits.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Largest width times height of a single frame.
+         */
+        private long maxPixels = 100_000_000L;
+
+        /**
+         * Largest number of frames (GIF, APNG, animated WebP) or pages (TIFF).
+         */
+        private int maxFrames = 1000;
+
+        /**
+         * Leading bytes of the upload probed before the rest is buffered.
+         */
+        private DataSize probeSize = DataSize.ofKilobytes(64);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxPixels() {
+            return maxPixels;
+        }
+
+        public void setMaxPixels(long maxPixels) {
+            this.maxPixels = maxPixels;
+        }
+
+        public int getMaxFrames() {
+            return maxFrames;
+        }
+
+        public void setMaxFrames(int maxFrames) {
+            this.maxFrames = maxFrames;
+        }
+
+        public DataSize getProbeSize() {
+            return probeSize;
+        }
+
+        public void setProbeSize(DataSize probeSize) {
+            this.probeSize = probeSize;
+        }
+    }
+
+    /**
+     * Settings for admitting uploads by the raster memory they need.
+     */
+    public static class Admission {
+
+        /**
+         * Whether uploads reserve their estimated peak raster memory before decoding.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Total raster memory that admitted uploads may reserve at once.
+         */
+        private DataSize maxPixelMemory = DataSize.ofMegabytes(256);
+
+        /**
+         * How long an upload waits for budget before it is rejected; zero rejects
+         * immediately.
+         */
+        private Duration queueTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Value of the Retry-After header sent with a rejection.
+         */
+        private Duration retryAfter = Duration.ofSeconds(2);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public DataSize getMaxPixelMemory() {
+            return maxPixelMemory;
+        }
+
+        public void setMaxPixelMemory(DataSize maxPixelMemory) {
+            this.maxPixelMemory = maxPixelMemory;
+        }
+
+        public Duration getQueueTimeout() {
+            return queueTimeout;
+        }
+
+        public void setQueueTimeout(Duration queueTimeout) {
+            this.queueTimeout = queueTimeout;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+
+        public void setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+    }
+
+    /**
+     * Settings for how the requested sizes of a single upload are produced.
+     */
+    public static class Generation {
+
+        /**
+         * Whether sizes are generated one after another on the request thread
+         * or fanned out to the thumbnailExecutor pool.
+         */
+        private GenerationMode mode = GenerationMode.SEQUENTIAL;
+
+        public GenerationMode getMode() {
+            return mode;
+        }
+
+        public void setMode(GenerationMode mode) {
+            this.mode = mode;
+        }
+    }
+
+    /**
+     * Settings for decoding the original upload.
+     */
+    public static class Decode {
+
+        /**
+         * Whether the full source raster is decoded or a subsampled one sized
+         * from the largest requested thumbnail.
+         */
+        private DecodeMode mode = DecodeMode.FULL;
+
+        /**
+         * Minimum ratio between the subsampled raster and the largest thumbnail
+         * along the axis that drives the resize. Higher values keep more detail
+         * for the final resize at the cost of a larger decode.
+         */
+        private double minOversample = 2.0;
+
+        public DecodeMode getMode() {
+            return mode;
+        }
+
+        public void setMode(DecodeMode mode) {
+            this.mode = mode;
+        }
+
+        public double getMinOversample() {
+            return minOversample;
+        }
+
+        public void setMinOversample(double minOversample) {
+            this.minOversample = minOversample;
+        }
+    }
+
+    /**
+     * Settings for resizing the decoded original into the requested sizes.
+     */
+    public static class Resize {
+
+        /**
+         * Whether smaller sizes may be resized from a larger thumbnail of the
+         * same request instead of from the original.
+         */
+        private boolean cascadeEnabled = false;
+
+        /**
+         * Minimum size ratio between a thumbnail and a size derived from it.
+         * Sizes without a large enough thumbnail use the original.
+         */
+        private double minCascadeRatio = 2.0;
+
+        /**
+         * Resize quality used when a request does not ask for one. {@code auto}
+         * picks the resampling method and antialiasing per size from the scale
+         * ratio and target size.
+         */
+        private ResizeQuality quality = ResizeQuality.QUALITY;
+
+        /**
+         * Implementation that resizes: Scalr on Java2D, or the separable
+         * resampler working on raster arrays in parallel bands.
+         */
+        private ResizeEngine engine = ResizeEngine.SCALR;
+
+        public boolean isCascadeEnabled() {
+            return cascadeEnabled;
+        }
+
+        public void setCascadeEnabled(boolean cascadeEnabled) {
+            this.cascadeEnabled = cascadeEnabled;
+        }
+
+        public double getMinCascadeRatio() {
+            return minCascadeRatio;
+        }
+
+        public void setMinCascadeRatio(double minCascadeRatio) {
+            this.minCascadeRatio = minCascadeRatio;
+        }
+
+        public ResizeQuality getQuality() {
+            return quality;
+        }
+
+        public void setQuality(ResizeQuality quality) {
+            this.quality = quality;
+        }
+
+        public ResizeEngine getEngine() {
+            return engine;
+        }
+
+        public void setEngine(ResizeEngine engine) {
+            this.engine = engine;
+        }
+    }
+
+    /**
+     * Settings for encoding resized thumbnails.
+     */
+    public static class Encode {
+
+        /**
+         * Whether encode buffers are returned to a pool for reuse. When disabled
+         * every encode still writes into a single presized buffer, which is
+         * dropped afterwards.
+         */
+        private boolean poolEnabled = false;
+
+        /**
+         * Approximate upper bound on the bytes held by idle pooled buffers.
+         */
+        private DataSize poolMaxSize = DataSize.ofMegabytes(32);
+
+        /**
+         * Encoder profile used when a request does not name one. A profile named
+         * "default" that keeps the writer defaults always exists.
+         */
+        private String profile = "default";
+
+        /**
+         * Encoder profiles by name, selectable per request.
+         */
+        private Map<String, EncodeProfile> profiles = new LinkedHashMap<>();
+
+        public boolean isPoolEnabled() {
+            return poolEnabled;
+        }
+
+        public void setPoolEnabled(boolean poolEnabled) {
+            this.poolEnabled = poolEnabled;
+        }
+
+        public DataSize getPoolMaxSize() {
+            return poolMaxSize;
+        }
+
+        public void setPoolMaxSize(DataSize poolMaxSize) {
+            this.poolMaxSize = poolMaxSize;
+        }
+
+        public String getProfile() {
+            return profile;
+        }
+
+        public void setProfile(String profile) {
+            this.profile = profile;
+        }
+
+        public Map<String, EncodeProfile> getProfiles() {
+            return profiles;
+        }
+
+        public void setProfiles(Map<String, EncodeProfile> profiles) {
+            this.profiles = profiles;
+        }
+    }
+
+    /**
+     * Encoder settings of one named profile. Unset values keep the defaults of
+     * the JDK image writers.
+     */
+    public static class EncodeProfile {
+
+        /**
+         * JPEG compression quality from 0.0 to 1.0; the writer default (0.75) when unset.
+         */
+        private Float jpegQuality;
+
+        /**
+         * Whether JPEGs are written progressive instead of baseline.
+         */
+        private boolean progressive = false;
+
+        /**
+         * Whether baseline JPEGs get Huffman tables computed for the image instead
+         * of the standard tables. Progressive JPEGs always do.
+         */
+        private boolean optimizeHuffman = false;
+
+        /**
+         * JPEG chroma subsampling: 4:2:0, 4:2:2 or 4:4:4.
+         */
+        private String chromaSubsampling = "4:2:0";
+
+        /**
+         * PNG deflate level from 0 (stored) to 9 (smallest); the writer default (4) when unset.
+         */
+        private Integer pngCompressionLevel;
+
+        public Float getJpegQuality() {
+            return jpegQuality;
+        }
+
+        public void setJpegQuality(Float jpegQuality) {
+            this.jpegQuality = jpegQuality;
+        }
+
+        public boolean isProgressive() {
+            return progressive;
+        }
+
+        public void setProgressive(boolean progressive) {
+            this.progressive = progressive;
+        }
+
+        public boolean isOptimizeHuffman() {
+            return optimizeHuffman;
+        }
+
+        public void setOptimizeHuffman(boolean optimizeHuffman) {
+            this.optimizeHuffman = optimizeHuffman;
+        }
+
+        public String getChromaSubsampling() {
+            return chromaSubsampling;
+        }
+
+        public void setChromaSubsampling(String chromaSubsampling) {
+            this.chromaSubsampling = chromaSubsampling;
+        }
+
+        public Integer getPngCompressionLevel() {
+            return pngCompressionLevel;
+        }
+
+        public void setPngCompressionLevel(Integer pngCompressionLevel) {
+            this.pngCompressionLevel = pngCompressionLevel;
+        }
+    }
+
+    /**
+     * Settings for the off-heap cache of encoded thumbnails.
+     */
+    public static class Cache {
+
+        /**
+         * Whether generated thumbnails are cached by content hash.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Direct memory budget for cached thumbnail bytes.
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    /**
+     * Settings for coalescing concurrent requests for the same thumbnails.
+     */
+    public static class Coalesce {
+
+        /**
+         * Whether a request waits for an in-flight request with the same content
+         * hash, sizes, quality and profile and shares its thumbnails.
+         */
+        private boolean enabled = false;
+
+        /**
+         * How long a request waits for the in-flight one before processing the
+         * upload itself.
+         */
+        private Duration waitTimeout = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getWaitTimeout() {
+            return waitTimeout;
+        }
+
+        public void setWaitTimeout(Duration waitTimeout) {
+            this.waitTimeout = waitTimeout;
+        }
+    }
+
+    /**
+     * Settings for the persistent disk store of encoded thumbnails.
+     */
+    public static class Store {
+
+        /**
+         * Whether generated thumbnails are persisted to local disk.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Directory holding the segment files and the index.
+         */
+        private String directory = "data/thumbnails";
+
+        /**
+         * Disk quota for all segments; the oldest segments are evicted beyond it.
+         */
+        private DataSize maxSize = DataSize.ofGigabytes(1);
+
+        /**
+         * Size at which a new append segment is started. Eviction works on whole
+         * segments, so this is also the eviction granularity.
+         */
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Number of slots in the memory-mapped index; rounded up to a power of two.
+         * Each slot takes 64 bytes.
+         */
+        private int indexSlots = 262_144;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public DataSize getSegmentSize() {
+            return segmentSize;
+        }
+
+        public void setSegmentSize(DataSize segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        public int getIndexSlots() {
+            return indexSlots;
+        }
+
+        public void setIndexSlots(int indexSlots) {
+            this.indexSlots = indexSlots;
+        }
+    }
+
+    /**
+     * Settings for serving previously generated thumbnails over HTTP.
+     */
+    public static class Delivery {
+
+        /**
+         * Max-age sent in Cache-Control for individual thumbnails. Their URLs are
+         * content addressed, so responses never change and may be cached for long.
+         */
+        private Duration cacheMaxAge = Duration.ofDays(365);
+
+        public Duration getCacheMaxAge() {
+            return cacheMaxAge;
+        }
+
+        public void setCacheMaxAge(Duration cacheMaxAge) {
+            this.cacheMaxAge = cacheMaxAge;
+        }
+    }
+
+    /**
+     * Settings for {@code POST /api/v1/thumbnails/batch}.
+     */
+    public static class Batch {
+
+        /**
+         * Most files accepted in one batch request.
+         */
+        private int maxFiles = 500;
+
+        /**
+         * Most files of one batch being read, decoded, resized or encoded at once.
+         * Later files start as earlier ones finish, so a large batch never holds
+         * more than this share of the pipeline.
+         */
+        private int maxConcurrency = 2;
+
+        /**
+         * Threads shared by all batches that run each file through the pipeline.
+         * Bounds how much of the service concurrent batches can occupy together.
+         */
+        private int threads = 8;
+
+        /**
+         * Largest multipart request accepted by the batch endpoint. Other upload
+         * endpoints keep {@code spring.servlet.multipart.max-request-size}.
+         */
+        private DataSize maxRequestSize = DataSize.ofMegabytes(200);
+
+        public int getMaxFiles() {
+            return maxFiles;
+        }
+
+        public void setMaxFiles(int maxFiles) {
+            this.maxFiles = maxFiles;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public DataSize getMaxRequestSize() {
+            return maxRequestSize;
+        }
+
+        public void setMaxRequestSize(DataSize maxRequestSize) {
+            this.maxRequestSize = maxRequestSize;
+        }
+    }
+
+    /**
+     * Settings for asynchronous jobs submitted to {@code POST /api/v1/thumbnails/jobs}.
+     */
+    public static class Jobs {
+
+        /**
+         * Threads that take jobs from the queue and run them through the pipeline.
+         */
+        private int workers = 2;
+
+        /**
+         * Most jobs waiting for a worker; further submissions get 503. Queued jobs
+         * hold their upload in memory.
+         */
+        private int maxQueued = 100;
+
+        /**
+         * Most upload bytes held by queued jobs; further submissions get 503.
+         * Held on the heap, like the results of finished jobs.
+         */
+        private DataSize maxQueuedSize = DataSize.ofMegabytes(48);
+
+        /**
+         * Retry-After sent when the queue is full.
+         */
+        private Duration retryAfter = Duration.ofSeconds(5);
+
+        /**
+         * How long a finished job, with its thumbnails, can be fetched.
+         */
+        private Duration resultTtl = Duration.ofMinutes(15);
+
+        /**
+         * Bound on the encoded thumbnails kept by finished jobs. Beyond it the
+         * least recently used results are dropped before their TTL.
+         */
+        private DataSize maxResultSize = DataSize.ofMegabytes(32);
+
+        /**
+         * URL prefixes callbacks may be sent to, e.g. {@code https://hooks.example.com/thumbnails}.
+         * Scheme, host and port must match exactly and the path must start with the
+         * prefix path. Submissions with any other callback URL are rejected; when
+         * empty, callbacks are disabled.
+         */
+        private List<String> callbackAllowedUrls = new ArrayList<>();
+
+        /**
+         * Timeout of each callback request.
+         */
+        private Duration callbackTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Attempts per callback, with exponential backoff from one second.
+         */
+        private int callbackAttempts = 3;
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+
+        public DataSize getMaxQueuedSize() {
+            return maxQueuedSize;
+        }
+
+        public void setMaxQueuedSize(DataSize maxQueuedSize) {
+            this.maxQueuedSize = maxQueuedSize;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+
+        public void setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+
+        public Duration getResultTtl() {
+            return resultTtl;
+        }
+
+        public void setResultTtl(Duration resultTtl) {
+            this.resultTtl = resultTtl;
+        }
+
+        public DataSize getMaxResultSize() {
+            return maxResultSize;
+        }
+
+        public void setMaxResultSize(DataSize maxResultSize) {
+            this.maxResultSize = maxResultSize;
+        }
+
+        public List<String> getCallbackAllowedUrls() {
+            return callbackAllowedUrls;
+        }
+
+        public void setCallbackAllowedUrls(List<String> callbackAllowedUrls) {
+            this.callbackAllowedUrls = callbackAllowedUrls;
+        }
+
+        public Duration getCallbackTimeout() {
+            return callbackTimeout;
+        }
+
+        public void setCallbackTimeout(Duration callbackTimeout) {
+            this.callbackTimeout = callbackTimeout;
+        }
+
+        public int getCallbackAttempts() {
+            return callbackAttempts;
+        }
+
+        public void setCallbackAttempts(int callbackAttempts) {
+            this.callbackAttempts = callbackAttempts;
+        }
+    }
+
+    /**
+     * Settings for the reactive upload endpoint, which reads the body as it arrives
+     * without holding a request thread.
+     */
+    public static class Reactive {
+
+        /**
+         * Whether {@code POST <path>/thumbnails} is served.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Path the endpoint is mapped under, outside the Spring MVC mappings.
+         */
+        private String path = "/api/v1/reactive";
+
+        /**
+         * Threads that run uploads through the pipeline once they are read; 0 uses
+         * four per available processor, since each thread decodes and then waits
+         * while the thumbnail executor resizes and encodes its sizes.
+         */
+        private int threads = 0;
+
+        /**
+         * Most read uploads waiting for a thread; further uploads get 503.
+         */
+        private int maxQueued = 64;
+
+        /**
+         * Most uploads being received or processed at once; further requests get
+         * 503 before their body is read.
+         */
+        private int maxUploads = 256;
+
+        /**
+         * Retry-After sent when the endpoint is saturated.
+         */
+        private Duration retryAfter = Duration.ofSeconds(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+
+        public int getMaxUploads() {
+            return maxUploads;
+        }
+
+        public void setMaxUploads(int maxUploads) {
+            this.maxUploads = maxUploads;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+
+        public void setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+    }
+
+    /**
+     * Settings for the per-request log records.
+     */
+    public static class Logging {
+
+        /**
+         * Fraction of requests, from 0 to 1, whose per-size lines are logged at
+         * DEBUG; every request logs its one summary record regardless.
+         */
+        private double sizeDetailSampleRate = 1.0;
+
+        public double getSizeDetailSampleRate() {
+            return sizeDetailSampleRate;
+        }
+
+        public void setSizeDetailSampleRate(double sizeDetailSampleRate) {
+            this.sizeDetailSampleRate = sizeDetailSampleRate;
+        }
+    }
+
+    /**
+     * Threads that handle requests and blocking I/O.
+     */
+    public enum ExecutionMode {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    /**
+     * Execution strategy for the per-size resize/encode work.
+     */
+    public enum GenerationMode {
+        SEQUENTIAL,
+        PARALLEL
+    }
+
+    /**
+     * Decode strategy for the original image.
+     */
+    public enum DecodeMode {
+        FULL,
+        SUBSAMPLED
+    }
+
+    /**
+     * Trade-off between resize speed and output quality.
+     */
+    public enum ResizeQuality {
+        SPEED,
+        BALANCED,
+        QUALITY,
+        ULTRA,
+        AUTO
+    }
+
+    /**
+     * Implementation used to resize images.
+     */
+    public enum ResizeEngine {
+        SCALR,
+        RASTER
+    }
+}
@@ -1,16 +1,20 @@
 package com.thumbnailapi.exception;
 
+import java.lang.reflect.Method;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.UUID;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.ExceptionHandlerMethodResolver;
 import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -25,6 +29,35 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class GlobalExceptionHandler {
 
     private static final Logger logger = LogManager.getLogger(GlobalExceptionHandler.class);
+    private static final ExceptionHandlerMethodResolver handlers =
+        new ExceptionHandlerMethodResolver(GlobalExceptionHandler.class);
+
+    /**
+     * Builds the error response this handler would send for the exception, for
+     * failures reported inside a successful response, such as one file of a
+     * batch or a finished job.
+     *
+     * @param ex the failure
+     * @param request the request the error is reported in
+     * @return the error body, with the status the failing request would have had
+     */
+    public ErrorResponse describe(Exception ex, WebRequest request) {
+        return handle(ex, request).getBody();
+    }
+
+    /**
+     * Builds the full error response this handler would send for the exception,
+     * for endpoints served outside Spring MVC.
+     *
+     * @param ex the failure
+     * @param request the failing request
+     * @return the status, headers and error body
+     */
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<ErrorResponse> handle(Exception ex, WebRequest request) {
+        Method handler = handlers.resolveMethodByThrowable(ex);
+        return (ResponseEntity<ErrorResponse>) ReflectionUtils.invokeMethod(handler, this, ex, request);
+    }
 
     /**
      * Handles InvalidImageException.
@@ -74,6 +107,22 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.PAYLOAD_TOO_LARGE);
     }
 
+    /**
+     * Handles ImageTooLargeException.
+     */
+    @ExceptionHandler(ImageTooLargeException.class)
+    public ResponseEntity<ErrorResponse> handleImageTooLarge(
+            ImageTooLargeException ex, WebRequest request) {
+        logger.warn("Image too large: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.PAYLOAD_TOO_LARGE.value(),
+            "Image Too Large",
+            ex.getMessage(),
+            request.getDescription(false).replace("uri=", "")
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
     /**
      * Handles InvalidDimensionsException.
      */
@@ -90,6 +139,121 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Handles InvalidQualityException.
+     */
+    @ExceptionHandler(InvalidQualityException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidQualityException(
+            InvalidQualityException ex, WebRequest request) {
+        logger.warn("Invalid quality exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.BAD_REQUEST.value(),
+            "Invalid Quality",
+            ex.getMessage(),
+            request.getDescription(false).replace("uri=", "")
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handles InvalidProfileException.
+     */
+    @ExceptionHandler(InvalidProfileException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidProfileException(
+            InvalidProfileException ex, WebRequest request) {
+        logger.warn("Invalid profile exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.BAD_REQUEST.value(),
+            "Invalid Profile",
+            ex.getMessage(),
+            request.getDescription(false).replace("uri=", "")
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handles InvalidBatchException.
+     */
+    @ExceptionHandler(InvalidBatchException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidBatchException(
+            InvalidBatchException ex, WebRequest request) {
+        logger.warn("Invalid batch exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.BAD_REQUEST.value(),
+            "Invalid Batch",
+            ex.getMessage(),
+            request.getDescription(false).replace("uri=", "")
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handles ThumbnailNotFoundException.
+     */
+    @ExceptionHandler(ThumbnailNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleThumbnailNotFound(
+            ThumbnailNotFoundException ex, WebRequest request) {
+        logger.debug("Thumbnail not found: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.NOT_FOUND.value(),
+            "Thumbnail Not Found",
+            ex.getMessage(),
+            request.getDescription(false).replace("uri=", "")
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Handles InvalidCallbackException.
+     */
+    @ExceptionHandler(InvalidCallbackException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidCallbackException(
+            InvalidCallbackException ex, WebRequest request) {
+        logger.warn("Invalid callback exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.BAD_REQUEST.value(),
+            "Invalid Callback",
+            ex.getMessage(),
+            request.getDescription(false).replace("uri=", "")
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handles JobNotFoundException.
+     */
+    @ExceptionHandler(JobNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleJobNotFound(
+            JobNotFoundException ex, WebRequest request) {
+        logger.debug("Job not found: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.NOT_FOUND.value(),
+            "Job Not Found",
+            ex.getMessage(),
+            request.getDescription(false).replace("uri=", "")
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Handles ServiceOverloadedException, telling the client when to retry.
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleServiceOverloaded(
+            ServiceOverloadedException ex, WebRequest request) {
+        logger.warn("Service overloaded: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.SERVICE_UNAVAILABLE.value(),
+            "Service Overloaded",
+            ex.getMessage(),
+            request.getDescription(false).replace("uri=", "")
+        );
+        long retryAfterSeconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+            .body(errorResponse);
+    }
+
     /**
      * Handles MaxUploadSizeExceededException from Spring.
      */
@@ -0,0 +1,16 @@
+package com.thumbnailapi.exception;
+
+/**
+ * Exception thrown when an image header declares more pixels or frames than
+ * the configured limits allow.
+ */
+public class ImageTooLargeException extends RuntimeException {
+
+    public ImageTooLargeException(String message) {
+        super(message);
+    }
+
+    public ImageTooLargeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
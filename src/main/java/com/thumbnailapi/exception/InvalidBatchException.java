@@ -0,0 +1,11 @@
+package com.thumbnailapi.exception;
+
+/**
+ * Exception thrown when a batch request has no files or more than the configured limit.
+ */
+public class InvalidBatchException extends RuntimeException {
+
+    public InvalidBatchException(String message) {
+        super(message);
+    }
+}
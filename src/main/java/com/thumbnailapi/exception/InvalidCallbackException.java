@@ -0,0 +1,11 @@
+package com.thumbnailapi.exception;
+
+/**
+ * Exception thrown when a job's callback URL is malformed or not on the allowlist.
+ */
+public class InvalidCallbackException extends RuntimeException {
+
+    public InvalidCallbackException(String message) {
+        super(message);
+    }
+}
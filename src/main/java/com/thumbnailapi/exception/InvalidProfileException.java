@@ -0,0 +1,11 @@
+package com.thumbnailapi.exception;
+
+/**
+ * Exception thrown when an unknown encode profile is requested.
+ */
+public class InvalidProfileException extends RuntimeException {
+
+    public InvalidProfileException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.thumbnailapi.exception;
+
+/**
+ * Exception thrown when an unknown resize quality is requested.
+ */
+public class InvalidQualityException extends RuntimeException {
+
+    public InvalidQualityException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.thumbnailapi.exception;
+
+/**
+ * Exception thrown when a job id is unknown or its result has expired.
+ */
+public class JobNotFoundException extends RuntimeException {
+
+    public JobNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,29 @@
+package com.thumbnailapi.exception;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when an upload cannot be admitted because the server is
+ * already working on as much image data as it has memory for.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ServiceOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public ServiceOverloadedException(String message, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Returns how long the client should wait before retrying.
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
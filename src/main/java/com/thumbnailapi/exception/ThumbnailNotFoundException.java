@@ -0,0 +1,15 @@
+package com.thumbnailapi.exception;
+
+/**
+ * Exception thrown when a requested thumbnail is neither cached nor stored.
+ */
+public class ThumbnailNotFoundException extends RuntimeException {
+
+    public ThumbnailNotFoundException(String message) {
+        super(message);
+    }
+
+    public ThumbnailNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
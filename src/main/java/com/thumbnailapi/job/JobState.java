@@ -0,0 +1,27 @@
+package com.thumbnailapi.job;
+
+import java.util.Locale;
+
+/**
+ * Lifecycle of an asynchronous thumbnail job.
+ */
+public enum JobState {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED;
+
+    /**
+     * Returns whether the job has stopped, successfully or not.
+     */
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+
+    /**
+     * Returns the name reported in job status responses, e.g. {@code queued}.
+     */
+    public String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
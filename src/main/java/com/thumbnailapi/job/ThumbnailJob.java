@@ -0,0 +1,160 @@
+package com.thumbnailapi.job;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.List;
+
+import com.thumbnailapi.model.ThumbnailResponse;
+import com.thumbnailapi.util.ImageUpload;
+
+/**
+ * One asynchronous thumbnail request and, once finished, its outcome.
+ *
+ * The upload is held while the job is queued and released when it starts. A
+ * succeeded job keeps the encoded thumbnails, in the order of its response, until
+ * it expires. State is written last, so a reader that sees a finished state also
+ * sees the outcome.
+ */
+public final class ThumbnailJob {
+
+    private final String id;
+    private final String filename;
+    private final String sizes;
+    private final String quality;
+    private final String profile;
+    private final URI callbackUrl;
+    private final String statusUrl;
+    private final Instant submittedAt;
+
+    private volatile ImageUpload upload;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile ThumbnailResponse response;
+    private volatile List<byte[]> thumbnails = List.of();
+    private volatile RuntimeException error;
+    private volatile JobState state = JobState.QUEUED;
+
+    ThumbnailJob(String id, ImageUpload upload, String filename, String sizes, String quality, String profile,
+                 URI callbackUrl, String statusUrl) {
+        this.id = id;
+        this.upload = upload;
+        this.filename = filename;
+        this.sizes = sizes;
+        this.quality = quality;
+        this.profile = profile;
+        this.callbackUrl = callbackUrl;
+        this.statusUrl = statusUrl;
+        this.submittedAt = Instant.now();
+    }
+
+    /**
+     * Marks the job running and hands over its upload, which the job no longer holds.
+     */
+    ImageUpload start() {
+        ImageUpload started = upload;
+        upload = null;
+        startedAt = Instant.now();
+        state = JobState.RUNNING;
+        return started;
+    }
+
+    void succeed(ThumbnailResponse response, List<byte[]> thumbnails) {
+        this.response = response;
+        this.thumbnails = List.copyOf(thumbnails);
+        finishedAt = Instant.now();
+        state = JobState.SUCCEEDED;
+    }
+
+    void fail(RuntimeException error) {
+        this.error = error;
+        upload = null;
+        finishedAt = Instant.now();
+        state = JobState.FAILED;
+    }
+
+    /**
+     * Returns the bytes held for the result: the encoded thumbnails of a finished
+     * job, zero while it is queued or running.
+     */
+    long retainedBytes() {
+        if (!state.isFinished()) {
+            return 0;
+        }
+        long bytes = 0;
+        for (byte[] thumbnail : thumbnails) {
+            bytes += thumbnail.length;
+        }
+        return bytes;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String filename() {
+        return filename;
+    }
+
+    String sizes() {
+        return sizes;
+    }
+
+    String quality() {
+        return quality;
+    }
+
+    String profile() {
+        return profile;
+    }
+
+    URI callbackUrl() {
+        return callbackUrl;
+    }
+
+    public String statusUrl() {
+        return statusUrl;
+    }
+
+    public JobState state() {
+        return state;
+    }
+
+    public Instant submittedAt() {
+        return submittedAt;
+    }
+
+    /**
+     * Returns when a worker started the job, or null while it is queued.
+     */
+    public Instant startedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Returns when the job finished, or null while it is queued or running.
+     */
+    public Instant finishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Returns the thumbnail metadata of a succeeded job, or null.
+     */
+    public ThumbnailResponse response() {
+        return response;
+    }
+
+    /**
+     * Returns the encoded thumbnails of a succeeded job, in response order.
+     */
+    public List<byte[]> thumbnails() {
+        return thumbnails;
+    }
+
+    /**
+     * Returns why a failed job failed, or null.
+     */
+    public RuntimeException error() {
+        return error;
+    }
+}
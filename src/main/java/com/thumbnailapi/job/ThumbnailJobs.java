@@ -0,0 +1,449 @@
+package com.thumbnailapi.job;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.exception.InvalidCallbackException;
+import com.thumbnailapi.exception.InvalidImageException;
+import com.thumbnailapi.exception.JobNotFoundException;
+import com.thumbnailapi.exception.ServiceOverloadedException;
+import com.thumbnailapi.model.ThumbnailResponse;
+import com.thumbnailapi.service.ImageProcessor;
+import com.thumbnailapi.util.ImageUpload;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Queue of asynchronous thumbnail jobs and the results of finished ones.
+ *
+ * Submitting validates and reads the upload, so bad images are still rejected
+ * immediately, then queues the job on the job executor. When the queue holds its
+ * maximum number of jobs or of upload bytes, submissions are answered with
+ * {@link ServiceOverloadedException}. Workers run jobs through the same
+ * {@link ImageProcessor} pipeline as synchronous uploads and keep the encoded
+ * thumbnails. Finished jobs expire after the result TTL, or earlier when their
+ * thumbnails exceed the result memory bound; queued and running jobs never expire.
+ *
+ * A job submitted with a callback URL gets a POST with its id, state and status
+ * URL when it finishes, retried with backoff. Callback URLs must match the
+ * configured allowlist.
+ */
+@Service
+public class ThumbnailJobs {
+
+    private static final Logger logger = LogManager.getLogger(ThumbnailJobs.class);
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED = Duration.ofMinutes(10);
+    private static final Duration FIRST_CALLBACK_RETRY = Duration.ofSeconds(1);
+
+    private final ImageProcessor imageProcessor;
+    private final ThreadPoolExecutor jobExecutor;
+    private final ObjectMapper objectMapper;
+    private final long maxQueuedBytes;
+    private final Duration retryAfter;
+    private final List<URI> callbackAllowedUrls;
+    private final Duration callbackTimeout;
+    private final int callbackAttempts;
+    private final Cache<String, ThumbnailJob> jobs;
+    private final Queue<ThumbnailJob> queued = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicInteger running = new AtomicInteger();
+    private final HttpClient httpClient;
+
+    private final Timer waitTimer;
+    private final Timer runTimer;
+    private final Counter rejected;
+    private final Map<JobState, Counter> completed = new ConcurrentHashMap<>();
+    private final Counter callbacksDelivered;
+    private final Counter callbacksFailed;
+
+    public ThumbnailJobs(ImageProcessor imageProcessor,
+                         ThumbnailProperties properties,
+                         @Qualifier("jobExecutor") ThreadPoolExecutor jobExecutor,
+                         ObjectMapper objectMapper,
+                         MeterRegistry registry) {
+        ThumbnailProperties.Jobs settings = properties.getJobs();
+        this.imageProcessor = imageProcessor;
+        this.jobExecutor = jobExecutor;
+        this.objectMapper = objectMapper;
+        this.maxQueuedBytes = settings.getMaxQueuedSize().toBytes();
+        this.retryAfter = settings.getRetryAfter();
+        this.callbackAllowedUrls = settings.getCallbackAllowedUrls().stream()
+            .filter(url -> !url.isBlank())
+            .map(ThumbnailJobs::parseUrl)
+            .toList();
+        this.callbackTimeout = settings.getCallbackTimeout();
+        this.callbackAttempts = Math.max(1, settings.getCallbackAttempts());
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(callbackTimeout)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+
+        long ttlNanos = settings.getResultTtl().toNanos();
+        this.jobs = Caffeine.newBuilder()
+            .maximumWeight(settings.getMaxResultSize().toBytes())
+            // Only finished jobs weigh anything, so queued and running jobs are never evicted
+            .weigher((String id, ThumbnailJob job) -> (int) Math.min(Integer.MAX_VALUE, job.retainedBytes()))
+            .expireAfter(new Expiry<String, ThumbnailJob>() {
+                @Override
+                public long expireAfterCreate(String id, ThumbnailJob job, long currentTime) {
+                    return job.state().isFinished() ? ttlNanos : Long.MAX_VALUE;
+                }
+
+                @Override
+                public long expireAfterUpdate(String id, ThumbnailJob job, long currentTime, long currentDuration) {
+                    return job.state().isFinished() ? ttlNanos : Long.MAX_VALUE;
+                }
+
+                @Override
+                public long expireAfterRead(String id, ThumbnailJob job, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .scheduler(Scheduler.systemScheduler())
+            .build();
+
+        this.waitTimer = timer("thumbnail.jobs.wait", "Time jobs spent queued before a worker started them", registry);
+        this.runTimer = timer("thumbnail.jobs.run", "Time workers spent running jobs", registry);
+        this.rejected = Counter.builder("thumbnail.jobs.rejected")
+            .description("Jobs rejected because the queue was full")
+            .register(registry);
+        for (JobState state : new JobState[] {JobState.SUCCEEDED, JobState.FAILED}) {
+            completed.put(state, Counter.builder("thumbnail.jobs.completed")
+                .description("Jobs that finished")
+                .tag("result", state.label())
+                .register(registry));
+        }
+        this.callbacksDelivered = callbackCounter("delivered", registry);
+        this.callbacksFailed = callbackCounter("failed", registry);
+        Gauge.builder("thumbnail.jobs.queued", queued, Queue::size)
+            .description("Jobs waiting for a worker")
+            .register(registry);
+        Gauge.builder("thumbnail.jobs.running", running, AtomicInteger::get)
+            .description("Jobs being run by a worker")
+            .register(registry);
+        Gauge.builder("thumbnail.jobs.oldest.queued.age", this, ThumbnailJobs::oldestQueuedSeconds)
+            .description("How long the oldest queued job has been waiting")
+            .baseUnit("seconds")
+            .register(registry);
+        Gauge.builder("thumbnail.jobs.queued.bytes", queuedBytes, AtomicLong::get)
+            .description("Uploads held by queued jobs")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("thumbnail.jobs.results.bytes", this, ThumbnailJobs::retainedBytes)
+            .description("Encoded thumbnails held by finished jobs")
+            .baseUnit("bytes")
+            .register(registry);
+
+        logger.info("Job queue configured: workers={}, maxQueued={}, resultTtl={}, callbacks allowed to {}",
+            jobExecutor.getCorePoolSize(), settings.getMaxQueued(), settings.getResultTtl(), callbackAllowedUrls);
+    }
+
+    /**
+     * Validates and reads the upload and queues a job for it.
+     *
+     * @param file the uploaded image file
+     * @param sizesParam comma-separated string of thumbnail sizes
+     * @param qualityParam speed, balanced, quality, ultra or auto; null for the server default
+     * @param profileParam name of a configured encode profile; null for the server default
+     * @param callbackUrl URL notified when the job finishes, or null
+     * @param statusUrlPrefix URL the job id is appended to for its status URL
+     * @return the queued job
+     * @throws InvalidCallbackException if the callback URL is malformed or not allowed
+     * @throws ServiceOverloadedException if the queue is full
+     * @throws various exceptions for validation failures
+     */
+    public ThumbnailJob submit(MultipartFile file, String sizesParam, String qualityParam, String profileParam,
+                               String callbackUrl, String statusUrlPrefix) {
+        URI callback = checkCallback(callbackUrl);
+        imageProcessor.checkOptions(sizesParam, qualityParam, profileParam);
+        if (jobExecutor.getQueue().remainingCapacity() == 0
+                || queuedBytes.get() + file.getSize() > maxQueuedBytes) {
+            throw overloaded();
+        }
+        ImageUpload upload = imageProcessor.readUpload(file);
+        int size = upload.data().length;
+        if (queuedBytes.addAndGet(size) > maxQueuedBytes) {
+            queuedBytes.addAndGet(-size);
+            throw overloaded();
+        }
+
+        String id = UUID.randomUUID().toString();
+        ThumbnailJob job = new ThumbnailJob(id, upload, file.getOriginalFilename(), sizesParam, qualityParam,
+            profileParam, callback, statusUrlPrefix + id);
+        jobs.put(id, job);
+        queued.add(job);
+        try {
+            jobExecutor.execute(() -> run(job, size));
+        } catch (RejectedExecutionException e) {
+            queued.remove(job);
+            queuedBytes.addAndGet(-size);
+            jobs.invalidate(id);
+            throw overloaded();
+        }
+        return job;
+    }
+
+    /**
+     * Returns a job that is queued, running, or finished and not yet expired.
+     *
+     * @param id the job id
+     * @return the job
+     * @throws JobNotFoundException if the id is unknown or the job has expired
+     */
+    public ThumbnailJob find(String id) {
+        ThumbnailJob job = jobs.getIfPresent(id);
+        if (job == null) {
+            throw new JobNotFoundException("No job '" + id + "', or its result has expired");
+        }
+        return job;
+    }
+
+    /**
+     * Returns when a finished job's result expires.
+     *
+     * @param job a finished job
+     * @return the expiry time, or null if the job is not finished or no longer held
+     */
+    public Instant expiresAt(ThumbnailJob job) {
+        if (!job.state().isFinished()) {
+            return null;
+        }
+        return jobs.policy().expireVariably()
+            .flatMap(expiry -> expiry.getExpiresAfter(job.id()))
+            .map(remaining -> Instant.now().plus(remaining))
+            .orElse(null);
+    }
+
+    private void run(ThumbnailJob job, int uploadSize) {
+        queued.remove(job);
+        queuedBytes.addAndGet(-uploadSize);
+        ImageUpload upload = job.start();
+        running.incrementAndGet();
+        waitTimer.record(Duration.between(job.submittedAt(), job.startedAt()));
+        long startTime = System.nanoTime();
+        Error fatal = null;
+        try {
+            Map<Integer, byte[]> encoded = new ConcurrentHashMap<>();
+            ThumbnailResponse response = imageProcessor.streamUpload(upload, job.filename(), job.sizes(),
+                job.quality(), job.profile(), (index, metadata, payload) -> {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream(Math.toIntExact(payload.length()));
+                    payload.writeTo(out);
+                    encoded.put(index, out.toByteArray());
+                });
+
+            List<byte[]> thumbnails = new ArrayList<>(response.thumbnails().size());
+            for (int i = 0; i < response.thumbnails().size(); i++) {
+                thumbnails.add(encoded.get(i));
+            }
+            job.succeed(response, thumbnails);
+        } catch (IOException e) {
+            job.fail(new InvalidImageException("Failed to process image: " + e.getMessage(), e));
+        } catch (RuntimeException e) {
+            job.fail(e);
+        } catch (Error e) {
+            // Still finish the job so it leaves RUNNING and its TTL applies, then rethrow
+            job.fail(new IllegalStateException("Job failed: " + e, e));
+            fatal = e;
+        } finally {
+            running.decrementAndGet();
+        }
+        runTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        completed.get(job.state()).increment();
+        // Reweigh and start the TTL now that the job is finished
+        jobs.put(job.id(), job);
+        if (job.callbackUrl() != null) {
+            sendCallback(job, 1);
+        }
+        if (fatal != null) {
+            throw fatal;
+        }
+    }
+
+    /**
+     * Posts the job's outcome to its callback URL, retrying failed attempts with
+     * exponential backoff. Runs on the HTTP client's threads, not the worker.
+     */
+    private void sendCallback(ThumbnailJob job, int attempt) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(new JobCallback(job.id(), job.state().label(),
+                job.statusUrl(), job.finishedAt().toString()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize callback for job " + job.id(), e);
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(job.callbackUrl())
+            .timeout(callbackTimeout)
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (error == null && response.statusCode() / 100 == 2) {
+                callbacksDelivered.increment();
+                logger.debug("Delivered callback for job {} to {}", job.id(), job.callbackUrl());
+                return;
+            }
+
+            String outcome = error != null ? error.toString() : "status " + response.statusCode();
+            if (attempt < callbackAttempts) {
+                long delayMillis = FIRST_CALLBACK_RETRY.toMillis() << (attempt - 1);
+                logger.debug("Callback attempt {} for job {} failed ({}), retrying in {}ms",
+                    attempt, job.id(), outcome, delayMillis);
+                CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS)
+                    .execute(() -> sendCallback(job, attempt + 1));
+            } else {
+                callbacksFailed.increment();
+                logger.warn("Giving up on callback for job {} to {} after {} attempts: {}",
+                    job.id(), job.callbackUrl(), attempt, outcome);
+            }
+        });
+    }
+
+    /**
+     * Parses a callback URL and checks it against the allowlist: same scheme, host
+     * and port as an allowed URL, and a path under its path.
+     */
+    private URI checkCallback(String callbackUrl) {
+        if (callbackUrl == null || callbackUrl.isBlank()) {
+            return null;
+        }
+        if (callbackAllowedUrls.isEmpty()) {
+            throw new InvalidCallbackException("Callbacks are not enabled on this server");
+        }
+
+        URI callback;
+        try {
+            callback = new URI(callbackUrl.trim()).normalize();
+        } catch (URISyntaxException e) {
+            throw new InvalidCallbackException("Malformed callback URL: " + callbackUrl);
+        }
+        if (callback.getScheme() == null || callback.getHost() == null || callback.getUserInfo() != null
+                || !(callback.getScheme().equalsIgnoreCase("http") || callback.getScheme().equalsIgnoreCase("https"))) {
+            throw new InvalidCallbackException("Callback URL must be an absolute http or https URL: " + callbackUrl);
+        }
+
+        for (URI allowed : callbackAllowedUrls) {
+            if (allowed.getScheme().equalsIgnoreCase(callback.getScheme())
+                    && allowed.getHost().equalsIgnoreCase(callback.getHost())
+                    && port(allowed) == port(callback)
+                    && pathStartsWith(callback.getRawPath(), allowed.getRawPath())) {
+                return callback;
+            }
+        }
+        throw new InvalidCallbackException("Callback URL is not allowed: " + callbackUrl);
+    }
+
+    private static boolean pathStartsWith(String path, String prefix) {
+        String candidate = path == null || path.isEmpty() ? "/" : path;
+        if (prefix == null || prefix.isEmpty() || prefix.equals("/")) {
+            return true;
+        }
+        String directory = prefix.endsWith("/") ? prefix : prefix + "/";
+        return candidate.equals(prefix) || candidate.startsWith(directory);
+    }
+
+    private static int port(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return uri.getScheme().toLowerCase(Locale.ROOT).equals("https") ? 443 : 80;
+    }
+
+    private static URI parseUrl(String url) {
+        URI uri = URI.create(url.trim()).normalize();
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            throw new IllegalArgumentException("thumbnail.jobs.callback-allowed-urls entry is not absolute: " + url);
+        }
+        return uri;
+    }
+
+    private ServiceOverloadedException overloaded() {
+        rejected.increment();
+        return new ServiceOverloadedException("Job queue is full", retryAfter);
+    }
+
+    private double oldestQueuedSeconds() {
+        ThumbnailJob oldest = queued.peek();
+        return oldest == null ? 0 : Duration.between(oldest.submittedAt(), Instant.now()).toMillis() / 1000.0;
+    }
+
+    private long retainedBytes() {
+        return jobs.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    private static Timer timer(String name, String description, MeterRegistry registry) {
+        return Timer.builder(name)
+            .description(description)
+            .publishPercentileHistogram()
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .minimumExpectedValue(MIN_EXPECTED)
+            .maximumExpectedValue(MAX_EXPECTED)
+            .register(registry);
+    }
+
+    private static Counter callbackCounter(String result, MeterRegistry registry) {
+        return Counter.builder("thumbnail.jobs.callbacks")
+            .description("Job callbacks by outcome of their last attempt")
+            .tag("result", result)
+            .register(registry);
+    }
+
+    /**
+     * Body posted to a job's callback URL.
+     */
+    private record JobCallback(
+        @JsonProperty("job_id")
+        String jobId,
+
+        @JsonProperty("status")
+        String status,
+
+        @JsonProperty("status_url")
+        String statusUrl,
+
+        @JsonProperty("finished_at")
+        String finishedAt
+    ) {
+    }
+}
@@ -0,0 +1,94 @@
+package com.thumbnailapi.logging;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.model.ThumbnailMetadata;
+
+/**
+ * Writes one {@link RequestRecord} per upload to the {@value #REQUEST_LOGGER}
+ * logger at INFO, and the per-size lines of a sample of requests to
+ * {@value #DETAIL_LOGGER} at DEBUG.
+ *
+ * Whether a request is sampled is decided once when it begins, so a sampled
+ * request logs every one of its sizes and the others log none.
+ */
+@Component
+public class RequestLog {
+
+    /** Logger of the per-request records. */
+    public static final String REQUEST_LOGGER = "com.thumbnailapi.request";
+
+    /** Logger of the sampled per-size lines. */
+    public static final String DETAIL_LOGGER = "com.thumbnailapi.request.detail";
+
+    private static final Logger requestLogger = LogManager.getLogger(REQUEST_LOGGER);
+    private static final Logger detailLogger = LogManager.getLogger(DETAIL_LOGGER);
+    private static final ThreadLocal<RequestRecord> records = ThreadLocal.withInitial(RequestRecord::new);
+
+    private final double sampleRate;
+
+    /**
+     * Creates a log that samples the per-size lines of every request.
+     */
+    public RequestLog() {
+        this(new ThumbnailProperties());
+    }
+
+    @Autowired
+    public RequestLog(ThumbnailProperties properties) {
+        this.sampleRate = properties.getLogging().getSizeDetailSampleRate();
+    }
+
+    /**
+     * Starts the record of a request on the calling thread.
+     *
+     * The record is reused by the next request of the thread, so it must be
+     * passed to {@link #end(RequestRecord)} on the thread that began it.
+     *
+     * @param filename original filename of the upload
+     * @return the cleared record
+     */
+    public RequestRecord begin(String filename) {
+        RequestRecord record = records.get();
+        record.reset(filename, sample());
+        return record;
+    }
+
+    private boolean sample() {
+        if (sampleRate <= 0 || !detailLogger.isDebugEnabled()) {
+            return false;
+        }
+        return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * Logs the detail line of a generated size when its request is sampled.
+     *
+     * @param record the record of the request
+     * @param metadata the generated size
+     */
+    public void detail(RequestRecord record, ThumbnailMetadata metadata) {
+        if (record.isSampled()) {
+            detailLogger.debug("Generated thumbnail: {} ({}x{}) from {} with {} in {}ms (resize {}ms, encode {}ms)",
+                metadata.size(), metadata.width(), metadata.height(), metadata.resizeSource(),
+                metadata.resizeMethod(), metadata.processingTimeMs(), metadata.resizeTimeMs(),
+                metadata.encodeTimeMs());
+        }
+    }
+
+    /**
+     * Stops the clock of the request and logs its record.
+     *
+     * @param record the record returned by {@link #begin(String)}
+     */
+    public void end(RequestRecord record) {
+        record.finish();
+        requestLogger.info(record);
+    }
+}
@@ -0,0 +1,219 @@
+package com.thumbnailapi.logging;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
+import com.thumbnailapi.model.ThumbnailMetadata;
+
+/**
+ * Stage timings, sizes and outcome of one upload, logged as a single line when
+ * the request finishes.
+ *
+ * Records are reused by the thread that handles the request and only hold
+ * primitives and references to strings the request already has, so filling one
+ * in allocates nothing. The line is written straight into Log4j's buffer through
+ * {@link StringBuilderFormattable} in logfmt ({@code key=value}) form.
+ */
+public final class RequestRecord implements StringBuilderFormattable {
+
+    private static final String OUTCOME_OK = "ok";
+    private static final String NOT_DECODED = "-";
+
+    private long startNanos;
+    private boolean sampled;
+    private String filename;
+    private long bytes;
+    private String format;
+    private int originalWidth;
+    private int originalHeight;
+    private int decodedWidth;
+    private int decodedHeight;
+    private String colorPath;
+    private int sizes;
+    private int reused;
+    private int generated;
+    private long outputBytes;
+    private long validateNanos;
+    private long readNanos;
+    private long decodeNanos;
+    private long normalizeNanos;
+    private long resizeNanos;
+    private long encodeNanos;
+    private long totalNanos;
+    private String outcome;
+
+    RequestRecord() {
+    }
+
+    /**
+     * Clears the record for a new request.
+     */
+    void reset(String filename, boolean sampled) {
+        this.startNanos = System.nanoTime();
+        this.sampled = sampled;
+        this.filename = filename;
+        this.bytes = 0;
+        this.format = null;
+        this.originalWidth = 0;
+        this.originalHeight = 0;
+        this.decodedWidth = 0;
+        this.decodedHeight = 0;
+        this.colorPath = NOT_DECODED;
+        this.sizes = 0;
+        this.reused = 0;
+        this.generated = 0;
+        this.outputBytes = 0;
+        this.validateNanos = 0;
+        this.readNanos = 0;
+        this.decodeNanos = 0;
+        this.normalizeNanos = 0;
+        this.resizeNanos = 0;
+        this.encodeNanos = 0;
+        this.totalNanos = 0;
+        this.outcome = null;
+    }
+
+    /**
+     * Whether the per-size detail lines of this request are logged.
+     */
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * Records the validated upload and the time spent reading and validating it.
+     */
+    public void upload(String format, long bytes, long validateNanos, long readNanos) {
+        this.format = format;
+        this.bytes = bytes;
+        this.validateNanos = validateNanos;
+        this.readNanos = readNanos;
+    }
+
+    /**
+     * Records the dimensions from the header of the original.
+     */
+    public void original(int width, int height) {
+        this.originalWidth = width;
+        this.originalHeight = height;
+    }
+
+    /**
+     * Records the number of sizes requested.
+     */
+    public void sizes(int sizes) {
+        this.sizes = sizes;
+    }
+
+    /**
+     * Records the number of sizes served from the cache or the store.
+     */
+    public void reused(int reused) {
+        this.reused = reused;
+    }
+
+    /**
+     * Records the decode of the original, with the dimensions of the decoded raster.
+     */
+    public void decoded(int width, int height, long nanos) {
+        this.decodedWidth = width;
+        this.decodedHeight = height;
+        this.decodeNanos = nanos;
+    }
+
+    /**
+     * Records how the decoded original was converted to a fast pixel layout.
+     *
+     * @param path label of the conversion path, {@code none} when the layout was kept
+     */
+    public void normalized(String path, long nanos) {
+        this.colorPath = path;
+        this.normalizeNanos = nanos;
+    }
+
+    /**
+     * Adds one generated size.
+     */
+    public void generated(ThumbnailMetadata metadata, long resizeNanos, long encodeNanos) {
+        this.generated++;
+        this.outputBytes += metadata.fileSizeBytes();
+        this.resizeNanos += resizeNanos;
+        this.encodeNanos += encodeNanos;
+    }
+
+    /**
+     * Marks the request as failed with the given exception.
+     */
+    public void failed(Throwable failure) {
+        this.outcome = failure.getClass().getSimpleName();
+    }
+
+    /**
+     * Stops the clock; a request that did not fail succeeded.
+     */
+    void finish() {
+        this.totalNanos = System.nanoTime() - startNanos;
+        if (outcome == null) {
+            outcome = OUTCOME_OK;
+        }
+    }
+
+    @Override
+    public void formatTo(StringBuilder buffer) {
+        buffer.append("file=");
+        appendQuoted(buffer, filename);
+        buffer.append(" format=").append(format)
+            .append(" bytes=").append(bytes)
+            .append(" original=").append(originalWidth).append('x').append(originalHeight)
+            .append(" decoded=").append(decodedWidth).append('x').append(decodedHeight)
+            .append(" color=").append(colorPath)
+            .append(" sizes=").append(sizes)
+            .append(" reused=").append(reused)
+            .append(" generated=").append(generated)
+            .append(" shared=").append(OUTCOME_OK.equals(outcome) ? Math.max(0, sizes - reused - generated) : 0)
+            .append(" out_bytes=").append(outputBytes);
+        appendMicros(buffer, " validate_us=", validateNanos);
+        appendMicros(buffer, " read_us=", readNanos);
+        appendMicros(buffer, " decode_us=", decodeNanos);
+        appendMicros(buffer, " normalize_us=", normalizeNanos);
+        appendMicros(buffer, " resize_us=", resizeNanos);
+        appendMicros(buffer, " encode_us=", encodeNanos);
+        appendMicros(buffer, " total_us=", totalNanos);
+        buffer.append(" outcome=").append(outcome);
+    }
+
+    private static void appendMicros(StringBuilder buffer, String key, long nanos) {
+        buffer.append(key).append(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * Appends a client-supplied value in quotes, escaping quotes, backslashes and
+     * control characters so that it cannot break the line apart.
+     */
+    private static void appendQuoted(StringBuilder buffer, String value) {
+        if (value == null) {
+            buffer.append('-');
+            return;
+        }
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer.append('\\').append(c);
+            } else if (c < ' ') {
+                buffer.append('?');
+            } else {
+                buffer.append(c);
+            }
+        }
+        buffer.append('"');
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder(256);
+        formatTo(buffer);
+        return buffer.toString();
+    }
+}
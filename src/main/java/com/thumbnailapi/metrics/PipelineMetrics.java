@@ -0,0 +1,160 @@
+package com.thumbnailapi.metrics;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Latency of each stage of the upload pipeline and the amount of work in flight.
+ *
+ * Every stage is recorded in the {@code thumbnail.stage.duration} timer, tagged
+ * with the stage, the source format, a bucket of the source size in megapixels
+ * and the target size. Stages that cover the whole request (validation, upload
+ * read, decode, color normalization, response serialization) use the target
+ * {@value #ALL_TARGETS}. Timers publish a percentile histogram, so Prometheus
+ * can aggregate quantiles across instances, and client-side p50/p95/p99.
+ */
+@Component
+public class PipelineMetrics {
+
+    /** Target tag of stages that are not specific to one size. */
+    public static final String ALL_TARGETS = "all";
+
+    private static final String STAGE_TIMER = "thumbnail.stage.duration";
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(30);
+
+    private final MeterRegistry registry;
+    private final AtomicInteger requestsInFlight = new AtomicInteger();
+    private final AtomicInteger sizesInFlight = new AtomicInteger();
+
+    /**
+     * Creates metrics that are recorded but not published anywhere.
+     */
+    public PipelineMetrics() {
+        this(new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("thumbnail.requests.in.flight", requestsInFlight, AtomicInteger::get)
+            .description("Uploads currently being processed")
+            .register(registry);
+        Gauge.builder("thumbnail.sizes.in.flight", sizesInFlight, AtomicInteger::get)
+            .description("Thumbnail sizes submitted for generation and not yet delivered")
+            .register(registry);
+    }
+
+    /**
+     * Pipeline stages with their own timer.
+     */
+    public enum Stage {
+        VALIDATE,
+        READ,
+        DECODE,
+        NORMALIZE,
+        RESIZE,
+        ENCODE,
+        SERIALIZE;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Records the duration of one stage.
+     *
+     * @param stage the stage
+     * @param nanos duration in nanoseconds
+     * @param format source image format
+     * @param sourceWidth width of the original
+     * @param sourceHeight height of the original
+     * @param target size name, or {@link #ALL_TARGETS}
+     */
+    public void record(Stage stage, long nanos, String format, int sourceWidth, int sourceHeight, String target) {
+        Timer.builder(STAGE_TIMER)
+            .description("Duration of one stage of thumbnail generation")
+            .tag("stage", stage.tag())
+            .tag("format", format)
+            .tag("source_size", sizeBucket(sourceWidth, sourceHeight))
+            .tag("target", target)
+            .publishPercentileHistogram()
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .minimumExpectedValue(MIN_EXPECTED)
+            .maximumExpectedValue(MAX_EXPECTED)
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Marks the start of an upload; pair with {@link #requestFinished()}.
+     */
+    public void requestStarted() {
+        requestsInFlight.incrementAndGet();
+    }
+
+    public void requestFinished() {
+        requestsInFlight.decrementAndGet();
+    }
+
+    /**
+     * Adds sizes submitted for generation; remove them with {@link #sizesFinished(int)}.
+     */
+    public void sizesStarted(int count) {
+        sizesInFlight.addAndGet(count);
+    }
+
+    public void sizesFinished(int count) {
+        sizesInFlight.addAndGet(-count);
+    }
+
+    /**
+     * Returns the tag for a size name: presets are kept, custom sizes share one tag
+     * so the number of time series stays bounded.
+     */
+    public static String targetTag(String sizeName) {
+        return switch (sizeName) {
+            case "small", "medium", "large" -> sizeName;
+            default -> "custom";
+        };
+    }
+
+    /**
+     * Returns the megapixel bucket of a source size.
+     */
+    static String sizeBucket(int width, int height) {
+        long pixels = (long) width * height;
+        if (pixels < 1_000_000L) {
+            return "lt1mp";
+        }
+        if (pixels < 4_000_000L) {
+            return "1to4mp";
+        }
+        if (pixels < 12_000_000L) {
+            return "4to12mp";
+        }
+        if (pixels <= 24_000_000L) {
+            return "12to24mp";
+        }
+        return "gt24mp";
+    }
+
+    int requestsInFlight() {
+        return requestsInFlight.get();
+    }
+
+    int sizesInFlight() {
+        return sizesInFlight.get();
+    }
+}
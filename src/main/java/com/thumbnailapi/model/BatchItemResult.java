@@ -0,0 +1,30 @@
+package com.thumbnailapi.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.thumbnailapi.exception.GlobalExceptionHandler.ErrorResponse;
+
+/**
+ * One line of a batch response: the outcome of a single file.
+ *
+ * Successful files carry the same body the single-file endpoint returns;
+ * failed files carry the error response that endpoint would have sent.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchItemResult(
+    @JsonProperty("index")
+    int index,
+
+    @JsonProperty("filename")
+    String filename,
+
+    @JsonProperty("status")
+    int status,
+
+    @JsonProperty("result")
+    ThumbnailResponse result,
+
+    @JsonProperty("error")
+    ErrorResponse error
+) {
+}
@@ -0,0 +1,48 @@
+package com.thumbnailapi.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.thumbnailapi.exception.GlobalExceptionHandler.ErrorResponse;
+
+/**
+ * Status of an asynchronous thumbnail job.
+ *
+ * Succeeded jobs carry the response the synchronous endpoint would have returned
+ * and a URL per thumbnail, in the same order; failed jobs carry the error it
+ * would have sent. Timestamps are ISO-8601 instants.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record JobStatus(
+    @JsonProperty("job_id")
+    String jobId,
+
+    @JsonProperty("status")
+    String status,
+
+    @JsonProperty("filename")
+    String filename,
+
+    @JsonProperty("submitted_at")
+    String submittedAt,
+
+    @JsonProperty("started_at")
+    String startedAt,
+
+    @JsonProperty("finished_at")
+    String finishedAt,
+
+    @JsonProperty("expires_at")
+    String expiresAt,
+
+    @JsonProperty("result")
+    ThumbnailResponse result,
+
+    @JsonProperty("thumbnail_urls")
+    List<String> thumbnailUrls,
+
+    @JsonProperty("error")
+    ErrorResponse error
+) {
+}
@@ -31,7 +31,19 @@ public record ThumbnailMetadata(
     String timestamp,
     
     @JsonProperty("processing_time_ms")
-    long processingTimeMs
+    long processingTimeMs,
+
+    @JsonProperty("resize_source")
+    String resizeSource,
+
+    @JsonProperty("resize_method")
+    String resizeMethod,
+
+    @JsonProperty("resize_time_ms")
+    long resizeTimeMs,
+
+    @JsonProperty("encode_time_ms")
+    long encodeTimeMs
 ) {
     /**
      * Creates a ThumbnailMetadata record with automatic timestamp generation.
@@ -42,14 +54,20 @@ public record ThumbnailMetadata(
      * @param format the image format (e.g., "PNG", "JPEG")
      * @param fileSizeBytes the file size in bytes
      * @param processingTimeMs the processing time in milliseconds
+     * @param resizeSource the size the thumbnail was resized from ("original" or a size identifier)
+     * @param resizeMethod the resampling method used (e.g. "quality+antialias"), or null when not resized
+     * @param resizeTimeMs the time spent resizing in milliseconds
+     * @param encodeTimeMs the time spent encoding in milliseconds
      * @return a new ThumbnailMetadata instance with current timestamp
      */
     public static ThumbnailMetadata create(String size, int width, int height, 
                                           String format, long fileSizeBytes, 
-                                          long processingTimeMs) {
+                                          long processingTimeMs, String resizeSource,
+                                          String resizeMethod, long resizeTimeMs, long encodeTimeMs) {
         String timestamp = LocalDateTime.now()
             .format(DateTimeFormatter.ISO_DATE_TIME);
         return new ThumbnailMetadata(size, width, height, format, fileSizeBytes, 
-                                    timestamp, processingTimeMs);
+                                    timestamp, processingTimeMs, resizeSource,
+                                    resizeMethod, resizeTimeMs, encodeTimeMs);
     }
 }
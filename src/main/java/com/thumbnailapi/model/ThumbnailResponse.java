@@ -25,6 +25,9 @@ public record ThumbnailResponse(
     @JsonProperty("original_file_size_bytes")
     long originalFileSizeBytes,
     
+    @JsonProperty("content_hash")
+    String contentHash,
+    
     @JsonProperty("thumbnails")
     List<ThumbnailMetadata> thumbnails
 ) {
@@ -50,6 +53,7 @@ public record ThumbnailResponse(
         private int originalWidth;
         private int originalHeight;
         private long originalFileSizeBytes;
+        private String contentHash;
         private List<ThumbnailMetadata> thumbnails;
 
         public Builder originalFilename(String filename) {
@@ -73,6 +77,11 @@ public record ThumbnailResponse(
             return this;
         }
 
+        public Builder contentHash(String contentHash) {
+            this.contentHash = contentHash;
+            return this;
+        }
+
         public Builder thumbnails(List<ThumbnailMetadata> thumbnails) {
             this.thumbnails = thumbnails == null ? List.of() : List.copyOf(thumbnails);
             return this;
@@ -85,6 +94,7 @@ public record ThumbnailResponse(
                 originalWidth,
                 originalHeight,
                 originalFileSizeBytes,
+                contentHash,
                 thumbnails
             );
         }
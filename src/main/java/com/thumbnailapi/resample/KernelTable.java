@@ -0,0 +1,112 @@
+package com.thumbnailapi.resample;
+
+/**
+ * Precomputed filter taps for resampling one axis from one length to another.
+ *
+ * For every output position the table holds the first contributing source index
+ * and a fixed run of integer weights in {@value #PRECISION_BITS}-bit fixed point
+ * that sum to exactly {@code 1 << PRECISION_BITS}, so flat areas come out exact.
+ * Tables depend only on the lengths and the filter and are shared between
+ * images and threads.
+ */
+final class KernelTable {
+
+    /** Fractional bits of the fixed-point weights. */
+    static final int PRECISION_BITS = 14;
+    static final int ONE = 1 << PRECISION_BITS;
+    static final int ROUNDING = 1 << (PRECISION_BITS - 1);
+
+    private final int[] starts;
+    private final int[] counts;
+    private final int[] weights;
+    private final int stride;
+
+    private KernelTable(int[] starts, int[] counts, int[] weights, int stride) {
+        this.starts = starts;
+        this.counts = counts;
+        this.weights = weights;
+        this.stride = stride;
+    }
+
+    /**
+     * Computes the taps mapping {@code sourceLength} samples to {@code targetLength}.
+     *
+     * @param sourceLength number of source pixels along the axis
+     * @param targetLength number of output pixels along the axis
+     * @param filter the reconstruction filter
+     * @return the table
+     */
+    static KernelTable create(int sourceLength, int targetLength, ResampleFilter filter) {
+        double scale = (double) sourceLength / targetLength;
+        double filterScale = Math.max(1.0, scale);
+        double support = filter.support() * filterScale;
+        int stride = (int) Math.ceil(support) * 2 + 2;
+
+        int[] starts = new int[targetLength];
+        int[] counts = new int[targetLength];
+        int[] weights = new int[targetLength * stride];
+        double[] exact = new double[stride];
+
+        for (int i = 0; i < targetLength; i++) {
+            double center = (i + 0.5) * scale;
+            int first = Math.max(0, (int) Math.floor(center - support));
+            int last = Math.min(sourceLength, (int) Math.ceil(center + support));
+
+            double total = 0;
+            int count = 0;
+            for (int j = first; j < last && count < stride; j++) {
+                double weight = filter.weight((j + 0.5 - center) / filterScale);
+                exact[count++] = weight;
+                total += weight;
+            }
+
+            // Drop zero taps at either end so the inner loops only see contributing pixels
+            int lead = 0;
+            while (lead < count - 1 && exact[lead] == 0.0) {
+                lead++;
+            }
+            while (count - 1 > lead && exact[count - 1] == 0.0) {
+                count--;
+            }
+
+            int offset = i * stride;
+            int sum = 0;
+            int largest = offset;
+            for (int k = lead; k < count; k++) {
+                int weight = total == 0.0 ? 0 : (int) Math.round(exact[k] / total * ONE);
+                weights[offset + k - lead] = weight;
+                sum += weight;
+                if (weight > weights[largest]) {
+                    largest = offset + k - lead;
+                }
+            }
+            // Rounding error goes to the dominant tap so the weights sum to exactly one
+            weights[largest] += ONE - sum;
+
+            starts[i] = first + lead;
+            counts[i] = count - lead;
+        }
+
+        return new KernelTable(starts, counts, weights, stride);
+    }
+
+    int start(int index) {
+        return starts[index];
+    }
+
+    int count(int index) {
+        return counts[index];
+    }
+
+    int weightOffset(int index) {
+        return index * stride;
+    }
+
+    int[] weights() {
+        return weights;
+    }
+
+    int length() {
+        return starts.length;
+    }
+}
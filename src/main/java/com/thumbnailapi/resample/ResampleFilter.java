@@ -0,0 +1,75 @@
+package com.thumbnailapi.resample;
+
+import java.util.Locale;
+
+/**
+ * Reconstruction filters for separable resampling.
+ *
+ * Each filter is defined on unscaled source pixel distances; when reducing, the
+ * {@link KernelTable} stretches it by the reduction ratio so every output pixel
+ * integrates the whole source area it covers.
+ */
+public enum ResampleFilter {
+
+    /** Area average: every covered source pixel counts equally. */
+    BOX(0.5) {
+        @Override
+        double weight(double x) {
+            return x > -0.5 && x <= 0.5 ? 1.0 : 0.0;
+        }
+    },
+
+    /** Triangle filter; bilinear interpolation when enlarging. */
+    BILINEAR(1.0) {
+        @Override
+        double weight(double x) {
+            double distance = Math.abs(x);
+            return distance < 1.0 ? 1.0 - distance : 0.0;
+        }
+    },
+
+    /** Three-lobed windowed sinc: the sharpest, with slight ringing at hard edges. */
+    LANCZOS3(3.0) {
+        @Override
+        double weight(double x) {
+            double distance = Math.abs(x);
+            if (distance >= 3.0) {
+                return 0.0;
+            }
+            return sinc(distance) * sinc(distance / 3.0);
+        }
+    };
+
+    private final double support;
+
+    ResampleFilter(double support) {
+        this.support = support;
+    }
+
+    /**
+     * Returns the radius, in unscaled source pixels, beyond which the weight is zero.
+     */
+    double support() {
+        return support;
+    }
+
+    /**
+     * Returns the weight of a source pixel at the given unscaled distance.
+     */
+    abstract double weight(double x);
+
+    /**
+     * Returns the name reported in thumbnail metadata, e.g. {@code lanczos3}.
+     */
+    public String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    private static double sinc(double x) {
+        if (x == 0.0) {
+            return 1.0;
+        }
+        double px = Math.PI * x;
+        return Math.sin(px) / px;
+    }
+}
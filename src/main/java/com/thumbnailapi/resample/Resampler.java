@@ -0,0 +1,506 @@
+package com.thumbnailapi.resample;
+
+import java.awt.Graphics2D;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Separable image resampler working directly on raster arrays.
+ *
+ * A resize is two passes: every source row is filtered horizontally into an
+ * intermediate raster of target width, then every target row is filtered
+ * vertically from it. Both passes read and write the {@code int[]} or
+ * {@code byte[]} behind the rasters, use integer fixed-point weights from a
+ * shared {@link KernelTable}, and split their rows into bands that run on a
+ * fork-join pool. Colors are filtered premultiplied by alpha, so transparent
+ * pixels do not bleed into their neighbours.
+ *
+ * Packed int RGB/ARGB and 8-bit interleaved RGB, RGBA, gray and gray-alpha
+ * rasters are read in place; other layouts are converted to packed ints first.
+ * The result is always {@code TYPE_INT_RGB} or {@code TYPE_INT_ARGB}, like Scalr's.
+ *
+ * Row buffers are kept per thread and intermediate rasters are pooled, so apart
+ * from the result a resize allocates nothing once warmed up.
+ */
+public final class Resampler {
+
+    /** Minimum samples per band, so small images are not split into tiny tasks. */
+    private static final int MIN_BAND_SAMPLES = 1 << 16;
+    private static final int MAX_CACHED_TABLES = 256;
+    private static final int POOLED_INTERMEDIATES = 4;
+    /** Largest intermediate raster kept for reuse, in pixels (8MB). */
+    private static final int MAX_POOLED_PIXELS = 2 * 1024 * 1024;
+
+    private static final ThreadLocal<RowScratch> ROW_SCRATCH = ThreadLocal.withInitial(RowScratch::new);
+
+    private final ForkJoinPool pool;
+    private final Cache<TableKey, KernelTable> tables = Caffeine.newBuilder()
+        .maximumSize(MAX_CACHED_TABLES)
+        .build();
+    private final AtomicReferenceArray<int[]> intermediates = new AtomicReferenceArray<>(POOLED_INTERMEDIATES);
+
+    /**
+     * Creates a resampler whose bands run on the given pool.
+     *
+     * @param pool pool for row bands; with a parallelism of one every resize runs on the caller
+     */
+    public Resampler(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Resizes an image to exactly the given size.
+     *
+     * @param source the image to resize
+     * @param width target width in pixels
+     * @param height target height in pixels
+     * @param filter the reconstruction filter
+     * @return a new {@code TYPE_INT_RGB} or {@code TYPE_INT_ARGB} image
+     */
+    public BufferedImage resize(BufferedImage source, int width, int height, ResampleFilter filter) {
+        RowReader reader = RowReader.of(source);
+        if (reader == null) {
+            source = toPackedInt(source);
+            reader = RowReader.of(source);
+        }
+
+        int sourceWidth = source.getWidth();
+        int sourceHeight = source.getHeight();
+        boolean alpha = reader.hasAlpha();
+        KernelTable horizontal = table(sourceWidth, width, filter);
+        KernelTable vertical = table(sourceHeight, height, filter);
+
+        BufferedImage result = new BufferedImage(width, height,
+            alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int[] target = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+
+        int[] intermediate = acquireIntermediate(width * sourceHeight);
+        try {
+            RowReader rows = reader;
+            inBands(sourceHeight, sourceWidth + width, (from, to) ->
+                filterRows(rows, horizontal, intermediate, width, from, to));
+            inBands(height, width * vertical.count(0), (from, to) ->
+                filterColumns(intermediate, vertical, target, width, alpha, from, to));
+        } finally {
+            releaseIntermediate(intermediate);
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether an image is read in place rather than converted first.
+     */
+    public static boolean readsInPlace(BufferedImage image) {
+        return RowReader.of(image) != null;
+    }
+
+    private KernelTable table(int sourceLength, int targetLength, ResampleFilter filter) {
+        return tables.get(new TableKey(sourceLength, targetLength, filter),
+            key -> KernelTable.create(key.sourceLength(), key.targetLength(), key.filter()));
+    }
+
+    /**
+     * Horizontal pass: filters source rows {@code [from, to)} into the intermediate raster.
+     */
+    private static void filterRows(RowReader reader, KernelTable table, int[] intermediate, int width,
+                                   int from, int to) {
+        int[] row = ROW_SCRATCH.get().row(reader.width());
+        int[] weights = table.weights();
+        boolean alpha = reader.hasAlpha();
+
+        for (int y = from; y < to; y++) {
+            reader.read(y, row);
+            int out = y * width;
+            for (int x = 0; x < width; x++) {
+                int start = table.start(x);
+                int count = table.count(x);
+                int w = table.weightOffset(x);
+                int a = KernelTable.ROUNDING;
+                int r = KernelTable.ROUNDING;
+                int g = KernelTable.ROUNDING;
+                int b = KernelTable.ROUNDING;
+                for (int k = 0; k < count; k++) {
+                    int pixel = row[start + k];
+                    int weight = weights[w + k];
+                    if (alpha) {
+                        a += (pixel >>> 24) * weight;
+                    }
+                    r += ((pixel >> 16) & 0xFF) * weight;
+                    g += ((pixel >> 8) & 0xFF) * weight;
+                    b += (pixel & 0xFF) * weight;
+                }
+                int outAlpha = alpha ? clamp(a >> KernelTable.PRECISION_BITS) : 0xFF;
+                intermediate[out + x] = (outAlpha << 24)
+                    | (clamp(r >> KernelTable.PRECISION_BITS) << 16)
+                    | (clamp(g >> KernelTable.PRECISION_BITS) << 8)
+                    | clamp(b >> KernelTable.PRECISION_BITS);
+            }
+        }
+    }
+
+    /**
+     * Vertical pass: filters target rows {@code [from, to)} from the intermediate raster,
+     * undoing the alpha premultiplication as they are written.
+     */
+    private static void filterColumns(int[] intermediate, KernelTable table, int[] target, int width,
+                                      boolean alpha, int from, int to) {
+        int[] sums = ROW_SCRATCH.get().sums(width * 4);
+        int[] weights = table.weights();
+
+        for (int y = from; y < to; y++) {
+            int start = table.start(y);
+            int count = table.count(y);
+            int w = table.weightOffset(y);
+            Arrays.fill(sums, 0, width * 4, KernelTable.ROUNDING);
+
+            // Tap rows outermost so each intermediate row is read sequentially
+            for (int k = 0; k < count; k++) {
+                int weight = weights[w + k];
+                int in = (start + k) * width;
+                for (int x = 0, s = 0; x < width; x++, s += 4) {
+                    int pixel = intermediate[in + x];
+                    sums[s] += (pixel >>> 24) * weight;
+                    sums[s + 1] += ((pixel >> 16) & 0xFF) * weight;
+                    sums[s + 2] += ((pixel >> 8) & 0xFF) * weight;
+                    sums[s + 3] += (pixel & 0xFF) * weight;
+                }
+            }
+
+            int out = y * width;
+            for (int x = 0, s = 0; x < width; x++, s += 4) {
+                int r = clamp(sums[s + 1] >> KernelTable.PRECISION_BITS);
+                int g = clamp(sums[s + 2] >> KernelTable.PRECISION_BITS);
+                int b = clamp(sums[s + 3] >> KernelTable.PRECISION_BITS);
+                if (!alpha) {
+                    target[out + x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+                    continue;
+                }
+                int a = clamp(sums[s] >> KernelTable.PRECISION_BITS);
+                if (a == 0) {
+                    target[out + x] = 0;
+                } else if (a < 0xFF) {
+                    target[out + x] = (a << 24) | (unpremultiply(r, a) << 16)
+                        | (unpremultiply(g, a) << 8) | unpremultiply(b, a);
+                } else {
+                    target[out + x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the action over {@code rows} rows, split into bands on the pool when
+     * the image is large enough to be worth it.
+     */
+    private void inBands(int rows, int samplesPerRow, RowRange action) {
+        int grain = Math.max(1, MIN_BAND_SAMPLES / Math.max(1, samplesPerRow));
+        if (pool.getParallelism() <= 1 || rows <= grain) {
+            action.run(0, rows);
+            return;
+        }
+        pool.invoke(new BandTask(action, 0, rows, grain));
+    }
+
+    private int[] acquireIntermediate(int pixels) {
+        for (int i = 0; i < intermediates.length(); i++) {
+            int[] buffer = intermediates.get(i);
+            // Only reuse buffers that fit without wasting more than half of them
+            if (buffer != null && buffer.length >= pixels && buffer.length / 2 <= pixels
+                    && intermediates.compareAndSet(i, buffer, null)) {
+                return buffer;
+            }
+        }
+        return new int[pixels];
+    }
+
+    private void releaseIntermediate(int[] buffer) {
+        if (buffer.length > MAX_POOLED_PIXELS) {
+            return;
+        }
+        for (int i = 0; i < intermediates.length(); i++) {
+            if (intermediates.compareAndSet(i, null, buffer)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Draws an image of any layout into a packed int image, with alpha when it has any.
+     */
+    private static BufferedImage toPackedInt(BufferedImage source) {
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage converted = new BufferedImage(source.getWidth(), source.getHeight(), type);
+        Graphics2D graphics = converted.createGraphics();
+        try {
+            graphics.drawImage(source, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return converted;
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : Math.min(value, 0xFF);
+    }
+
+    private static int unpremultiply(int channel, int alpha) {
+        return Math.min(0xFF, (channel * 0xFF + alpha / 2) / alpha);
+    }
+
+    private static int premultiply(int channel, int alpha) {
+        return (channel * alpha + 127) / 0xFF;
+    }
+
+    /**
+     * Work over a range of rows.
+     */
+    @FunctionalInterface
+    private interface RowRange {
+        void run(int from, int to);
+    }
+
+    /**
+     * Splits a row range in halves until each band is at most {@code grain} rows.
+     */
+    private static final class BandTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient RowRange action;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        BandTask(RowRange action, int from, int to, int grain) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                action.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BandTask(action, from, middle, grain), new BandTask(action, middle, to, grain));
+        }
+    }
+
+    private record TableKey(int sourceLength, int targetLength, ResampleFilter filter) {
+    }
+
+    /**
+     * Per-thread buffers for one source row and one row of vertical sums.
+     */
+    private static final class RowScratch {
+
+        private int[] row = new int[0];
+        private int[] sums = new int[0];
+
+        int[] row(int length) {
+            if (row.length < length) {
+                row = new int[length];
+            }
+            return row;
+        }
+
+        int[] sums(int length) {
+            if (sums.length < length) {
+                sums = new int[length];
+            }
+            return sums;
+        }
+    }
+
+    /**
+     * Reads source rows as packed ARGB, premultiplied when the image has alpha.
+     */
+    private abstract static class RowReader {
+
+        private final int width;
+        private final boolean alpha;
+
+        RowReader(int width, boolean alpha) {
+            this.width = width;
+            this.alpha = alpha;
+        }
+
+        int width() {
+            return width;
+        }
+
+        boolean hasAlpha() {
+            return alpha;
+        }
+
+        abstract void read(int y, int[] row);
+
+        /**
+         * Returns a reader working on the image's own array, or null when the
+         * layout has to be converted first.
+         */
+        static RowReader of(BufferedImage image) {
+            WritableRaster raster = image.getRaster();
+            DataBuffer buffer = raster.getDataBuffer();
+            SampleModel sampleModel = raster.getSampleModel();
+            if (buffer.getNumBanks() != 1) {
+                return null;
+            }
+
+            int type = image.getType();
+            if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB
+                    || type == BufferedImage.TYPE_INT_ARGB_PRE)
+                    && sampleModel instanceof SinglePixelPackedSampleModel packed
+                    && buffer instanceof DataBufferInt ints) {
+                return new IntReader(image, packed, ints.getData(), type);
+            }
+
+            if (sampleModel instanceof PixelInterleavedSampleModel interleaved
+                    && buffer instanceof DataBufferByte bytes
+                    && image.getColorModel() instanceof ComponentColorModel colorModel) {
+                return ByteReader.of(image, interleaved, bytes.getData(), colorModel);
+            }
+            return null;
+        }
+    }
+
+    private static final class IntReader extends RowReader {
+
+        private final int[] data;
+        private final int origin;
+        private final int stride;
+        private final boolean premultiplied;
+
+        IntReader(BufferedImage image, SinglePixelPackedSampleModel sampleModel, int[] data, int type) {
+            super(image.getWidth(), type != BufferedImage.TYPE_INT_RGB);
+            WritableRaster raster = image.getRaster();
+            this.data = data;
+            this.stride = sampleModel.getScanlineStride();
+            this.origin = raster.getDataBuffer().getOffset()
+                - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX();
+            this.premultiplied = type == BufferedImage.TYPE_INT_ARGB_PRE;
+        }
+
+        @Override
+        void read(int y, int[] row) {
+            int offset = origin + y * stride;
+            int width = width();
+            if (!hasAlpha() || premultiplied) {
+                System.arraycopy(data, offset, row, 0, width);
+                return;
+            }
+            for (int x = 0; x < width; x++) {
+                int pixel = data[offset + x];
+                int a = pixel >>> 24;
+                if (a == 0xFF) {
+                    row[x] = pixel;
+                } else {
+                    row[x] = (a << 24)
+                        | (premultiply((pixel >> 16) & 0xFF, a) << 16)
+                        | (premultiply((pixel >> 8) & 0xFF, a) << 8)
+                        | premultiply(pixel & 0xFF, a);
+                }
+            }
+        }
+    }
+
+    private static final class ByteReader extends RowReader {
+
+        private final byte[] data;
+        private final int origin;
+        private final int stride;
+        private final int pixelStride;
+        private final int red;
+        private final int green;
+        private final int blue;
+        private final int alphaOffset;
+        private final boolean premultiplied;
+
+        private ByteReader(BufferedImage image, PixelInterleavedSampleModel sampleModel, byte[] data,
+                           int[] colorOffsets, int alphaOffset, boolean premultiplied) {
+            super(image.getWidth(), alphaOffset >= 0);
+            WritableRaster raster = image.getRaster();
+            this.data = data;
+            this.stride = sampleModel.getScanlineStride();
+            this.pixelStride = sampleModel.getPixelStride();
+            this.origin = raster.getDataBuffer().getOffset()
+                - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX() * pixelStride;
+            this.red = colorOffsets[0];
+            this.green = colorOffsets[1];
+            this.blue = colorOffsets[2];
+            this.alphaOffset = alphaOffset;
+            this.premultiplied = premultiplied;
+        }
+
+        /**
+         * Accepts 8-bit sRGB and gray, with or without alpha. Gray is replicated
+         * into the three channels, as Java2D's blits and Scalr's resizes do.
+         */
+        static ByteReader of(BufferedImage image, PixelInterleavedSampleModel sampleModel, byte[] data,
+                             ComponentColorModel colorModel) {
+            for (int size : colorModel.getComponentSize()) {
+                if (size != 8) {
+                    return null;
+                }
+            }
+            ColorSpace colorSpace = colorModel.getColorSpace();
+            int colors = colorModel.getNumColorComponents();
+            int[] offsets = sampleModel.getBandOffsets();
+            if (offsets.length != colorModel.getNumComponents()) {
+                return null;
+            }
+
+            int[] colorOffsets;
+            if (colors == 3 && colorSpace.isCS_sRGB()) {
+                colorOffsets = new int[] {offsets[0], offsets[1], offsets[2]};
+            } else if (colors == 1 && colorSpace.getType() == ColorSpace.TYPE_GRAY) {
+                colorOffsets = new int[] {offsets[0], offsets[0], offsets[0]};
+            } else {
+                return null;
+            }
+            int alphaOffset = colorModel.hasAlpha() ? offsets[colors] : -1;
+            boolean premultiplied = colorModel.hasAlpha() && colorModel.isAlphaPremultiplied();
+            return new ByteReader(image, sampleModel, data, colorOffsets, alphaOffset, premultiplied);
+        }
+
+        @Override
+        void read(int y, int[] row) {
+            int offset = origin + y * stride;
+            int width = width();
+            for (int x = 0; x < width; x++, offset += pixelStride) {
+                int r = data[offset + red] & 0xFF;
+                int g = data[offset + green] & 0xFF;
+                int b = data[offset + blue] & 0xFF;
+                if (alphaOffset < 0) {
+                    row[x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+                    continue;
+                }
+                int a = data[offset + alphaOffset] & 0xFF;
+                if (a != 0xFF && !premultiplied) {
+                    r = premultiply(r, a);
+                    g = premultiply(g, a);
+                    b = premultiply(b, a);
+                }
+                row[x] = (a << 24) | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.thumbnailapi.service;
+
+import com.thumbnailapi.model.ThumbnailResponse;
+
+/**
+ * Outcome of one file of a batch: its thumbnails, or the error that stopped it.
+ *
+ * @param index position of the file in the batch request
+ * @param filename original filename of the upload
+ * @param response the thumbnails, or null if the file failed
+ * @param error why the file failed, or null if it succeeded
+ */
+public record BatchItem(int index, String filename, ThumbnailResponse response, RuntimeException error) {
+
+    static BatchItem succeeded(int index, String filename, ThumbnailResponse response) {
+        return new BatchItem(index, filename, response, null);
+    }
+
+    static BatchItem failed(int index, String filename, RuntimeException error) {
+        return new BatchItem(index, filename, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
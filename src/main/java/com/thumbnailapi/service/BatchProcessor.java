@@ -0,0 +1,128 @@
+package com.thumbnailapi.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.exception.InvalidBatchException;
+import com.thumbnailapi.exception.InvalidImageException;
+
+/**
+ * Runs the files of a batch request through the {@link ImageProcessor}.
+ *
+ * Up to {@code thumbnail.batch.max-concurrency} files of a batch are in the
+ * pipeline at once, each on the batch executor, so the next file is being read
+ * and decoded while earlier ones are resized and encoded. A file that fails is
+ * reported with its error and does not stop the others.
+ */
+@Service
+public class BatchProcessor {
+
+    private static final Logger logger = LogManager.getLogger(BatchProcessor.class);
+
+    private final ImageProcessor imageProcessor;
+    private final Executor batchExecutor;
+    private final int maxFiles;
+    private final int maxConcurrency;
+
+    public BatchProcessor(ImageProcessor imageProcessor,
+                          ThumbnailProperties properties,
+                          @Qualifier("batchExecutor") Executor batchExecutor) {
+        this.imageProcessor = imageProcessor;
+        this.batchExecutor = batchExecutor;
+        this.maxFiles = properties.getBatch().getMaxFiles();
+        this.maxConcurrency = Math.max(1, properties.getBatch().getMaxConcurrency());
+    }
+
+    /**
+     * Generates the same sizes for every file and hands each outcome to the sink
+     * as soon as the file is finished.
+     *
+     * The shared size, quality and profile parameters are checked before any file is
+     * started, so an invalid batch fails as a whole without calling the sink.
+     *
+     * @param files the uploaded images
+     * @param sizesParam comma-separated string of thumbnail sizes
+     * @param qualityParam speed, balanced, quality, ultra or auto; null for the server default
+     * @param profileParam name of a configured encode profile; null for the server default
+     * @param sink receives the outcome of every file
+     * @throws InvalidBatchException if there are no files or more than the configured maximum
+     * @throws IOException if the sink fails to write; files not yet started are skipped
+     */
+    public void process(List<MultipartFile> files, String sizesParam, String qualityParam, String profileParam,
+                        BatchSink sink) throws IOException {
+        if (files == null || files.isEmpty()) {
+            throw new InvalidBatchException("Batch contains no files");
+        }
+        if (files.size() > maxFiles) {
+            throw new InvalidBatchException(
+                String.format("Batch contains %d files, more than the maximum of %d", files.size(), maxFiles));
+        }
+        imageProcessor.checkOptions(sizesParam, qualityParam, profileParam);
+
+        long startTime = System.currentTimeMillis();
+        logger.debug("Processing batch of {} files with sizes: {}", files.size(),
+            sizesParam != null ? sizesParam : "default");
+
+        BlockingQueue<BatchItem> completed = new LinkedBlockingQueue<>();
+        int started = 0;
+        int delivered = 0;
+        int failed = 0;
+        try {
+            while (delivered < files.size()) {
+                // Keep the pipeline full: start files up to the cap, then wait for one to finish
+                while (started < files.size() && started - delivered < maxConcurrency) {
+                    start(started, files.get(started), sizesParam, qualityParam, profileParam, completed);
+                    started++;
+                }
+
+                BatchItem item = completed.take();
+                delivered++;
+                if (!item.isSuccess()) {
+                    failed++;
+                }
+                sink.accept(item);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvalidImageException("Interrupted while processing batch", e);
+        }
+
+        logger.debug("Batch of {} files completed in {}ms, {} failed",
+            files.size(), System.currentTimeMillis() - startTime, failed);
+    }
+
+    /**
+     * Starts one file on the batch executor; its outcome is always added to the queue.
+     */
+    private void start(int index, MultipartFile file, String sizesParam, String qualityParam,
+                       String profileParam, BlockingQueue<BatchItem> completed) {
+        String filename = file.getOriginalFilename();
+        CompletableFuture
+            .supplyAsync(() -> imageProcessor.processImage(file, sizesParam, qualityParam, profileParam),
+                batchExecutor)
+            .whenComplete((response, error) -> completed.add(error == null
+                ? BatchItem.succeeded(index, filename, response)
+                : BatchItem.failed(index, filename, unwrap(error))));
+    }
+
+    private static RuntimeException unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+            ? error.getCause()
+            : error;
+        return cause instanceof RuntimeException runtimeException
+            ? runtimeException
+            : new CompletionException(cause);
+    }
+}
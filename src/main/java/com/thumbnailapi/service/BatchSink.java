@@ -0,0 +1,21 @@
+package com.thumbnailapi.service;
+
+import java.io.IOException;
+
+/**
+ * Receives the outcome of each file of a batch as soon as it is known.
+ *
+ * Files are delivered in the order they finish, not in request order. All calls
+ * happen on the thread that submitted the batch.
+ */
+@FunctionalInterface
+public interface BatchSink {
+
+    /**
+     * Accepts one finished file.
+     *
+     * @param item the thumbnails of the file, or the error it failed with
+     * @throws IOException if the outcome cannot be written; files not yet started are skipped
+     */
+    void accept(BatchItem item) throws IOException;
+}
@@ -0,0 +1,179 @@
+package com.thumbnailapi.service;
+
+import java.util.Locale;
+
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOInvalidTreeException;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.thumbnailapi.config.ThumbnailProperties;
+
+/**
+ * Validated encoder settings of one named profile, applied through
+ * {@link ImageWriteParam} and, for chroma subsampling, the JPEG image metadata.
+ *
+ * Settings only affect the format they belong to; a profile that leaves
+ * everything unset encodes exactly like a plain {@code ImageWriter.write}.
+ * The JDK PNG writer picks a row filter adaptively and has no setting for it,
+ * so PNG profiles only choose the deflate level.
+ *
+ * @param name the profile name requests select it by
+ * @param jpegQuality JPEG quality from 0.0 to 1.0, or null for the writer default
+ * @param progressive whether JPEGs are progressive
+ * @param optimizeHuffman whether baseline JPEGs get optimized Huffman tables
+ * @param chromaSubsampling JPEG chroma subsampling as {@code J:a:b}
+ * @param pngCompressionLevel PNG deflate level from 0 to 9, or null for the writer default
+ */
+public record EncodeProfile(String name,
+                            Float jpegQuality,
+                            boolean progressive,
+                            boolean optimizeHuffman,
+                            String chromaSubsampling,
+                            Integer pngCompressionLevel) {
+
+    /** Name of the profile that keeps every writer default. */
+    public static final String DEFAULT_NAME = "default";
+
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+
+    public EncodeProfile {
+        if (jpegQuality != null && (jpegQuality < 0 || jpegQuality > 1)) {
+            throw new IllegalArgumentException(
+                "Encode profile '" + name + "': jpeg-quality must be between 0.0 and 1.0, got " + jpegQuality);
+        }
+        if (pngCompressionLevel != null && (pngCompressionLevel < 0 || pngCompressionLevel > 9)) {
+            throw new IllegalArgumentException(
+                "Encode profile '" + name + "': png-compression-level must be between 0 and 9, got "
+                    + pngCompressionLevel);
+        }
+        lumaSampling(name, chromaSubsampling);
+    }
+
+    /**
+     * Returns the profile that keeps every writer default.
+     */
+    public static EncodeProfile defaults() {
+        return of(DEFAULT_NAME, new ThumbnailProperties.EncodeProfile());
+    }
+
+    /**
+     * Validates the configured settings of a profile.
+     *
+     * @param name the profile name
+     * @param settings the configured settings
+     * @return the profile
+     * @throws IllegalArgumentException if a setting is out of range
+     */
+    public static EncodeProfile of(String name, ThumbnailProperties.EncodeProfile settings) {
+        return new EncodeProfile(name.toLowerCase(Locale.ROOT), settings.getJpegQuality(), settings.isProgressive(),
+            settings.isOptimizeHuffman(), settings.getChromaSubsampling(), settings.getPngCompressionLevel());
+    }
+
+    /**
+     * Describes the settings that influence the encoded bytes, for use in cache keys.
+     * The name is left out, so identical profiles share cached thumbnails.
+     */
+    public String fingerprint() {
+        return "jpeg=" + jpegQuality + ":" + progressive + ":" + optimizeHuffman + ":" + chromaSubsampling
+            + ";png=" + pngCompressionLevel;
+    }
+
+    /**
+     * Builds the write parameters for the given writer.
+     *
+     * @param writer the writer that will encode the image
+     * @param imageFormat the ImageIO format name, e.g. {@code jpg}
+     * @return the parameters, or null when the writer defaults apply
+     */
+    ImageWriteParam writeParam(ImageWriter writer, String imageFormat) {
+        return switch (imageFormat) {
+            case "jpg" -> jpegParam(writer);
+            case "png" -> pngParam(writer);
+            default -> null;
+        };
+    }
+
+    /**
+     * Builds the image metadata for the given writer, which only differs from the
+     * writer's own for JPEG chroma subsampling other than the writer's 4:2:0.
+     *
+     * @return the metadata, or null when the writer defaults apply
+     * @throws IIOInvalidTreeException if the writer rejects the sampling factors
+     */
+    IIOMetadata imageMetadata(ImageWriter writer, ImageTypeSpecifier type, ImageWriteParam param,
+                              String imageFormat) throws IIOInvalidTreeException {
+        int[] luma = lumaSampling(name, chromaSubsampling);
+        if (!"jpg".equals(imageFormat) || (luma[0] == 2 && luma[1] == 2)) {
+            return null;
+        }
+
+        IIOMetadata metadata = writer.getDefaultImageMetadata(type, param);
+        Element root = (Element) metadata.getAsTree(JPEG_METADATA_FORMAT);
+        NodeList components = root.getElementsByTagName("componentSpec");
+        if (components.getLength() < 3) {
+            // Gray images have no chroma to subsample
+            return null;
+        }
+
+        for (int i = 0; i < components.getLength(); i++) {
+            Element component = (Element) components.item(i);
+            component.setAttribute("HsamplingFactor", String.valueOf(i == 0 ? luma[0] : 1));
+            component.setAttribute("VsamplingFactor", String.valueOf(i == 0 ? luma[1] : 1));
+        }
+        metadata.setFromTree(JPEG_METADATA_FORMAT, root);
+        return metadata;
+    }
+
+    private ImageWriteParam jpegParam(ImageWriter writer) {
+        if (jpegQuality == null && !progressive && !optimizeHuffman) {
+            return null;
+        }
+
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (jpegQuality != null) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+        }
+        if (progressive) {
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        } else if (optimizeHuffman && param instanceof JPEGImageWriteParam jpegParam) {
+            jpegParam.setOptimizeHuffmanTables(true);
+        }
+        return param;
+    }
+
+    private ImageWriteParam pngParam(ImageWriter writer) {
+        if (pngCompressionLevel == null) {
+            return null;
+        }
+
+        // The JDK writer deflates at level round(9 * (1 - quality))
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (!param.canWriteCompressed()) {
+            return null;
+        }
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(1f - pngCompressionLevel / 9f);
+        return param;
+    }
+
+    /**
+     * Maps a {@code J:a:b} subsampling to the horizontal and vertical sampling
+     * factors of the luma component, chroma being sampled once per block.
+     */
+    private static int[] lumaSampling(String name, String chromaSubsampling) {
+        return switch (chromaSubsampling == null ? "" : chromaSubsampling.trim()) {
+            case "4:2:0" -> new int[] {2, 2};
+            case "4:2:2" -> new int[] {2, 1};
+            case "4:4:4" -> new int[] {1, 1};
+            default -> throw new IllegalArgumentException("Encode profile '" + name
+                + "': chroma-subsampling must be 4:2:0, 4:2:2 or 4:4:4, got " + chromaSubsampling);
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package com.thumbnailapi.service;
+
+import com.thumbnailapi.cache.ThumbnailKey;
+import com.thumbnailapi.model.ThumbnailMetadata;
+
+/**
+ * A previously generated thumbnail found in the cache or the disk store.
+ *
+ * @param key identity of the thumbnail
+ * @param metadata metadata describing where it was found
+ * @param payload the encoded bytes
+ * @param etag quoted strong entity tag of exactly these bytes
+ */
+public record ExistingThumbnail(ThumbnailKey key, ThumbnailMetadata metadata, ThumbnailPayload payload,
+                                String etag) {
+}
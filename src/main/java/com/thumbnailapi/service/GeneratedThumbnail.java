@@ -0,0 +1,77 @@
+package com.thumbnailapi.service;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.thumbnailapi.model.ThumbnailMetadata;
+
+/**
+ * An encoded thumbnail together with its metadata.
+ *
+ * The bytes usually live in a pooled encode buffer. Closing the thumbnail
+ * returns that buffer to the pool, after which views from {@link #data()} must
+ * no longer be read. A thumbnail that is never closed only costs the pool a
+ * reuse.
+ */
+public final class GeneratedThumbnail implements AutoCloseable {
+
+    private final ThumbnailMetadata metadata;
+    private final ByteBuffer data;
+    private final Runnable release;
+    private final long resizeNanos;
+    private final long encodeNanos;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    GeneratedThumbnail(ThumbnailMetadata metadata, ByteBuffer data, Runnable release,
+                       long resizeNanos, long encodeNanos) {
+        this.metadata = metadata;
+        this.data = data;
+        this.release = release;
+        this.resizeNanos = resizeNanos;
+        this.encodeNanos = encodeNanos;
+    }
+
+    /**
+     * Returns the metadata reported to the client.
+     */
+    public ThumbnailMetadata metadata() {
+        return metadata;
+    }
+
+    /**
+     * Returns the time spent resizing, at full resolution unlike the metadata.
+     */
+    public long resizeNanos() {
+        return resizeNanos;
+    }
+
+    /**
+     * Returns the time spent encoding, at full resolution unlike the metadata.
+     */
+    public long encodeNanos() {
+        return encodeNanos;
+    }
+
+    /**
+     * Returns an independent read-only view of the encoded image bytes.
+     */
+    public ByteBuffer data() {
+        return data.duplicate();
+    }
+
+    /**
+     * Returns a copy of the encoded bytes that stays valid after {@link #close()}.
+     */
+    public byte[] toByteArray() {
+        byte[] copy = new byte[data.remaining()];
+        data.duplicate().get(copy);
+        return copy;
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            release.run();
+        }
+    }
+}
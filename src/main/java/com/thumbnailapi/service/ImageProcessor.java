@@ -1,44 +1,97 @@
 package com.thumbnailapi.service;
 
 import java.awt.Dimension;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.thumbnailapi.admission.PixelMemoryBudget;
+import com.thumbnailapi.cache.CachedThumbnail;
+import com.thumbnailapi.cache.ThumbnailCache;
+import com.thumbnailapi.cache.ThumbnailKey;
+import com.thumbnailapi.color.NormalizedImage;
+import com.thumbnailapi.config.ThumbnailProperties.ResizeQuality;
 import com.thumbnailapi.exception.InvalidImageException;
+import com.thumbnailapi.exception.InvalidProfileException;
+import com.thumbnailapi.exception.InvalidQualityException;
+import com.thumbnailapi.exception.ThumbnailNotFoundException;
+import com.thumbnailapi.exception.UnsupportedFormatException;
+import com.thumbnailapi.logging.RequestLog;
+import com.thumbnailapi.logging.RequestRecord;
+import com.thumbnailapi.metrics.PipelineMetrics;
+import com.thumbnailapi.metrics.PipelineMetrics.Stage;
 import com.thumbnailapi.model.ThumbnailMetadata;
 import com.thumbnailapi.model.ThumbnailResponse;
+import com.thumbnailapi.store.StoredThumbnail;
+import com.thumbnailapi.store.ThumbnailStore;
 import com.thumbnailapi.util.DimensionParser;
 import com.thumbnailapi.util.ImageFormatDetector;
-import com.thumbnailapi.util.ImageValidator;
+import com.thumbnailapi.util.ImageUpload;
+import com.thumbnailapi.util.ImageUploadReader;
+import com.thumbnailapi.util.OutputFormats;
 
 /**
  * Main service for processing image upload and thumbnail generation requests.
  * 
  * Orchestrates validation, dimension parsing, and thumbnail generation.
+ * Sizes already present in the {@link ThumbnailCache} or the {@link ThumbnailStore}
+ * are served from them; the original is only decoded when at least one size is missing,
+ * and only once the {@link PixelMemoryBudget} has admitted the raster memory it needs.
+ * Concurrent requests for the same thumbnails of the same upload share one run
+ * through the {@link UploadCoalescer}.
+ * The duration of every stage is recorded in {@link PipelineMetrics}, and each
+ * request is summarized in one {@link RequestRecord} logged by the {@link RequestLog}.
  */
 @Service
 public class ImageProcessor {
 
     private static final Logger logger = LogManager.getLogger(ImageProcessor.class);
+    private static final String CACHE_SOURCE = "cache";
+    private static final String STORE_SOURCE = "store";
+    private static final Pattern CONTENT_HASH_PATTERN = Pattern.compile("^[0-9a-f]{64}$");
 
-    private final ImageValidator imageValidator;
+    private final ImageUploadReader uploadReader;
     private final ImageFormatDetector formatDetector;
     private final DimensionParser dimensionParser;
     private final ThumbnailGenerator thumbnailGenerator;
+    private final ThumbnailCache thumbnailCache;
+    private final ThumbnailStore thumbnailStore;
+    private final PixelMemoryBudget memoryBudget;
+    private final UploadCoalescer coalescer;
+    private final PipelineMetrics metrics;
+    private final RequestLog requestLog;
 
-    public ImageProcessor(ImageValidator imageValidator,
+    public ImageProcessor(ImageUploadReader uploadReader,
                          ImageFormatDetector formatDetector,
                          DimensionParser dimensionParser,
-                         ThumbnailGenerator thumbnailGenerator) {
-        this.imageValidator = imageValidator;
+                         ThumbnailGenerator thumbnailGenerator,
+                         ThumbnailCache thumbnailCache,
+                         ThumbnailStore thumbnailStore,
+                         PixelMemoryBudget memoryBudget,
+                         UploadCoalescer coalescer,
+                         PipelineMetrics metrics,
+                         RequestLog requestLog) {
+        this.uploadReader = uploadReader;
         this.formatDetector = formatDetector;
         this.dimensionParser = dimensionParser;
         this.thumbnailGenerator = thumbnailGenerator;
+        this.thumbnailCache = thumbnailCache;
+        this.thumbnailStore = thumbnailStore;
+        this.memoryBudget = memoryBudget;
+        this.coalescer = coalescer;
+        this.metrics = metrics;
+        this.requestLog = requestLog;
     }
 
     /**
@@ -50,53 +103,478 @@ public class ImageProcessor {
      * @throws various exceptions for validation failures
      */
     public ThumbnailResponse processImage(MultipartFile file, String sizesParam) {
-        long startTime = System.currentTimeMillis();
-        
-        logger.info("Processing image upload: {} ({})", file.getOriginalFilename(), file.getSize());
+        return processImage(file, sizesParam, null, null);
+    }
+
+    /**
+     * Processes an uploaded image and generates thumbnails at the given resize
+     * quality, encoded with the given profile.
+     * 
+     * @param file the uploaded image file
+     * @param sizesParam comma-separated string of thumbnail sizes
+     * @param qualityParam speed, balanced, quality, ultra or auto; null for the server default
+     * @param profileParam name of a configured encode profile; null for the server default
+     * @return ThumbnailResponse containing original image info and thumbnail metadata
+     * @throws InvalidQualityException if the quality is unknown
+     * @throws InvalidProfileException if the profile is unknown
+     */
+    public ThumbnailResponse processImage(MultipartFile file, String sizesParam, String qualityParam,
+                                          String profileParam) {
+        try {
+            return streamImage(file, sizesParam, qualityParam, profileParam, (index, metadata, payload) -> { });
+        } catch (IOException e) {
+            logger.error("Failed to process image: {}", file.getOriginalFilename(), e);
+            throw new InvalidImageException("Failed to process image: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Processes an uploaded image and hands the encoded bytes of every size to the
+     * sink as soon as each one is available.
+     * 
+     * Sizes served from the cache or store are delivered while the missing sizes
+     * are still being generated.
+     * 
+     * @param file the uploaded image file
+     * @param sizesParam comma-separated string of thumbnail sizes
+     * @param sink receives the encoded bytes of each size
+     * @return ThumbnailResponse containing original image info and thumbnail metadata
+     * @throws IOException if the sink fails to write; the image itself was valid
+     * @throws various exceptions for validation failures
+     */
+    public ThumbnailResponse streamImage(MultipartFile file, String sizesParam, ThumbnailSink sink)
+            throws IOException {
+        return streamImage(file, sizesParam, null, null, sink);
+    }
+
+    /**
+     * Processes an uploaded image at the given resize quality and encode profile,
+     * and hands every size to the sink as soon as it is available.
+     * 
+     * @param file the uploaded image file
+     * @param sizesParam comma-separated string of thumbnail sizes
+     * @param qualityParam speed, balanced, quality, ultra or auto; null for the server default
+     * @param profileParam name of a configured encode profile; null for the server default
+     * @param sink receives the encoded bytes of each size
+     * @return ThumbnailResponse containing original image info and thumbnail metadata
+     * @throws IOException if the sink fails to write; the image itself was valid
+     * @throws InvalidQualityException if the quality is unknown
+     * @throws InvalidProfileException if the profile is unknown
+     */
+    public ThumbnailResponse streamImage(MultipartFile file, String sizesParam, String qualityParam,
+                                         String profileParam, ThumbnailSink sink) throws IOException {
+        ResizeQuality quality = parseQuality(qualityParam);
+        EncodeProfile profile = parseProfile(profileParam);
+        metrics.requestStarted();
+        RequestRecord record = requestLog.begin(file.getOriginalFilename());
+        try {
+            // Validate and read the upload once, sniffing the format and hashing as it streams in
+            ImageUpload upload = uploadReader.read(file);
+            return process(upload, file.getOriginalFilename(), sizesParam, quality, profile, sink, record);
+        } catch (IOException | RuntimeException e) {
+            record.failed(e);
+            throw e;
+        } finally {
+            metrics.requestFinished();
+            requestLog.end(record);
+        }
+    }
+
+    /**
+     * Validates and reads an upload without processing it, so it can be processed
+     * after the request that carried it has finished.
+     * 
+     * @param file the uploaded image file
+     * @return the validated upload content
+     * @throws various exceptions for validation failures
+     */
+    public ImageUpload readUpload(MultipartFile file) {
+        return uploadReader.read(file);
+    }
+
+    /**
+     * Processes an upload read earlier by {@link #readUpload(MultipartFile)} and
+     * hands every size to the sink as soon as it is available.
+     * 
+     * @param upload the validated upload content
+     * @param filename original filename of the upload
+     * @param sizesParam comma-separated string of thumbnail sizes
+     * @param qualityParam speed, balanced, quality, ultra or auto; null for the server default
+     * @param profileParam name of a configured encode profile; null for the server default
+     * @param sink receives the encoded bytes of each size
+     * @return ThumbnailResponse containing original image info and thumbnail metadata
+     * @throws IOException if the sink fails to write; the image itself was valid
+     */
+    public ThumbnailResponse streamUpload(ImageUpload upload, String filename, String sizesParam,
+                                          String qualityParam, String profileParam,
+                                          ThumbnailSink sink) throws IOException {
+        ResizeQuality quality = parseQuality(qualityParam);
+        EncodeProfile profile = parseProfile(profileParam);
+        metrics.requestStarted();
+        RequestRecord record = requestLog.begin(filename);
+        try {
+            return process(upload, filename, sizesParam, quality, profile, sink, record);
+        } catch (IOException | RuntimeException e) {
+            record.failed(e);
+            throw e;
+        } finally {
+            metrics.requestFinished();
+            requestLog.end(record);
+        }
+    }
 
-        // Validate
-        imageValidator.validate(file);
-        logger.debug("Image validation completed");
+    private ThumbnailResponse process(ImageUpload upload, String filename, String sizesParam,
+                                      ResizeQuality quality, EncodeProfile profile,
+                                      ThumbnailSink sink, RequestRecord record) throws IOException {
+        byte[] imageBytes = upload.data();
+        String format = upload.format();
+        String contentHash = upload.contentHash();
+        record.upload(format, imageBytes.length, upload.validationNanos(), upload.readNanos());
 
+        ImageFormatDetector.ImageDimensions dimensions;
         try {
-            // Read file bytes
-            byte[] imageBytes = file.getBytes();
-            
-            // Detect format
-            String format = formatDetector.detectFormat(imageBytes);
-            logger.debug("Detected image format: {}", format);
-            
-            // Get original dimensions
-            ImageFormatDetector.ImageDimensions dimensions = formatDetector.readImageDimensions(imageBytes);
-            logger.debug("Original image dimensions: {}x{}", dimensions.width(), dimensions.height());
-            
-            // Parse target dimensions
-            List<Dimension> targetDimensions = (List<Dimension>) dimensionParser.parseDimensions(sizesParam);
-            logger.debug("Generated {} thumbnail sizes", targetDimensions.size());
-            
-            // Generate thumbnails
-            List<ThumbnailMetadata> thumbnails = (List<ThumbnailMetadata>) thumbnailGenerator.generateThumbnails(
-                imageBytes,
-                format,
-                targetDimensions
-            );
-            
-            long totalProcessingTime = System.currentTimeMillis() - startTime;
-            logger.info("Image processing completed in {}ms. Generated {} thumbnails",
-                totalProcessingTime, thumbnails.size());
-            
-            // Build response
-            return ThumbnailResponse.builder()
-                .originalFilename(file.getOriginalFilename())
-                .originalFormat(format)
-                .originalDimensions(dimensions.width(), dimensions.height())
-                .originalFileSizeBytes(file.getSize())
-                .thumbnails(thumbnails)
-                .build();
+            // Get original dimensions from the image header
+            dimensions = formatDetector.readImageDimensions(imageBytes);
+            record.original(dimensions.width(), dimensions.height());
 
         } catch (IOException e) {
-            logger.error("Failed to process image: {}", file.getOriginalFilename(), e);
+            logger.error("Failed to process image: {}", filename, e);
             throw new InvalidImageException("Failed to process image: " + e.getMessage(), e);
         }
+        metrics.record(Stage.VALIDATE, upload.validationNanos(), format,
+            dimensions.width(), dimensions.height(), PipelineMetrics.ALL_TARGETS);
+        metrics.record(Stage.READ, upload.readNanos(), format,
+            dimensions.width(), dimensions.height(), PipelineMetrics.ALL_TARGETS);
+
+        // Parse target dimensions
+        List<Dimension> targetDimensions = (List<Dimension>) dimensionParser.parseDimensions(sizesParam);
+        record.sizes(targetDimensions.size());
+        
+        // Generate thumbnails, reusing cached sizes and sharing the run of an identical request in flight
+        ImageFormatDetector.ImageDimensions original = dimensions;
+        List<ThumbnailMetadata> thumbnails = coalescer.run(
+            coalesceKey(contentHash, targetDimensions, quality, profile), sink,
+            shared -> generateThumbnails(
+                imageBytes, original, contentHash, format, targetDimensions, quality, profile, shared, record));
+        
+        // Build response
+        return ThumbnailResponse.builder()
+            .originalFilename(filename)
+            .originalFormat(format)
+            .originalDimensions(dimensions.width(), dimensions.height())
+            .originalFileSizeBytes(imageBytes.length)
+            .contentHash(contentHash)
+            .thumbnails(thumbnails)
+            .build();
+    }
+
+    /**
+     * Checks the size, quality and profile parameters without reading an upload,
+     * so they can be validated once for many files.
+     * 
+     * @param sizesParam comma-separated string of thumbnail sizes
+     * @param qualityParam speed, balanced, quality, ultra or auto; null for the server default
+     * @param profileParam name of a configured encode profile; null for the server default
+     * @throws InvalidDimensionsException if a size is invalid
+     * @throws InvalidQualityException if the quality is unknown
+     * @throws InvalidProfileException if the profile is unknown
+     */
+    public void checkOptions(String sizesParam, String qualityParam, String profileParam) {
+        dimensionParser.parseDimensions(sizesParam);
+        parseQuality(qualityParam);
+        parseProfile(profileParam);
+    }
+
+    /**
+     * Returns metadata for every requested size, generating only the sizes that
+     * are neither cached nor stored, and caching and storing the newly encoded ones.
+     * Every size is passed to the sink as soon as it is available.
+     * 
+     * Raster memory for the missing sizes is reserved before decoding and held
+     * until the last of them is encoded.
+     */
+    private List<ThumbnailMetadata> generateThumbnails(byte[] imageBytes,
+                                                       ImageFormatDetector.ImageDimensions original,
+                                                       String contentHash, String format,
+                                                       List<Dimension> targetDimensions,
+                                                       ResizeQuality quality,
+                                                       EncodeProfile profile,
+                                                       ThumbnailSink sink,
+                                                       RequestRecord record) throws IOException {
+        boolean reuse = thumbnailCache.isEnabled() || thumbnailStore.isEnabled();
+        String settings = thumbnailGenerator.settingsFingerprint(quality, profile);
+        List<ThumbnailMetadata> thumbnails = new ArrayList<>(Collections.nCopies(targetDimensions.size(), null));
+        List<ExistingThumbnail> reused = new ArrayList<>();
+        List<Integer> reusedPositions = new ArrayList<>();
+        List<Dimension> missing = new ArrayList<>();
+        List<Integer> missingPositions = new ArrayList<>();
+
+        for (int i = 0; i < targetDimensions.size(); i++) {
+            Dimension dimension = targetDimensions.get(i);
+            ExistingThumbnail existing = reuse
+                ? findExisting(ThumbnailKey.of(contentHash, dimension, format, settings),
+                    thumbnailGenerator.sizeNameOf(dimension))
+                : null;
+            if (existing != null) {
+                thumbnails.set(i, existing.metadata());
+                reused.add(existing);
+                reusedPositions.add(i);
+            } else {
+                missingPositions.add(i);
+                missing.add(dimension);
+            }
+        }
+
+        record.reused(reused.size());
+
+        if (missing.isEmpty()) {
+            writeExisting(reused, reusedPositions, sink);
+            return thumbnails;
+        }
+
+        long peakMemory = thumbnailGenerator.estimatePeakMemory(
+            original.width(), original.height(), original.bytesPerPixel(), original.needsNormalization(), missing);
+        try (PixelMemoryBudget.Reservation reservation = memoryBudget.reserve(peakMemory)) {
+            metrics.sizesStarted(missing.size());
+            int[] delivered = {0};
+            try {
+                PendingThumbnails pending = submit(imageBytes, original, format, missing, quality, profile, record);
+                try {
+                    writeExisting(reused, reusedPositions, sink);
+                } catch (IOException | RuntimeException e) {
+                    pending.cancel();
+                    throw e;
+                }
+
+                pending.forEachCompleted((i, thumbnail) -> {
+                    // The encode buffer goes back to the pool once every consumer has copied or written it
+                    try (thumbnail) {
+                        ThumbnailMetadata metadata = thumbnail.metadata();
+                        String target = PipelineMetrics.targetTag(metadata.size());
+                        metrics.record(Stage.RESIZE, thumbnail.resizeNanos(), format,
+                            original.width(), original.height(), target);
+                        metrics.record(Stage.ENCODE, thumbnail.encodeNanos(), format,
+                            original.width(), original.height(), target);
+                        record.generated(metadata, thumbnail.resizeNanos(), thumbnail.encodeNanos());
+                        requestLog.detail(record, metadata);
+                        ThumbnailPayload payload;
+                        if (reuse) {
+                            ThumbnailKey key = ThumbnailKey.of(contentHash, missing.get(i), format, settings);
+                            thumbnailCache.put(key, thumbnail.data(), metadata.width(), metadata.height());
+                            thumbnailStore.put(key, thumbnail.data(), metadata.width(), metadata.height());
+                            // Requests sharing this run read the size back from where it was just put
+                            payload = ThumbnailPayload.of(thumbnail.data(), () -> retained(key, metadata.size()));
+                        } else {
+                            payload = ThumbnailPayload.of(thumbnail.data(), () -> null);
+                        }
+                        thumbnails.set(missingPositions.get(i), metadata);
+                        metrics.sizesFinished(1);
+                        delivered[0]++;
+                        sink.accept(missingPositions.get(i), metadata, payload);
+                    }
+                });
+            } finally {
+                metrics.sizesFinished(missing.size() - delivered[0]);
+            }
+        }
+        return thumbnails;
+    }
+
+    /**
+     * Returns the cached or stored bytes of a size that was just generated.
+     *
+     * @return the payload, or null when the size was neither cached nor stored
+     */
+    private ThumbnailPayload retained(ThumbnailKey key, String sizeName) {
+        ExistingThumbnail existing = findExisting(key, sizeName);
+        return existing == null ? null : existing.payload();
+    }
+
+    /**
+     * Builds the key under which identical requests share one run: the content
+     * hash, the requested sizes in order and the resize and encode settings.
+     */
+    private String coalesceKey(String contentHash, List<Dimension> targetDimensions, ResizeQuality quality,
+                               EncodeProfile profile) {
+        StringBuilder key = new StringBuilder(contentHash).append('|');
+        for (Dimension dimension : targetDimensions) {
+            key.append(dimension.width).append('x').append(dimension.height).append(',');
+        }
+        return key.append('|').append(thumbnailGenerator.settingsFingerprint(quality, profile)).toString();
+    }
+
+    /**
+     * Passes the sizes served from the cache or store to the sink.
+     */
+    private static void writeExisting(List<ExistingThumbnail> reused, List<Integer> positions,
+                                      ThumbnailSink sink) throws IOException {
+        for (int i = 0; i < reused.size(); i++) {
+            ExistingThumbnail thumbnail = reused.get(i);
+            sink.accept(positions.get(i), thumbnail.metadata(), thumbnail.payload());
+        }
+    }
+
+    /**
+     * Finds a previously generated thumbnail by the content hash of its original.
+     * 
+     * Only the cache and store indexes are consulted; no pixel data is read until
+     * the returned payload is written.
+     * 
+     * @param contentHash SHA-256 hex hash of the original upload
+     * @param size preset name or WIDTHxHEIGHT
+     * @param format output format, or null to look for any format
+     * @return the thumbnail
+     * @throws ThumbnailNotFoundException if the thumbnail is neither cached nor stored
+     * @throws InvalidDimensionsException if the size is invalid
+     */
+    public ExistingThumbnail findThumbnail(String contentHash, String size, String format) {
+        return findThumbnail(contentHash, size, format, null, null);
+    }
+
+    /**
+     * Finds a previously generated thumbnail that was resized at the given quality
+     * and encoded with the given profile.
+     * 
+     * @param contentHash SHA-256 hex hash of the original upload
+     * @param size preset name or WIDTHxHEIGHT
+     * @param format output format, or null to look for any format
+     * @param qualityParam the resize quality it was generated at; null for the server default
+     * @param profileParam the encode profile it was generated with; null for the server default
+     * @return the thumbnail
+     * @throws ThumbnailNotFoundException if the thumbnail is neither cached nor stored
+     * @throws InvalidQualityException if the quality is unknown
+     * @throws InvalidProfileException if the profile is unknown
+     */
+    public ExistingThumbnail findThumbnail(String contentHash, String size, String format, String qualityParam,
+                                           String profileParam) {
+        Dimension dimension = dimensionParser.parseDimension(size);
+        List<String> formats = format == null ? OutputFormats.ALL : List.of(normalizeFormat(format));
+        ResizeQuality quality = parseQuality(qualityParam);
+        EncodeProfile profile = parseProfile(profileParam);
+
+        if (CONTENT_HASH_PATTERN.matcher(contentHash).matches()) {
+            String settings = thumbnailGenerator.settingsFingerprint(quality, profile);
+            String sizeName = thumbnailGenerator.sizeNameOf(dimension);
+            for (String candidate : formats) {
+                ExistingThumbnail existing = findExisting(
+                    ThumbnailKey.of(contentHash, dimension, candidate, settings), sizeName);
+                if (existing != null) {
+                    return existing;
+                }
+            }
+        }
+
+        throw new ThumbnailNotFoundException(
+            String.format("No %s thumbnail available for content hash '%s'", size, contentHash));
+    }
+
+    /**
+     * Builds metadata and a payload for a size that is already in the cache or the disk store.
+     * 
+     * @return the existing size, or null when the size has to be generated
+     */
+    private ExistingThumbnail findExisting(ThumbnailKey key, String sizeName) {
+        CachedThumbnail cached = thumbnailCache.get(key);
+        if (cached != null) {
+            ThumbnailMetadata metadata = ThumbnailMetadata.create(sizeName, cached.width(), cached.height(),
+                key.format(), cached.sizeBytes(), 0, CACHE_SOURCE, null, 0, 0);
+            return new ExistingThumbnail(key, metadata, ThumbnailPayload.of(cached.view()), cached.etag());
+        }
+
+        StoredThumbnail stored = thumbnailStore.find(key);
+        if (stored != null) {
+            ThumbnailMetadata metadata = ThumbnailMetadata.create(sizeName, stored.width(), stored.height(),
+                key.format(), stored.length(), 0, STORE_SOURCE, null, 0, 0);
+            return new ExistingThumbnail(key, metadata, new StoredPayload(stored), stored.etag());
+        }
+        return null;
+    }
+
+    /**
+     * Maps a requested output format to the name used in thumbnail keys.
+     */
+    private static String normalizeFormat(String format) {
+        String upper = format.trim().toUpperCase(Locale.ROOT);
+        String normalized = "JPG".equals(upper) ? "JPEG" : upper;
+        if (!OutputFormats.ALL.contains(normalized)) {
+            throw new UnsupportedFormatException("Unsupported thumbnail format: " + format);
+        }
+        return normalized;
+    }
+
+    /**
+     * Maps a requested resize quality to its level, falling back to the server default.
+     */
+    private ResizeQuality parseQuality(String quality) {
+        if (quality == null || quality.isBlank()) {
+            return thumbnailGenerator.defaultQuality();
+        }
+        try {
+            return ResizeQuality.valueOf(quality.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidQualityException(
+                "Unsupported quality: " + quality + " (expected speed, balanced, quality, ultra or auto)");
+        }
+    }
+
+    /**
+     * Maps a requested encode profile name to its settings, falling back to the server default.
+     */
+    private EncodeProfile parseProfile(String profile) {
+        if (profile == null || profile.isBlank()) {
+            return thumbnailGenerator.defaultProfile();
+        }
+        EncodeProfile encodeProfile = thumbnailGenerator.encodeProfile(profile);
+        if (encodeProfile == null) {
+            throw new InvalidProfileException("Unsupported profile: " + profile
+                + " (expected one of " + String.join(", ", thumbnailGenerator.encodeProfileNames()) + ")");
+        }
+        return encodeProfile;
+    }
+
+    /**
+     * Decodes the original once, at no more resolution than the sizes need,
+     * converts it to a fast pixel layout and starts generating every given size
+     * from it.
+     */
+    private PendingThumbnails submit(byte[] imageBytes, ImageFormatDetector.ImageDimensions original,
+                                     String format, List<Dimension> dimensions, ResizeQuality quality,
+                                     EncodeProfile profile, RequestRecord record) {
+        long startTime = System.nanoTime();
+        BufferedImage originalImage = thumbnailGenerator.decodeImage(imageBytes, dimensions);
+        long decodeNanos = System.nanoTime() - startTime;
+        metrics.record(Stage.DECODE, decodeNanos, format,
+            original.width(), original.height(), PipelineMetrics.ALL_TARGETS);
+        record.decoded(originalImage.getWidth(), originalImage.getHeight(), decodeNanos);
+
+        startTime = System.nanoTime();
+        NormalizedImage normalized = thumbnailGenerator.normalize(originalImage);
+        long normalizeNanos = System.nanoTime() - startTime;
+        metrics.record(Stage.NORMALIZE, normalizeNanos, format,
+            original.width(), original.height(), PipelineMetrics.ALL_TARGETS);
+        record.normalized(normalized.path().label(), normalizeNanos);
+        return thumbnailGenerator.submit(normalized.image(), format, dimensions, quality, profile);
+    }
+
+    /**
+     * Payload copied straight from a store segment to the response.
+     */
+    private final class StoredPayload implements ThumbnailPayload {
+
+        private final StoredThumbnail stored;
+
+        StoredPayload(StoredThumbnail stored) {
+            this.stored = stored;
+        }
+
+        @Override
+        public long length() {
+            return stored.length();
+        }
+
+        @Override
+        public void writeTo(OutputStream out, long offset, long count) throws IOException {
+            thumbnailStore.transferTo(stored, offset, count, Channels.newChannel(out));
+        }
     }
 }
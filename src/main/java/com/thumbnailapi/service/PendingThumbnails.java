@@ -0,0 +1,113 @@
+package com.thumbnailapi.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.thumbnailapi.exception.InvalidImageException;
+
+/**
+ * Sizes submitted to the {@link ThumbnailGenerator} that may still be in progress.
+ *
+ * Results can be collected in request order or consumed as each size finishes.
+ * On the first failure every outstanding stage is cancelled and the original
+ * exception is rethrown.
+ */
+public final class PendingThumbnails {
+
+    private final List<CompletableFuture<GeneratedThumbnail>> results;
+    private final List<? extends CompletableFuture<?>> stages;
+
+    PendingThumbnails(List<CompletableFuture<GeneratedThumbnail>> results,
+                      List<? extends CompletableFuture<?>> stages) {
+        this.results = List.copyOf(results);
+        this.stages = List.copyOf(stages);
+    }
+
+    /**
+     * Receives one finished size.
+     */
+    @FunctionalInterface
+    public interface CompletionHandler {
+
+        /**
+         * @param index position of the size in the request
+         * @param thumbnail the encoded thumbnail
+         */
+        void completed(int index, GeneratedThumbnail thumbnail) throws IOException;
+    }
+
+    /**
+     * Returns the number of sizes.
+     */
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * Waits for every size and returns them in request order.
+     *
+     * @return the encoded thumbnails
+     * @throws InvalidImageException or the original runtime exception if a size fails
+     */
+    public List<GeneratedThumbnail> joinAll() {
+        List<GeneratedThumbnail> thumbnails = new ArrayList<>(results.size());
+        for (CompletableFuture<GeneratedThumbnail> result : results) {
+            thumbnails.add(join(result));
+        }
+        return thumbnails;
+    }
+
+    /**
+     * Hands each size to the handler on the calling thread, in the order the sizes finish.
+     *
+     * @param handler receives every finished size
+     * @throws IOException if the handler fails; outstanding sizes are cancelled
+     */
+    public void forEachCompleted(CompletionHandler handler) throws IOException {
+        BlockingQueue<Integer> completed = new LinkedBlockingQueue<>();
+        for (int i = 0; i < results.size(); i++) {
+            int index = i;
+            results.get(i).whenComplete((thumbnail, error) -> completed.add(index));
+        }
+
+        try {
+            for (int remaining = results.size(); remaining > 0; remaining--) {
+                int index = completed.take();
+                handler.completed(index, join(results.get(index)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new InvalidImageException("Interrupted while generating thumbnails", e);
+        } catch (IOException | RuntimeException e) {
+            cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * Cancels every stage that has not started yet.
+     */
+    public void cancel() {
+        stages.forEach(stage -> stage.cancel(false));
+        results.forEach(result -> result.cancel(false));
+    }
+
+    private GeneratedThumbnail join(CompletableFuture<GeneratedThumbnail> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            cancel();
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new InvalidImageException("Failed to generate thumbnails: " + cause.getMessage(), cause);
+        }
+    }
+}
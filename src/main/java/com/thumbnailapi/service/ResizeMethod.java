@@ -0,0 +1,90 @@
+package com.thumbnailapi.service;
+
+import java.awt.Dimension;
+import java.util.Locale;
+
+import org.imgscalr.Scalr;
+
+import com.thumbnailapi.config.ThumbnailProperties.ResizeQuality;
+import com.thumbnailapi.resample.ResampleFilter;
+
+/**
+ * Scalr resampling method and antialiasing applied to one resize.
+ *
+ * Fixed quality levels always map to the same method. {@link ResizeQuality#AUTO}
+ * chooses per resize:
+ * <ul>
+ * <li>a reduction of at most 2x (or an enlargement) is a single bilinear pass,
+ * which still reads every source pixel;</li>
+ * <li>larger reductions use Scalr's incremental halving, which low-passes the
+ * image as it goes;</li>
+ * <li>the 3x3 antialias convolution is only added for reductions beyond 8x to
+ * targets larger than an icon, where residual moire is visible.</li>
+ * </ul>
+ *
+ * The raster engine has no separate antialias pass; its filters are stretched
+ * over the area each output pixel covers, and {@link #filter()} maps the Scalr
+ * method to the closest one.
+ *
+ * @param method the Scalr method
+ * @param antialias whether {@link Scalr#OP_ANTIALIAS} is applied after resizing
+ */
+record ResizeMethod(Scalr.Method method, boolean antialias) {
+
+    /** Scale factor at and above which a single bilinear pass is used by auto. */
+    static final double SINGLE_PASS_MIN_SCALE = 0.5;
+    /** Scale factor below which auto antialiases larger targets. */
+    static final double ANTIALIAS_MAX_SCALE = 0.125;
+    /** Longest edge, in pixels, up to which auto never antialiases. */
+    static final int ICON_MAX_EDGE = 200;
+
+    /**
+     * Chooses the method for resizing a source to a target.
+     *
+     * @param quality the requested quality
+     * @param sourceWidth width of the image being resized
+     * @param sourceHeight height of the image being resized
+     * @param target the requested bounding box
+     * @return the method
+     */
+    static ResizeMethod choose(ResizeQuality quality, int sourceWidth, int sourceHeight, Dimension target) {
+        return switch (quality) {
+            case SPEED -> new ResizeMethod(Scalr.Method.SPEED, false);
+            case BALANCED -> new ResizeMethod(Scalr.Method.BALANCED, false);
+            case QUALITY -> new ResizeMethod(Scalr.Method.QUALITY, true);
+            case ULTRA -> new ResizeMethod(Scalr.Method.ULTRA_QUALITY, true);
+            case AUTO -> chooseAutomatically(sourceWidth, sourceHeight, target);
+        };
+    }
+
+    private static ResizeMethod chooseAutomatically(int sourceWidth, int sourceHeight, Dimension target) {
+        double scale = ThumbnailGeometry.scaleFactor(sourceWidth, sourceHeight, target);
+        if (scale >= SINGLE_PASS_MIN_SCALE) {
+            return new ResizeMethod(Scalr.Method.BALANCED, false);
+        }
+
+        Dimension fitted = ThumbnailGeometry.fittedSize(sourceWidth, sourceHeight, target);
+        boolean icon = Math.max(fitted.width, fitted.height) <= ICON_MAX_EDGE;
+        return new ResizeMethod(Scalr.Method.QUALITY, !icon && scale < ANTIALIAS_MAX_SCALE);
+    }
+
+    /**
+     * Returns the raster engine filter matching the Scalr method: a box for speed,
+     * a triangle for balanced and Lanczos for the incremental methods.
+     */
+    ResampleFilter filter() {
+        return switch (method) {
+            case SPEED -> ResampleFilter.BOX;
+            case BALANCED -> ResampleFilter.BILINEAR;
+            default -> ResampleFilter.LANCZOS3;
+        };
+    }
+
+    /**
+     * Returns the name reported in thumbnail metadata, e.g. {@code quality+antialias}.
+     */
+    String label() {
+        String name = method.name().toLowerCase(Locale.ROOT);
+        return antialias ? name + "+antialias" : name;
+    }
+}
@@ -0,0 +1,112 @@
+package com.thumbnailapi.service;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Order in which the requested sizes are resized and the image each one is derived from.
+ *
+ * Sizes are processed from largest to smallest. When cascading is enabled a size is
+ * resized from an earlier, larger thumbnail instead of the original, provided that
+ * thumbnail is at least {@code minCascadeRatio} times the size. Sizes are compared
+ * by the scale factor applied to the original, so aspect rounding does not matter.
+ * A larger ratio keeps the second resampling pass a clean downscale, so it bounds
+ * the quality lost by not starting from the original.
+ */
+final class ResizePlan {
+
+    /** Source index used for steps that resize the original image. */
+    static final int ORIGINAL = -1;
+
+    private final List<Step> steps;
+
+    private ResizePlan(List<Step> steps) {
+        this.steps = List.copyOf(steps);
+    }
+
+    /**
+     * Builds a plan for the given source size and requested dimensions.
+     *
+     * @param sourceWidth width of the decoded original
+     * @param sourceHeight height of the decoded original
+     * @param dimensions the requested dimensions, in request order
+     * @param cascade whether sizes may be derived from earlier thumbnails
+     * @param minCascadeRatio minimum size ratio between a thumbnail and a size derived from it
+     * @return the plan, with steps in execution order
+     */
+    static ResizePlan create(int sourceWidth, int sourceHeight, List<Dimension> dimensions,
+                             boolean cascade, double minCascadeRatio) {
+        List<Integer> order = new ArrayList<>(dimensions.size());
+        for (int i = 0; i < dimensions.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingDouble((Integer i) ->
+            ThumbnailGeometry.scaleFactor(sourceWidth, sourceHeight, dimensions.get(i))).reversed());
+
+        List<Step> steps = new ArrayList<>(dimensions.size());
+        for (int index : order) {
+            Dimension target = dimensions.get(index);
+            int source = cascade
+                ? chooseSource(sourceWidth, sourceHeight, target, steps, dimensions, minCascadeRatio)
+                : ORIGINAL;
+            steps.add(new Step(index, target, source));
+        }
+
+        return new ResizePlan(steps);
+    }
+
+    /**
+     * Picks the smallest already planned thumbnail that is large enough to derive
+     * the target from, or the original when none qualifies.
+     */
+    private static int chooseSource(int sourceWidth, int sourceHeight, Dimension target,
+                                    List<Step> planned, List<Dimension> dimensions,
+                                    double minCascadeRatio) {
+        double targetScale = ThumbnailGeometry.scaleFactor(sourceWidth, sourceHeight, target);
+        if (targetScale >= 1.0) {
+            return ORIGINAL;
+        }
+
+        int bestSource = ORIGINAL;
+        double bestRatio = Double.MAX_VALUE;
+
+        for (Step step : planned) {
+            double candidateScale = ThumbnailGeometry.scaleFactor(
+                sourceWidth, sourceHeight, dimensions.get(step.index()));
+            if (candidateScale >= 1.0) {
+                continue;
+            }
+
+            double ratio = candidateScale / targetScale;
+            if (ratio >= minCascadeRatio && ratio < bestRatio) {
+                bestRatio = ratio;
+                bestSource = step.index();
+            }
+        }
+
+        return bestSource;
+    }
+
+    /**
+     * Returns the steps in execution order, largest size first.
+     */
+    List<Step> steps() {
+        return steps;
+    }
+
+    /**
+     * A single resize in the plan.
+     *
+     * @param index position of the size in the request
+     * @param target requested dimension
+     * @param source request position of the thumbnail to resize from, or {@link #ORIGINAL}
+     */
+    record Step(int index, Dimension target, int source) {
+
+        boolean fromOriginal() {
+            return source == ORIGINAL;
+        }
+    }
+}
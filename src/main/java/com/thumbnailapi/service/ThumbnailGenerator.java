@@ -3,35 +3,159 @@ package com.thumbnailapi.service;
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.imgscalr.Scalr;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import com.thumbnailapi.buffer.EncodeBufferPool;
+import com.thumbnailapi.buffer.PooledImageOutputStream;
+import com.thumbnailapi.color.ColorNormalizer;
+import com.thumbnailapi.color.ConversionPath;
+import com.thumbnailapi.color.NormalizedImage;
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.config.ThumbnailProperties.DecodeMode;
+import com.thumbnailapi.config.ThumbnailProperties.ExecutionMode;
+import com.thumbnailapi.config.ThumbnailProperties.GenerationMode;
+import com.thumbnailapi.config.ThumbnailProperties.ResizeEngine;
+import com.thumbnailapi.config.ThumbnailProperties.ResizeQuality;
 import com.thumbnailapi.exception.InvalidImageException;
 import com.thumbnailapi.model.ThumbnailMetadata;
+import com.thumbnailapi.resample.Resampler;
 
 /**
  * Service for generating image thumbnails.
  * 
  * Handles resizing of images to specified dimensions while maintaining
- * quality and aspect ratios.
+ * quality and aspect ratios. The resampling method of each size follows the
+ * requested {@link ResizeQuality}; see {@link ResizeMethod}. With the raster
+ * resize engine, images are resized by a {@link Resampler} on the dedicated
+ * resample pool instead of by Scalr. Originals in exotic pixel layouts are
+ * converted once by the {@link ColorNormalizer} before any size is resized.
+ * Thumbnails are encoded with the settings of an {@link EncodeProfile}.
  */
 @Service
 public class ThumbnailGenerator {
 
     private static final Logger logger = LogManager.getLogger(ThumbnailGenerator.class);
+    private static final String ORIGINAL_SOURCE = "original";
+    /** Bytes per pixel of the packed int rasters Scalr resizes in. */
+    private static final int RESIZE_BYTES_PER_PIXEL = 4;
 
+    private final Executor sizeExecutor;
+    private final Executor decodeExecutor;
+    private final boolean concurrentSizes;
+    private final EncodeBufferPool bufferPool;
+    private final DecodeMode decodeMode;
+    private final double minOversample;
+    private final boolean cascadeEnabled;
+    private final double minCascadeRatio;
+    private final ResizeQuality defaultQuality;
+    private final ResizeEngine engine;
+    private final Resampler resampler;
+    private final Map<String, EncodeProfile> encodeProfiles;
+    private final EncodeProfile defaultProfile;
+
+    /**
+     * Creates a generator that produces sizes sequentially on the calling thread.
+     */
     public ThumbnailGenerator() {
+        this(new ThumbnailProperties(), Runnable::run, new EncodeBufferPool(new ThumbnailProperties()));
+    }
+
+    /**
+     * Creates a generator outside the application context, whose raster resizes
+     * split their bands across the common fork-join pool.
+     *
+     * @param properties pipeline settings
+     * @param thumbnailExecutor pool used for resize and encode, and for decode in virtual mode
+     * @param bufferPool pool of buffers the encoders write into
+     */
+    public ThumbnailGenerator(ThumbnailProperties properties, Executor thumbnailExecutor, EncodeBufferPool bufferPool) {
+        this(properties, thumbnailExecutor, bufferPool, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a generator whose per-size work runs on the given executor: one size
+     * after another in sequential mode, every size at once in parallel mode.
+     *
+     * In virtual execution mode the request threads are virtual, so decode, resize
+     * and encode always run on the executor; it is sized to the CPU count and keeps
+     * the number of images being worked on at once bounded.
+     *
+     * @param properties pipeline settings
+     * @param thumbnailExecutor pool used for resize and encode, and for decode in virtual mode
+     * @param bufferPool pool of buffers the encoders write into
+     * @param resamplePool pool the raster resize engine splits row bands across
+     */
+    @Autowired
+    public ThumbnailGenerator(ThumbnailProperties properties,
+                              @Qualifier("thumbnailExecutor") Executor thumbnailExecutor,
+                              EncodeBufferPool bufferPool,
+                              @Qualifier("resampleExecutor") ForkJoinPool resamplePool) {
+        GenerationMode mode = properties.getGeneration().getMode();
+        ExecutionMode executionMode = properties.getExecution().getMode();
+        boolean offload = executionMode == ExecutionMode.VIRTUAL;
+        this.sizeExecutor = thumbnailExecutor;
+        this.decodeExecutor = offload ? thumbnailExecutor : null;
+        this.concurrentSizes = mode == GenerationMode.PARALLEL || offload;
+        this.bufferPool = bufferPool;
+        this.decodeMode = properties.getDecode().getMode();
+        this.minOversample = properties.getDecode().getMinOversample();
+        this.cascadeEnabled = properties.getResize().isCascadeEnabled();
+        this.minCascadeRatio = properties.getResize().getMinCascadeRatio();
+        this.defaultQuality = properties.getResize().getQuality();
+        this.engine = properties.getResize().getEngine();
+        this.resampler = engine == ResizeEngine.RASTER ? new Resampler(resamplePool) : null;
+        this.encodeProfiles = buildEncodeProfiles(properties.getEncode());
+        this.defaultProfile = encodeProfile(properties.getEncode().getProfile());
+        if (defaultProfile == null) {
+            throw new IllegalArgumentException("Unknown default encode profile '"
+                + properties.getEncode().getProfile() + "', expected one of " + encodeProfiles.keySet());
+        }
+        logger.info("Thumbnail generation mode: {}, decode mode: {}, cascaded resize: {}, execution mode: {}, "
+            + "resize quality: {}, resize engine: {}, encode profile: {} of {}",
+            mode, decodeMode, cascadeEnabled, executionMode, defaultQuality, engine,
+            defaultProfile.name(), encodeProfiles.keySet());
+    }
+
+    private static Map<String, EncodeProfile> buildEncodeProfiles(ThumbnailProperties.Encode encode) {
+        Map<String, EncodeProfile> profiles = new LinkedHashMap<>();
+        profiles.put(EncodeProfile.DEFAULT_NAME, EncodeProfile.defaults());
+        encode.getProfiles().forEach((name, settings) -> {
+            EncodeProfile profile = EncodeProfile.of(name, settings);
+            profiles.put(profile.name(), profile);
+        });
+        return Collections.unmodifiableMap(profiles);
     }
 
     /**
@@ -46,48 +170,397 @@ public class ThumbnailGenerator {
     public List<ThumbnailMetadata> generateThumbnails(byte[] imageBytes, 
                                                      String imageFormat,
                                                      List<Dimension> dimensions) {
-        List<ThumbnailMetadata> thumbnails = new ArrayList<>();
+        return generateThumbnails(decodeImage(imageBytes), imageFormat, dimensions);
+    }
+
+    /**
+     * Generates thumbnails from an already decoded original image.
+     * 
+     * Sizes are resized following a {@link ResizePlan}: largest first, with smaller
+     * sizes derived from a larger thumbnail when cascading is enabled. In parallel
+     * mode every resize and encode runs as its own task on the thumbnail executor,
+     * each starting as soon as its source is available; results are still returned
+     * in the order of {@code dimensions}.
+     * 
+     * @param originalImage the decoded original image
+     * @param imageFormat the format of the original image
+     * @param dimensions list of dimensions to generate
+     * @return list of ThumbnailMetadata for each generated thumbnail
+     * @throws InvalidImageException if thumbnail generation fails
+     */
+    public List<ThumbnailMetadata> generateThumbnails(BufferedImage originalImage,
+                                                     String imageFormat,
+                                                     List<Dimension> dimensions) {
+        List<GeneratedThumbnail> thumbnails = generate(originalImage, imageFormat, dimensions);
+        thumbnails.forEach(GeneratedThumbnail::close);
+        return thumbnails.stream()
+            .map(GeneratedThumbnail::metadata)
+            .toList();
+    }
+
+    /**
+     * Generates thumbnails from an already decoded original image and keeps the
+     * encoded bytes of every size.
+     * 
+     * @param originalImage the decoded original image
+     * @param imageFormat the format of the original image
+     * @param dimensions list of dimensions to generate
+     * @return the encoded thumbnails, in the order of {@code dimensions}; callers
+     *         close each one once its bytes have been consumed
+     * @throws InvalidImageException if thumbnail generation fails
+     */
+    public List<GeneratedThumbnail> generate(BufferedImage originalImage,
+                                             String imageFormat,
+                                             List<Dimension> dimensions) {
+        return submit(originalImage, imageFormat, dimensions).joinAll();
+    }
+
+    /**
+     * Starts generating thumbnails from an already decoded original image without
+     * waiting for them, so callers can consume each size as soon as it is encoded.
+     * 
+     * In sequential mode the sizes are still generated one after another, but on
+     * the thumbnail executor, so each size can be consumed while the next is resized.
+     * 
+     * @param originalImage the decoded original image
+     * @param imageFormat the format of the original image
+     * @param dimensions list of dimensions to generate
+     * @return the pending sizes, indexed in the order of {@code dimensions}
+     */
+    public PendingThumbnails submit(BufferedImage originalImage,
+                                    String imageFormat,
+                                    List<Dimension> dimensions) {
+        return submit(originalImage, imageFormat, dimensions, defaultQuality);
+    }
+
+    /**
+     * Starts generating thumbnails at the given resize quality.
+     * 
+     * @param originalImage the decoded original image
+     * @param imageFormat the format of the original image
+     * @param dimensions list of dimensions to generate
+     * @param quality the resize quality
+     * @return the pending sizes, indexed in the order of {@code dimensions}
+     */
+    public PendingThumbnails submit(BufferedImage originalImage,
+                                    String imageFormat,
+                                    List<Dimension> dimensions,
+                                    ResizeQuality quality) {
+        return submit(originalImage, imageFormat, dimensions, quality, defaultProfile);
+    }
+
+    /**
+     * Starts generating thumbnails at the given resize quality, encoded with the
+     * given profile.
+     * 
+     * @param originalImage the decoded original image
+     * @param imageFormat the format of the original image
+     * @param dimensions list of dimensions to generate
+     * @param quality the resize quality
+     * @param profile the encoder settings
+     * @return the pending sizes, indexed in the order of {@code dimensions}
+     */
+    public PendingThumbnails submit(BufferedImage originalImage,
+                                    String imageFormat,
+                                    List<Dimension> dimensions,
+                                    ResizeQuality quality,
+                                    EncodeProfile profile) {
+        BufferedImage normalized = normalize(originalImage).image();
+        Map<String, String> sizeNameMapping = buildSizeNameMapping(dimensions);
+        ResizePlan plan = ResizePlan.create(normalized.getWidth(), normalized.getHeight(),
+            dimensions, cascadeEnabled, minCascadeRatio);
 
+        CompletableFuture<BufferedImage> original = CompletableFuture.completedFuture(normalized);
+        List<CompletableFuture<ResizedImage>> resized = new ArrayList<>(Collections.nCopies(dimensions.size(), null));
+        List<CompletableFuture<GeneratedThumbnail>> futures = new ArrayList<>(Collections.nCopies(dimensions.size(), null));
+        CompletableFuture<?> previous = CompletableFuture.completedFuture(null);
+
+        for (ResizePlan.Step step : plan.steps()) {
+            String sizeName = sizeNameOf(sizeNameMapping, step.target());
+            String sourceName = step.fromOriginal()
+                ? ORIGINAL_SOURCE
+                : sizeNameOf(sizeNameMapping, dimensions.get(step.source()));
+            CompletableFuture<BufferedImage> source = step.fromOriginal()
+                ? original
+                : resized.get(step.source()).thenApply(ResizedImage::image);
+            if (!concurrentSizes) {
+                // Sequential: a size starts once the previous one is encoded
+                CompletableFuture<BufferedImage> ready = source;
+                source = previous.thenCompose(done -> ready);
+            }
+
+            CompletableFuture<ResizedImage> resizeStage = source.thenApplyAsync(
+                image -> resizeStep(image, step.target(), sourceName, quality), sizeExecutor);
+            resized.set(step.index(), resizeStage);
+            CompletableFuture<GeneratedThumbnail> encodeStage = resizeStage.thenApplyAsync(
+                result -> encodeStep(result, imageFormat, sizeName, profile), sizeExecutor);
+            futures.set(step.index(), encodeStage);
+            previous = encodeStage;
+        }
+
+        return new PendingThumbnails(futures, resized);
+    }
+
+    /**
+     * Returns the resize quality used when a request does not ask for one.
+     */
+    public ResizeQuality defaultQuality() {
+        return defaultQuality;
+    }
+
+    /**
+     * Returns the encode profile used when a request does not name one.
+     */
+    public EncodeProfile defaultProfile() {
+        return defaultProfile;
+    }
+
+    /**
+     * Looks up a configured encode profile by name, ignoring case.
+     * 
+     * @param name the profile name
+     * @return the profile, or null if none has that name
+     */
+    public EncodeProfile encodeProfile(String name) {
+        return encodeProfiles.get(name.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the names of the configured encode profiles.
+     */
+    public List<String> encodeProfileNames() {
+        return List.copyOf(encodeProfiles.keySet());
+    }
+
+    /**
+     * Describes the settings that influence the generated thumbnails at the
+     * default resize quality and encode profile, for use in cache keys.
+     * 
+     * @return a stable description of the decode, resize and encode settings
+     */
+    public String settingsFingerprint() {
+        return settingsFingerprint(defaultQuality, defaultProfile);
+    }
+
+    /**
+     * Describes the settings that influence the generated thumbnails at the given
+     * resize quality and the default encode profile, for use in cache keys.
+     *
+     * @param quality the requested resize quality
+     * @return a stable description of the decode, resize and encode settings
+     */
+    public String settingsFingerprint(ResizeQuality quality) {
+        return settingsFingerprint(quality, defaultProfile);
+    }
+
+    /**
+     * Describes the settings that influence the generated thumbnails, for use in cache keys.
+     * 
+     * @param quality the requested resize quality
+     * @param profile the requested encode profile
+     * @return a stable description of the decode, resize and encode settings
+     */
+    public String settingsFingerprint(ResizeQuality quality, EncodeProfile profile) {
+        return "decode=" + decodeMode + ":" + minOversample
+            + ";cascade=" + cascadeEnabled + ":" + minCascadeRatio
+            + ";quality=" + quality + ";engine=" + engine
+            + ";encode=" + profile.fingerprint();
+    }
+
+    /**
+     * Estimates the most raster memory generating the given sizes can hold at once,
+     * from the header of the original alone.
+     * 
+     * Counts the decoded original (after subsampling), the packed int copy the
+     * {@link ColorNormalizer} makes of it when its layout needs converting, the packed
+     * int copy and first halving step Scalr makes of it for each resize from the
+     * original that may run concurrently, and every thumbnail together with its
+     * antialiased copy.
+     * 
+     * @param width width of the original in pixels
+     * @param height height of the original in pixels
+     * @param bytesPerPixel bytes per pixel of the decoded original
+     * @param needsNormalization whether the decoded original will be normalized
+     * @param dimensions the sizes to generate
+     * @return estimated peak raster memory in bytes
+     */
+    public long estimatePeakMemory(int width, int height, int bytesPerPixel, boolean needsNormalization,
+                                   List<Dimension> dimensions) {
+        int factor = decodeMode == DecodeMode.SUBSAMPLED
+            ? ThumbnailGeometry.subsamplingFactor(width, height, dimensions, minOversample)
+            : 1;
+        int decodedWidth = (width + factor - 1) / factor;
+        int decodedHeight = (height + factor - 1) / factor;
+        long decodedPixels = (long) decodedWidth * decodedHeight;
+
+        ResizePlan plan = ResizePlan.create(decodedWidth, decodedHeight, dimensions,
+            cascadeEnabled, minCascadeRatio);
+        long resizesFromOriginal = plan.steps().stream().filter(ResizePlan.Step::fromOriginal).count();
+        long concurrentResizes = concurrentSizes ? resizesFromOriginal : Math.min(1, resizesFromOriginal);
+
+        long thumbnailPixels = 0;
+        for (Dimension dimension : dimensions) {
+            Dimension fitted = ThumbnailGeometry.fittedSize(decodedWidth, decodedHeight, dimension);
+            thumbnailPixels += (long) fitted.width * fitted.height;
+        }
+
+        // The normalized copy stays alive next to the decoded original until every size is resized
+        long normalizedBytes = needsNormalization ? decodedPixels * RESIZE_BYTES_PER_PIXEL : 0;
+
+        return decodedPixels * bytesPerPixel
+            + normalizedBytes
+            + concurrentResizes * decodedPixels * RESIZE_BYTES_PER_PIXEL * 5 / 4
+            + thumbnailPixels * RESIZE_BYTES_PER_PIXEL * 2;
+    }
+
+    /**
+     * Decodes the original image so it can be shared by every requested size.
+     * 
+     * @param imageBytes the original image bytes
+     * @return the decoded image
+     * @throws InvalidImageException if the bytes cannot be decoded
+     */
+    public BufferedImage decodeImage(byte[] imageBytes) {
+        return onDecodeExecutor(() -> decodeFull(imageBytes));
+    }
+
+    private BufferedImage decodeFull(byte[] imageBytes) {
         try {
-            BufferedImage originalImage = readImage(imageBytes);
-            Map<String, String> sizeNameMapping = buildSizeNameMapping(dimensions);
-
-            for (Dimension dimension : dimensions) {
-                long startTime = System.currentTimeMillis();
-                
-                BufferedImage thumbnail = resizeImage(originalImage, dimension);
-                byte[] thumbnailBytes = encodeImage(thumbnail, imageFormat);
-                
-                long processingTime = System.currentTimeMillis() - startTime;
-                
-                String sizeName = sizeNameMapping.get(dimension.width + "x" + dimension.height);
-                
-                ThumbnailMetadata metadata = ThumbnailMetadata.create(
-                    sizeName,
-                    thumbnail.getWidth(),
-                    thumbnail.getHeight(),
-                    imageFormat,
-                    thumbnailBytes.length,
-                    processingTime
-                );
-
-                thumbnails.add(metadata);
-                logger.debug("Generated thumbnail: {} ({}x{}) in {}ms",
-                    sizeName, thumbnail.getWidth(), thumbnail.getHeight(), processingTime);
+            return readImage(imageBytes);
+        } catch (IOException e) {
+            logger.error("Failed to decode image", e);
+            throw new InvalidImageException("Failed to generate thumbnails: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decodes the original image for the given target sizes.
+     * 
+     * In subsampled decode mode the reader skips source pixels so that the decoded
+     * raster is only a small multiple of the largest target; otherwise the full
+     * image is decoded.
+     * 
+     * @param imageBytes the original image bytes
+     * @param targetDimensions the sizes that will be generated from the decoded image
+     * @return the decoded image
+     * @throws InvalidImageException if the bytes cannot be decoded
+     */
+    public BufferedImage decodeImage(byte[] imageBytes, List<Dimension> targetDimensions) {
+        if (decodeMode != DecodeMode.SUBSAMPLED) {
+            return decodeImage(imageBytes);
+        }
+
+        return onDecodeExecutor(() -> {
+            try {
+                return readSubsampledImage(imageBytes, targetDimensions);
+            } catch (IOException e) {
+                logger.error("Failed to decode image", e);
+                throw new InvalidImageException("Failed to generate thumbnails: " + e.getMessage(), e);
             }
+        });
+    }
+
+    /**
+     * Converts a decoded original into a pixel layout the resizers handle with
+     * their fast loops, if it is not in one already.
+     * 
+     * Sizes submitted with an original that has not been normalized are
+     * normalized here first, so callers only need this to time the conversion
+     * or learn which path it took.
+     * 
+     * @param image the decoded original
+     * @return the image to resize and how it was converted
+     */
+    public NormalizedImage normalize(BufferedImage image) {
+        if (ColorNormalizer.pathOf(image) == ConversionPath.NONE) {
+            return new NormalizedImage(image, ConversionPath.NONE);
+        }
+        return onDecodeExecutor(() -> ColorNormalizer.normalize(image));
+    }
+
+    /**
+     * Runs a decode on the CPU pool in virtual execution mode and waits for it;
+     * otherwise runs it on the calling thread.
+     */
+    private <T> T onDecodeExecutor(Supplier<T> decode) {
+        if (decodeExecutor == null) {
+            return decode.get();
+        }
+
+        try {
+            return CompletableFuture.supplyAsync(decode, decodeExecutor).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new InvalidImageException("Failed to generate thumbnails: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Resizes one size of the plan and records how long it took.
+     */
+    private ResizedImage resizeStep(BufferedImage source, Dimension target, String sourceName,
+                                    ResizeQuality quality) {
+        ResizeMethod method = ResizeMethod.choose(quality, source.getWidth(), source.getHeight(), target);
+        long startTime = System.nanoTime();
+        BufferedImage thumbnail = resizeImage(source, target, method);
+        String methodName = resampler != null ? method.filter().label() : method.label();
+        return new ResizedImage(thumbnail, sourceName, methodName, System.nanoTime() - startTime);
+    }
+
+    /**
+     * Encodes one resized size and builds its metadata.
+     */
+    private GeneratedThumbnail encodeStep(ResizedImage resized, String imageFormat, String sizeName,
+                                          EncodeProfile profile) {
+        BufferedImage thumbnail = resized.image();
+        long startTime = System.nanoTime();
+
+        try {
+            PooledImageOutputStream encoded = encodeImage(thumbnail, imageFormat, profile);
+            ByteBuffer thumbnailBytes = encoded.view();
+            long encodeNanos = System.nanoTime() - startTime;
+
+            long resizeTime = toMillisRoundedUp(resized.resizeNanos());
+            long encodeTime = toMillisRoundedUp(encodeNanos);
+            long processingTime = toMillisRoundedUp(resized.resizeNanos() + encodeNanos);
+
+            ThumbnailMetadata metadata = ThumbnailMetadata.create(
+                sizeName,
+                thumbnail.getWidth(),
+                thumbnail.getHeight(),
+                imageFormat,
+                thumbnailBytes.remaining(),
+                processingTime,
+                resized.sourceName(),
+                resized.method(),
+                resizeTime,
+                encodeTime
+            );
+
+            return new GeneratedThumbnail(metadata, thumbnailBytes, encoded::release,
+                resized.resizeNanos(), encodeNanos);
 
         } catch (IOException e) {
-            logger.error("Failed to generate thumbnails", e);
+            logger.error("Failed to generate thumbnail: {}", sizeName, e);
             throw new InvalidImageException("Failed to generate thumbnails: " + e.getMessage(), e);
         }
+    }
 
-        return thumbnails;
+    /**
+     * Converts a duration to whole milliseconds, rounding up so that generated sizes
+     * never report 0ms, which is reserved for sizes served without any work.
+     */
+    private static long toMillisRoundedUp(long nanos) {
+        return (nanos + TimeUnit.MILLISECONDS.toNanos(1) - 1) / TimeUnit.MILLISECONDS.toNanos(1);
     }
 
     /**
      * Reads image from byte array.
      */
-    private BufferedImage readImage(byte[] imageBytes) throws IOException {
+    BufferedImage readImage(byte[] imageBytes) throws IOException {
         try (ByteArrayInputStream bais = new ByteArrayInputStream(imageBytes)) {
             BufferedImage image = ImageIO.read(bais);
             if (image == null) {
@@ -97,27 +570,105 @@ public class ThumbnailGenerator {
         }
     }
 
+    /**
+     * Reads image from byte array, subsampling source pixels when the largest
+     * target is much smaller than the source.
+     */
+    private BufferedImage readSubsampledImage(byte[] imageBytes, List<Dimension> targetDimensions)
+            throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(imageBytes))) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unable to read image data");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                int factor = ThumbnailGeometry.subsamplingFactor(
+                    sourceWidth, sourceHeight, targetDimensions, minOversample);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (factor > 1) {
+                    param.setSourceSubsampling(factor, factor, 0, 0);
+                }
+
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
     /**
      * Resizes image to specified dimension, maintaining aspect ratio.
      */
-    private BufferedImage resizeImage(BufferedImage originalImage, Dimension targetDimension) {
+    private BufferedImage resizeImage(BufferedImage originalImage, Dimension targetDimension, ResizeMethod method) {
         int targetWidth = targetDimension.width;
         int targetHeight = targetDimension.height;
 
-        return Scalr.resize(originalImage, Scalr.Method.QUALITY, Scalr.Mode.AUTOMATIC,
-            targetWidth, targetHeight, Scalr.OP_ANTIALIAS);
+        if (resampler != null) {
+            Dimension fitted = ThumbnailGeometry.fittedSize(
+                originalImage.getWidth(), originalImage.getHeight(), targetDimension);
+            return resampler.resize(originalImage, fitted.width, fitted.height, method.filter());
+        }
+
+        if (method.antialias()) {
+            return Scalr.resize(originalImage, method.method(), Scalr.Mode.AUTOMATIC,
+                targetWidth, targetHeight, Scalr.OP_ANTIALIAS);
+        }
+        return Scalr.resize(originalImage, method.method(), Scalr.Mode.AUTOMATIC, targetWidth, targetHeight);
     }
 
     /**
-     * Encodes BufferedImage to bytes in specified format.
+     * Resizes image to specified dimension with the given Scalr method and antialiasing.
      */
-    private byte[] encodeImage(BufferedImage image, String format) throws IOException {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            String imageFormat = determineImageFormat(format);
-            if (!ImageIO.write(image, imageFormat, baos)) {
-                throw new IOException("Failed to encode image as " + imageFormat);
-            }
-            return baos.toByteArray();
+    BufferedImage resizeImage(BufferedImage originalImage, Dimension targetDimension, Scalr.Method method) {
+        return resizeImage(originalImage, targetDimension, new ResizeMethod(method, true));
+    }
+
+    /**
+     * Encodes BufferedImage in specified format with the default encode profile.
+     */
+    PooledImageOutputStream encodeImage(BufferedImage image, String format) throws IOException {
+        return encodeImage(image, format, defaultProfile);
+    }
+
+    /**
+     * Encodes BufferedImage in specified format into a pooled buffer presized
+     * from the thumbnail dimensions.
+     * 
+     * The writer is chosen the way {@link ImageIO#write} chooses it, but writes
+     * straight into the buffer instead of through a cache stream, with the write
+     * parameters and image metadata of the profile. No stream metadata is written,
+     * so nothing of the original beyond its pixels reaches the thumbnail.
+     */
+    PooledImageOutputStream encodeImage(BufferedImage image, String format, EncodeProfile profile)
+            throws IOException {
+        String imageFormat = determineImageFormat(format);
+        ImageTypeSpecifier type = ImageTypeSpecifier.createFromRenderedImage(image);
+        Iterator<ImageWriter> writers = ImageIO.getImageWriters(type, imageFormat);
+        if (!writers.hasNext()) {
+            throw new IOException("Failed to encode image as " + imageFormat);
+        }
+
+        int estimate = EncodeBufferPool.estimateEncodedSize(image.getWidth(), image.getHeight(), format);
+        PooledImageOutputStream output = new PooledImageOutputStream(bufferPool, estimate);
+        ImageWriter writer = writers.next();
+        try {
+            ImageWriteParam param = profile.writeParam(writer, imageFormat);
+            IIOMetadata metadata = profile.imageMetadata(writer, type, param, imageFormat);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, metadata), param);
+            output.flush();
+            return output;
+        } catch (IOException | RuntimeException e) {
+            output.release();
+            throw e;
+        } finally {
+            writer.dispose();
         }
     }
 
@@ -151,6 +702,24 @@ public class ThumbnailGenerator {
         return mapping;
     }
 
+    /**
+     * Returns the size identifier reported for a dimension: the preset name
+     * ("small", "medium", "large") or "WIDTHxHEIGHT".
+     * 
+     * @param dimension the requested dimension
+     * @return the size identifier
+     */
+    public String sizeNameOf(Dimension dimension) {
+        return mapDimensionToName(dimension.width, dimension.height);
+    }
+
+    /**
+     * Looks up the size identifier of a requested dimension.
+     */
+    private String sizeNameOf(Map<String, String> sizeNameMapping, Dimension dimension) {
+        return sizeNameMapping.get(dimension.width + "x" + dimension.height);
+    }
+
     /**
      * Maps dimension to preset name or uses custom format.
      */
@@ -160,4 +729,11 @@ public class ThumbnailGenerator {
         if (width == 600 && height == 600) return "large";
         return width + "x" + height;
     }
+
+    /**
+     * Output of a resize step, kept until it has been encoded and any smaller
+     * sizes derived from it have been resized.
+     */
+    private record ResizedImage(BufferedImage image, String sourceName, String method, long resizeNanos) {
+    }
 }
@@ -0,0 +1,58 @@
+package com.thumbnailapi.service;
+
+import java.awt.Dimension;
+import java.util.List;
+
+/**
+ * Size arithmetic shared by the decode and resize stages.
+ *
+ * Mirrors the {@code Scalr.Mode.AUTOMATIC} fitting rule: landscape and square
+ * sources are fitted to the target width, portrait sources to the target height.
+ */
+final class ThumbnailGeometry {
+
+    private ThumbnailGeometry() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+
+    /**
+     * Returns the scale factor Scalr applies when resizing a source of the given
+     * size into the target box.
+     */
+    static double scaleFactor(int sourceWidth, int sourceHeight, Dimension target) {
+        return sourceWidth >= sourceHeight
+            ? (double) target.width / sourceWidth
+            : (double) target.height / sourceHeight;
+    }
+
+    /**
+     * Returns the size of the thumbnail Scalr produces for the given source and target box.
+     */
+    static Dimension fittedSize(int sourceWidth, int sourceHeight, Dimension target) {
+        if (sourceWidth >= sourceHeight) {
+            int height = Math.max(1, Math.round(target.width * ((float) sourceHeight / sourceWidth)));
+            return new Dimension(target.width, height);
+        }
+        int width = Math.max(1, Math.round(target.height * ((float) sourceWidth / sourceHeight)));
+        return new Dimension(width, target.height);
+    }
+
+    /**
+     * Chooses the largest source subsampling factor that still leaves the decoded
+     * raster at least {@code minOversample} times the largest requested thumbnail.
+     *
+     * @return a factor of 1 or more; 1 means the source is decoded at full size
+     */
+    static int subsamplingFactor(int sourceWidth, int sourceHeight,
+                                 List<Dimension> targets, double minOversample) {
+        double largestScale = 0;
+        for (Dimension target : targets) {
+            largestScale = Math.max(largestScale, scaleFactor(sourceWidth, sourceHeight, target));
+        }
+
+        if (largestScale <= 0 || minOversample <= 0) {
+            return 1;
+        }
+        return Math.max(1, (int) Math.floor(1.0 / (largestScale * minOversample)));
+    }
+}
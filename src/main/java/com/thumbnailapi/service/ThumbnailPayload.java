@@ -0,0 +1,113 @@
+package com.thumbnailapi.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.function.Supplier;
+
+/**
+ * Encoded bytes of one thumbnail, wherever they currently live.
+ *
+ * Freshly generated sizes are on the heap, cached sizes in an off-heap buffer and
+ * stored sizes in a segment file; each is copied to the response without first
+ * being gathered into a {@code byte[]}.
+ */
+public interface ThumbnailPayload {
+
+    /**
+     * Returns the encoded size in bytes.
+     */
+    long length();
+
+    /**
+     * Writes part of the encoded bytes to the stream. The stream is not closed.
+     *
+     * @param out destination stream
+     * @param offset first byte to write
+     * @param count number of bytes to write
+     */
+    void writeTo(OutputStream out, long offset, long count) throws IOException;
+
+    /**
+     * Writes all encoded bytes to the stream. The stream is not closed.
+     *
+     * @param out destination stream
+     */
+    default void writeTo(OutputStream out) throws IOException {
+        writeTo(out, 0, length());
+    }
+
+    /**
+     * Returns a payload with the same bytes that stays readable after the sink
+     * call it was passed to has returned, or null if there is none.
+     */
+    default ThumbnailPayload retained() {
+        return this;
+    }
+
+    /**
+     * Wraps encoded bytes held on the heap.
+     */
+    static ThumbnailPayload of(byte[] data) {
+        return new ThumbnailPayload() {
+            @Override
+            public long length() {
+                return data.length;
+            }
+
+            @Override
+            public void writeTo(OutputStream out, long offset, long count) throws IOException {
+                out.write(data, Math.toIntExact(offset), Math.toIntExact(count));
+            }
+        };
+    }
+
+    /**
+     * Wraps encoded bytes held in a buffer, which may be direct. The buffer's
+     * position is not modified and its bytes must not change afterwards.
+     */
+    static ThumbnailPayload of(ByteBuffer data) {
+        return new ThumbnailPayload() {
+            @Override
+            public long length() {
+                return data.remaining();
+            }
+
+            @Override
+            public void writeTo(OutputStream out, long offset, long count) throws IOException {
+                ByteBuffer view = data.duplicate();
+                int start = view.position() + Math.toIntExact(offset);
+                view.position(start).limit(start + Math.toIntExact(count));
+                Channels.newChannel(out).write(view);
+            }
+        };
+    }
+
+    /**
+     * Wraps encoded bytes held in a pooled buffer that is reused once the sink
+     * call it was passed to has returned.
+     *
+     * @param data the encoded bytes, valid only during the sink call
+     * @param retained looks up the same bytes elsewhere, e.g. in the cache; may return null
+     */
+    static ThumbnailPayload of(ByteBuffer data, Supplier<ThumbnailPayload> retained) {
+        ThumbnailPayload buffered = of(data);
+        return new ThumbnailPayload() {
+            @Override
+            public long length() {
+                return buffered.length();
+            }
+
+            @Override
+            public void writeTo(OutputStream out, long offset, long count) throws IOException {
+                buffered.writeTo(out, offset, count);
+            }
+
+            @Override
+            public ThumbnailPayload retained() {
+                return retained.get();
+            }
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package com.thumbnailapi.service;
+
+import java.io.IOException;
+
+import com.thumbnailapi.model.ThumbnailMetadata;
+
+/**
+ * Receives the encoded bytes of each size as soon as it is available.
+ *
+ * Reused sizes are delivered first, then generated sizes in the order they
+ * finish, so calls are not in request order. All calls happen on the thread
+ * that is processing the request.
+ */
+@FunctionalInterface
+public interface ThumbnailSink {
+
+    /**
+     * Accepts one finished size.
+     *
+     * @param index position of the size in the request
+     * @param metadata metadata of the thumbnail
+     * @param payload the encoded bytes
+     * @throws IOException if the bytes cannot be written; remaining sizes are cancelled
+     */
+    void accept(int index, ThumbnailMetadata metadata, ThumbnailPayload payload) throws IOException;
+}
@@ -0,0 +1,343 @@
+package com.thumbnailapi.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.model.ThumbnailMetadata;
+
+/**
+ * Single-flight coalescing of concurrent requests for the same thumbnails.
+ *
+ * The first request for a key runs the work and becomes the leader. Requests
+ * for the same key that arrive while it runs wait for its result instead of
+ * decoding the original again. They then receive its thumbnails, marked with
+ * resize source {@value #COALESCED_SOURCE}. Thumbnails are shared from where
+ * the leader found or put them, such as the cache or the store. Only a thumbnail
+ * that is in neither and is delivered after a request has joined is copied to the
+ * heap; the copies are dropped with the flight. A request that joins too late
+ * for a thumbnail that was neither retained nor copied runs the work itself.
+ *
+ * A failure of the work is rethrown to every waiting request. A failure of the
+ * leader's own sink, such as its client disconnecting, is not: the waiting
+ * requests then run the work themselves. A request that waits longer than the
+ * wait timeout also gives up on the leader and runs the work itself.
+ */
+@Component
+public class UploadCoalescer implements MeterBinder {
+
+    /** Resize source of thumbnails shared from another request. */
+    public static final String COALESCED_SOURCE = "coalesced";
+
+    private static final Logger logger = LogManager.getLogger(UploadCoalescer.class);
+
+    private final boolean enabled;
+    private final Duration waitTimeout;
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder led = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+    private final LongAdder notRetained = new LongAdder();
+
+    /**
+     * Creates a coalescer from the {@code thumbnail.coalesce.*} settings.
+     */
+    public UploadCoalescer(ThumbnailProperties properties) {
+        ThumbnailProperties.Coalesce coalesce = properties.getCoalesce();
+        this.enabled = coalesce.isEnabled();
+        this.waitTimeout = coalesce.getWaitTimeout();
+        if (enabled) {
+            logger.info("Upload coalescing enabled: wait timeout {}", waitTimeout);
+        }
+    }
+
+    /**
+     * Work whose result can be shared by every request with the same key.
+     */
+    @FunctionalInterface
+    public interface Work {
+
+        /**
+         * Produces the thumbnails, passing each one to the sink as it is available.
+         *
+         * @param sink receives every thumbnail
+         * @return the metadata of every thumbnail in request order
+         * @throws IOException if the sink fails
+         */
+        List<ThumbnailMetadata> run(ThumbnailSink sink) throws IOException;
+    }
+
+    /**
+     * Runs the work, or waits for a concurrent run with the same key and shares its result.
+     *
+     * @param key identifies the result, e.g. content hash, sizes and encode settings
+     * @param sink receives every thumbnail of this request
+     * @param work produces the thumbnails when no run with the key is in flight
+     * @return the metadata of every thumbnail in request order
+     * @throws IOException if this request's sink fails
+     */
+    public List<ThumbnailMetadata> run(String key, ThumbnailSink sink, Work work) throws IOException {
+        if (!enabled) {
+            return work.run(sink);
+        }
+
+        Flight flight = new Flight();
+        Flight inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            List<Shared> shared = await(key, inFlight);
+            if (shared != null) {
+                return deliver(shared, sink);
+            }
+            return work.run(sink);
+        }
+
+        led.increment();
+        RecordingSink recording = new RecordingSink(sink, flight);
+        try {
+            List<ThumbnailMetadata> thumbnails = work.run(recording);
+            flight.result.complete(recording.shared(thumbnails));
+            return thumbnails;
+        } catch (IOException | RuntimeException | Error e) {
+            if (recording.failed(e)) {
+                flight.result.completeExceptionally(new LeaderAbandoned());
+            } else {
+                flight.result.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * Waits for the leader's result.
+     *
+     * @return the shared thumbnails, or null when this request must run the work itself
+     */
+    private List<Shared> await(String key, Flight flight) throws IOException {
+        waiting.incrementAndGet();
+        flight.joined = true;
+        try {
+            List<Shared> shared = retained(flight.result.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS));
+            if (shared == null) {
+                notRetained.increment();
+                logger.debug("In-flight result for {} was not retained, processing it again", key);
+                return null;
+            }
+            merged.increment();
+            logger.debug("Shared the in-flight result for {}", key);
+            return shared;
+        } catch (TimeoutException e) {
+            timedOut.increment();
+            logger.warn("Gave up waiting {} for the in-flight result for {}, processing it again", waitTimeout, key);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the in-flight result for " + key);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof LeaderAbandoned) {
+                abandoned.increment();
+                logger.debug("In-flight request for {} was abandoned, processing it again", key);
+                return null;
+            }
+            merged.increment();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw (Error) cause;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Resolves every recorded payload to one that is still readable.
+     *
+     * @return the thumbnails, or null when one of them is no longer available
+     */
+    private static List<Shared> retained(List<Shared> shared) {
+        List<Shared> retained = new ArrayList<>(shared.size());
+        for (Shared thumbnail : shared) {
+            ThumbnailPayload payload = thumbnail.payload() == null ? null : thumbnail.payload().retained();
+            if (payload == null) {
+                return null;
+            }
+            retained.add(new Shared(thumbnail.metadata(), payload));
+        }
+        return retained;
+    }
+
+    private static List<ThumbnailMetadata> deliver(List<Shared> shared, ThumbnailSink sink) throws IOException {
+        List<ThumbnailMetadata> thumbnails = new ArrayList<>(Collections.nCopies(shared.size(), null));
+        for (int i = 0; i < shared.size(); i++) {
+            Shared thumbnail = shared.get(i);
+            thumbnails.set(i, thumbnail.metadata());
+            sink.accept(i, thumbnail.metadata(), thumbnail.payload());
+        }
+        return thumbnails;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("thumbnail.coalesce.waiting", waiting, AtomicInteger::get)
+            .description("Requests waiting for an identical in-flight request")
+            .register(registry);
+        registerResult(registry, "led", led);
+        registerResult(registry, "merged", merged);
+        registerResult(registry, "timed_out", timedOut);
+        registerResult(registry, "abandoned", abandoned);
+        registerResult(registry, "not_retained", notRetained);
+    }
+
+    private static void registerResult(MeterRegistry registry, String result, LongAdder count) {
+        FunctionCounter.builder("thumbnail.coalesce.requests", count, LongAdder::sum)
+            .description("Requests that ran the work, shared an in-flight result, or waited and ran it anyway")
+            .tag("result", result)
+            .register(registry);
+    }
+
+    long mergedCount() {
+        return merged.sum();
+    }
+
+    int waitingCount() {
+        return waiting.get();
+    }
+
+    /**
+     * One running request and the result it will publish.
+     */
+    private static final class Flight {
+
+        private final CompletableFuture<List<Shared>> result = new CompletableFuture<>();
+
+        /** Set once a request waits for the result. */
+        private volatile boolean joined;
+    }
+
+    /**
+     * Metadata and encoded bytes of one thumbnail of a finished flight.
+     */
+    private record Shared(ThumbnailMetadata metadata, ThumbnailPayload payload) {
+    }
+
+    /**
+     * Signals waiting requests that the leader stopped for a reason of its own.
+     */
+    private static final class LeaderAbandoned extends RuntimeException {
+
+        LeaderAbandoned() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Passes thumbnails on to the leader's sink, recording each one for the requests that join.
+     */
+    private static final class RecordingSink implements ThumbnailSink {
+
+        private final ThumbnailSink sink;
+        private final Flight flight;
+        private final List<ThumbnailPayload> payloads = Collections.synchronizedList(new ArrayList<>());
+        private final List<Integer> positions = Collections.synchronizedList(new ArrayList<>());
+        private volatile Throwable sinkFailure;
+
+        RecordingSink(ThumbnailSink sink, Flight flight) {
+            this.sink = sink;
+            this.flight = flight;
+        }
+
+        @Override
+        public void accept(int index, ThumbnailMetadata metadata, ThumbnailPayload payload) throws IOException {
+            // Without a waiter only the payload is kept; one that joins later resolves it via retained()
+            positions.add(index);
+            payloads.add(flight.joined ? retainedOrCopy(payload) : payload);
+            try {
+                sink.accept(index, metadata, payload);
+            } catch (IOException | RuntimeException e) {
+                sinkFailure = e;
+                throw e;
+            }
+        }
+
+        private static ThumbnailPayload retainedOrCopy(ThumbnailPayload payload) throws IOException {
+            ThumbnailPayload retained = payload.retained();
+            if (retained != null) {
+                return retained;
+            }
+            byte[] copy = new byte[Math.toIntExact(payload.length())];
+            payload.writeTo(new ArrayWriter(copy));
+            return ThumbnailPayload.of(copy);
+        }
+
+        boolean failed(Throwable e) {
+            return e == sinkFailure;
+        }
+
+        List<Shared> shared(List<ThumbnailMetadata> thumbnails) {
+            ThumbnailPayload[] byIndex = new ThumbnailPayload[thumbnails.size()];
+            for (int i = 0; i < positions.size(); i++) {
+                byIndex[positions.get(i)] = payloads.get(i);
+            }
+            List<Shared> shared = new ArrayList<>(thumbnails.size());
+            for (int i = 0; i < thumbnails.size(); i++) {
+                ThumbnailMetadata metadata = thumbnails.get(i);
+                shared.add(new Shared(ThumbnailMetadata.create(metadata.size(), metadata.width(),
+                    metadata.height(), metadata.format(), metadata.fileSizeBytes(), 0, COALESCED_SOURCE,
+                    null, 0, 0), byIndex[i]));
+            }
+            return shared;
+        }
+    }
+
+    /**
+     * Writes into an array that is already exactly as large as the payload.
+     */
+    private static final class ArrayWriter extends OutputStream {
+
+        private final byte[] array;
+        private int position;
+
+        ArrayWriter(byte[] array) {
+            this.array = array;
+        }
+
+        @Override
+        public void write(int b) {
+            array[position++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            System.arraycopy(b, off, array, position, len);
+            position += len;
+        }
+    }
+}
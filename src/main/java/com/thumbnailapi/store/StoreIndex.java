@@ -0,0 +1,302 @@
+package com.thumbnailapi.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+import com.thumbnailapi.util.ContentHasher;
+
+/**
+ * Memory-mapped, open-addressing hash table from key hash to record location.
+ *
+ * The file is a 64-byte header followed by fixed 80-byte slots:
+ * <pre>
+ * keyHash[32] | segment:int | offset:long | length:int | width:int | height:int | format[8] | etag[16]
+ * </pre>
+ * A slot with segment 0 is empty and -1 is a tombstone left by eviction. Lookups
+ * probe linearly from the slot chosen by the first bytes of the key hash, so no
+ * directory scan is ever needed. Not thread-safe; {@link ThumbnailStore} guards
+ * every call with its lock.
+ */
+final class StoreIndex implements Closeable {
+
+    static final int KEY_HASH_BYTES = 32;
+    static final int FORMAT_BYTES = 8;
+
+    private static final long MAGIC = 0x544E_4944_5831_0000L;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 80;
+    private static final int EMPTY = 0;
+    private static final int TOMBSTONE = -1;
+
+    private static final int SEGMENT_OFFSET = KEY_HASH_BYTES;
+    private static final int POSITION_OFFSET = SEGMENT_OFFSET + 4;
+    private static final int LENGTH_OFFSET = POSITION_OFFSET + 8;
+    private static final int WIDTH_OFFSET = LENGTH_OFFSET + 4;
+    private static final int HEIGHT_OFFSET = WIDTH_OFFSET + 4;
+    private static final int FORMAT_OFFSET = HEIGHT_OFFSET + 4;
+    private static final int ETAG_OFFSET = FORMAT_OFFSET + FORMAT_BYTES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int slots;
+    private final boolean headerValid;
+    private int liveEntries;
+    private int tombstones;
+
+    private StoreIndex(FileChannel channel, MappedByteBuffer map, int slots, boolean headerValid) {
+        this.channel = channel;
+        this.map = map;
+        this.slots = slots;
+        this.headerValid = headerValid;
+    }
+
+    /**
+     * Maps the index file, creating it when missing.
+     *
+     * @param file the index file
+     * @param slots number of slots; rounded up to a power of two
+     * @return the mapped index; {@link #isHeaderValid()} tells whether it can be trusted
+     */
+    static StoreIndex open(Path file, int slots) throws IOException {
+        int capacity = Integer.highestOneBit(Math.max(slots, 16) - 1) << 1;
+        long size = HEADER_BYTES + (long) capacity * SLOT_BYTES;
+        boolean existed = Files.exists(file) && Files.size(file) == size;
+
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        boolean valid = existed
+            && map.getLong(0) == MAGIC
+            && map.getInt(8) == VERSION
+            && map.getInt(12) == capacity;
+        return new StoreIndex(channel, map, capacity, valid);
+    }
+
+    /**
+     * Returns whether the header matched the expected layout when the file was opened.
+     */
+    boolean isHeaderValid() {
+        return headerValid;
+    }
+
+    /**
+     * Clears every slot and writes a fresh header.
+     */
+    void reset() {
+        byte[] zeros = new byte[SLOT_BYTES * 1024];
+        long total = (long) slots * SLOT_BYTES;
+        for (long written = 0; written < total; written += zeros.length) {
+            int chunk = (int) Math.min(zeros.length, total - written);
+            map.put((int) (HEADER_BYTES + written), zeros, 0, chunk);
+        }
+        map.putLong(0, MAGIC);
+        map.putInt(8, VERSION);
+        map.putInt(12, slots);
+        liveEntries = 0;
+        tombstones = 0;
+    }
+
+    /**
+     * Finds the entry for a key hash.
+     *
+     * @return the entry, or null when absent
+     */
+    Entry get(byte[] keyHash) {
+        int slot = findSlot(keyHash);
+        return slot >= 0 ? readEntry(slot) : null;
+    }
+
+    /**
+     * Inserts or replaces the entry for a key hash.
+     *
+     * @return false when the table has no free slot left
+     */
+    boolean put(Entry entry) {
+        int existing = findSlot(entry.keyHash());
+        if (existing >= 0) {
+            writeEntry(existing, entry);
+            return true;
+        }
+
+        int slot = startSlot(entry.keyHash());
+        for (int probe = 0; probe < slots; probe++) {
+            int segment = map.getInt(slotOffset(slot) + SEGMENT_OFFSET);
+            if (segment == EMPTY || segment == TOMBSTONE) {
+                if (segment == TOMBSTONE) {
+                    tombstones--;
+                }
+                writeEntry(slot, entry);
+                liveEntries++;
+                return true;
+            }
+            slot = (slot + 1) & (slots - 1);
+        }
+        return false;
+    }
+
+    /**
+     * Tombstones every live entry matching the predicate.
+     *
+     * @return number of entries removed
+     */
+    int removeIf(Predicate<Entry> predicate) {
+        int removed = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            int segment = map.getInt(slotOffset(slot) + SEGMENT_OFFSET);
+            if (segment != EMPTY && segment != TOMBSTONE && predicate.test(readEntry(slot))) {
+                map.putInt(slotOffset(slot) + SEGMENT_OFFSET, TOMBSTONE);
+                removed++;
+            }
+        }
+        liveEntries -= removed;
+        tombstones += removed;
+        return removed;
+    }
+
+    /**
+     * Recounts live entries and tombstones from the mapped slots.
+     */
+    void recount() {
+        liveEntries = 0;
+        tombstones = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            int segment = map.getInt(slotOffset(slot) + SEGMENT_OFFSET);
+            if (segment == TOMBSTONE) {
+                tombstones++;
+            } else if (segment != EMPTY) {
+                liveEntries++;
+            }
+        }
+    }
+
+    int liveEntries() {
+        return liveEntries;
+    }
+
+    int tombstones() {
+        return tombstones;
+    }
+
+    int capacity() {
+        return slots;
+    }
+
+    /**
+     * Flushes dirty pages of the mapping to disk.
+     */
+    void force() {
+        map.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private int findSlot(byte[] keyHash) {
+        int slot = startSlot(keyHash);
+        for (int probe = 0; probe < slots; probe++) {
+            int offset = slotOffset(slot);
+            int segment = map.getInt(offset + SEGMENT_OFFSET);
+            if (segment == EMPTY) {
+                return -1;
+            }
+            if (segment != TOMBSTONE && keyMatches(offset, keyHash)) {
+                return slot;
+            }
+            slot = (slot + 1) & (slots - 1);
+        }
+        return -1;
+    }
+
+    private int startSlot(byte[] keyHash) {
+        int hash = ((keyHash[0] & 0xFF) << 24) | ((keyHash[1] & 0xFF) << 16)
+            | ((keyHash[2] & 0xFF) << 8) | (keyHash[3] & 0xFF);
+        return hash & (slots - 1);
+    }
+
+    private boolean keyMatches(int offset, byte[] keyHash) {
+        for (int i = 0; i < KEY_HASH_BYTES; i++) {
+            if (map.get(offset + i) != keyHash[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Entry readEntry(int slot) {
+        int offset = slotOffset(slot);
+        byte[] keyHash = new byte[KEY_HASH_BYTES];
+        map.get(offset, keyHash);
+        byte[] format = new byte[FORMAT_BYTES];
+        map.get(offset + FORMAT_OFFSET, format);
+        byte[] etag = new byte[ContentHasher.ETAG_BYTES];
+        map.get(offset + ETAG_OFFSET, etag);
+        return new Entry(
+            keyHash,
+            map.getInt(offset + SEGMENT_OFFSET),
+            map.getLong(offset + POSITION_OFFSET),
+            map.getInt(offset + LENGTH_OFFSET),
+            map.getInt(offset + WIDTH_OFFSET),
+            map.getInt(offset + HEIGHT_OFFSET),
+            decodeFormat(format),
+            etag
+        );
+    }
+
+    private void writeEntry(int slot, Entry entry) {
+        int offset = slotOffset(slot);
+        map.put(offset, entry.keyHash());
+        map.putLong(offset + POSITION_OFFSET, entry.position());
+        map.putInt(offset + LENGTH_OFFSET, entry.length());
+        map.putInt(offset + WIDTH_OFFSET, entry.width());
+        map.putInt(offset + HEIGHT_OFFSET, entry.height());
+        map.put(offset + FORMAT_OFFSET, encodeFormat(entry.format()));
+        map.put(offset + ETAG_OFFSET, entry.etag());
+        // Segment last: a slot only becomes visible once the rest is written
+        map.putInt(offset + SEGMENT_OFFSET, entry.segment());
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    static byte[] encodeFormat(String format) {
+        return Arrays.copyOf(format.getBytes(StandardCharsets.US_ASCII), FORMAT_BYTES);
+    }
+
+    static String decodeFormat(byte[] format) {
+        int length = 0;
+        while (length < format.length && format[length] != 0) {
+            length++;
+        }
+        return new String(format, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Location and attributes of one stored thumbnail.
+     *
+     * @param keyHash SHA-256 of the thumbnail key
+     * @param segment segment number holding the record
+     * @param position offset of the encoded bytes within the segment
+     * @param length encoded size in bytes
+     * @param width thumbnail width
+     * @param height thumbnail height
+     * @param format output format
+     * @param etag entity tag digest of the encoded bytes
+     */
+    record Entry(byte[] keyHash, int segment, long position, int length,
+                 int width, int height, String format, byte[] etag) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.thumbnailapi.store;
+
+/**
+ * Location of an encoded thumbnail in the disk store.
+ *
+ * @param segment segment file number
+ * @param position offset of the encoded bytes within the segment
+ * @param length encoded size in bytes
+ * @param width thumbnail width in pixels
+ * @param height thumbnail height in pixels
+ * @param format output format
+ * @param etag quoted strong entity tag derived from the encoded bytes
+ */
+public record StoredThumbnail(int segment, long position, int length, int width, int height, String format,
+                              String etag) {
+}
@@ -0,0 +1,459 @@
+package com.thumbnailapi.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import com.thumbnailapi.cache.ThumbnailKey;
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.util.ContentHasher;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Persistent local store of encoded thumbnails.
+ *
+ * Thumbnails are appended to numbered segment files ({@code segment-000001.dat}, ...).
+ * Each record is a fixed header followed by the encoded bytes:
+ * <pre>
+ * magic:int | keyHash[32] | width:int | height:int | format[8] | length:int | crc32:int | etag[16] | bytes
+ * </pre>
+ * The entity tag is a digest of the encoded bytes themselves, because the same key
+ * can be regenerated with different bytes once it has been evicted.
+ * A memory-mapped {@link StoreIndex} maps key hashes to record locations. At startup
+ * the index is trusted when its header matches and every entry points inside an
+ * existing segment; otherwise it is rebuilt by walking the record headers. When the
+ * segments exceed the disk quota, whole segments are evicted oldest first.
+ *
+ * Reads stream straight from the segment file with {@link FileChannel#transferTo},
+ * so payloads never pass through heap byte arrays. A transfer that races with the
+ * eviction of its segment fails with an IOException.
+ */
+@Component
+public class ThumbnailStore implements MeterBinder, DisposableBean {
+
+    private static final Logger logger = LogManager.getLogger(ThumbnailStore.class);
+
+    private static final int RECORD_MAGIC = 0x544E_5232;
+    private static final int RECORD_HEADER_BYTES = 4 + StoreIndex.KEY_HASH_BYTES + 4 + 4
+        + StoreIndex.FORMAT_BYTES + 4 + 4 + ContentHasher.ETAG_BYTES;
+    private static final String INDEX_FILE = "index.bin";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxBytes;
+    private final long segmentBytes;
+    private final int indexSlots;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Integer, FileChannel> segments = new TreeMap<>();
+
+    private StoreIndex index;
+    private volatile long totalBytes;
+    private Counter evictedSegments;
+
+    public ThumbnailStore(ThumbnailProperties properties) {
+        ThumbnailProperties.Store settings = properties.getStore();
+        this.enabled = settings.isEnabled();
+        this.directory = Path.of(settings.getDirectory());
+        this.maxBytes = settings.getMaxSize().toBytes();
+        this.segmentBytes = Math.min(settings.getSegmentSize().toBytes(), maxBytes);
+        this.indexSlots = settings.getIndexSlots();
+
+        if (enabled) {
+            try {
+                open();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open thumbnail store at " + directory, e);
+            }
+        }
+        logger.info("Thumbnail store enabled: {}, directory={}, maxBytes={}", enabled, directory, maxBytes);
+    }
+
+    /**
+     * Returns whether the store is active.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Looks up a stored thumbnail without touching its bytes.
+     *
+     * @param key the thumbnail identity
+     * @return the stored thumbnail, or null when absent or the store is disabled
+     */
+    public StoredThumbnail find(ThumbnailKey key) {
+        if (!enabled) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            StoreIndex.Entry entry = index.get(keyHash(key));
+            return entry == null ? null : new StoredThumbnail(
+                entry.segment(), entry.position(), entry.length(),
+                entry.width(), entry.height(), entry.format(), ContentHasher.formatEtag(entry.etag()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends an encoded thumbnail unless it is already stored.
+     *
+     * @param key the thumbnail identity
+     * @param encoded the encoded image bytes
+     * @param width thumbnail width in pixels
+     * @param height thumbnail height in pixels
+     */
+    public void put(ThumbnailKey key, byte[] encoded, int width, int height) {
+        put(key, ByteBuffer.wrap(encoded), width, height);
+    }
+
+    /**
+     * Appends the remaining bytes of the buffer as an encoded thumbnail unless it is
+     * already stored or the index has no free slot. The buffer's position is not modified.
+     *
+     * @param key the thumbnail identity
+     * @param encoded the encoded image bytes
+     * @param width thumbnail width in pixels
+     * @param height thumbnail height in pixels
+     */
+    public void put(ThumbnailKey key, ByteBuffer encoded, int width, int height) {
+        int length = encoded.remaining();
+        if (!enabled || RECORD_HEADER_BYTES + (long) length > segmentBytes) {
+            return;
+        }
+
+        // Hash outside the lock; it only guards the append and the index slot
+        byte[] keyHash = keyHash(key);
+        byte[] etag = ContentHasher.etagDigest(encoded);
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        header.putInt(RECORD_MAGIC)
+            .put(keyHash)
+            .putInt(width)
+            .putInt(height)
+            .put(StoreIndex.encodeFormat(key.format()))
+            .putInt(length)
+            .putInt(crc(encoded))
+            .put(etag)
+            .flip();
+
+        lock.writeLock().lock();
+        try {
+            if (index.get(keyHash) != null) {
+                return;
+            }
+            if (index.liveEntries() >= index.capacity()) {
+                logger.warn("Thumbnail store index is full; {} not stored", key);
+                return;
+            }
+
+            long recordBytes = RECORD_HEADER_BYTES + (long) length;
+            int segment = writableSegment(recordBytes);
+            FileChannel channel = segments.get(segment);
+            long recordStart = channel.size();
+
+            ByteBuffer[] record = {header, encoded.duplicate()};
+            channel.position(recordStart);
+            while (record[1].hasRemaining()) {
+                channel.write(record);
+            }
+            totalBytes += recordBytes;
+
+            insert(new StoreIndex.Entry(keyHash, segment,
+                recordStart + RECORD_HEADER_BYTES, length, width, height, key.format(), etag));
+            enforceQuota();
+        } catch (IOException e) {
+            logger.error("Failed to store thumbnail {}", key, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Streams part of a stored thumbnail to the target channel using zero-copy transfer.
+     *
+     * @param thumbnail the stored thumbnail
+     * @param offset first byte of the thumbnail to send
+     * @param count number of bytes to send
+     * @param target the channel to write to
+     * @throws IOException if the segment is gone or the transfer fails
+     */
+    public void transferTo(StoredThumbnail thumbnail, long offset, long count,
+                           WritableByteChannel target) throws IOException {
+        FileChannel channel;
+        lock.readLock().lock();
+        try {
+            channel = segments.get(thumbnail.segment());
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (channel == null) {
+            throw new IOException("Segment " + thumbnail.segment() + " has been evicted");
+        }
+
+        long position = thumbnail.position() + offset;
+        long end = position + count;
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                throw new IOException("Transfer stalled at " + position + " of segment " + thumbnail.segment());
+            }
+            position += transferred;
+        }
+    }
+
+    /**
+     * Streams a whole stored thumbnail to the target channel.
+     */
+    public void transferTo(StoredThumbnail thumbnail, WritableByteChannel target) throws IOException {
+        transferTo(thumbnail, 0, thumbnail.length(), target);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        // Read without the lock; a slightly stale value is fine for a gauge
+        Gauge.builder("thumbnail.store.entries", this, store -> store.index.liveEntries())
+            .description("Thumbnails indexed in the disk store")
+            .register(registry);
+        Gauge.builder("thumbnail.store.bytes", this, store -> store.totalBytes)
+            .description("Bytes used by disk store segments")
+            .baseUnit("bytes")
+            .register(registry);
+        evictedSegments = Counter.builder("thumbnail.store.evicted.segments")
+            .description("Segments removed to stay within the disk quota")
+            .register(registry);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (FileChannel channel : segments.values()) {
+                channel.close();
+            }
+            segments.clear();
+            index.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Opens the segments and the index, rebuilding the index when it cannot be trusted.
+     */
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Integer number = segmentNumber(file);
+                if (number != null) {
+                    segments.put(number, FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE));
+                }
+            }
+        }
+
+        long startTime = System.nanoTime();
+        index = StoreIndex.open(directory.resolve(INDEX_FILE), indexSlots);
+        boolean valid = index.isHeaderValid() && validateIndex();
+        if (!valid) {
+            rebuildIndex();
+        }
+        totalBytes = 0;
+        for (FileChannel channel : segments.values()) {
+            totalBytes += channel.size();
+        }
+        enforceQuota();
+
+        logger.info("Thumbnail store opened with {} entries in {} segments ({}ms, index {})",
+            index.liveEntries(), segments.size(), (System.nanoTime() - startTime) / 1_000_000,
+            valid ? "reused" : "rebuilt");
+    }
+
+    /**
+     * Checks that every indexed record lies inside an existing segment.
+     */
+    private boolean validateIndex() throws IOException {
+        Map<Integer, Long> sizes = new TreeMap<>();
+        for (Map.Entry<Integer, FileChannel> segment : segments.entrySet()) {
+            sizes.put(segment.getKey(), segment.getValue().size());
+        }
+
+        index.recount();
+        int dangling = index.removeIf(entry -> {
+            Long size = sizes.get(entry.segment());
+            return size == null || entry.position() + entry.length() > size;
+        });
+        if (dangling > 0) {
+            logger.warn("Thumbnail store index had {} dangling entries", dangling);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Rebuilds the index by walking the record headers of every segment in order,
+     * truncating any torn record at the end of a segment.
+     */
+    private void rebuildIndex() throws IOException {
+        index.reset();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+
+        for (Map.Entry<Integer, FileChannel> segment : segments.entrySet()) {
+            FileChannel channel = segment.getValue();
+            long size = channel.size();
+            long position = 0;
+
+            while (position + RECORD_HEADER_BYTES <= size) {
+                header.clear();
+                channel.read(header, position);
+                header.flip();
+                if (header.getInt() != RECORD_MAGIC) {
+                    break;
+                }
+                byte[] keyHash = new byte[StoreIndex.KEY_HASH_BYTES];
+                header.get(keyHash);
+                int width = header.getInt();
+                int height = header.getInt();
+                byte[] format = new byte[StoreIndex.FORMAT_BYTES];
+                header.get(format);
+                int length = header.getInt();
+                int crc = header.getInt();
+                byte[] etag = new byte[ContentHasher.ETAG_BYTES];
+                header.get(etag);
+
+                long dataStart = position + RECORD_HEADER_BYTES;
+                if (length < 0 || dataStart + length > size) {
+                    break;
+                }
+                // Only the last record of a segment can be torn by a crash mid-append
+                if (dataStart + length == size && crc(channel, dataStart, length) != crc) {
+                    break;
+                }
+                insert(new StoreIndex.Entry(keyHash, segment.getKey(), dataStart, length,
+                    width, height, StoreIndex.decodeFormat(format), etag));
+                position = dataStart + length;
+            }
+
+            if (position < size) {
+                logger.warn("Truncating torn record at {} in segment {}", position, segment.getKey());
+                channel.truncate(position);
+            }
+        }
+        index.force();
+    }
+
+    /**
+     * Inserts an index entry, compacting tombstones first when the table is getting full.
+     */
+    private boolean insert(StoreIndex.Entry entry) throws IOException {
+        if ((index.liveEntries() + index.tombstones()) * 4L >= index.capacity() * 3L
+                && index.tombstones() > 0) {
+            rebuildIndex();
+        }
+        return index.put(entry);
+    }
+
+    /**
+     * Returns the segment to append a record of the given size to, starting a new
+     * segment when the current one is full.
+     */
+    private int writableSegment(long recordBytes) throws IOException {
+        if (!segments.isEmpty()) {
+            int last = segments.lastKey();
+            if (segments.get(last).size() + recordBytes <= segmentBytes) {
+                return last;
+            }
+        }
+
+        int next = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        Path file = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, next, SEGMENT_SUFFIX));
+        segments.put(next, FileChannel.open(file,
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        return next;
+    }
+
+    /**
+     * Evicts the oldest segments until the store fits its quota. The segment being
+     * appended to is never evicted.
+     */
+    private void enforceQuota() throws IOException {
+        while (totalBytes > maxBytes && segments.size() > 1) {
+            Map.Entry<Integer, FileChannel> oldest = segments.pollFirstEntry();
+            int segment = oldest.getKey();
+            long size = oldest.getValue().size();
+            oldest.getValue().close();
+
+            int removed = index.removeIf(entry -> entry.segment() == segment);
+            Files.deleteIfExists(directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX)));
+            totalBytes -= size;
+            if (evictedSegments != null) {
+                evictedSegments.increment();
+            }
+            logger.info("Evicted thumbnail store segment {} ({} bytes, {} entries)", segment, size, removed);
+        }
+    }
+
+    private static Integer segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static byte[] keyHash(ThumbnailKey key) {
+        return ContentHasher.newDigest().digest(key.identity().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int crc(ByteBuffer data) {
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static int crc(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(length);
+        while (data.hasRemaining()) {
+            if (channel.read(data, position + data.position()) < 0) {
+                break;
+            }
+        }
+        data.flip();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+}
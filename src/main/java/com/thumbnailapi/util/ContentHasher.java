@@ -0,0 +1,78 @@
+package com.thumbnailapi.util;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Computes content hashes used to address generated thumbnails.
+ */
+public final class ContentHasher {
+
+    /** Number of digest bytes kept in an entity tag. */
+    public static final int ETAG_BYTES = 16;
+
+    private static final String ALGORITHM = "SHA-256";
+
+    private ContentHasher() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+
+    /**
+     * Creates a digest for incremental hashing of uploaded content.
+     *
+     * @return a new SHA-256 digest
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * Returns the lowercase hex SHA-256 hash of the given bytes.
+     *
+     * @param content the bytes to hash
+     * @return 64-character hex string
+     */
+    public static String sha256Hex(byte[] content) {
+        return toHex(newDigest().digest(content));
+    }
+
+    /**
+     * Formats a finished digest as a lowercase hex string.
+     *
+     * @param digest the digest bytes
+     * @return hex string, two characters per byte
+     */
+    public static String toHex(byte[] digest) {
+        return HexFormat.of().formatHex(digest);
+    }
+
+    /**
+     * Hashes the remaining bytes of an encoded thumbnail for its entity tag.
+     * The buffer's position is not modified.
+     *
+     * @param encoded the encoded bytes
+     * @return the first {@link #ETAG_BYTES} bytes of their SHA-256
+     */
+    public static byte[] etagDigest(ByteBuffer encoded) {
+        MessageDigest digest = newDigest();
+        digest.update(encoded.duplicate());
+        return Arrays.copyOf(digest.digest(), ETAG_BYTES);
+    }
+
+    /**
+     * Formats an entity tag digest as a quoted strong ETag.
+     *
+     * @param etagDigest digest from {@link #etagDigest}
+     * @return the quoted hex tag
+     */
+    public static String formatEtag(byte[] etagDigest) {
+        return '"' + toHex(etagDigest) + '"';
+    }
+}
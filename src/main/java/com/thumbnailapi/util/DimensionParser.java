@@ -45,20 +45,22 @@ public class DimensionParser {
         
         for (String size : sizes) {
             String trimmedSize = size.trim();
-            Dimension dimension = parseSingleDimension(trimmedSize);
+            Dimension dimension = parseDimension(trimmedSize);
             uniqueDimensions.add(dimension);
         }
 
         dimensions.addAll(uniqueDimensions);
-        logger.debug("Parsed dimensions: {}", dimensions);
-        
         return dimensions;
     }
 
     /**
      * Parses a single dimension specification.
+     * 
+     * @param size preset name or WIDTHxHEIGHT
+     * @return the dimension
+     * @throws InvalidDimensionsException if the dimension is invalid
      */
-    private Dimension parseSingleDimension(String size) {
+    public Dimension parseDimension(String size) {
         if (!StringUtils.hasText(size)) {
             throw new InvalidDimensionsException("Empty dimension specification");
         }
@@ -1,19 +1,29 @@
 package com.thumbnailapi.util;
 
-import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.Iterator;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
 
 import org.springframework.stereotype.Component;
 
+import com.thumbnailapi.color.ColorNormalizer;
+import com.thumbnailapi.color.ConversionPath;
+
 /**
  * Detects image format and reads image properties.
  */
 @Component
 public class ImageFormatDetector {
 
+    private static final int DEFAULT_BYTES_PER_PIXEL = 4;
+
     /**
      * Detects the format of an image from its byte content.
      * 
@@ -21,61 +31,83 @@ public class ImageFormatDetector {
      * @return the detected format (e.g., "JPEG", "PNG")
      */
     public String detectFormat(byte[] imageBytes) {
-        if (imageBytes.length >= 3 && imageBytes[0] == (byte) 0xFF && 
-            imageBytes[1] == (byte) 0xD8 && imageBytes[2] == (byte) 0xFF) {
-            return "JPEG";
-        }
-
-        if (imageBytes.length >= 8 && imageBytes[0] == (byte) 0x89 && 
-            imageBytes[1] == 0x50 && imageBytes[2] == 0x4E && imageBytes[3] == 0x47) {
-            return "PNG";
-        }
+        String format = ImageSignature.detect(imageBytes, imageBytes.length);
+        return format != null ? format : "UNKNOWN";
+    }
 
-        if (imageBytes.length >= 6 && imageBytes[0] == 0x47 && 
-            imageBytes[1] == 0x49 && imageBytes[2] == 0x46) {
-            return "GIF";
-        }
+    /**
+     * Reads image dimensions without loading entire image.
+     * 
+     * Only the image header is parsed through the matching {@link ImageReader};
+     * no pixel data is decoded.
+     * 
+     * @param imageBytes the image file bytes
+     * @return ImageDimensions containing width, height, the decoded bytes per pixel and
+     *         whether the decoded image will need normalizing
+     * @throws IOException if image cannot be read
+     */
+    public ImageDimensions readImageDimensions(byte[] imageBytes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(imageBytes))) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unable to read image");
+            }
 
-        if (imageBytes.length >= 2 && imageBytes[0] == 0x42 && imageBytes[1] == 0x4D) {
-            return "BMP";
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return new ImageDimensions(reader.getWidth(0), reader.getHeight(0), bytesPerPixel(reader),
+                    needsNormalization(reader));
+            } finally {
+                reader.dispose();
+            }
         }
+    }
 
-        if (imageBytes.length >= 12 && imageBytes[0] == 0x52 && imageBytes[1] == 0x49 && 
-            imageBytes[2] == 0x46 && imageBytes[3] == 0x46 && imageBytes[8] == 0x57 && 
-            imageBytes[9] == 0x45 && imageBytes[10] == 0x42 && imageBytes[11] == 0x50) {
-            return "WEBP";
+    /**
+     * Returns the bytes per pixel of the raster the reader will decode into,
+     * assuming a packed int raster when the reader cannot tell before decoding.
+     */
+    private static int bytesPerPixel(ImageReader reader) {
+        ImageTypeSpecifier type;
+        try {
+            type = reader.getRawImageType(0);
+        } catch (IOException | RuntimeException e) {
+            type = null;
         }
-
-        if (imageBytes.length >= 4 && ((imageBytes[0] == 0x49 && imageBytes[1] == 0x49 && 
-            imageBytes[2] == 0x2A && imageBytes[3] == 0x00) ||
-            (imageBytes[0] == 0x4D && imageBytes[1] == 0x4D && 
-            imageBytes[2] == 0x00 && imageBytes[3] == 0x2A))) {
-            return "TIFF";
+        if (type == null) {
+            return DEFAULT_BYTES_PER_PIXEL;
         }
 
-        return "UNKNOWN";
+        SampleModel sampleModel = type.getSampleModel(1, 1);
+        int elementBytes = DataBuffer.getDataTypeSize(sampleModel.getDataType()) / Byte.SIZE;
+        return Math.max(1, elementBytes * sampleModel.getNumDataElements());
     }
 
     /**
-     * Reads image dimensions without loading entire image.
-     * 
-     * @param imageBytes the image file bytes
-     * @return ImageDimensions containing width and height
-     * @throws IOException if image cannot be read
+     * Returns whether the {@link ColorNormalizer} will copy the image the reader
+     * decodes into by default, assuming it will when the reader cannot tell.
      */
-    public ImageDimensions readImageDimensions(byte[] imageBytes) throws IOException {
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(imageBytes)) {
-            BufferedImage image = ImageIO.read(bais);
-            if (image == null) {
-                throw new IOException("Unable to read image");
+    private static boolean needsNormalization(ImageReader reader) {
+        try {
+            Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+            if (types == null || !types.hasNext()) {
+                return true;
             }
-            return new ImageDimensions(image.getWidth(), image.getHeight());
+            return ColorNormalizer.pathOf(types.next().createBufferedImage(1, 1)) != ConversionPath.NONE;
+        } catch (IOException | RuntimeException e) {
+            return true;
         }
     }
 
     /**
      * Records image dimensions.
+     * 
+     * @param width width in pixels
+     * @param height height in pixels
+     * @param bytesPerPixel bytes per pixel of the decoded raster
+     * @param needsNormalization whether the decoded image is converted to a packed int raster before resizing
      */
-    public record ImageDimensions(int width, int height) {
+    public record ImageDimensions(int width, int height, int bytesPerPixel, boolean needsNormalization) {
     }
 }
@@ -0,0 +1,35 @@
+package com.thumbnailapi.util;
+
+/**
+ * Image size and frame count read from the header bytes of an upload.
+ *
+ * Width and height describe the largest raster a decoder will allocate for one
+ * frame; for GIF this covers the logical screen and every frame descriptor seen.
+ * Both are {@link #UNKNOWN} when the header was not within the probed bytes.
+ * Frames are counted over the probed bytes only, so the count is a lower bound
+ * until the whole upload has been probed.
+ *
+ * @param format image format
+ * @param width width in pixels, or {@link #UNKNOWN}
+ * @param height height in pixels, or {@link #UNKNOWN}
+ * @param frames number of frames or pages seen
+ */
+public record ImageHeader(String format, int width, int height, int frames) {
+
+    /** Width or height of an image whose header was not found. */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Returns whether the dimensions were found.
+     */
+    public boolean hasDimensions() {
+        return width != UNKNOWN && height != UNKNOWN;
+    }
+
+    /**
+     * Returns width times height, or 0 when the dimensions are unknown.
+     */
+    public long pixels() {
+        return hasDimensions() ? (long) width * height : 0;
+    }
+}
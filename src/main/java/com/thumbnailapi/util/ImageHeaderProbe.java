@@ -0,0 +1,280 @@
+package com.thumbnailapi.util;
+
+/**
+ * Reads image dimensions and frame counts straight from header bytes.
+ *
+ * Each format is walked by its own structure without decoding anything: JPEG
+ * segments up to the SOF marker, PNG chunks up to IDAT (including the APNG
+ * acTL frame count), GIF blocks, the BMP info header, the TIFF IFD chain and
+ * the WebP RIFF chunks. Parsing stops at the end of the given bytes, so a
+ * truncated prefix of an upload is a valid input.
+ */
+public final class ImageHeaderProbe {
+
+    /** Upper bound on IFDs or blocks walked, so malformed offsets cannot loop. */
+    private static final int MAX_STRUCTURES = 1 << 16;
+
+    private ImageHeaderProbe() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+
+    /**
+     * Probes the header of an image.
+     *
+     * @param content buffer starting with the image data
+     * @param length number of valid bytes in the buffer
+     * @param format the format identified by {@link ImageSignature}
+     * @return the header; dimensions are unknown when not within the bytes
+     */
+    public static ImageHeader probe(byte[] content, int length, String format) {
+        return switch (format) {
+            case "JPEG" -> probeJpeg(content, length);
+            case "PNG" -> probePng(content, length);
+            case "GIF" -> probeGif(content, length);
+            case "BMP" -> probeBmp(content, length);
+            case "TIFF" -> probeTiff(content, length);
+            case "WEBP" -> probeWebp(content, length);
+            default -> new ImageHeader(format, ImageHeader.UNKNOWN, ImageHeader.UNKNOWN, 1);
+        };
+    }
+
+    private static ImageHeader probeJpeg(byte[] content, int length) {
+        int position = 2;
+        while (position + 3 < length) {
+            if ((content[position] & 0xFF) != 0xFF) {
+                break;
+            }
+            int marker = content[position + 1] & 0xFF;
+            if (marker == 0xFF) {
+                // Fill byte before a marker
+                position++;
+                continue;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD8)) {
+                position += 2;
+                continue;
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                // End of image or start of scan: no frame header follows
+                break;
+            }
+
+            int segmentLength = readUnsignedShortBE(content, position + 2);
+            if (isStartOfFrame(marker)) {
+                if (position + 8 >= length) {
+                    break;
+                }
+                int height = readUnsignedShortBE(content, position + 5);
+                int width = readUnsignedShortBE(content, position + 7);
+                return new ImageHeader("JPEG", width, height, 1);
+            }
+            position += 2 + segmentLength;
+        }
+        return new ImageHeader("JPEG", ImageHeader.UNKNOWN, ImageHeader.UNKNOWN, 1);
+    }
+
+    private static boolean isStartOfFrame(int marker) {
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    private static ImageHeader probePng(byte[] content, int length) {
+        int width = ImageHeader.UNKNOWN;
+        int height = ImageHeader.UNKNOWN;
+        int frames = 1;
+
+        long position = 8;
+        for (int chunks = 0; chunks < MAX_STRUCTURES && position + 8 <= length; chunks++) {
+            int offset = (int) position;
+            long dataLength = readIntBE(content, offset) & 0xFFFFFFFFL;
+            int type = readIntBE(content, offset + 4);
+            int data = offset + 8;
+
+            if (type == chunkType("IHDR") && data + 8 <= length) {
+                width = nonNegative(readIntBE(content, data));
+                height = nonNegative(readIntBE(content, data + 4));
+            } else if (type == chunkType("acTL") && data + 4 <= length) {
+                frames = Math.max(1, nonNegative(readIntBE(content, data)));
+            } else if (type == chunkType("IDAT") || type == chunkType("IEND")) {
+                // Size and animation control chunks always precede the image data
+                break;
+            }
+            position = data + dataLength + 4;
+        }
+        return new ImageHeader("PNG", width, height, frames);
+    }
+
+    private static ImageHeader probeGif(byte[] content, int length) {
+        if (length < 13) {
+            return new ImageHeader("GIF", ImageHeader.UNKNOWN, ImageHeader.UNKNOWN, 1);
+        }
+        int width = readUnsignedShortLE(content, 6);
+        int height = readUnsignedShortLE(content, 8);
+        int frames = 0;
+
+        int position = 13 + colorTableBytes(content[10]);
+        for (int blocks = 0; blocks < MAX_STRUCTURES && position < length; blocks++) {
+            int introducer = content[position] & 0xFF;
+            if (introducer == 0x2C) {
+                if (position + 10 > length) {
+                    break;
+                }
+                frames++;
+                width = Math.max(width, readUnsignedShortLE(content, position + 5));
+                height = Math.max(height, readUnsignedShortLE(content, position + 7));
+                // Descriptor, local color table and LZW minimum code size
+                position += 10 + colorTableBytes(content[position + 9]) + 1;
+                position = skipSubBlocks(content, length, position);
+            } else if (introducer == 0x21) {
+                position = skipSubBlocks(content, length, position + 2);
+            } else {
+                // Trailer or corrupt data
+                break;
+            }
+        }
+        return new ImageHeader("GIF", width, height, Math.max(1, frames));
+    }
+
+    private static int colorTableBytes(byte packed) {
+        return (packed & 0x80) != 0 ? 3 * (1 << ((packed & 0x07) + 1)) : 0;
+    }
+
+    private static int skipSubBlocks(byte[] content, int length, int position) {
+        while (position < length) {
+            int blockSize = content[position] & 0xFF;
+            position += 1 + blockSize;
+            if (blockSize == 0) {
+                break;
+            }
+        }
+        return position;
+    }
+
+    private static ImageHeader probeBmp(byte[] content, int length) {
+        if (length < 26) {
+            return new ImageHeader("BMP", ImageHeader.UNKNOWN, ImageHeader.UNKNOWN, 1);
+        }
+        int headerSize = readIntLE(content, 14);
+        if (headerSize == 12) {
+            // OS/2 BITMAPCOREHEADER with 16-bit sizes
+            return new ImageHeader("BMP", readUnsignedShortLE(content, 18), readUnsignedShortLE(content, 20), 1);
+        }
+        // A negative height marks a top-down bitmap
+        int width = nonNegative(Math.abs(readIntLE(content, 18)));
+        int height = nonNegative(Math.abs(readIntLE(content, 22)));
+        return new ImageHeader("BMP", width, height, 1);
+    }
+
+    private static ImageHeader probeTiff(byte[] content, int length) {
+        if (length < 8) {
+            return new ImageHeader("TIFF", ImageHeader.UNKNOWN, ImageHeader.UNKNOWN, 1);
+        }
+        boolean littleEndian = content[0] == 0x49;
+        int width = ImageHeader.UNKNOWN;
+        int height = ImageHeader.UNKNOWN;
+        int frames = 0;
+
+        long ifd = readInt(content, 4, littleEndian) & 0xFFFFFFFFL;
+        while (ifd >= 8 && ifd + 2 <= length && frames < MAX_STRUCTURES) {
+            int offset = (int) ifd;
+            int entries = readUnsignedShort(content, offset, littleEndian);
+            long end = offset + 2 + 12L * entries;
+            frames++;
+
+            for (int i = 0; i < entries && offset + 2 + 12 * (i + 1) <= length; i++) {
+                int entry = offset + 2 + 12 * i;
+                int tag = readUnsignedShort(content, entry, littleEndian);
+                if (tag == 256 || tag == 257) {
+                    int type = readUnsignedShort(content, entry + 2, littleEndian);
+                    int value = type == 3
+                        ? readUnsignedShort(content, entry + 8, littleEndian)
+                        : nonNegative(readInt(content, entry + 8, littleEndian));
+                    if (tag == 256) {
+                        width = Math.max(width, value);
+                    } else {
+                        height = Math.max(height, value);
+                    }
+                }
+            }
+
+            if (end + 4 > length) {
+                break;
+            }
+            long next = readInt(content, (int) end, littleEndian) & 0xFFFFFFFFL;
+            // IFDs pointing backwards could form a cycle
+            if (next != 0 && next <= ifd) {
+                break;
+            }
+            ifd = next;
+        }
+        return new ImageHeader("TIFF", width, height, Math.max(1, frames));
+    }
+
+    private static ImageHeader probeWebp(byte[] content, int length) {
+        int width = ImageHeader.UNKNOWN;
+        int height = ImageHeader.UNKNOWN;
+        int frames = 0;
+
+        long position = 12;
+        for (int chunks = 0; chunks < MAX_STRUCTURES && position + 8 <= length; chunks++) {
+            int offset = (int) position;
+            int type = readIntBE(content, offset);
+            long size = readIntLE(content, offset + 4) & 0xFFFFFFFFL;
+            int data = offset + 8;
+
+            if (type == chunkType("VP8X") && data + 10 <= length) {
+                width = readUnsigned24LE(content, data + 4) + 1;
+                height = readUnsigned24LE(content, data + 7) + 1;
+            } else if (type == chunkType("VP8 ") && data + 10 <= length && width == ImageHeader.UNKNOWN) {
+                width = readUnsignedShortLE(content, data + 6) & 0x3FFF;
+                height = readUnsignedShortLE(content, data + 8) & 0x3FFF;
+            } else if (type == chunkType("VP8L") && data + 5 <= length && width == ImageHeader.UNKNOWN) {
+                int bits = readIntLE(content, data + 1);
+                width = (bits & 0x3FFF) + 1;
+                height = ((bits >>> 14) & 0x3FFF) + 1;
+            } else if (type == chunkType("ANMF")) {
+                frames++;
+            }
+            position = data + size + (size & 1);
+        }
+        return new ImageHeader("WEBP", width, height, Math.max(1, frames));
+    }
+
+    /**
+     * Maps sizes that overflow a signed int to the largest int, so they always exceed a limit.
+     */
+    private static int nonNegative(int size) {
+        return size < 0 ? Integer.MAX_VALUE : size;
+    }
+
+    private static int chunkType(String type) {
+        return (type.charAt(0) << 24) | (type.charAt(1) << 16) | (type.charAt(2) << 8) | type.charAt(3);
+    }
+
+    private static int readUnsignedShortBE(byte[] content, int offset) {
+        return ((content[offset] & 0xFF) << 8) | (content[offset + 1] & 0xFF);
+    }
+
+    private static int readUnsignedShortLE(byte[] content, int offset) {
+        return (content[offset] & 0xFF) | ((content[offset + 1] & 0xFF) << 8);
+    }
+
+    private static int readUnsigned24LE(byte[] content, int offset) {
+        return (content[offset] & 0xFF) | ((content[offset + 1] & 0xFF) << 8) | ((content[offset + 2] & 0xFF) << 16);
+    }
+
+    private static int readIntBE(byte[] content, int offset) {
+        return (readUnsignedShortBE(content, offset) << 16) | readUnsignedShortBE(content, offset + 2);
+    }
+
+    private static int readIntLE(byte[] content, int offset) {
+        return readUnsignedShortLE(content, offset) | (readUnsignedShortLE(content, offset + 2) << 16);
+    }
+
+    private static int readUnsignedShort(byte[] content, int offset, boolean littleEndian) {
+        return littleEndian ? readUnsignedShortLE(content, offset) : readUnsignedShortBE(content, offset);
+    }
+
+    private static int readInt(byte[] content, int offset, boolean littleEndian) {
+        return littleEndian ? readIntLE(content, offset) : readIntBE(content, offset);
+    }
+}
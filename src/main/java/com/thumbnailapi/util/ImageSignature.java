@@ -0,0 +1,66 @@
+package com.thumbnailapi.util;
+
+/**
+ * Recognises supported image formats from their leading magic bytes.
+ *
+ * Shared by upload validation and format detection so both agree on what
+ * counts as an image.
+ */
+public final class ImageSignature {
+
+    /** Number of leading bytes needed to recognise every supported format. */
+    public static final int MAX_SIGNATURE_BYTES = 12;
+
+    private ImageSignature() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+
+    /**
+     * Detects the format of an image from its first bytes.
+     *
+     * @param content buffer starting with the image data
+     * @param length number of valid bytes in the buffer
+     * @return the format (e.g., "JPEG", "PNG"), or null when no signature matches
+     */
+    public static String detect(byte[] content, int length) {
+        if (isJpeg(content, length)) return "JPEG";
+        if (isPng(content, length)) return "PNG";
+        if (isGif(content, length)) return "GIF";
+        if (isBmp(content, length)) return "BMP";
+        if (isWebp(content, length)) return "WEBP";
+        if (isTiff(content, length)) return "TIFF";
+        return null;
+    }
+
+    private static boolean isJpeg(byte[] content, int length) {
+        return length >= 3 && content[0] == (byte) 0xFF &&
+               content[1] == (byte) 0xD8 && content[2] == (byte) 0xFF;
+    }
+
+    private static boolean isPng(byte[] content, int length) {
+        return length >= 8 && content[0] == (byte) 0x89 &&
+               content[1] == 0x50 && content[2] == 0x4E && content[3] == 0x47;
+    }
+
+    private static boolean isGif(byte[] content, int length) {
+        return length >= 6 && content[0] == 0x47 && content[1] == 0x49 &&
+               content[2] == 0x46;
+    }
+
+    private static boolean isBmp(byte[] content, int length) {
+        return length >= 2 && content[0] == 0x42 && content[1] == 0x4D;
+    }
+
+    private static boolean isWebp(byte[] content, int length) {
+        return length >= 12 && content[0] == 0x52 && content[1] == 0x49 &&
+               content[2] == 0x46 && content[3] == 0x46 && content[8] == 0x57 &&
+               content[9] == 0x45 && content[10] == 0x42 && content[11] == 0x50;
+    }
+
+    private static boolean isTiff(byte[] content, int length) {
+        return length >= 4 && ((content[0] == 0x49 && content[1] == 0x49 &&
+               content[2] == 0x2A && content[3] == 0x00) ||
+               (content[0] == 0x4D && content[1] == 0x4D &&
+               content[2] == 0x00 && content[3] == 0x2A));
+    }
+}
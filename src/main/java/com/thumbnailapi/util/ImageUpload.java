@@ -0,0 +1,13 @@
+package com.thumbnailapi.util;
+
+/**
+ * Content of an uploaded image, read once and shared by every later stage.
+ *
+ * @param data the complete upload; decoders wrap it without copying
+ * @param format format identified from the leading signature bytes
+ * @param contentHash SHA-256 hex hash of {@code data}
+ * @param validationNanos time spent validating the declared size, signature and header
+ * @param readNanos time spent reading and hashing the upload stream
+ */
+public record ImageUpload(byte[] data, String format, String contentHash, long validationNanos, long readNanos) {
+}
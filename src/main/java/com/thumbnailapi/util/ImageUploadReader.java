@@ -0,0 +1,122 @@
+package com.thumbnailapi.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.thumbnailapi.exception.FileSizeLimitExceededException;
+import com.thumbnailapi.exception.ImageTooLargeException;
+import com.thumbnailapi.exception.InvalidImageException;
+import com.thumbnailapi.exception.UnsupportedFormatException;
+
+/**
+ * Reads an uploaded image in a single pass over its stream.
+ *
+ * The declared size and MIME type are validated first, then the stream is read
+ * straight into one buffer of exactly the upload's size. The format is sniffed
+ * from the first bytes, so a non-image is rejected before the rest is read,
+ * and the content hash is updated as each chunk arrives.
+ *
+ * When header limits are enabled the first few KB are probed for the declared
+ * dimensions and frame count, so a decompression bomb is rejected before its
+ * body is buffered. Headers beyond that window, and frames spread over the whole
+ * file, are checked once the upload has been read, still before any decoding.
+ */
+@Component
+public class ImageUploadReader {
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private final ImageValidator imageValidator;
+
+    public ImageUploadReader(ImageValidator imageValidator) {
+        this.imageValidator = imageValidator;
+    }
+
+    /**
+     * Validates and reads an uploaded image.
+     *
+     * @param file the uploaded image file
+     * @return the content, its format and content hash
+     * @throws FileSizeLimitExceededException if file exceeds size limit
+     * @throws UnsupportedFormatException if file format is not supported
+     * @throws ImageTooLargeException if the header exceeds the pixel or frame limits
+     * @throws InvalidImageException if file is not a valid image or cannot be read
+     */
+    public ImageUpload read(MultipartFile file) {
+        long startTime = System.nanoTime();
+        imageValidator.validateUpload(file);
+        long validationNanos = System.nanoTime() - startTime;
+
+        int size = Math.toIntExact(file.getSize());
+        byte[] data = new byte[size];
+        MessageDigest digest = ContentHasher.newDigest();
+
+        try (InputStream input = file.getInputStream()) {
+            int offset = input.readNBytes(data, 0, Math.min(size, ImageSignature.MAX_SIGNATURE_BYTES));
+            long validateStart = System.nanoTime();
+            String format = imageValidator.validateSignature(data, offset);
+            validationNanos += System.nanoTime() - validateStart;
+            digest.update(data, 0, offset);
+
+            int probeBytes = imageValidator.headerProbeBytes();
+            if (probeBytes > 0) {
+                offset = readUpTo(input, data, offset, Math.min(size, probeBytes), digest);
+                validateStart = System.nanoTime();
+                imageValidator.validateHeader(data, offset, format);
+                validationNanos += System.nanoTime() - validateStart;
+            }
+
+            offset = readUpTo(input, data, offset, size, digest);
+            if (probeBytes > 0 && probeBytes < size) {
+                validateStart = System.nanoTime();
+                imageValidator.validateHeader(data, size, format);
+                validationNanos += System.nanoTime() - validateStart;
+            }
+
+            String contentHash = ContentHasher.toHex(digest.digest());
+            long readNanos = System.nanoTime() - startTime - validationNanos;
+            return new ImageUpload(data, format, contentHash, validationNanos, readNanos);
+
+        } catch (IOException e) {
+            throw new InvalidImageException("Failed to read image file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Starts an upload whose content arrives in chunks, validating its declared
+     * MIME type up front.
+     *
+     * @param contentType the declared Content-Type of the upload, may be null
+     * @param sizeHint expected size in bytes, used to size the buffer; 0 if unknown
+     * @return the upload to append the chunks to
+     * @throws UnsupportedFormatException if the declared type is not supported
+     * @throws FileSizeLimitExceededException if the hint already exceeds the size limit
+     */
+    public IncrementalUpload begin(String contentType, long sizeHint) {
+        imageValidator.validateMimeType(contentType);
+        return new IncrementalUpload(imageValidator, sizeHint);
+    }
+
+    /**
+     * Reads the stream into the buffer until {@code end}, updating the digest.
+     *
+     * @return the new offset, always {@code end}
+     */
+    private static int readUpTo(InputStream input, byte[] data, int offset, int end, MessageDigest digest)
+            throws IOException {
+        while (offset < end) {
+            int read = input.read(data, offset, Math.min(CHUNK_BYTES, end - offset));
+            if (read < 0) {
+                throw new InvalidImageException(
+                    String.format("Upload ended after %d of %d bytes", offset, data.length));
+            }
+            digest.update(data, offset, read);
+            offset += read;
+        }
+        return offset;
+    }
+}
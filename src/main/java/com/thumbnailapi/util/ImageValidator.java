@@ -1,40 +1,141 @@
 package com.thumbnailapi.util;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.thumbnailapi.config.ThumbnailProperties;
 import com.thumbnailapi.exception.FileSizeLimitExceededException;
+import com.thumbnailapi.exception.ImageTooLargeException;
 import com.thumbnailapi.exception.InvalidImageException;
 import com.thumbnailapi.exception.UnsupportedFormatException;
 
 /**
  * Validator for image files.
  * 
- * Checks file size, format, and integrity of uploaded images.
+ * Checks file size, format, and integrity of uploaded images, and the pixel
+ * and frame counts declared in their headers.
  */
 @Component
 public class ImageValidator {
 
     private static final Logger logger = LogManager.getLogger(ImageValidator.class);
 
+    private final ThumbnailProperties.Limits limits;
+
+    /**
+     * Creates a validator without header limits.
+     */
+    public ImageValidator() {
+        this(new ThumbnailProperties());
+    }
+
+    /**
+     * Creates a validator enforcing the {@code thumbnail.limits.*} settings.
+     */
+    @Autowired
+    public ImageValidator(ThumbnailProperties properties) {
+        this.limits = properties.getLimits();
+    }
+
     /**
      * Validates an uploaded image file.
      * 
+     * Only the leading signature bytes of the content are read.
+     * 
      * @param file the multipart file to validate
      * @throws FileSizeLimitExceededException if file exceeds size limit
      * @throws UnsupportedFormatException if file format is not supported
      * @throws InvalidImageException if file is not a valid image
      */
     public void validate(MultipartFile file) {
-        validateNotNull(file);
-        validateFileSize(file);
-        validateMimeType(file);
+        validateUpload(file);
         validateFileContent(file);
-        logger.debug("Image validation passed for file: {}", file.getOriginalFilename());
+    }
+
+    /**
+     * Validates everything about an upload that is known before its content is read.
+     * 
+     * @param file the multipart file to validate
+     * @throws FileSizeLimitExceededException if file exceeds size limit
+     * @throws UnsupportedFormatException if file format is not supported
+     * @throws InvalidImageException if the file is empty
+     */
+    public void validateUpload(MultipartFile file) {
+        validateNotNull(file);
+        validateFileSize(file.getSize());
+        validateMimeType(file.getContentType());
+    }
+
+    /**
+     * Validates the image file signature (magic bytes) to ensure it's a valid image.
+     * 
+     * @param content buffer starting with the image data
+     * @param length number of valid bytes in the buffer
+     * @return the format the signature identifies (e.g., "JPEG", "PNG")
+     * @throws InvalidImageException if no supported signature matches
+     */
+    public String validateSignature(byte[] content, int length) {
+        if (length < 4) {
+            throw new InvalidImageException("File is too small to be a valid image");
+        }
+
+        String format = ImageSignature.detect(content, length);
+        if (format == null) {
+            throw new InvalidImageException("File is not a valid image or is corrupted");
+        }
+        return format;
+    }
+
+    /**
+     * Returns how many leading bytes should be probed with {@link #validateHeader}
+     * before the rest of an upload is read.
+     */
+    public int headerProbeBytes() {
+        return limits.isEnabled() ? (int) Math.min(Integer.MAX_VALUE, limits.getProbeSize().toBytes()) : 0;
+    }
+
+    /**
+     * Validates the pixel and frame counts declared in the image header.
+     * 
+     * Works on a prefix of the upload: a header not yet within the bytes passes,
+     * and frames are counted over the given bytes only.
+     * 
+     * @param content buffer starting with the image data
+     * @param length number of valid bytes in the buffer
+     * @param format the format identified by {@link #validateSignature}
+     * @throws ImageTooLargeException if a frame has too many pixels or there are too many frames
+     */
+    public void validateHeader(byte[] content, int length, String format) {
+        if (!limits.isEnabled()) {
+            return;
+        }
+
+        ImageHeader header = ImageHeaderProbe.probe(content, length, format);
+        if (header.pixels() > limits.getMaxPixels()) {
+            String message = String.format(
+                "Image dimensions %dx%d exceed the maximum of %d pixels",
+                header.width(),
+                header.height(),
+                limits.getMaxPixels()
+            );
+            logger.warn(message);
+            throw new ImageTooLargeException(message);
+        }
+        if (header.frames() > limits.getMaxFrames()) {
+            String message = String.format(
+                "Image has more than %d frames (found %d)",
+                limits.getMaxFrames(),
+                header.frames()
+            );
+            logger.warn(message);
+            throw new ImageTooLargeException(message);
+        }
     }
 
     /**
@@ -47,13 +148,16 @@ public class ImageValidator {
     }
 
     /**
-     * Validates the file size.
+     * Validates the size of an upload, or of the part of it received so far.
+     * 
+     * @param size the size in bytes
+     * @throws FileSizeLimitExceededException if the size exceeds the limit
      */
-    private void validateFileSize(MultipartFile file) {
-        if (file.getSize() > Constants.MAX_FILE_SIZE_BYTES) {
+    public void validateFileSize(long size) {
+        if (size > Constants.MAX_FILE_SIZE_BYTES) {
             String message = String.format(
                 "File size %d bytes exceeds maximum allowed size of %d bytes",
-                file.getSize(),
+                size,
                 Constants.MAX_FILE_SIZE_BYTES
             );
             logger.warn(message);
@@ -62,11 +166,12 @@ public class ImageValidator {
     }
 
     /**
-     * Validates the MIME type.
+     * Validates the declared MIME type of an upload.
+     * 
+     * @param mimeType the Content-Type of the upload, may be null
+     * @throws UnsupportedFormatException if the type is not a supported image type
      */
-    private void validateMimeType(MultipartFile file) {
-        String mimeType = file.getContentType();
-        
+    public void validateMimeType(String mimeType) {
         if (mimeType == null || !Constants.SUPPORTED_MIME_TYPES.contains(mimeType.toLowerCase())) {
             String message = String.format(
                 "Unsupported image format: %s. Supported formats: %s",
@@ -79,65 +184,17 @@ public class ImageValidator {
     }
 
     /**
-     * Validates that the file is a valid image by attempting to read it.
+     * Validates that the file starts with a supported image signature.
      */
     private void validateFileContent(MultipartFile file) {
-        try {
-            byte[] content = file.getBytes();
-            if (content.length == 0) {
+        try (InputStream input = file.getInputStream()) {
+            byte[] header = input.readNBytes(ImageSignature.MAX_SIGNATURE_BYTES);
+            if (header.length == 0) {
                 throw new InvalidImageException("Image file content is empty");
             }
-            validateImageSignature(content);
+            validateSignature(header, header.length);
         } catch (IOException e) {
             throw new InvalidImageException("Failed to read image file: " + e.getMessage(), e);
         }
     }
-
-    /**
-     * Validates the image file signature (magic bytes) to ensure it's a valid image.
-     */
-    private void validateImageSignature(byte[] content) {
-        if (content.length < 4) {
-            throw new InvalidImageException("File is too small to be a valid image");
-        }
-
-        boolean isValidImage = isJpeg(content) || isPng(content) || isGif(content) || 
-                              isBmp(content) || isWebp(content) || isTiff(content);
-
-        if (!isValidImage) {
-            throw new InvalidImageException("File is not a valid image or is corrupted");
-        }
-    }
-
-    private boolean isJpeg(byte[] content) {
-        return content.length >= 3 && content[0] == (byte) 0xFF && 
-               content[1] == (byte) 0xD8 && content[2] == (byte) 0xFF;
-    }
-
-    private boolean isPng(byte[] content) {
-        return content.length >= 8 && content[0] == (byte) 0x89 && 
-               content[1] == 0x50 && content[2] == 0x4E && content[3] == 0x47;
-    }
-
-    private boolean isGif(byte[] content) {
-        return content.length >= 6 && content[0] == 0x47 && content[1] == 0x49 && 
-               content[2] == 0x46;
-    }
-
-    private boolean isBmp(byte[] content) {
-        return content.length >= 2 && content[0] == 0x42 && content[1] == 0x4D;
-    }
-
-    private boolean isWebp(byte[] content) {
-        return content.length >= 12 && content[0] == 0x52 && content[1] == 0x49 && 
-               content[2] == 0x46 && content[3] == 0x46 && content[8] == 0x57 && 
-               content[9] == 0x45 && content[10] == 0x42 && content[11] == 0x50;
-    }
-
-    private boolean isTiff(byte[] content) {
-        return content.length >= 4 && ((content[0] == 0x49 && content[1] == 0x49 && 
-               content[2] == 0x2A && content[3] == 0x00) ||
-               (content[0] == 0x4D && content[1] == 0x4D && 
-               content[2] == 0x00 && content[3] == 0x2A));
-    }
 }
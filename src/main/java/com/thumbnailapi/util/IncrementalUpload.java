@@ -0,0 +1,119 @@
+package com.thumbnailapi.util;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import com.thumbnailapi.exception.FileSizeLimitExceededException;
+import com.thumbnailapi.exception.ImageTooLargeException;
+import com.thumbnailapi.exception.InvalidImageException;
+
+/**
+ * An upload read chunk by chunk as it arrives, for bodies received as a stream
+ * of buffers rather than as a {@code MultipartFile}.
+ *
+ * Runs the checks of {@link ImageUploadReader#read} as soon as enough bytes are
+ * in: the size limit on every chunk, the signature once its leading bytes have
+ * arrived and the header probe once the probe window is filled. A non-image or
+ * a decompression bomb is therefore rejected while the rest of the body is still
+ * on the wire. Headers beyond the probe window are checked by {@link #finish()}.
+ *
+ * Not thread-safe; chunks must be appended in order from one thread at a time.
+ */
+public final class IncrementalUpload {
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final ImageValidator imageValidator;
+    private final MessageDigest digest = ContentHasher.newDigest();
+    private final int probeBytes;
+    private byte[] data;
+    private int size;
+    private String format;
+    private int probedBytes;
+    private long validationNanos;
+    private long readNanos;
+
+    IncrementalUpload(ImageValidator imageValidator, long sizeHint) {
+        this.imageValidator = imageValidator;
+        this.probeBytes = imageValidator.headerProbeBytes();
+        this.data = new byte[sizeHint > 0
+            ? (int) Math.min(sizeHint, Constants.MAX_FILE_SIZE_BYTES)
+            : INITIAL_CAPACITY];
+    }
+
+    /**
+     * Copies the remaining bytes of the chunk into the upload, leaving the chunk
+     * consumed, and runs every check that has become possible.
+     *
+     * @param chunk the next bytes of the upload
+     * @throws FileSizeLimitExceededException if the upload grows beyond the size limit
+     * @throws InvalidImageException if the leading bytes are not a supported image signature
+     * @throws ImageTooLargeException if the probed header exceeds the pixel or frame limits
+     */
+    public void append(ByteBuffer chunk) {
+        int length = chunk.remaining();
+        if (length == 0) {
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        imageValidator.validateFileSize((long) size + length);
+        long validated = System.nanoTime();
+        if (size + length > data.length) {
+            data = Arrays.copyOf(data, (int) Math.min(Constants.MAX_FILE_SIZE_BYTES,
+                Math.max((long) size + length, 2L * data.length)));
+        }
+        chunk.get(data, size, length);
+        digest.update(data, size, length);
+        size += length;
+        long read = System.nanoTime();
+
+        if (format == null && size >= ImageSignature.MAX_SIGNATURE_BYTES) {
+            format = imageValidator.validateSignature(data, size);
+        }
+        if (format != null && probeBytes > 0 && probedBytes == 0 && size >= probeBytes) {
+            imageValidator.validateHeader(data, size, format);
+            probedBytes = size;
+        }
+        long finished = System.nanoTime();
+
+        validationNanos += (validated - startTime) + (finished - read);
+        readNanos += read - validated;
+    }
+
+    /**
+     * Returns the number of bytes received so far.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Completes the upload once its last chunk has been appended.
+     *
+     * @return the content, its format and content hash
+     * @throws InvalidImageException if the upload is empty or not a supported image
+     * @throws ImageTooLargeException if the header exceeds the pixel or frame limits
+     */
+    public ImageUpload finish() {
+        if (size == 0) {
+            throw new InvalidImageException("Uploaded file is empty or null");
+        }
+
+        long startTime = System.nanoTime();
+        if (format == null) {
+            format = imageValidator.validateSignature(data, size);
+        }
+        if (probeBytes > 0 && probedBytes < size) {
+            imageValidator.validateHeader(data, size, format);
+        }
+        long validated = System.nanoTime();
+        validationNanos += validated - startTime;
+
+        byte[] content = size == data.length ? data : Arrays.copyOf(data, size);
+        String contentHash = ContentHasher.toHex(digest.digest());
+        readNanos += System.nanoTime() - validated;
+        return new ImageUpload(content, format, contentHash, validationNanos, readNanos);
+    }
+}
@@ -0,0 +1,48 @@
+package com.thumbnailapi.util;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Media types and file extensions of the formats thumbnails are encoded in.
+ *
+ * Thumbnails keep the format of their original, so these are the formats
+ * {@link ImageFormatDetector#detectFormat(byte[])} reports.
+ */
+public final class OutputFormats {
+
+    /** Every output format, most common first. */
+    public static final List<String> ALL = List.of("JPEG", "PNG", "WEBP", "GIF", "BMP", "TIFF");
+
+    private OutputFormats() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+
+    /**
+     * Returns the media type of an output format.
+     */
+    public static String mediaTypeOf(String format) {
+        return switch (format.toUpperCase(Locale.ROOT)) {
+            case "PNG" -> "image/png";
+            case "GIF" -> "image/gif";
+            case "BMP" -> "image/bmp";
+            case "WEBP" -> "image/webp";
+            case "TIFF" -> "image/tiff";
+            default -> "image/jpeg";
+        };
+    }
+
+    /**
+     * Returns the file extension of an output format, without the dot.
+     */
+    public static String extensionOf(String format) {
+        return switch (format.toUpperCase(Locale.ROOT)) {
+            case "PNG" -> "png";
+            case "GIF" -> "gif";
+            case "BMP" -> "bmp";
+            case "WEBP" -> "webp";
+            case "TIFF" -> "tiff";
+            default -> "jpg";
+        };
+    }
+}
@@ -0,0 +1,103 @@
+package com.thumbnailapi.admission;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.exception.ServiceOverloadedException;
+
+/**
+ * Unit tests for PixelMemoryBudget.
+ */
+class PixelMemoryBudgetTest {
+
+    private static final long BUDGET_BYTES = DataSize.ofMegabytes(1).toBytes();
+
+    private ThumbnailProperties properties;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        properties = new ThumbnailProperties();
+        properties.getAdmission().setEnabled(true);
+        properties.getAdmission().setMaxPixelMemory(DataSize.ofMegabytes(1));
+        properties.getAdmission().setQueueTimeout(Duration.ZERO);
+        properties.getAdmission().setRetryAfter(Duration.ofSeconds(3));
+    }
+
+    @Test
+    void testReservationIsReturnedOnClose() {
+        PixelMemoryBudget budget = new PixelMemoryBudget(properties);
+
+        PixelMemoryBudget.Reservation reservation = budget.reserve(300_000);
+        assertEquals(300_032, reservation.bytes());
+        assertEquals(300_032, budget.reservedBytes());
+        assertEquals(BUDGET_BYTES - 300_032, budget.availableBytes());
+
+        reservation.close();
+        reservation.close();
+        assertEquals(0, budget.reservedBytes());
+        assertEquals(BUDGET_BYTES, budget.availableBytes());
+    }
+
+    @Test
+    void testExhaustedBudgetRejectsWithRetryAfter() {
+        PixelMemoryBudget budget = new PixelMemoryBudget(properties);
+
+        try (PixelMemoryBudget.Reservation held = budget.reserve(BUDGET_BYTES - 1024)) {
+            ServiceOverloadedException e = assertThrows(ServiceOverloadedException.class,
+                () -> budget.reserve(2048));
+            assertEquals(Duration.ofSeconds(3), e.getRetryAfter());
+            assertEquals(1, budget.rejections());
+        }
+
+        budget.reserve(2048).close();
+    }
+
+    @Test
+    void testOversizeRequestIsClampedToWholeBudget() {
+        PixelMemoryBudget budget = new PixelMemoryBudget(properties);
+
+        try (PixelMemoryBudget.Reservation reservation = budget.reserve(10 * BUDGET_BYTES)) {
+            assertEquals(BUDGET_BYTES, reservation.bytes());
+            assertThrows(ServiceOverloadedException.class, () -> budget.reserve(1));
+        }
+    }
+
+    @Test
+    void testQueuedRequestIsAdmittedOnceMemoryIsReleased() throws Exception {
+        properties.getAdmission().setQueueTimeout(Duration.ofSeconds(10));
+        PixelMemoryBudget budget = new PixelMemoryBudget(properties);
+        PixelMemoryBudget.Reservation held = budget.reserve(BUDGET_BYTES);
+
+        CompletableFuture<PixelMemoryBudget.Reservation> waiting =
+            CompletableFuture.supplyAsync(() -> budget.reserve(BUDGET_BYTES / 2));
+        Thread.sleep(100);
+        assertFalse(waiting.isDone());
+
+        held.close();
+        try (PixelMemoryBudget.Reservation admitted = waiting.get(5, TimeUnit.SECONDS)) {
+            assertEquals(BUDGET_BYTES / 2, admitted.bytes());
+        }
+    }
+
+    @Test
+    void testDisabledBudgetNeverBlocks() {
+        properties.getAdmission().setEnabled(false);
+        PixelMemoryBudget budget = new PixelMemoryBudget(properties);
+
+        try (PixelMemoryBudget.Reservation first = budget.reserve(10 * BUDGET_BYTES);
+             PixelMemoryBudget.Reservation second = budget.reserve(10 * BUDGET_BYTES)) {
+            assertEquals(0, first.bytes());
+            assertEquals(0, second.bytes());
+        }
+    }
+}
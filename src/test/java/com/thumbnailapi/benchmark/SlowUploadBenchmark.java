@@ -0,0 +1,252 @@
+package com.thumbnailapi.benchmark;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.thumbnailapi.ThumbnailApiApplication;
+
+/**
+ * Throughput and tail latency of many concurrent, slowly trickled uploads in
+ * platform and virtual execution mode, and on the reactive endpoint.
+ *
+ * Not part of the regular test run. Start it explicitly:
+ * <pre>
+ * mvn test -Dtest=SlowUploadBenchmark -Dbenchmark.clients=400 -Dbenchmark.chunkDelayMs=50
+ * </pre>
+ * Each client sends its multipart body in {@code benchmark.chunks} pieces with
+ * {@code benchmark.chunkDelayMs} between them, so the request thread spends most
+ * of its time blocked on the socket. Tomcat is capped at
+ * {@code benchmark.tomcatThreads} platform threads, 200 as in the prod profile;
+ * the virtual case needs a Java 21 runtime. The reactive case posts the same
+ * body to the reactive endpoint, which reads it without holding a thread. Each
+ * case also reports the most Tomcat threads that were busy at once and the
+ * latency of health checks sent while the uploads are in progress.
+ */
+class SlowUploadBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 400);
+    private static final int CHUNKS = Integer.getInteger("benchmark.chunks", 20);
+    private static final long CHUNK_DELAY_MS = Long.getLong("benchmark.chunkDelayMs", 50);
+    private static final int TOMCAT_THREADS = Integer.getInteger("benchmark.tomcatThreads", 200);
+    private static final String MVC_PATH = "/api/v1/thumbnails";
+    private static final String REACTIVE_PATH = "/api/v1/reactive/thumbnails";
+    private static final String BOUNDARY = "benchmark-boundary";
+
+    @Test
+    void platformThreads() throws Exception {
+        report("platform", run("platform", MVC_PATH));
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void virtualThreads() throws Exception {
+        report("virtual", run("virtual", MVC_PATH));
+    }
+
+    @Test
+    void reactiveEndpoint() throws Exception {
+        report("reactive", run("platform", REACTIVE_PATH));
+    }
+
+    private static Result run(String mode, String path) throws Exception {
+        byte[] body = multipartBody(testImage());
+        // Command-line arguments, so they take precedence over application.properties
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ThumbnailApiApplication.class)
+                .run(
+                    "--server.port=0",
+                    "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                    "--server.tomcat.max-connections=2000",
+                    "--server.tomcat.accept-count=1000",
+                    "--thumbnail.execution.mode=" + mode,
+                    "--thumbnail.reactive.max-uploads=" + CLIENTS,
+                    "--thumbnail.reactive.max-queued=" + CLIENTS,
+                    "--thumbnail.cache.enabled=false",
+                    "--thumbnail.store.enabled=false")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+            // Warm up the JIT and the pools before measuring
+            upload(port, path, body, 1, 0);
+
+            MeterRegistry registry = context.getBean(MeterRegistry.class);
+            AtomicInteger peakBusy = new AtomicInteger();
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+            sampler.scheduleAtFixedRate(() -> peakBusy.accumulateAndGet(busyThreads(registry), Math::max),
+                0, 10, TimeUnit.MILLISECONDS);
+
+            ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> latencies = new ArrayList<>(CLIENTS);
+            for (int i = 0; i < CLIENTS; i++) {
+                latencies.add(clients.submit(() -> {
+                    start.await();
+                    return upload(port, path, body, CHUNKS, CHUNK_DELAY_MS);
+                }));
+            }
+
+            // Probe a cheap endpoint throughout, to see whether the uploads starve other requests
+            List<Long> healthNanos = new ArrayList<>();
+            AtomicBoolean loaded = new AtomicBoolean(true);
+            Thread prober = new Thread(() -> {
+                while (loaded.get()) {
+                    try {
+                        healthNanos.add(health(port));
+                        Thread.sleep(100);
+                    } catch (Exception e) {
+                        return;
+                    }
+                }
+            });
+
+            long begin = System.nanoTime();
+            start.countDown();
+            prober.start();
+            long[] nanos = new long[CLIENTS];
+            for (int i = 0; i < CLIENTS; i++) {
+                nanos[i] = latencies.get(i).get(5, TimeUnit.MINUTES);
+            }
+            long wall = System.nanoTime() - begin;
+            loaded.set(false);
+            prober.join();
+            clients.shutdown();
+            sampler.shutdown();
+            return new Result(nanos, wall, peakBusy.get(), healthNanos.stream().mapToLong(Long::longValue).toArray());
+        }
+    }
+
+    /**
+     * Fetches the health endpoint and returns the time until the response was read.
+     */
+    private static long health(int port) throws IOException {
+        long begin = System.nanoTime();
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write(("GET /actuator/health HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            socket.getInputStream().readAllBytes();
+        }
+        return System.nanoTime() - begin;
+    }
+
+    private static int busyThreads(MeterRegistry registry) {
+        Gauge busy = registry.find("tomcat.threads.busy").gauge();
+        return busy == null ? 0 : (int) busy.value();
+    }
+
+    /**
+     * Sends one upload over a raw socket, trickling the body, and returns the
+     * time until the full response was read.
+     */
+    private static long upload(int port, String path, byte[] body, int chunks, long chunkDelayMs)
+            throws Exception {
+        long begin = System.nanoTime();
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream out = socket.getOutputStream();
+            String head = "POST " + path + " HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Content-Type: multipart/form-data; boundary=" + BOUNDARY + "\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+            out.write(head.getBytes(StandardCharsets.US_ASCII));
+
+            int chunkSize = (body.length + chunks - 1) / chunks;
+            for (int offset = 0; offset < body.length; offset += chunkSize) {
+                out.write(body, offset, Math.min(chunkSize, body.length - offset));
+                out.flush();
+                if (chunkDelayMs > 0) {
+                    Thread.sleep(chunkDelayMs);
+                }
+            }
+
+            InputStream in = socket.getInputStream();
+            byte[] response = in.readAllBytes();
+            String statusLine = new String(response, 0, Math.min(response.length, 12), StandardCharsets.US_ASCII);
+            assertEquals("HTTP/1.1 200", statusLine, () -> new String(response, StandardCharsets.UTF_8));
+        }
+        return System.nanoTime() - begin;
+    }
+
+    private static byte[] multipartBody(byte[] image) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"bench.jpg\"\r\n"
+            + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.write(image);
+        body.write(("\r\n--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"sizes\"\r\n\r\n"
+            + "small,medium\r\n"
+            + "--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return body.toByteArray();
+    }
+
+    private static byte[] testImage() throws IOException {
+        BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        for (int x = 0; x < 800; x += 40) {
+            graphics.setColor(new Color(x % 256, (x * 3) % 256, 128));
+            graphics.fillRect(x, 0, 40, 600);
+        }
+        graphics.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static void report(String mode, Result result) {
+        long[] sorted = result.nanos().clone();
+        Arrays.sort(sorted);
+        double seconds = result.wallNanos() / 1e9;
+        System.out.printf("%n[%s] clients=%d chunks=%d chunkDelay=%dms tomcatThreads=%d%n",
+            mode, CLIENTS, CHUNKS, CHUNK_DELAY_MS, TOMCAT_THREADS);
+        System.out.printf("[%s] throughput=%.1f req/s wall=%.2fs%n", mode, sorted.length / seconds, seconds);
+        System.out.printf("[%s] p50=%dms p90=%dms p99=%dms max=%dms%n", mode,
+            percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.90),
+            percentileMillis(sorted, 0.99), TimeUnit.NANOSECONDS.toMillis(sorted[sorted.length - 1]));
+        System.out.printf("[%s] peakBusyTomcatThreads=%d%n", mode, result.peakBusyThreads());
+        long[] health = result.healthNanos().clone();
+        Arrays.sort(health);
+        if (health.length > 0) {
+            System.out.printf("[%s] health probes=%d p50=%dms max=%dms%n", mode, health.length,
+                percentileMillis(health, 0.50), TimeUnit.NANOSECONDS.toMillis(health[health.length - 1]));
+        }
+    }
+
+    private static long percentileMillis(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, index)]);
+    }
+
+    private record Result(long[] nanos, long wallNanos, int peakBusyThreads, long[] healthNanos) {
+    }
+}
@@ -0,0 +1,113 @@
+package com.thumbnailapi.buffer;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.thumbnailapi.config.ThumbnailProperties;
+
+/**
+ * Unit tests for EncodeBufferPool and PooledImageOutputStream.
+ */
+class EncodeBufferPoolTest {
+
+    private EncodeBufferPool pool;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getEncode().setPoolEnabled(true);
+        properties.getEncode().setPoolMaxSize(DataSize.ofMegabytes(8));
+        pool = new EncodeBufferPool(properties);
+    }
+
+    @Test
+    void testAcquireRoundsUpToSizeClass() {
+        assertEquals(EncodeBufferPool.MIN_CLASS_BYTES, pool.acquire(100).length);
+        assertEquals(64 * 1024, pool.acquire(40_000).length);
+        assertEquals(64 * 1024, pool.acquire(64 * 1024).length);
+        assertEquals(3, pool.misses());
+        assertEquals(0, pool.hits());
+    }
+
+    @Test
+    void testReleasedBufferIsReused() {
+        byte[] buffer = pool.acquire(20_000);
+        pool.release(buffer);
+        assertEquals(buffer.length, pool.idleBytes());
+
+        assertSame(buffer, pool.acquire(30_000));
+        assertEquals(1, pool.hits());
+        assertEquals(0, pool.idleBytes());
+    }
+
+    @Test
+    void testOversizeAndForeignBuffersAreNotPooled() {
+        byte[] oversize = pool.acquire(EncodeBufferPool.MAX_CLASS_BYTES + 1);
+        pool.release(oversize);
+        pool.release(new byte[12_345]);
+
+        assertEquals(0, pool.idleBytes());
+    }
+
+    @Test
+    void testDisabledPoolDoesNotRetainBuffers() {
+        EncodeBufferPool disabled = new EncodeBufferPool(new ThumbnailProperties());
+        byte[] buffer = disabled.acquire(1000);
+        disabled.release(buffer);
+
+        assertNotSame(buffer, disabled.acquire(1000));
+        assertEquals(0, disabled.idleBytes());
+    }
+
+    @Test
+    void testStreamGrowsAndMatchesImageIoOutput() throws IOException {
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 300; x++) {
+                image.setRGB(x, y, (x * 7919) ^ (y * 104729));
+            }
+        }
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", expected);
+
+        // Deliberately too small an estimate so the stream has to move to larger buffers
+        PooledImageOutputStream output = new PooledImageOutputStream(pool, 16);
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        writer.setOutput(output);
+        writer.write(image);
+        writer.dispose();
+        output.flush();
+
+        ByteBuffer view = output.view();
+        byte[] actual = new byte[view.remaining()];
+        view.get(actual);
+        assertArrayEquals(expected.toByteArray(), actual);
+        assertTrue(view.isReadOnly());
+
+        output.release();
+        assertTrue(pool.idleBytes() > 0);
+    }
+
+    @Test
+    void testEstimateCoversUncompressedFormats() {
+        // 24-bit BMP: 54-byte header plus rows padded to 4 bytes
+        int bmpBytes = 54 + 101 * (101 * 3 + 1);
+        assertTrue(EncodeBufferPool.estimateEncodedSize(101, 101, "BMP") >= bmpBytes);
+        assertTrue(EncodeBufferPool.estimateEncodedSize(150, 150, "JPEG") > 0);
+    }
+}
@@ -0,0 +1,109 @@
+package com.thumbnailapi.cache;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.thumbnailapi.config.ThumbnailProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for ThumbnailCache.
+ */
+class ThumbnailCacheTest {
+
+    private static final ThumbnailKey KEY = new ThumbnailKey("abc123", 150, 150, "PNG", "default");
+
+    @Test
+    void testStoresBytesOffHeap() {
+        ThumbnailCache cache = createCache(DataSize.ofKilobytes(64));
+        byte[] encoded = {1, 2, 3, 4, 5};
+
+        cache.put(KEY, encoded, 150, 120);
+        CachedThumbnail cached = cache.get(KEY);
+
+        assertNotNull(cached);
+        assertTrue(cached.data().isDirect());
+        assertEquals(150, cached.width());
+        assertEquals(120, cached.height());
+        assertEquals(5, cached.sizeBytes());
+
+        ByteBuffer view = cached.view();
+        byte[] copy = new byte[view.remaining()];
+        view.get(copy);
+        assertArrayEquals(encoded, copy);
+    }
+
+    @Test
+    void testEtagFollowsTheBytesNotTheKey() {
+        ThumbnailCache cache = createCache(DataSize.ofKilobytes(64));
+        cache.put(KEY, new byte[] {1, 2, 3}, 150, 150);
+        String first = cache.get(KEY).etag();
+
+        cache.put(KEY, new byte[] {1, 2, 4}, 150, 150);
+        String regenerated = cache.get(KEY).etag();
+
+        assertNotEquals(first, regenerated);
+        cache.put(KEY, new byte[] {1, 2, 3}, 150, 150);
+        assertEquals(first, cache.get(KEY).etag());
+    }
+
+    @Test
+    void testDifferentSettingsMiss() {
+        ThumbnailCache cache = createCache(DataSize.ofKilobytes(64));
+        cache.put(KEY, new byte[10], 150, 150);
+
+        assertNull(cache.get(new ThumbnailKey("abc123", 150, 150, "PNG", "other")));
+        assertNull(cache.get(new ThumbnailKey("abc123", 300, 300, "PNG", "default")));
+    }
+
+    @Test
+    void testPayloadLargerThanBudgetIsNotCached() {
+        ThumbnailCache cache = createCache(DataSize.ofBytes(8));
+
+        cache.put(KEY, new byte[16], 150, 150);
+
+        assertNull(cache.get(KEY));
+    }
+
+    @Test
+    void testDisabledCacheNeverHits() {
+        ThumbnailCache cache = new ThumbnailCache(new ThumbnailProperties());
+
+        cache.put(KEY, new byte[10], 150, 150);
+
+        assertFalse(cache.isEnabled());
+        assertNull(cache.get(KEY));
+    }
+
+    @Test
+    void testPublishesHitAndMissCounters() {
+        ThumbnailCache cache = createCache(DataSize.ofKilobytes(64));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.put(KEY, new byte[10], 150, 150);
+        cache.get(KEY);
+        cache.get(new ThumbnailKey("missing", 150, 150, "PNG", "default"));
+
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "miss").functionCounter().count());
+        assertEquals(10.0, registry.get("thumbnail.cache.offheap.bytes").gauge().value());
+    }
+
+    private static ThumbnailCache createCache(DataSize maxSize) {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getCache().setEnabled(true);
+        properties.getCache().setMaxSize(maxSize);
+        return new ThumbnailCache(properties);
+    }
+}
@@ -0,0 +1,196 @@
+package com.thumbnailapi.color;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.color.ICC_ColorSpace;
+import java.awt.color.ICC_Profile;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for ColorNormalizer.
+ */
+class ColorNormalizerTest {
+
+    @Test
+    void testStandardLayoutsAreKept() {
+        for (int type : new int[] {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+                BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY}) {
+            BufferedImage image = new BufferedImage(8, 8, type);
+            NormalizedImage normalized = ColorNormalizer.normalize(image);
+
+            assertEquals(ConversionPath.NONE, normalized.path(), "type " + type);
+            assertSame(image, normalized.image());
+        }
+    }
+
+    @Test
+    void testSixteenBitRgbaIsRepackedWithAlpha() {
+        BufferedImage image = custom(ColorSpace.CS_sRGB, true, DataBuffer.TYPE_USHORT);
+        image.getRaster().setPixel(1, 2, new int[] {65535, 257 * 128, 0, 257 * 200});
+
+        NormalizedImage normalized = ColorNormalizer.normalize(image);
+
+        assertEquals(ConversionPath.COMPONENT, normalized.path());
+        assertEquals(BufferedImage.TYPE_INT_ARGB, normalized.image().getType());
+        assertEquals(0xC8FF8000, normalized.image().getRGB(1, 2));
+        assertSameColors(image, normalized.image(), 1);
+    }
+
+    @Test
+    void testGrayWithAlphaIsReplicated() {
+        BufferedImage image = custom(ColorSpace.CS_GRAY, true, DataBuffer.TYPE_BYTE);
+        image.getRaster().setPixel(3, 3, new int[] {100, 255});
+
+        NormalizedImage normalized = ColorNormalizer.normalize(image);
+
+        assertEquals(ConversionPath.COMPONENT, normalized.path());
+        assertEquals(0xFF646464, normalized.image().getRGB(3, 3));
+    }
+
+    @Test
+    void testSixteenBitGrayIsRepacked() {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_USHORT_GRAY);
+        image.getRaster().setSample(2, 2, 0, 257 * 77);
+
+        NormalizedImage normalized = ColorNormalizer.normalize(image);
+
+        assertEquals(ConversionPath.COMPONENT, normalized.path());
+        assertEquals(BufferedImage.TYPE_INT_RGB, normalized.image().getType());
+        assertEquals(0xFF4D4D4D, normalized.image().getRGB(2, 2));
+    }
+
+    @Test
+    void testProfileOtherThanSrgbIsConvertedToSrgb() {
+        BufferedImage image = custom(ColorSpace.CS_LINEAR_RGB, false, DataBuffer.TYPE_BYTE);
+        fillGradient(image.getRaster());
+
+        NormalizedImage normalized = ColorNormalizer.normalize(image);
+
+        assertEquals(ConversionPath.ICC, normalized.path());
+        assertEquals(BufferedImage.TYPE_INT_RGB, normalized.image().getType());
+        assertSameColors(image, normalized.image(), 2);
+    }
+
+    @Test
+    void testEmbeddedSrgbProfileIsRepackedWithoutConversion() {
+        ICC_Profile embedded = ICC_Profile.getInstance(ICC_Profile.getInstance(ColorSpace.CS_sRGB).getData());
+        ComponentColorModel colorModel = new ComponentColorModel(new ICC_ColorSpace(embedded), false, false,
+            Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        BufferedImage image = new BufferedImage(colorModel, colorModel.createCompatibleWritableRaster(16, 12),
+            false, null);
+        fillGradient(image.getRaster());
+
+        NormalizedImage normalized = ColorNormalizer.normalize(image);
+
+        assertEquals(ConversionPath.COMPONENT, normalized.path());
+        assertSameColors(image, normalized.image(), 1);
+    }
+
+    @Test
+    void testCmykJpegMatchesTheDecodersColors() throws IOException {
+        WritableRaster cmyk = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, 64, 48, 4, null);
+        for (int y = 0; y < 48; y++) {
+            for (int x = 0; x < 64; x++) {
+                cmyk.setPixel(x, y, new int[] {x * 4, y * 2, y * 5, x});
+            }
+        }
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(jpeg(cmyk)));
+
+        NormalizedImage normalized = ColorNormalizer.normalize(image);
+
+        assertEquals(ConversionPath.CMYK, normalized.path());
+        assertEquals(BufferedImage.TYPE_INT_RGB, normalized.image().getType());
+        assertSameColors(drawn(image), normalized.image(), 1);
+    }
+
+    @Test
+    void testPaletteImageIsExpanded() {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_BYTE_INDEXED);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.RED);
+            graphics.fillRect(0, 0, 4, 8);
+        } finally {
+            graphics.dispose();
+        }
+
+        NormalizedImage normalized = ColorNormalizer.normalize(image);
+
+        assertEquals(ConversionPath.INDEXED, normalized.path());
+        assertEquals(BufferedImage.TYPE_INT_RGB, normalized.image().getType());
+        assertSameColors(image, normalized.image(), 0);
+    }
+
+    private static BufferedImage custom(int colorSpace, boolean alpha, int dataType) {
+        ComponentColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(colorSpace), alpha, false,
+            alpha ? Transparency.TRANSLUCENT : Transparency.OPAQUE, dataType);
+        WritableRaster raster = colorModel.createCompatibleWritableRaster(16, 12);
+        BufferedImage image = new BufferedImage(colorModel, raster, false, null);
+        assertEquals(BufferedImage.TYPE_CUSTOM, image.getType());
+        return image;
+    }
+
+    private static void fillGradient(WritableRaster raster) {
+        for (int y = 0; y < raster.getHeight(); y++) {
+            for (int x = 0; x < raster.getWidth(); x++) {
+                raster.setPixel(x, y, new int[] {x * 16, y * 20, 255 - x * 8});
+            }
+        }
+    }
+
+    private static byte[] jpeg(Raster raster) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(raster, null, null), null);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static BufferedImage drawn(BufferedImage image) {
+        BufferedImage result = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = result.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return result;
+    }
+
+    private static void assertSameColors(BufferedImage expected, BufferedImage actual, int tolerance) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int e = expected.getRGB(x, y);
+                int a = actual.getRGB(x, y);
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int difference = Math.abs(((e >>> shift) & 0xFF) - ((a >>> shift) & 0xFF));
+                    assertTrue(difference <= tolerance, "pixel " + x + "," + y + ": "
+                        + Integer.toHexString(e) + " vs " + Integer.toHexString(a));
+                }
+            }
+        }
+    }
+}
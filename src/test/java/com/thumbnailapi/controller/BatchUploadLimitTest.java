@@ -0,0 +1,63 @@
+package com.thumbnailapi.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+
+/**
+ * Integration tests for the multipart request limit of the batch endpoint,
+ * against the embedded container that enforces it.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.servlet.multipart.max-file-size=1MB",
+    "spring.servlet.multipart.max-request-size=1MB",
+    "thumbnail.batch.max-request-size=4MB"
+})
+class BatchUploadLimitTest {
+
+    private static final int PART_BYTES = 700 * 1024;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    private static ByteArrayResource part(String filename) {
+        return new ByteArrayResource(new byte[PART_BYTES]) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+
+    @Test
+    void testBatchAcceptsRequestsAboveTheGlobalLimit() {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("files", part("a.bin"));
+        builder.part("files", part("b.bin"));
+
+        webTestClient.post().uri("/api/v1/thumbnails/batch")
+            .body(BodyInserters.fromMultipartData(builder.build()))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class)
+            .value(body -> assertEquals(2, body.lines().count()));
+    }
+
+    @Test
+    void testSingleUploadKeepsTheGlobalLimit() {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("file", part("a.bin"));
+        builder.part("extra", part("b.bin"));
+
+        webTestClient.post().uri("/api/v1/thumbnails")
+            .body(BodyInserters.fromMultipartData(builder.build()))
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+}
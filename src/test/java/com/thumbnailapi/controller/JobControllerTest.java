@@ -0,0 +1,209 @@
+package com.thumbnailapi.controller;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import com.jayway.jsonpath.JsonPath;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration tests for JobController.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class JobControllerTest {
+
+    private static final BlockingQueue<String> callbacks = new LinkedBlockingQueue<>();
+    private static final HttpServer callbackServer = startCallbackServer();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    @SuppressWarnings("unused")
+    static void callbackProperties(DynamicPropertyRegistry registry) {
+        registry.add("thumbnail.jobs.callback-allowed-urls",
+            () -> "http://127.0.0.1:" + callbackServer.getAddress().getPort() + "/hooks");
+        registry.add("thumbnail.jobs.callback-attempts", () -> "1");
+    }
+
+    @AfterAll
+    @SuppressWarnings("unused")
+    static void stopCallbackServer() {
+        callbackServer.stop(0);
+    }
+
+    private static HttpServer startCallbackServer() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/hooks", exchange -> {
+                callbacks.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates a 400x300 PNG filled with the given color.
+     */
+    private static byte[] createImageBytes(Color color) throws IOException {
+        BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(color);
+        g2d.fillRect(0, 0, 400, 300);
+        g2d.dispose();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", baos);
+        return baos.toByteArray();
+    }
+
+    @Test
+    void testJobIsQueuedThenPolledAndDownloaded() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "job.png", "image/png", createImageBytes(Color.PINK));
+
+        MvcResult submitted = mockMvc.perform(multipart("/api/v1/thumbnails/jobs").file(file)
+                .param("sizes", "small,64x64"))
+            .andExpect(status().isAccepted())
+            .andExpect(header().exists(HttpHeaders.LOCATION))
+            .andExpect(jsonPath("$.filename").value("job.png"))
+            .andReturn();
+        String jobId = JsonPath.read(submitted.getResponse().getContentAsString(), "$.job_id");
+        assertTrue(submitted.getResponse().getHeader(HttpHeaders.LOCATION).endsWith("/api/v1/thumbnails/jobs/" + jobId));
+
+        String body = awaitFinished(jobId);
+        assertEquals("succeeded", JsonPath.read(body, "$.status"));
+        assertEquals(2, (int) JsonPath.read(body, "$.result.thumbnails.length()"));
+        assertNotNull(JsonPath.read(body, "$.expires_at"));
+        String thumbnailUrl = JsonPath.read(body, "$.thumbnail_urls[1]");
+        assertTrue(thumbnailUrl.endsWith("/api/v1/thumbnails/jobs/" + jobId + "/thumbnails/1"));
+
+        byte[] thumbnail = mockMvc.perform(get("/api/v1/thumbnails/jobs/{id}/thumbnails/1", jobId))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("image/png"))
+            .andReturn().getResponse().getContentAsByteArray();
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(thumbnail));
+        assertEquals(64, image.getWidth());
+        assertEquals(48, image.getHeight());
+
+        mockMvc.perform(get("/api/v1/thumbnails/jobs/{id}/thumbnails/2", jobId))
+            .andExpect(status().isNotFound());
+        assertTrue(meterRegistry.get("thumbnail.jobs.wait").timer().count() >= 1);
+        assertTrue(meterRegistry.get("thumbnail.jobs.completed").tag("result", "succeeded").counter().count() >= 1);
+        assertNotNull(meterRegistry.get("thumbnail.jobs.oldest.queued.age").gauge());
+    }
+
+    @Test
+    void testInvalidUploadIsRejectedAtSubmission() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "notes.txt", "text/plain",
+            "this is not an image".getBytes());
+
+        mockMvc.perform(multipart("/api/v1/thumbnails/jobs").file(file))
+            .andExpect(status().isUnsupportedMediaType())
+            .andExpect(jsonPath("$.error").value("Unsupported Format"));
+    }
+
+    @Test
+    void testCallbackIsPostedWhenJobFinishes() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "hook.png", "image/png", createImageBytes(Color.ORANGE));
+        String callbackUrl = "http://127.0.0.1:" + callbackServer.getAddress().getPort() + "/hooks/thumbnails";
+
+        MvcResult submitted = mockMvc.perform(multipart("/api/v1/thumbnails/jobs").file(file)
+                .param("sizes", "small").param("callback_url", callbackUrl))
+            .andExpect(status().isAccepted())
+            .andReturn();
+        String jobId = JsonPath.read(submitted.getResponse().getContentAsString(), "$.job_id");
+
+        String callback = callbacks.poll(10, TimeUnit.SECONDS);
+        while (callback != null && !callback.contains(jobId)) {
+            callback = callbacks.poll(10, TimeUnit.SECONDS);
+        }
+        assertNotNull(callback, "no callback received");
+        assertEquals("succeeded", JsonPath.read(callback, "$.status"));
+        assertTrue(((String) JsonPath.read(callback, "$.status_url")).endsWith("/api/v1/thumbnails/jobs/" + jobId));
+    }
+
+    @Test
+    void testCallbackOutsideTheAllowlistIsRejected() throws Exception {
+        int port = callbackServer.getAddress().getPort();
+        String[] rejected = {
+            "http://127.0.0.1:" + port + "/hooksevil",
+            "http://127.0.0.1:" + (port + 1) + "/hooks",
+            "https://127.0.0.1:" + port + "/hooks",
+            "http://user@127.0.0.1:" + port + "/hooks",
+            "http://127.0.0.1:" + port + "/hooks/../admin",
+            "file:///etc/passwd"
+        };
+
+        for (String callbackUrl : rejected) {
+            MockMultipartFile file = new MockMultipartFile("file", "hook.png", "image/png",
+                createImageBytes(Color.GRAY));
+            mockMvc.perform(multipart("/api/v1/thumbnails/jobs").file(file).param("callback_url", callbackUrl))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid Callback"));
+        }
+    }
+
+    @Test
+    void testUnknownJobReturnsNotFound() throws Exception {
+        mockMvc.perform(get("/api/v1/thumbnails/jobs/{id}", "0b4c5e2a-0000-0000-0000-000000000000"))
+            .andExpect(status().isNotFound())
+            .andExpect(jsonPath("$.error").value("Job Not Found"));
+    }
+
+    private String awaitFinished(String jobId) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            String body = mockMvc.perform(get("/api/v1/thumbnails/jobs/{id}", jobId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+            String state = JsonPath.read(body, "$.status");
+            if (state.equals("succeeded") || state.equals("failed") || System.nanoTime() > deadline) {
+                return body;
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -3,47 +3,82 @@ package com.thumbnailapi.controller;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import javax.imageio.ImageIO;
 
+import com.jayway.jsonpath.JsonPath;
+import com.thumbnailapi.admission.PixelMemoryBudget;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
  * Integration tests for ThumbnailController.
  */
-@SpringBootTest
+@SpringBootTest(properties = "thumbnail.admission.queue-timeout=0s")
 @AutoConfigureMockMvc
 class ThumbnailControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private PixelMemoryBudget memoryBudget;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private byte[] testImageBytes;
 
     @BeforeEach
     @SuppressWarnings("unused")
     void setUp() throws IOException {
-        // Create a test image (200x200 PNG)
+        testImageBytes = createImageBytes(Color.BLUE);
+    }
+
+    /**
+     * Creates a 200x200 PNG filled with the given color.
+     */
+    private static byte[] createImageBytes(Color color) throws IOException {
         BufferedImage testImage = new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB);
         Graphics2D g2d = testImage.createGraphics();
-        g2d.setColor(Color.BLUE);
+        g2d.setColor(color);
         g2d.fillRect(0, 0, 200, 200);
         g2d.dispose();
 
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         ImageIO.write(testImage, "png", baos);
-        testImageBytes = baos.toByteArray();
+        return baos.toByteArray();
     }
 
     @Test
@@ -80,6 +115,256 @@ class ThumbnailControllerTest {
             .andExpect(jsonPath("$.thumbnails.length()").value(2));
     }
 
+    @Test
+    void testRepeatedUploadIsServedFromCache() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "repeat.png",
+            "image/png",
+            createImageBytes(Color.GREEN)
+        );
+
+        mockMvc.perform(multipart("/api/v1/thumbnails").file(file).param("sizes", "64x64"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.thumbnails[0].resize_source").value("original"));
+
+        mockMvc.perform(multipart("/api/v1/thumbnails").file(file).param("sizes", "64x64"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.thumbnails[0].resize_source").value("cache"))
+            .andExpect(jsonPath("$.thumbnails[0].width").value(64));
+    }
+
+    @Test
+    void testUploadRecordsEveryStageDuration() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "metrics.png",
+            "image/png",
+            createImageBytes(Color.ORANGE)
+        );
+
+        mockMvc.perform(multipart("/api/v1/thumbnails").file(file).param("sizes", "small,40x30"))
+            .andExpect(status().isOk());
+
+        for (String stage : new String[] {"validate", "read", "decode", "normalize", "serialize"}) {
+            Timer timer = meterRegistry.find("thumbnail.stage.duration")
+                .tags("stage", stage, "format", "PNG", "source_size", "lt1mp", "target", "all")
+                .timer();
+            assertTrue(timer != null && timer.count() > 0, stage);
+        }
+        for (String target : new String[] {"small", "custom"}) {
+            for (String stage : new String[] {"resize", "encode"}) {
+                Timer timer = meterRegistry.find("thumbnail.stage.duration")
+                    .tags("stage", stage, "target", target)
+                    .timer();
+                assertTrue(timer != null && timer.count() > 0, stage + " " + target);
+            }
+        }
+        assertEquals(0, meterRegistry.get("thumbnail.requests.in.flight").gauge().value());
+        assertEquals(0, meterRegistry.get("thumbnail.sizes.in.flight").gauge().value());
+        assertTrue(meterRegistry.find("executor.queued").tag("name", "thumbnailExecutor").gauge() != null);
+    }
+
+    @Test
+    void testMultipartResponseContainsImagesAndMetadata() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "test.png",
+            "image/png",
+            testImageBytes
+        );
+
+        MvcResult result = mockMvc.perform(multipart("/api/v1/thumbnails")
+                .file(file)
+                .param("sizes", "small,medium")
+                .param("response", "multipart"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        String contentType = result.getResponse().getContentType();
+        assertTrue(contentType.startsWith("multipart/mixed; boundary="));
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+        String body = new String(result.getResponse().getContentAsByteArray(), StandardCharsets.ISO_8859_1);
+
+        assertEquals(3, body.split("--" + boundary + "\r\n", -1).length - 1);
+        assertTrue(body.contains("filename=\"small.png\""));
+        assertTrue(body.contains("filename=\"medium.png\""));
+        assertTrue(body.contains("Content-Type: application/json"));
+        assertTrue(body.contains("\"original_filename\":\"test.png\""));
+        assertTrue(body.endsWith("--" + boundary + "--\r\n"));
+    }
+
+    @Test
+    void testZipResponseContainsImagesAndMetadata() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "test.png",
+            "image/png",
+            testImageBytes
+        );
+
+        MvcResult result = mockMvc.perform(multipart("/api/v1/thumbnails")
+                .file(file)
+                .param("sizes", "small,64x64")
+                .param("response", "zip"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/zip"))
+            .andReturn();
+
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(
+                new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+
+        assertEquals(3, entries.size());
+        BufferedImage small = ImageIO.read(new ByteArrayInputStream(entries.get("small.png")));
+        assertEquals(150, small.getWidth());
+        BufferedImage custom = ImageIO.read(new ByteArrayInputStream(entries.get("64x64.png")));
+        assertEquals(64, custom.getWidth());
+        assertTrue(new String(entries.get("metadata.json"), StandardCharsets.UTF_8)
+            .contains("\"original_format\":\"PNG\""));
+    }
+
+    @Test
+    void testStreamedResponseWithInvalidFileReturnsJsonError() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "test.txt",
+            "text/plain",
+            "this is not an image".getBytes()
+        );
+
+        mockMvc.perform(multipart("/api/v1/thumbnails").file(file).param("response", "zip"))
+            .andExpect(status().isUnsupportedMediaType())
+            .andExpect(jsonPath("$.error").value("Unsupported Format"));
+    }
+
+    @Test
+    void testGetThumbnailByContentHash() throws Exception {
+        String contentHash = uploadAndGetContentHash(Color.ORANGE, "96x96");
+
+        MvcResult result = mockMvc.perform(get("/api/v1/thumbnails/{hash}/{size}", contentHash, "96x96"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("image/png"))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+            .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn();
+
+        byte[] body = result.getResponse().getContentAsByteArray();
+        assertEquals(96, ImageIO.read(new ByteArrayInputStream(body)).getWidth());
+        assertEquals(body.length, result.getResponse().getContentLength());
+    }
+
+    @Test
+    void testGetThumbnailWithMatchingEtagReturnsNotModified() throws Exception {
+        String contentHash = uploadAndGetContentHash(Color.MAGENTA, "small");
+        String etag = mockMvc.perform(get("/api/v1/thumbnails/{hash}/small", contentHash))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/v1/thumbnails/{hash}/small", contentHash)
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, etag))
+            .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void testGetThumbnailByteRange() throws Exception {
+        String contentHash = uploadAndGetContentHash(Color.CYAN, "medium");
+        byte[] full = mockMvc.perform(get("/api/v1/thumbnails/{hash}/medium", contentHash))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        MvcResult result = mockMvc.perform(get("/api/v1/thumbnails/{hash}/medium", contentHash)
+                .header(HttpHeaders.RANGE, "bytes=10-19"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/" + full.length))
+            .andReturn();
+
+        assertArrayEquals(Arrays.copyOfRange(full, 10, 20), result.getResponse().getContentAsByteArray());
+
+        mockMvc.perform(get("/api/v1/thumbnails/{hash}/medium", contentHash)
+                .header(HttpHeaders.RANGE, "bytes=" + full.length + "-"))
+            .andExpect(status().isRequestedRangeNotSatisfiable())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + full.length));
+    }
+
+    @Test
+    void testHeadThumbnailSendsHeadersOnly() throws Exception {
+        String contentHash = uploadAndGetContentHash(Color.PINK, "small");
+
+        MvcResult result = mockMvc.perform(head("/api/v1/thumbnails/{hash}/small", contentHash))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn();
+
+        assertTrue(result.getResponse().getContentLength() > 0);
+        assertEquals(0, result.getResponse().getContentAsByteArray().length);
+    }
+
+    @Test
+    void testGetUnknownThumbnailReturnsNotFound() throws Exception {
+        mockMvc.perform(get("/api/v1/thumbnails/{hash}/small", "0".repeat(64)))
+            .andExpect(status().isNotFound())
+            .andExpect(jsonPath("$.error").value("Thumbnail Not Found"));
+    }
+
+    @Test
+    void testDecompressionBombIsRejectedFromHeader() throws Exception {
+        ByteArrayOutputStream forged = new ByteArrayOutputStream();
+        forged.write(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13});
+        forged.write("IHDR".getBytes(StandardCharsets.US_ASCII));
+        // 50000 x 50000 pixels, 8-bit RGB
+        forged.write(new byte[] {0, 0, (byte) 0xC3, 0x50, 0, 0, (byte) 0xC3, 0x50, 8, 2, 0, 0, 0, 0, 0, 0, 0});
+        MockMultipartFile file = new MockMultipartFile("file", "bomb.png", "image/png", forged.toByteArray());
+
+        mockMvc.perform(multipart("/api/v1/thumbnails").file(file))
+            .andExpect(status().isPayloadTooLarge())
+            .andExpect(jsonPath("$.error").value("Image Too Large"));
+    }
+
+    @Test
+    void testUploadBeyondMemoryBudgetIsRejectedWithRetryAfter() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "busy.png",
+            "image/png",
+            createImageBytes(Color.YELLOW)
+        );
+
+        try (PixelMemoryBudget.Reservation ignored = memoryBudget.reserve(Long.MAX_VALUE)) {
+            mockMvc.perform(multipart("/api/v1/thumbnails").file(file))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"))
+                .andExpect(jsonPath("$.error").value("Service Overloaded"));
+        }
+
+        mockMvc.perform(multipart("/api/v1/thumbnails").file(file))
+            .andExpect(status().isOk());
+    }
+
+    /**
+     * Uploads a solid-color image for the given sizes and returns its content hash.
+     */
+    private String uploadAndGetContentHash(Color color, String sizes) throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "fetch.png",
+            "image/png",
+            createImageBytes(color)
+        );
+
+        String body = mockMvc.perform(multipart("/api/v1/thumbnails").file(file).param("sizes", sizes))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content_hash").isString())
+            .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(body, "$.content_hash");
+    }
+
     @Test
     void testGenerateThumbnailsWithInvalidFile() throws Exception {
         MockMultipartFile file = new MockMultipartFile(
@@ -94,6 +379,123 @@ class ThumbnailControllerTest {
             .andExpect(jsonPath("$.error").value("Unsupported Format"));
     }
 
+    @Test
+    void testQualityIsReportedAndCachedSeparately() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "quality.png",
+            "image/png",
+            createImageBytes(Color.MAGENTA)
+        );
+
+        mockMvc.perform(multipart("/api/v1/thumbnails").file(file).param("sizes", "50x50").param("quality", "speed"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.thumbnails[0].resize_method").value("box"));
+
+        mockMvc.perform(multipart("/api/v1/thumbnails").file(file).param("sizes", "50x50").param("quality", "ULTRA"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.thumbnails[0].resize_source").value("original"))
+            .andExpect(jsonPath("$.thumbnails[0].resize_method").value("lanczos3"));
+
+        mockMvc.perform(multipart("/api/v1/thumbnails").file(file).param("sizes", "50x50").param("quality", "speed"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.thumbnails[0].resize_source").value("cache"));
+    }
+
+    @Test
+    void testGenerateThumbnailsWithInvalidQuality() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "test.png",
+            "image/png",
+            testImageBytes
+        );
+
+        mockMvc.perform(multipart("/api/v1/thumbnails").file(file).param("quality", "best"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("Invalid Quality"));
+    }
+
+    @Test
+    void testEncodeProfileIsCachedSeparately() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "profile.png",
+            "image/png",
+            createImageBytes(Color.ORANGE)
+        );
+
+        mockMvc.perform(multipart("/api/v1/thumbnails").file(file).param("sizes", "60x60").param("profile", "high"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.thumbnails[0].resize_source").value("original"));
+
+        mockMvc.perform(multipart("/api/v1/thumbnails").file(file).param("sizes", "60x60").param("profile", "HIGH"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.thumbnails[0].resize_source").value("cache"));
+
+        mockMvc.perform(multipart("/api/v1/thumbnails").file(file).param("sizes", "60x60").param("profile", "fast"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.thumbnails[0].resize_source").value("original"));
+    }
+
+    @Test
+    void testGenerateThumbnailsWithUnknownProfile() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "test.png",
+            "image/png",
+            testImageBytes
+        );
+
+        mockMvc.perform(multipart("/api/v1/thumbnails").file(file).param("profile", "tiny"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("Invalid Profile"));
+    }
+
+    @Test
+    void testBatchReportsEveryFileAndIsolatesFailures() throws Exception {
+        MockMultipartFile red = new MockMultipartFile("files", "red.png", "image/png", createImageBytes(Color.RED));
+        MockMultipartFile text = new MockMultipartFile("files", "notes.txt", "text/plain",
+            "this is not an image".getBytes());
+        MockMultipartFile cyan = new MockMultipartFile("files", "cyan.png", "image/png", createImageBytes(Color.CYAN));
+
+        MvcResult result = mockMvc.perform(multipart("/api/v1/thumbnails/batch")
+                .file(red).file(text).file(cyan).param("sizes", "small,64x64"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, containsString("application/x-ndjson")))
+            .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().trim().split("\n");
+        assertEquals(3, lines.length);
+        Map<Integer, String> byIndex = new HashMap<>();
+        for (String line : lines) {
+            byIndex.put(JsonPath.read(line, "$.index"), line);
+        }
+
+        String failed = byIndex.get(1);
+        assertEquals("notes.txt", JsonPath.read(failed, "$.filename"));
+        assertEquals(415, (int) JsonPath.read(failed, "$.status"));
+        assertEquals("Unsupported Format", JsonPath.read(failed, "$.error.error"));
+        assertTrue(!failed.contains("\"result\""));
+
+        for (int index : new int[] {0, 2}) {
+            String line = byIndex.get(index);
+            assertEquals(200, (int) JsonPath.read(line, "$.status"));
+            assertEquals("PNG", JsonPath.read(line, "$.result.original_format"));
+            assertEquals(2, (int) JsonPath.read(line, "$.result.thumbnails.length()"));
+        }
+        assertEquals("cyan.png", JsonPath.read(byIndex.get(2), "$.result.original_filename"));
+    }
+
+    @Test
+    void testBatchWithInvalidSizesIsRejectedAsAWhole() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("files", "test.png", "image/png", testImageBytes);
+
+        mockMvc.perform(multipart("/api/v1/thumbnails/batch").file(file).param("sizes", "tiny"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("Invalid Dimensions"));
+    }
+
     @Test
     void testGenerateThumbnailsWithEmptyFile() throws Exception {
         MockMultipartFile file = new MockMultipartFile(
@@ -110,13 +512,13 @@ class ThumbnailControllerTest {
 
     @Test
     void testHealthEndpoint() throws Exception {
-        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/api/v1/thumbnails/health"))
+        mockMvc.perform(get("/api/v1/thumbnails/health"))
             .andExpect(status().isOk());
     }
 
     @Test
     void testInfoEndpoint() throws Exception {
-        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/api/v1/thumbnails/info"))
+        mockMvc.perform(get("/api/v1/thumbnails/info"))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.name").value("Thumbnail API Service"))
             .andExpect(jsonPath("$.version").value("1.0.0"));
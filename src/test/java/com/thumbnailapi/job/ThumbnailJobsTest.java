@@ -0,0 +1,84 @@
+package com.thumbnailapi.job;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.model.ThumbnailResponse;
+import com.thumbnailapi.service.ImageProcessor;
+import com.thumbnailapi.service.ThumbnailSink;
+import com.thumbnailapi.util.ImageUpload;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for ThumbnailJobs.
+ */
+class ThumbnailJobsTest {
+
+    private final ThreadPoolExecutor jobExecutor = new ThreadPoolExecutor(
+        1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(10), r -> {
+            Thread thread = new Thread(r, "test-job");
+            thread.setDaemon(true);
+            // The rethrown error is expected; keep it out of the test output
+            thread.setUncaughtExceptionHandler((t, e) -> { });
+            return thread;
+        });
+
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        jobExecutor.shutdownNow();
+    }
+
+    @Test
+    void testErrorDuringProcessingFailsTheJob() throws InterruptedException {
+        ThumbnailJobs jobs = new ThumbnailJobs(new FailingImageProcessor(), new ThumbnailProperties(),
+            jobExecutor, new ObjectMapper(), new SimpleMeterRegistry());
+
+        ThumbnailJob job = jobs.submit(new MockMultipartFile("file", "big.png", "image/png", new byte[] {1}),
+            null, null, null, null, "/jobs/");
+        for (int i = 0; i < 200 && !job.state().isFinished(); i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(JobState.FAILED, job.state());
+        assertInstanceOf(OutOfMemoryError.class, job.error().getCause());
+        assertNotNull(jobs.expiresAt(job));
+    }
+
+    /**
+     * Image processor whose pipeline runs out of memory.
+     */
+    private static final class FailingImageProcessor extends ImageProcessor {
+
+        FailingImageProcessor() {
+            super(null, null, null, null, null, null, null, null, null, null);
+        }
+
+        @Override
+        public void checkOptions(String sizesParam, String qualityParam, String profileParam) {
+        }
+
+        @Override
+        public ImageUpload readUpload(MultipartFile file) {
+            return new ImageUpload(new byte[] {1}, "PNG", "hash", 0, 0);
+        }
+
+        @Override
+        public ThumbnailResponse streamUpload(ImageUpload upload, String filename, String sizesParam,
+                                              String qualityParam, String profileParam, ThumbnailSink sink) {
+            throw new OutOfMemoryError("Java heap space");
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.thumbnailapi.logging;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.async.AsyncLoggerContext;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.exception.InvalidImageException;
+import com.thumbnailapi.model.ThumbnailMetadata;
+
+/**
+ * Unit tests for RequestLog and RequestRecord.
+ */
+class RequestLogTest {
+
+    private RequestLog requestLog;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getLogging().setSizeDetailSampleRate(0);
+        requestLog = new RequestLog(properties);
+    }
+
+    @Test
+    void testRecordsAreWrittenByAsyncLog4j2Loggers() {
+        // Fails when another backend, e.g. Logback through log4j-to-slf4j, takes over the Log4j API
+        assertInstanceOf(AsyncLoggerContext.class, LogManager.getContext(false));
+    }
+
+    @Test
+    void testRecordSummarizesStagesSizesAndOutcome() {
+        RequestRecord record = requestLog.begin("photo.jpg");
+        record.upload("JPEG", 524_288, TimeUnit.MICROSECONDS.toNanos(310), TimeUnit.MICROSECONDS.toNanos(2210));
+        record.original(4000, 3000);
+        record.sizes(3);
+        record.reused(1);
+        record.decoded(1000, 750, TimeUnit.MILLISECONDS.toNanos(48));
+        record.normalized("icc", TimeUnit.MILLISECONDS.toNanos(7));
+        record.generated(metadata("small", 1000), TimeUnit.MILLISECONDS.toNanos(5), TimeUnit.MILLISECONDS.toNanos(3));
+        record.generated(metadata("medium", 2000), TimeUnit.MILLISECONDS.toNanos(4), TimeUnit.MILLISECONDS.toNanos(2));
+        requestLog.end(record);
+
+        String line = record.toString();
+        assertTrue(line.startsWith("file=\"photo.jpg\" format=JPEG bytes=524288 original=4000x3000 decoded=1000x750"
+            + " color=icc"), line);
+        assertTrue(line.contains(" sizes=3 reused=1 generated=2 shared=0 out_bytes=3000"), line);
+        assertTrue(line.contains(" validate_us=310 read_us=2210 decode_us=48000 normalize_us=7000"
+            + " resize_us=9000 encode_us=5000"), line);
+        assertTrue(line.endsWith(" outcome=ok"), line);
+    }
+
+    @Test
+    void testSizesNeitherReusedNorGeneratedWereShared() {
+        RequestRecord record = requestLog.begin("photo.jpg");
+        record.sizes(3);
+        requestLog.end(record);
+
+        assertTrue(record.toString().contains(" shared=3 "), record.toString());
+    }
+
+    @Test
+    void testFailedRecordNamesTheException() {
+        RequestRecord record = requestLog.begin("photo.jpg");
+        record.failed(new InvalidImageException("broken"));
+        requestLog.end(record);
+
+        assertTrue(record.toString().endsWith(" outcome=InvalidImageException"), record.toString());
+    }
+
+    @Test
+    void testRecordIsReusedAndClearedPerThread() {
+        RequestRecord first = requestLog.begin("first.jpg");
+        first.sizes(4);
+        first.failed(new InvalidImageException("broken"));
+        requestLog.end(first);
+
+        RequestRecord second = requestLog.begin("second.jpg");
+        requestLog.end(second);
+
+        assertSame(first, second);
+        assertTrue(second.toString().contains(" sizes=0 "), second.toString());
+        assertTrue(second.toString().endsWith(" outcome=ok"), second.toString());
+    }
+
+    @Test
+    void testFilenameIsQuotedAndEscaped() {
+        RequestRecord record = requestLog.begin("a \"b\"\nc.jpg");
+        requestLog.end(record);
+
+        assertTrue(record.toString().startsWith("file=\"a \\\"b\\\"?c.jpg\" "), record.toString());
+    }
+
+    @Test
+    void testNoRequestIsSampledAtRateZero() {
+        for (int i = 0; i < 100; i++) {
+            RequestRecord record = requestLog.begin("photo.jpg");
+            assertFalse(record.isSampled());
+            requestLog.end(record);
+        }
+    }
+
+    private static ThumbnailMetadata metadata(String size, long bytes) {
+        return ThumbnailMetadata.create(size, 150, 150, "JPEG", bytes, 8, "original", "quality", 5, 3);
+    }
+}
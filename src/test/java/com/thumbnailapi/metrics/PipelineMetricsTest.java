@@ -0,0 +1,76 @@
+package com.thumbnailapi.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for PipelineMetrics.
+ */
+class PipelineMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private PipelineMetrics metrics;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new PipelineMetrics(registry);
+    }
+
+    @Test
+    void testRecordTagsStageFormatSourceSizeAndTarget() {
+        metrics.record(PipelineMetrics.Stage.RESIZE, TimeUnit.MILLISECONDS.toNanos(12), "JPEG", 4000, 3000,
+            PipelineMetrics.targetTag("small"));
+        metrics.record(PipelineMetrics.Stage.RESIZE, TimeUnit.MILLISECONDS.toNanos(8), "JPEG", 4000, 3000,
+            PipelineMetrics.targetTag("small"));
+
+        Timer timer = registry.get("thumbnail.stage.duration")
+            .tags("stage", "resize", "format", "JPEG", "source_size", "12to24mp", "target", "small")
+            .timer();
+        assertEquals(2, timer.count());
+        assertEquals(20, timer.totalTime(TimeUnit.MILLISECONDS), 0.001);
+
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        assertEquals(3, snapshot.percentileValues().length);
+    }
+
+    @Test
+    void testCustomSizesShareOneTargetTag() {
+        assertEquals("medium", PipelineMetrics.targetTag("medium"));
+        assertEquals("custom", PipelineMetrics.targetTag("640x480"));
+        assertEquals("custom", PipelineMetrics.targetTag("123x45"));
+    }
+
+    @Test
+    void testSizeBuckets() {
+        assertEquals("lt1mp", PipelineMetrics.sizeBucket(999, 1000));
+        assertEquals("1to4mp", PipelineMetrics.sizeBucket(1000, 1000));
+        assertEquals("4to12mp", PipelineMetrics.sizeBucket(4000, 1000));
+        assertEquals("12to24mp", PipelineMetrics.sizeBucket(6000, 4000));
+        assertEquals("gt24mp", PipelineMetrics.sizeBucket(65535, 65535));
+    }
+
+    @Test
+    void testInFlightGauges() {
+        metrics.requestStarted();
+        metrics.sizesStarted(3);
+        metrics.sizesFinished(1);
+
+        assertEquals(1, registry.get("thumbnail.requests.in.flight").gauge().value());
+        assertEquals(2, registry.get("thumbnail.sizes.in.flight").gauge().value());
+
+        metrics.requestFinished();
+        metrics.sizesFinished(2);
+
+        assertTrue(metrics.requestsInFlight() == 0 && metrics.sizesInFlight() == 0);
+    }
+}
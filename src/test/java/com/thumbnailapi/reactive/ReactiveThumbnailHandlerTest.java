@@ -0,0 +1,133 @@
+package com.thumbnailapi.reactive;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import com.thumbnailapi.util.ContentHasher;
+
+/**
+ * Integration tests for ReactiveThumbnailHandler.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ReactiveThumbnailHandlerTest {
+
+    private static final String PATH = "/api/v1/reactive/thumbnails";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Creates a 400x300 PNG filled with the given color.
+     */
+    private static byte[] createImageBytes(Color color) throws IOException {
+        BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(color);
+        g2d.fillRect(0, 0, 400, 300);
+        g2d.dispose();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", baos);
+        return baos.toByteArray();
+    }
+
+    private static MultipartBodyBuilder upload(byte[] content, String contentType) {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("file", new ByteArrayResource(content) {
+            @Override
+            public String getFilename() {
+                return "upload.png";
+            }
+        }).contentType(MediaType.parseMediaType(contentType));
+        return builder;
+    }
+
+    @Test
+    void testGenerateThumbnailsMatchesMvcResponse() throws IOException {
+        byte[] png = createImageBytes(Color.ORANGE);
+        MultipartBodyBuilder builder = upload(png, "image/png");
+        builder.part("sizes", "small,64x64");
+        builder.part("profile", "fast");
+
+        webTestClient.post().uri(PATH)
+            .body(BodyInserters.fromMultipartData(builder.build()))
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.APPLICATION_JSON)
+            .expectBody()
+            .jsonPath("$.original_filename").isEqualTo("upload.png")
+            .jsonPath("$.original_format").isEqualTo("PNG")
+            .jsonPath("$.original_width").isEqualTo(400)
+            .jsonPath("$.content_hash").isEqualTo(ContentHasher.sha256Hex(png))
+            .jsonPath("$.thumbnails.length()").isEqualTo(2)
+            .jsonPath("$.thumbnails[1].width").isEqualTo(64);
+
+        assertEquals(0, meterRegistry.get("thumbnail.reactive.uploads").gauge().value());
+    }
+
+    @Test
+    void testInvalidSignatureIsReportedLikeMvc() {
+        MultipartBodyBuilder builder = upload(new byte[256 * 1024], "image/png");
+
+        webTestClient.post().uri(PATH)
+            .body(BodyInserters.fromMultipartData(builder.build()))
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody()
+            .jsonPath("$.error").isEqualTo("Invalid Image")
+            .jsonPath("$.path").isEqualTo(PATH);
+    }
+
+    @Test
+    void testUnsupportedMimeTypeReturns415() throws IOException {
+        MultipartBodyBuilder builder = upload(createImageBytes(Color.GRAY), "text/plain");
+
+        webTestClient.post().uri(PATH)
+            .body(BodyInserters.fromMultipartData(builder.build()))
+            .exchange()
+            .expectStatus().isEqualTo(415)
+            .expectBody()
+            .jsonPath("$.error").isEqualTo("Unsupported Format");
+    }
+
+    @Test
+    void testInvalidOptionsAndMissingFileAreRejected() throws IOException {
+        MultipartBodyBuilder builder = upload(createImageBytes(Color.GREEN), "image/png");
+        builder.part("quality", "extreme");
+        webTestClient.post().uri(PATH)
+            .body(BodyInserters.fromMultipartData(builder.build()))
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody()
+            .jsonPath("$.error").isEqualTo("Invalid Quality");
+
+        MultipartBodyBuilder noFile = new MultipartBodyBuilder();
+        noFile.part("sizes", "small");
+        webTestClient.post().uri(PATH)
+            .body(BodyInserters.fromMultipartData(noFile.build()))
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody()
+            .jsonPath("$.error").isEqualTo("Invalid Image");
+    }
+}
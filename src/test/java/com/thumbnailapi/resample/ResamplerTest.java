@@ -0,0 +1,256 @@
+package com.thumbnailapi.resample;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
+
+import org.imgscalr.Scalr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for Resampler.
+ */
+class ResamplerTest {
+
+    private ForkJoinPool bandPool;
+    private Resampler sequential;
+    private Resampler parallel;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        bandPool = new ForkJoinPool(4);
+        sequential = new Resampler(new ForkJoinPool(1));
+        parallel = new Resampler(bandPool);
+    }
+
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        bandPool.shutdownNow();
+    }
+
+    @Test
+    void testKernelWeightsSumToOne() {
+        for (ResampleFilter filter : ResampleFilter.values()) {
+            for (int[] lengths : new int[][] {{4000, 150}, {1200, 600}, {333, 100}, {100, 333}, {7, 7}}) {
+                KernelTable table = KernelTable.create(lengths[0], lengths[1], filter);
+                for (int i = 0; i < table.length(); i++) {
+                    int sum = 0;
+                    for (int k = 0; k < table.count(i); k++) {
+                        sum += table.weights()[table.weightOffset(i) + k];
+                    }
+                    assertEquals(KernelTable.ONE, sum, filter + " " + lengths[0] + "->" + lengths[1]);
+                    assertTrue(table.start(i) >= 0 && table.start(i) + table.count(i) <= lengths[0]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFlatColorIsPreservedExactly() {
+        for (ResampleFilter filter : ResampleFilter.values()) {
+            BufferedImage source = new BufferedImage(640, 480, BufferedImage.TYPE_3BYTE_BGR);
+            Graphics2D graphics = source.createGraphics();
+            graphics.setColor(new Color(12, 200, 99));
+            graphics.fillRect(0, 0, 640, 480);
+            graphics.dispose();
+
+            BufferedImage result = sequential.resize(source, 150, 113, filter);
+
+            assertEquals(BufferedImage.TYPE_INT_RGB, result.getType());
+            assertEquals(150, result.getWidth());
+            assertEquals(113, result.getHeight());
+            for (int y = 0; y < 113; y++) {
+                for (int x = 0; x < 150; x++) {
+                    assertEquals(0xFF0CC863, result.getRGB(x, y), filter + " at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testOutputIsCloseToScalrQualityResize() {
+        for (int type : new int[] {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR}) {
+            BufferedImage source = photoLike(1600, 1200, type);
+            BufferedImage reference = Scalr.resize(source, Scalr.Method.QUALITY, Scalr.Mode.AUTOMATIC,
+                300, 300, Scalr.OP_ANTIALIAS);
+
+            for (ResampleFilter filter : ResampleFilter.values()) {
+                BufferedImage result = sequential.resize(source, reference.getWidth(), reference.getHeight(), filter);
+
+                double psnr = psnr(reference, result);
+                assertTrue(psnr > 28.0, filter + " differs from Scalr: PSNR " + psnr);
+            }
+        }
+    }
+
+    @Test
+    void testEnlargementIsCloseToScalrBalancedResize() {
+        BufferedImage source = photoLike(200, 150, BufferedImage.TYPE_INT_RGB);
+        BufferedImage reference = Scalr.resize(source, Scalr.Method.BALANCED, Scalr.Mode.AUTOMATIC, 500, 500);
+
+        BufferedImage result = sequential.resize(source, reference.getWidth(), reference.getHeight(),
+            ResampleFilter.BILINEAR);
+
+        double psnr = psnr(reference, result);
+        assertTrue(psnr > 28.0, "Enlargement differs from Scalr: PSNR " + psnr);
+    }
+
+    @Test
+    void testEveryPixelLayoutGivesTheSameResult() throws IOException {
+        BufferedImage packed = photoLike(800, 600, BufferedImage.TYPE_INT_RGB);
+        BufferedImage bgr = copy(packed, BufferedImage.TYPE_3BYTE_BGR);
+        // PNG decodes RGB into a custom byte-interleaved layout
+        BufferedImage decoded = roundTripPng(packed);
+        BufferedImage indexed = copy(packed, BufferedImage.TYPE_USHORT_565_RGB);
+
+        assertTrue(Resampler.readsInPlace(bgr));
+        assertTrue(Resampler.readsInPlace(decoded));
+        assertTrue(!Resampler.readsInPlace(indexed));
+
+        int[] expected = pixels(sequential.resize(packed, 200, 150, ResampleFilter.LANCZOS3));
+        assertArrayEquals(expected, pixels(sequential.resize(bgr, 200, 150, ResampleFilter.LANCZOS3)));
+        assertArrayEquals(expected, pixels(sequential.resize(decoded, 200, 150, ResampleFilter.LANCZOS3)));
+        assertEquals(200, sequential.resize(indexed, 200, 150, ResampleFilter.LANCZOS3).getWidth());
+    }
+
+    @Test
+    void testGrayIsReplicatedLikeScalr() {
+        BufferedImage gray = copy(photoLike(400, 300, BufferedImage.TYPE_INT_RGB), BufferedImage.TYPE_BYTE_GRAY);
+        BufferedImage reference = Scalr.resize(gray, Scalr.Method.QUALITY, Scalr.Mode.AUTOMATIC, 100, 100);
+
+        BufferedImage result = sequential.resize(gray, reference.getWidth(), reference.getHeight(),
+            ResampleFilter.BILINEAR);
+
+        assertTrue(Resampler.readsInPlace(gray));
+        double psnr = psnr(reference, result);
+        assertTrue(psnr > 28.0, "Gray differs from Scalr: PSNR " + psnr);
+        int pixel = result.getRGB(50, 37);
+        assertEquals(pixel & 0xFF, (pixel >> 8) & 0xFF);
+        assertEquals(pixel & 0xFF, (pixel >> 16) & 0xFF);
+    }
+
+    @Test
+    void testParallelBandsMatchSequentialResult() {
+        BufferedImage source = photoLike(2400, 1800, BufferedImage.TYPE_INT_ARGB);
+
+        for (ResampleFilter filter : ResampleFilter.values()) {
+            int[] expected = pixels(sequential.resize(source, 600, 450, filter));
+            assertArrayEquals(expected, pixels(parallel.resize(source, 600, 450, filter)), filter.name());
+            // The pooled intermediate raster is reused by the second resize
+            assertArrayEquals(expected, pixels(parallel.resize(source, 600, 450, filter)), filter.name());
+        }
+    }
+
+    @Test
+    void testTransparentPixelsDoNotBleedColor() {
+        BufferedImage source = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 100; x++) {
+                // Fully transparent green on the left, opaque red on the right
+                source.setRGB(x, y, x < 50 ? 0x0000FF00 : 0xFFFF0000);
+            }
+        }
+
+        BufferedImage result = sequential.resize(source, 25, 25, ResampleFilter.LANCZOS3);
+
+        assertEquals(BufferedImage.TYPE_INT_ARGB, result.getType());
+        for (int x = 0; x < 25; x++) {
+            int pixel = result.getRGB(x, 12);
+            int alpha = pixel >>> 24;
+            if (alpha > 0) {
+                assertEquals(0, (pixel >> 8) & 0xFF, "green bled into x=" + x);
+            }
+        }
+        assertEquals(0, result.getRGB(0, 0) >>> 24);
+        assertEquals(0xFFFF0000, result.getRGB(24, 24));
+    }
+
+    @Test
+    void testSubimageIsReadFromItsOwnOrigin() {
+        BufferedImage source = photoLike(400, 400, BufferedImage.TYPE_3BYTE_BGR);
+        BufferedImage region = source.getSubimage(100, 50, 200, 200);
+
+        int[] expected = pixels(sequential.resize(copy(region, BufferedImage.TYPE_INT_RGB), 50, 50,
+            ResampleFilter.BILINEAR));
+
+        assertArrayEquals(expected, pixels(sequential.resize(region, 50, 50, ResampleFilter.BILINEAR)));
+    }
+
+    /**
+     * Gradients, shapes and sparse noise, compressing roughly like a photo.
+     */
+    private static BufferedImage photoLike(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(42);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setPaint(new GradientPaint(0, 0, new Color(30, 90, 160), width, height, new Color(240, 200, 120)));
+        graphics.fillRect(0, 0, width, height);
+        for (int i = 0; i < 30; i++) {
+            graphics.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            int size = 10 + random.nextInt(Math.min(width, height) / 4);
+            graphics.fillOval(random.nextInt(width), random.nextInt(height), size, size);
+        }
+        graphics.dispose();
+        for (int i = 0; i < width * height / 100; i++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            image.setRGB(x, y, image.getRGB(x, y) ^ (random.nextInt() & 0x000F0F0F));
+        }
+        return image;
+    }
+
+    private static BufferedImage copy(BufferedImage source, int type) {
+        BufferedImage copy = new BufferedImage(source.getWidth(), source.getHeight(), type);
+        Graphics2D graphics = copy.createGraphics();
+        graphics.drawImage(source, 0, 0, null);
+        graphics.dispose();
+        return copy;
+    }
+
+    private static BufferedImage roundTripPng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    /**
+     * Peak signal-to-noise ratio over the RGB channels, in decibels.
+     */
+    private static double psnr(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        int[] a = pixels(expected);
+        int[] b = pixels(actual);
+        double squaredError = 0;
+        for (int i = 0; i < a.length; i++) {
+            for (int shift = 0; shift <= 16; shift += 8) {
+                int difference = ((a[i] >> shift) & 0xFF) - ((b[i] >> shift) & 0xFF);
+                squaredError += difference * difference;
+            }
+        }
+        double mse = squaredError / (a.length * 3.0);
+        return mse == 0 ? Double.POSITIVE_INFINITY : 10 * Math.log10(255.0 * 255.0 / mse);
+    }
+}
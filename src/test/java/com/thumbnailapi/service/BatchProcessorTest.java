@@ -0,0 +1,141 @@
+package com.thumbnailapi.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.exception.InvalidBatchException;
+import com.thumbnailapi.exception.UnsupportedFormatException;
+import com.thumbnailapi.model.ThumbnailResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for BatchProcessor.
+ */
+class BatchProcessorTest {
+
+    private ExecutorService batchExecutor;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        batchExecutor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        batchExecutor.shutdownNow();
+    }
+
+    @Test
+    void testFilesInFlightAreCappedPerBatch() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        BatchProcessor processor = batchProcessor(new FakeImageProcessor(file -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return response(file);
+        }), 500, 3);
+
+        List<BatchItem> items = new ArrayList<>();
+        processor.process(files(10), null, null, null, items::add);
+
+        assertEquals(10, items.size());
+        assertTrue(items.stream().allMatch(BatchItem::isSuccess));
+        assertEquals(10, items.stream().mapToInt(BatchItem::index).distinct().count());
+        assertTrue(peak.get() <= 3, "peak " + peak.get());
+        assertTrue(peak.get() > 1, "files were not pipelined");
+    }
+
+    @Test
+    void testFailedFileDoesNotStopTheBatch() throws Exception {
+        BatchProcessor processor = batchProcessor(new FakeImageProcessor(file -> {
+            if (file.getOriginalFilename().equals("image-1.png")) {
+                throw new UnsupportedFormatException("Unsupported image format");
+            }
+            return response(file);
+        }), 500, 2);
+
+        List<BatchItem> items = new ArrayList<>();
+        processor.process(files(3), null, null, null, items::add);
+
+        assertEquals(3, items.size());
+        BatchItem failed = items.stream().filter(item -> !item.isSuccess()).findFirst().orElseThrow();
+        assertEquals(1, failed.index());
+        assertEquals("image-1.png", failed.filename());
+        assertInstanceOf(UnsupportedFormatException.class, failed.error());
+        assertEquals(2, items.stream().filter(BatchItem::isSuccess).count());
+    }
+
+    @Test
+    void testBatchOverTheFileLimitIsRejected() {
+        BatchProcessor processor = batchProcessor(new FakeImageProcessor(BatchProcessorTest::response), 2, 2);
+        List<BatchItem> items = new ArrayList<>();
+
+        assertThrows(InvalidBatchException.class, () -> processor.process(files(3), null, null, null, items::add));
+        assertThrows(InvalidBatchException.class, () -> processor.process(List.of(), null, null, null, items::add));
+        assertTrue(items.isEmpty());
+    }
+
+    private BatchProcessor batchProcessor(ImageProcessor imageProcessor, int maxFiles, int maxConcurrency) {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getBatch().setMaxFiles(maxFiles);
+        properties.getBatch().setMaxConcurrency(maxConcurrency);
+        return new BatchProcessor(imageProcessor, properties, batchExecutor);
+    }
+
+    private static List<MultipartFile> files(int count) {
+        List<MultipartFile> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            files.add(new MockMultipartFile("files", "image-" + i + ".png", "image/png", new byte[] {1}));
+        }
+        return files;
+    }
+
+    private static ThumbnailResponse response(MultipartFile file) {
+        return ThumbnailResponse.builder().originalFilename(file.getOriginalFilename()).build();
+    }
+
+    /**
+     * Image processor that runs the given function instead of the pipeline.
+     */
+    private static final class FakeImageProcessor extends ImageProcessor {
+
+        private final Function<MultipartFile, ThumbnailResponse> work;
+
+        FakeImageProcessor(Function<MultipartFile, ThumbnailResponse> work) {
+            super(null, null, null, null, null, null, null, null, null, null);
+            this.work = work;
+        }
+
+        @Override
+        public void checkOptions(String sizesParam, String qualityParam, String profileParam) {
+        }
+
+        @Override
+        public ThumbnailResponse processImage(MultipartFile file, String sizesParam, String qualityParam,
+                                              String profileParam) {
+            return work.apply(file);
+        }
+    }
+}
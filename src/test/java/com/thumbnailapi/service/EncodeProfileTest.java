@@ -0,0 +1,245 @@
+package com.thumbnailapi.service;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.thumbnailapi.buffer.EncodeBufferPool;
+import com.thumbnailapi.buffer.PooledImageOutputStream;
+import com.thumbnailapi.config.ThumbnailProperties;
+
+/**
+ * Unit tests for EncodeProfile.
+ */
+class EncodeProfileTest {
+
+    private ThumbnailGenerator generator;
+    private BufferedImage image;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        ThumbnailProperties.EncodeProfile small = new ThumbnailProperties.EncodeProfile();
+        small.setJpegQuality(0.5f);
+        small.setOptimizeHuffman(true);
+        small.setPngCompressionLevel(9);
+        properties.getEncode().getProfiles().put("Small", small);
+        generator = new ThumbnailGenerator(properties, Runnable::run, new EncodeBufferPool(properties));
+
+        image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setPaint(new GradientPaint(0, 0, Color.RED, 400, 300, Color.BLUE));
+        g2d.fillRect(0, 0, 400, 300);
+        g2d.setColor(Color.WHITE);
+        g2d.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 12));
+        for (int y = 15; y < 300; y += 15) {
+            g2d.drawString("The quick brown fox jumps over the lazy dog", 5, y);
+        }
+        g2d.dispose();
+    }
+
+    @Test
+    void testDefaultProfileMatchesPlainImageIoWrite() throws IOException {
+        for (String format : List.of("JPEG", "PNG")) {
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            ImageIO.write(image, format.equals("JPEG") ? "jpg" : "png", expected);
+
+            assertArrayEquals(expected.toByteArray(), encode(format, EncodeProfile.defaults()), format);
+        }
+    }
+
+    @Test
+    void testJpegSettingsChangeTheEncodedImage() throws IOException {
+        byte[] defaults = encode("JPEG", EncodeProfile.defaults());
+        byte[] lowQuality = encode("JPEG", profile(settings -> settings.setJpegQuality(0.3f)));
+        byte[] optimized = encode("JPEG", profile(settings -> settings.setOptimizeHuffman(true)));
+        byte[] progressive = encode("JPEG", profile(settings -> settings.setProgressive(true)));
+        byte[] fullChroma = encode("JPEG", profile(settings -> settings.setChromaSubsampling("4:4:4")));
+
+        assertTrue(lowQuality.length < defaults.length);
+        assertTrue(optimized.length < defaults.length);
+        assertTrue(fullChroma.length > defaults.length);
+        assertEquals("4:4:4", sampling(fullChroma));
+        assertEquals("4:2:0", sampling(defaults));
+        byte[] halfChroma = encode("JPEG", profile(settings -> settings.setChromaSubsampling("4:2:2")));
+        assertEquals("4:2:2", sampling(halfChroma));
+        assertTrue(isProgressive(progressive));
+        assertTrue(!isProgressive(defaults));
+
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(fullChroma));
+        Color expected = new Color(image.getRGB(390, 5));
+        Color actual = new Color(decoded.getRGB(390, 5));
+        assertTrue(Math.abs(expected.getRed() - actual.getRed()) < 16
+            && Math.abs(expected.getBlue() - actual.getBlue()) < 16, actual.toString());
+    }
+
+    @Test
+    void testPngCompressionLevelTradesSizeOnly() throws IOException {
+        byte[] fastest = encode("PNG", profile(settings -> settings.setPngCompressionLevel(1)));
+        byte[] smallest = encode("PNG", profile(settings -> settings.setPngCompressionLevel(9)));
+
+        assertTrue(smallest.length < fastest.length);
+        BufferedImage fast = ImageIO.read(new ByteArrayInputStream(fastest));
+        BufferedImage small = ImageIO.read(new ByteArrayInputStream(smallest));
+        assertEquals(image.getRGB(123, 45), fast.getRGB(123, 45));
+        assertEquals(image.getRGB(123, 45), small.getRGB(123, 45));
+    }
+
+    @Test
+    void testThumbnailsCarryNoMetadata() throws IOException {
+        EncodeProfile profile = generator.encodeProfile("small");
+
+        assertEquals(List.of("APP0", "DQT", "SOF", "DHT", "SOS"), jpegSegments(encode("JPEG", profile)));
+        assertEquals(List.of("IHDR", "IDAT", "IEND"), pngChunks(encode("PNG", profile)));
+    }
+
+    @Test
+    void testProfilesAreLookedUpByNameAndChangeTheFingerprint() {
+        assertEquals("default", generator.defaultProfile().name());
+        assertEquals(List.of("default", "small"), generator.encodeProfileNames());
+        assertNotNull(generator.encodeProfile(" SMALL "));
+        assertNull(generator.encodeProfile("huge"));
+        assertNotEquals(generator.settingsFingerprint(),
+            generator.settingsFingerprint(generator.defaultQuality(), generator.encodeProfile("small")));
+
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getEncode().setProfile("missing");
+        assertThrows(IllegalArgumentException.class,
+            () -> new ThumbnailGenerator(properties, Runnable::run, new EncodeBufferPool(properties)));
+    }
+
+    @Test
+    void testInvalidSettingsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> profile(settings -> settings.setJpegQuality(1.5f)));
+        assertThrows(IllegalArgumentException.class,
+            () -> profile(settings -> settings.setPngCompressionLevel(10)));
+        assertThrows(IllegalArgumentException.class,
+            () -> profile(settings -> settings.setChromaSubsampling("4:1:1")));
+    }
+
+    private byte[] encode(String format, EncodeProfile profile) throws IOException {
+        PooledImageOutputStream encoded = generator.encodeImage(image, format, profile);
+        try {
+            ByteBuffer view = encoded.view();
+            byte[] bytes = new byte[view.remaining()];
+            view.get(bytes);
+            return bytes;
+        } finally {
+            encoded.release();
+        }
+    }
+
+    private static EncodeProfile profile(Consumer<ThumbnailProperties.EncodeProfile> change) {
+        ThumbnailProperties.EncodeProfile settings = new ThumbnailProperties.EncodeProfile();
+        change.accept(settings);
+        return EncodeProfile.of("test", settings);
+    }
+
+    /**
+     * Reads the chroma subsampling back from the luma sampling factors of a JPEG.
+     */
+    private static String sampling(byte[] jpeg) throws IOException {
+        Element sof = (Element) jpegMetadata(jpeg).getElementsByTagName("componentSpec").item(0);
+        String h = sof.getAttribute("HsamplingFactor");
+        String v = sof.getAttribute("VsamplingFactor");
+        return switch (h + v) {
+            case "22" -> "4:2:0";
+            case "21" -> "4:2:2";
+            case "11" -> "4:4:4";
+            default -> h + "x" + v;
+        };
+    }
+
+    private static boolean isProgressive(byte[] jpeg) throws IOException {
+        Element sof = (Element) jpegMetadata(jpeg).getElementsByTagName("sof").item(0);
+        return "2".equals(sof.getAttribute("process"));
+    }
+
+    private static Element jpegMetadata(byte[] jpeg) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(jpeg))) {
+            ImageReader reader = ImageIO.getImageReaders(input).next();
+            try {
+                reader.setInput(input);
+                IIOMetadata metadata = reader.getImageMetadata(0);
+                return (Element) metadata.getAsTree("javax_imageio_jpeg_image_1.0");
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Lists the JPEG marker segments before the first scan, folding repeated
+     * and numbered markers.
+     */
+    private static List<String> jpegSegments(byte[] jpeg) {
+        List<String> segments = new ArrayList<>();
+        int offset = 2;
+        while (offset + 4 <= jpeg.length) {
+            int marker = jpeg[offset + 1] & 0xff;
+            int length = ((jpeg[offset + 2] & 0xff) << 8) | (jpeg[offset + 3] & 0xff);
+            String name = switch (marker) {
+                case 0xdb -> "DQT";
+                case 0xc0, 0xc1, 0xc2 -> "SOF";
+                case 0xc4 -> "DHT";
+                case 0xda -> "SOS";
+                default -> marker >= 0xe0 && marker <= 0xef
+                    ? "APP" + (marker - 0xe0)
+                    : "0x" + Integer.toHexString(marker);
+            };
+            if (segments.isEmpty() || !segments.get(segments.size() - 1).equals(name)) {
+                segments.add(name);
+            }
+            if (marker == 0xda) {
+                break;
+            }
+            offset += 2 + length;
+        }
+        return segments;
+    }
+
+    /**
+     * Lists the PNG chunk types, folding consecutive IDAT chunks.
+     */
+    private static List<String> pngChunks(byte[] png) {
+        List<String> chunks = new ArrayList<>();
+        int offset = 8;
+        while (offset + 8 <= png.length) {
+            int length = ByteBuffer.wrap(png, offset, 4).getInt();
+            String type = new String(png, offset + 4, 4, StandardCharsets.US_ASCII);
+            if (chunks.isEmpty() || !chunks.get(chunks.size() - 1).equals(type)) {
+                chunks.add(type);
+            }
+            offset += 12 + length;
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,61 @@
+package com.thumbnailapi.service;
+
+import java.awt.Dimension;
+
+import org.imgscalr.Scalr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.thumbnailapi.config.ThumbnailProperties.ResizeQuality;
+
+/**
+ * Unit tests for ResizeMethod.
+ */
+class ResizeMethodTest {
+
+    @Test
+    void testFixedQualitiesIgnoreScale() {
+        Dimension target = new Dimension(150, 150);
+
+        assertEquals(new ResizeMethod(Scalr.Method.SPEED, false),
+            ResizeMethod.choose(ResizeQuality.SPEED, 4000, 3000, target));
+        assertEquals(new ResizeMethod(Scalr.Method.BALANCED, false),
+            ResizeMethod.choose(ResizeQuality.BALANCED, 4000, 3000, target));
+        assertEquals(new ResizeMethod(Scalr.Method.QUALITY, true),
+            ResizeMethod.choose(ResizeQuality.QUALITY, 300, 300, target));
+        assertEquals(new ResizeMethod(Scalr.Method.ULTRA_QUALITY, true),
+            ResizeMethod.choose(ResizeQuality.ULTRA, 300, 300, target));
+    }
+
+    @Test
+    void testAutoUsesSinglePassForSmallReductions() {
+        ResizeMethod method = ResizeMethod.choose(ResizeQuality.AUTO, 300, 300, new Dimension(150, 150));
+
+        assertEquals(Scalr.Method.BALANCED, method.method());
+        assertFalse(method.antialias());
+        assertEquals("balanced", method.label());
+
+        // Enlargements never need more than one pass either
+        assertEquals(Scalr.Method.BALANCED,
+            ResizeMethod.choose(ResizeQuality.AUTO, 100, 100, new Dimension(600, 600)).method());
+    }
+
+    @Test
+    void testAutoAntialiasesOnlyLargeTargetsOfLargeReductions() {
+        ResizeMethod icon = ResizeMethod.choose(ResizeQuality.AUTO, 6000, 4000, new Dimension(150, 150));
+        assertEquals(Scalr.Method.QUALITY, icon.method());
+        assertFalse(icon.antialias());
+
+        ResizeMethod moderate = ResizeMethod.choose(ResizeQuality.AUTO, 2400, 1600, new Dimension(600, 600));
+        assertEquals(Scalr.Method.QUALITY, moderate.method());
+        assertFalse(moderate.antialias());
+
+        ResizeMethod large = ResizeMethod.choose(ResizeQuality.AUTO, 8000, 6000, new Dimension(600, 600));
+        assertEquals(Scalr.Method.QUALITY, large.method());
+        assertTrue(large.antialias());
+        assertEquals("quality+antialias", large.label());
+    }
+}
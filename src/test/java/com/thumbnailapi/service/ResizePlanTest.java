@@ -0,0 +1,77 @@
+package com.thumbnailapi.service;
+
+import java.awt.Dimension;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for ResizePlan.
+ */
+class ResizePlanTest {
+
+    private static final List<Dimension> PRESETS = List.of(
+        new Dimension(150, 150),
+        new Dimension(300, 300),
+        new Dimension(600, 600)
+    );
+
+    @Test
+    void testStepsRunLargestFirst() {
+        ResizePlan plan = ResizePlan.create(2000, 1500, PRESETS, false, 2.0);
+
+        List<ResizePlan.Step> steps = plan.steps();
+        assertEquals(3, steps.size());
+        assertEquals(2, steps.get(0).index());
+        assertEquals(1, steps.get(1).index());
+        assertEquals(0, steps.get(2).index());
+        assertTrue(steps.stream().allMatch(ResizePlan.Step::fromOriginal));
+    }
+
+    @Test
+    void testPresetsCascadeFromPreviousSize() {
+        ResizePlan plan = ResizePlan.create(2000, 1500, PRESETS, true, 2.0);
+
+        List<ResizePlan.Step> steps = plan.steps();
+        assertEquals(ResizePlan.ORIGINAL, steps.get(0).source());
+        assertEquals(2, steps.get(1).source());
+        assertEquals(1, steps.get(2).source());
+    }
+
+    @Test
+    void testCloseSizesUseOriginal() {
+        List<Dimension> dimensions = List.of(new Dimension(600, 600), new Dimension(500, 500));
+
+        ResizePlan plan = ResizePlan.create(2000, 1500, dimensions, true, 2.0);
+
+        assertTrue(plan.steps().stream().allMatch(ResizePlan.Step::fromOriginal));
+    }
+
+    @Test
+    void testSmallestQualifyingSourceIsChosen() {
+        List<Dimension> dimensions = List.of(
+            new Dimension(100, 100),
+            new Dimension(1000, 1000),
+            new Dimension(250, 250)
+        );
+
+        ResizePlan plan = ResizePlan.create(2000, 1500, dimensions, true, 2.0);
+
+        List<ResizePlan.Step> steps = plan.steps();
+        assertEquals(1, steps.get(0).index());
+        assertEquals(ResizePlan.ORIGINAL, steps.get(0).source());
+        assertEquals(1, steps.get(1).source());
+        assertEquals(2, steps.get(2).source());
+    }
+
+    @Test
+    void testUpscaledSizesNeverCascade() {
+        List<Dimension> dimensions = List.of(new Dimension(600, 600), new Dimension(150, 150));
+
+        ResizePlan plan = ResizePlan.create(200, 200, dimensions, true, 2.0);
+
+        assertTrue(plan.steps().stream().allMatch(ResizePlan.Step::fromOriginal));
+    }
+}
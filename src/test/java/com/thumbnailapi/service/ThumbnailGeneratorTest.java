@@ -6,16 +6,39 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.imageio.ImageIO;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.thumbnailapi.buffer.EncodeBufferPool;
+import com.thumbnailapi.color.ConversionPath;
+import com.thumbnailapi.color.NormalizedImage;
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.config.ThumbnailProperties.DecodeMode;
+import com.thumbnailapi.config.ThumbnailProperties.ExecutionMode;
+import com.thumbnailapi.config.ThumbnailProperties.GenerationMode;
+import com.thumbnailapi.config.ThumbnailProperties.ResizeEngine;
+import com.thumbnailapi.config.ThumbnailProperties.ResizeQuality;
+import com.thumbnailapi.exception.InvalidImageException;
 import com.thumbnailapi.model.ThumbnailMetadata;
 
 /**
@@ -24,6 +47,7 @@ import com.thumbnailapi.model.ThumbnailMetadata;
 class ThumbnailGeneratorTest {
 
     private ThumbnailGenerator thumbnailGenerator;
+    private ExecutorService executor;
     private byte[] testImageBytes;
 
     @BeforeEach
@@ -41,6 +65,13 @@ class ThumbnailGeneratorTest {
         testImageBytes = baos.toByteArray();
 
         thumbnailGenerator = new ThumbnailGenerator();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        executor.shutdownNow();
     }
 
     @Test
@@ -108,6 +139,281 @@ class ThumbnailGeneratorTest {
         assertEquals("JPEG", thumbnails.get(0).format());
     }
 
+    @Test
+    void testParallelGenerationPreservesOrder() {
+        ThumbnailGenerator parallelGenerator = createParallelGenerator();
+        List<Dimension> dimensions = List.of(
+            new Dimension(600, 600),
+            new Dimension(150, 150),
+            new Dimension(500, 400),
+            new Dimension(300, 300)
+        );
+
+        List<ThumbnailMetadata> thumbnails = parallelGenerator.generateThumbnails(
+            testImageBytes, "PNG", dimensions);
+
+        assertEquals(4, thumbnails.size());
+        assertEquals("large", thumbnails.get(0).size());
+        assertEquals("small", thumbnails.get(1).size());
+        assertEquals("500x400", thumbnails.get(2).size());
+        assertEquals("medium", thumbnails.get(3).size());
+        thumbnails.forEach(t -> assertGreater(t.processingTimeMs(), -1));
+    }
+
+    @Test
+    void testParallelGenerationPropagatesFailure() throws IOException {
+        // JPEG has no writer for images with an alpha channel
+        BufferedImage translucent = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(translucent, "png", baos);
+
+        ThumbnailGenerator parallelGenerator = createParallelGenerator();
+        List<Dimension> dimensions = List.of(new Dimension(50, 50), new Dimension(80, 80));
+
+        assertThrows(InvalidImageException.class, () ->
+            parallelGenerator.generateThumbnails(baos.toByteArray(), "JPEG", dimensions));
+    }
+
+    @Test
+    void testSixteenBitOriginalIsNormalizedBeforeResizing() {
+        BufferedImage standard = new BufferedImage(100, 100, BufferedImage.TYPE_3BYTE_BGR);
+        assertSame(standard, thumbnailGenerator.normalize(standard).image());
+
+        BufferedImage gray16 = new BufferedImage(400, 200, BufferedImage.TYPE_USHORT_GRAY);
+        NormalizedImage normalized = thumbnailGenerator.normalize(gray16);
+        assertEquals(ConversionPath.COMPONENT, normalized.path());
+        assertEquals(BufferedImage.TYPE_INT_RGB, normalized.image().getType());
+
+        List<ThumbnailMetadata> thumbnails = thumbnailGenerator.generateThumbnails(
+            gray16, "PNG", List.of(new Dimension(150, 150)));
+        assertEquals(150, thumbnails.get(0).width());
+        assertEquals(75, thumbnails.get(0).height());
+    }
+
+    @Test
+    void testSubmittedSizesAreDeliveredAsTheyComplete() throws IOException {
+        ThumbnailGenerator parallelGenerator = createParallelGenerator();
+        List<Dimension> dimensions = List.of(
+            new Dimension(150, 150),
+            new Dimension(600, 600),
+            new Dimension(300, 300)
+        );
+
+        PendingThumbnails pending = parallelGenerator.submit(
+            parallelGenerator.decodeImage(testImageBytes), "PNG", dimensions);
+        List<Integer> delivered = new ArrayList<>();
+        pending.forEachCompleted((index, thumbnail) -> {
+            assertEquals(dimensions.get(index).width, thumbnail.metadata().width());
+            assertEquals(thumbnail.metadata().fileSizeBytes(), thumbnail.data().remaining());
+            thumbnail.close();
+            delivered.add(index);
+        });
+
+        assertEquals(3, pending.size());
+        assertEquals(Set.of(0, 1, 2), Set.copyOf(delivered));
+        assertEquals(3, delivered.size());
+    }
+
+    @Test
+    void testSequentialModeDeliversFirstSizeBeforeLastIsEncoded() throws IOException {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getResize().setCascadeEnabled(false);
+        CountDownLatch firstDelivered = new CountDownLatch(1);
+        AtomicInteger submitted = new AtomicInteger();
+        AtomicInteger started = new AtomicInteger();
+        List<Integer> startedAtSubmit = Collections.synchronizedList(new ArrayList<>());
+        // The resize and encode of the first size run freely; later tasks wait for its delivery
+        Executor gatedExecutor = task -> {
+            int number = submitted.incrementAndGet();
+            startedAtSubmit.add(started.get());
+            executor.execute(() -> {
+                started.incrementAndGet();
+                if (number > 2) {
+                    await(firstDelivered);
+                }
+                task.run();
+            });
+        };
+        ThumbnailGenerator sequentialGenerator = new ThumbnailGenerator(
+            properties, gatedExecutor, new EncodeBufferPool(properties));
+        List<Dimension> dimensions = List.of(
+            new Dimension(600, 600),
+            new Dimension(300, 300),
+            new Dimension(150, 150)
+        );
+
+        List<Integer> submittedAtDelivery = new ArrayList<>();
+        sequentialGenerator.submit(new BufferedImage(1200, 1200, BufferedImage.TYPE_INT_RGB), "PNG", dimensions)
+            .forEachCompleted((index, thumbnail) -> {
+                thumbnail.close();
+                submittedAtDelivery.add(submitted.get());
+                firstDelivered.countDown();
+            });
+
+        // Each size is a resize and an encode task; the last encode is the sixth
+        int tasksAtFirstDelivery = submittedAtDelivery.get(0);
+        assertTrue(tasksAtFirstDelivery >= 2 && tasksAtFirstDelivery < 6,
+            "first size delivered with " + tasksAtFirstDelivery + " tasks submitted");
+        assertEquals(3, submittedAtDelivery.size());
+        // One task at a time: each is submitted by the one before it
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), startedAtSubmit);
+    }
+
+    @Test
+    void testRasterEngineSplitsBandsOnTheGivenPool() {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getResize().setEngine(ResizeEngine.RASTER);
+        ForkJoinPool resamplePool = new ForkJoinPool(2);
+        try {
+            ThumbnailGenerator rasterGenerator = new ThumbnailGenerator(
+                properties, executor, new EncodeBufferPool(properties), resamplePool);
+
+            List<ThumbnailMetadata> thumbnails = rasterGenerator.generateThumbnails(
+                new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_RGB), "PNG", List.of(new Dimension(600, 600)));
+
+            assertEquals(600, thumbnails.get(0).width());
+            assertTrue(resamplePool.getPoolSize() > 0, "no band ran on the resample pool");
+        } finally {
+            resamplePool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSubsampledDecodeShrinksLargeSource() throws IOException {
+        BufferedImage source = new BufferedImage(1200, 900, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(source, "png", baos);
+
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getDecode().setMode(DecodeMode.SUBSAMPLED);
+        ThumbnailGenerator subsamplingGenerator = new ThumbnailGenerator(properties, executor, new EncodeBufferPool(properties));
+        List<Dimension> dimensions = List.of(new Dimension(150, 150));
+
+        BufferedImage decoded = subsamplingGenerator.decodeImage(baos.toByteArray(), dimensions);
+        List<ThumbnailMetadata> thumbnails = subsamplingGenerator.generateThumbnails(decoded, "PNG", dimensions);
+
+        assertEquals(300, decoded.getWidth());
+        assertEquals(225, decoded.getHeight());
+        assertEquals(150, thumbnails.get(0).width());
+        assertEquals(113, thumbnails.get(0).height());
+    }
+
+    @Test
+    void testCascadedResizeDerivesSmallerSizes() {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getGeneration().setMode(GenerationMode.PARALLEL);
+        properties.getResize().setCascadeEnabled(true);
+        ThumbnailGenerator cascadingGenerator = new ThumbnailGenerator(properties, executor, new EncodeBufferPool(properties));
+        BufferedImage source = new BufferedImage(1200, 1200, BufferedImage.TYPE_INT_RGB);
+        List<Dimension> dimensions = List.of(
+            new Dimension(150, 150),
+            new Dimension(300, 300),
+            new Dimension(600, 600)
+        );
+
+        List<ThumbnailMetadata> thumbnails = cascadingGenerator.generateThumbnails(source, "PNG", dimensions);
+
+        assertEquals("medium", thumbnails.get(0).resizeSource());
+        assertEquals("large", thumbnails.get(1).resizeSource());
+        assertEquals("original", thumbnails.get(2).resizeSource());
+        assertEquals(150, thumbnails.get(0).width());
+        assertEquals(300, thumbnails.get(1).width());
+        assertEquals(600, thumbnails.get(2).width());
+    }
+
+    @Test
+    void testResizeQualityIsRecordedInMetadataAndFingerprint() {
+        BufferedImage source = new BufferedImage(1200, 900, BufferedImage.TYPE_INT_RGB);
+        List<Dimension> dimensions = List.of(new Dimension(800, 800), new Dimension(150, 150));
+
+        assertEquals("quality+antialias",
+            thumbnailGenerator.generateThumbnails(source, "PNG", dimensions).get(1).resizeMethod());
+
+        List<GeneratedThumbnail> fast = thumbnailGenerator.submit(source, "PNG", dimensions, ResizeQuality.SPEED)
+            .joinAll();
+        fast.forEach(GeneratedThumbnail::close);
+        assertEquals("speed", fast.get(0).metadata().resizeMethod());
+        assertEquals(150, fast.get(1).metadata().width());
+
+        List<GeneratedThumbnail> auto = thumbnailGenerator.submit(source, "PNG", dimensions, ResizeQuality.AUTO)
+            .joinAll();
+        auto.forEach(GeneratedThumbnail::close);
+        assertEquals("balanced", auto.get(0).metadata().resizeMethod());
+        assertEquals("quality", auto.get(1).metadata().resizeMethod());
+
+        assertTrue(!thumbnailGenerator.settingsFingerprint(ResizeQuality.AUTO)
+            .equals(thumbnailGenerator.settingsFingerprint(ResizeQuality.SPEED)));
+        assertEquals(thumbnailGenerator.settingsFingerprint(ResizeQuality.QUALITY),
+            thumbnailGenerator.settingsFingerprint());
+    }
+
+    @Test
+    void testVirtualExecutionModeRunsImageWorkOnExecutor() {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getExecution().setMode(ExecutionMode.VIRTUAL);
+        AtomicInteger tasks = new AtomicInteger();
+        Executor countingExecutor = task -> {
+            tasks.incrementAndGet();
+            executor.execute(task);
+        };
+        ThumbnailGenerator virtualGenerator = new ThumbnailGenerator(
+            properties, countingExecutor, new EncodeBufferPool(properties));
+
+        BufferedImage decoded = virtualGenerator.decodeImage(testImageBytes, List.of(new Dimension(50, 50)));
+        assertEquals(1, tasks.get());
+
+        List<ThumbnailMetadata> thumbnails = virtualGenerator.generateThumbnails(
+            decoded, "PNG", List.of(new Dimension(50, 50), new Dimension(25, 25)));
+
+        assertEquals(5, tasks.get());
+        assertEquals(50, thumbnails.get(0).width());
+        assertEquals(25, thumbnails.get(1).width());
+        assertThrows(InvalidImageException.class,
+            () -> virtualGenerator.decodeImage(new byte[] {1, 2, 3}));
+    }
+
+    @Test
+    void testPeakMemoryEstimateFollowsDecodeAndGenerationModes() {
+        List<Dimension> dimensions = List.of(new Dimension(150, 150), new Dimension(300, 300));
+        long fullRaster = 4000L * 3000 * 3;
+
+        long sequentialFull = thumbnailGenerator.estimatePeakMemory(4000, 3000, 3, false, dimensions);
+        assertGreater(sequentialFull, fullRaster);
+
+        long parallelFull = createParallelGenerator().estimatePeakMemory(4000, 3000, 3, false, dimensions);
+        assertGreater(parallelFull, sequentialFull);
+
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getDecode().setMode(DecodeMode.SUBSAMPLED);
+        long subsampled = new ThumbnailGenerator(properties, executor, new EncodeBufferPool(properties))
+            .estimatePeakMemory(4000, 3000, 3, false, dimensions);
+        assertGreater(fullRaster / 4, subsampled);
+    }
+
+    @Test
+    void testPeakMemoryEstimateCountsTheNormalizedCopy() {
+        List<Dimension> dimensions = List.of(new Dimension(150, 150), new Dimension(300, 300));
+
+        long packed = thumbnailGenerator.estimatePeakMemory(4000, 3000, 4, false, dimensions);
+        long normalized = thumbnailGenerator.estimatePeakMemory(4000, 3000, 4, true, dimensions);
+
+        assertEquals(4000L * 3000 * 4, normalized - packed);
+    }
+
+    private ThumbnailGenerator createParallelGenerator() {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getGeneration().setMode(GenerationMode.PARALLEL);
+        return new ThumbnailGenerator(properties, executor, new EncodeBufferPool(properties));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private static void assertGreater(long actual, long expected) {
         assertTrue(actual > expected, "Expected " + actual + " to be greater than " + expected);
     }
@@ -0,0 +1,47 @@
+package com.thumbnailapi.service;
+
+import java.awt.Dimension;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for ThumbnailGeometry.
+ */
+class ThumbnailGeometryTest {
+
+    @Test
+    void testFittedSizeForLandscapeSource() {
+        Dimension fitted = ThumbnailGeometry.fittedSize(4000, 3000, new Dimension(600, 600));
+
+        assertEquals(new Dimension(600, 450), fitted);
+    }
+
+    @Test
+    void testFittedSizeForPortraitSource() {
+        Dimension fitted = ThumbnailGeometry.fittedSize(3000, 4000, new Dimension(600, 600));
+
+        assertEquals(new Dimension(450, 600), fitted);
+    }
+
+    @Test
+    void testSubsamplingFactorUsesLargestTarget() {
+        List<Dimension> targets = List.of(
+            new Dimension(150, 150),
+            new Dimension(600, 600),
+            new Dimension(300, 300)
+        );
+
+        // 4000 / (600 * 2) = 3.33 -> every third pixel keeps at least 1333px
+        assertEquals(3, ThumbnailGeometry.subsamplingFactor(4000, 3000, targets, 2.0));
+    }
+
+    @Test
+    void testSubsamplingFactorNeverBelowOne() {
+        List<Dimension> targets = List.of(new Dimension(600, 600));
+
+        assertEquals(1, ThumbnailGeometry.subsamplingFactor(800, 600, targets, 2.0));
+        assertEquals(1, ThumbnailGeometry.subsamplingFactor(200, 200, targets, 2.0));
+    }
+}
@@ -0,0 +1,321 @@
+package com.thumbnailapi.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.exception.ImageTooLargeException;
+import com.thumbnailapi.model.ThumbnailMetadata;
+
+/**
+ * Unit tests for UploadCoalescer.
+ */
+class UploadCoalescerTest {
+
+    private static final String KEY = "hash|150x150,64x64,|settings";
+    private static final byte[] SMALL = {1, 2, 3};
+    private static final byte[] TINY = {4, 5};
+
+    private ThumbnailProperties properties;
+    private ExecutorService clients;
+    private AtomicInteger started;
+    private AtomicInteger runs;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        properties = new ThumbnailProperties();
+        properties.getCoalesce().setEnabled(true);
+        clients = Executors.newCachedThreadPool();
+        started = new AtomicInteger();
+        runs = new AtomicInteger();
+    }
+
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        clients.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentDuplicatesShareOneRun() throws Exception {
+        UploadCoalescer coalescer = new UploadCoalescer(properties);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Delivered>> requests = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            requests.add(clients.submit(() -> request(coalescer, blockingWork(release))));
+            awaitRunningOrWaiting(coalescer, i);
+        }
+        release.countDown();
+
+        for (Future<Delivered> request : requests) {
+            Delivered delivered = request.get(10, TimeUnit.SECONDS);
+            assertEquals(List.of("small", "64x64"),
+                delivered.metadata().stream().map(ThumbnailMetadata::size).toList());
+            assertArrayEquals(SMALL, delivered.data().get(0));
+            assertArrayEquals(TINY, delivered.data().get(1));
+        }
+        assertEquals(1, runs.get());
+        assertEquals(4, coalescer.mergedCount());
+
+        // The flight is gone once finished, so the next request runs again
+        request(coalescer, work());
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void testFollowersGetTheLeadersFailure() throws Exception {
+        UploadCoalescer coalescer = new UploadCoalescer(properties);
+        CountDownLatch release = new CountDownLatch(1);
+        UploadCoalescer.Work failing = blockingWork(release, sink -> {
+            throw new ImageTooLargeException("too many pixels");
+        });
+        Future<Delivered> leader = clients.submit(() -> request(coalescer, failing));
+        awaitRunningOrWaiting(coalescer, 0);
+        Future<Delivered> follower = clients.submit(() -> request(coalescer, work()));
+        awaitRunningOrWaiting(coalescer, 1);
+        release.countDown();
+
+        ExecutionException leaderFailure = assertThrows(ExecutionException.class,
+            () -> leader.get(10, TimeUnit.SECONDS));
+        ExecutionException followerFailure = assertThrows(ExecutionException.class,
+            () -> follower.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(ImageTooLargeException.class, leaderFailure.getCause());
+        assertInstanceOf(ImageTooLargeException.class, followerFailure.getCause());
+        assertEquals(1, started.get());
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void testFollowerRunsItselfAfterWaitTimeout() throws Exception {
+        properties.getCoalesce().setWaitTimeout(Duration.ofMillis(50));
+        UploadCoalescer coalescer = new UploadCoalescer(properties);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Delivered> leader = clients.submit(() -> request(coalescer, blockingWork(release)));
+        awaitRunningOrWaiting(coalescer, 0);
+
+        Delivered follower = request(coalescer, work());
+        assertArrayEquals(SMALL, follower.data().get(0));
+        assertEquals("original", follower.metadata().get(0).resizeSource());
+        assertEquals(1, runs.get());
+        assertEquals(0, coalescer.mergedCount());
+
+        release.countDown();
+        leader.get(10, TimeUnit.SECONDS);
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void testLeaderSinkFailureIsNotShared() throws Exception {
+        UploadCoalescer coalescer = new UploadCoalescer(properties);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<List<ThumbnailMetadata>> leader = clients.submit(() -> coalescer.run(KEY,
+            (index, metadata, payload) -> {
+                throw new IOException("client went away");
+            },
+            blockingWork(release)));
+        awaitRunningOrWaiting(coalescer, 0);
+        Future<Delivered> follower = clients.submit(() -> request(coalescer, work()));
+        awaitRunningOrWaiting(coalescer, 1);
+        release.countDown();
+
+        ExecutionException leaderFailure = assertThrows(ExecutionException.class,
+            () -> leader.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, leaderFailure.getCause());
+        Delivered delivered = follower.get(10, TimeUnit.SECONDS);
+        assertArrayEquals(TINY, delivered.data().get(1));
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void testJoinedFollowerGetsACopyOfPooledBytes() throws Exception {
+        UploadCoalescer coalescer = new UploadCoalescer(properties);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Delivered> leader = clients.submit(() -> request(coalescer, blockingWork(release, sink -> {
+            runs.incrementAndGet();
+            byte[] pooled = SMALL.clone();
+            sink.accept(0, metadata("small", SMALL), ThumbnailPayload.of(ByteBuffer.wrap(pooled), () -> null));
+            // The buffer goes back to the pool and is reused
+            Arrays.fill(pooled, (byte) 0);
+            sink.accept(1, metadata("64x64", TINY), ThumbnailPayload.of(TINY));
+            return List.of(metadata("small", SMALL), metadata("64x64", TINY));
+        })));
+        awaitRunningOrWaiting(coalescer, 0);
+        Future<Delivered> follower = clients.submit(() -> request(coalescer, work()));
+        awaitRunningOrWaiting(coalescer, 1);
+        release.countDown();
+
+        assertArrayEquals(SMALL, leader.get(10, TimeUnit.SECONDS).data().get(0));
+        Delivered delivered = follower.get(10, TimeUnit.SECONDS);
+        assertArrayEquals(SMALL, delivered.data().get(0));
+        assertArrayEquals(TINY, delivered.data().get(1));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void testLateFollowerIsServedWhatTheLeaderRetained() throws Exception {
+        UploadCoalescer coalescer = new UploadCoalescer(properties);
+        AtomicInteger lookups = new AtomicInteger();
+
+        // Nothing is looked up or copied while no request waits
+        request(coalescer, deliveredThenBlocking(new CountDownLatch(0), lookups, true));
+        assertEquals(0, lookups.get());
+        started.set(0);
+
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Delivered> leader = clients.submit(
+            () -> request(coalescer, deliveredThenBlocking(release, lookups, true)));
+        awaitRunningOrWaiting(coalescer, 0);
+        Future<Delivered> follower = clients.submit(() -> request(coalescer, work()));
+        awaitRunningOrWaiting(coalescer, 1);
+        release.countDown();
+
+        leader.get(10, TimeUnit.SECONDS);
+        Delivered delivered = follower.get(10, TimeUnit.SECONDS);
+        assertArrayEquals(SMALL, delivered.data().get(0));
+        assertArrayEquals(TINY, delivered.data().get(1));
+        assertEquals(UploadCoalescer.COALESCED_SOURCE, delivered.metadata().get(0).resizeSource());
+        assertEquals(2, lookups.get());
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void testLateFollowerRunsItselfWhenNothingWasRetained() throws Exception {
+        UploadCoalescer coalescer = new UploadCoalescer(properties);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger lookups = new AtomicInteger();
+        Future<Delivered> leader = clients.submit(
+            () -> request(coalescer, deliveredThenBlocking(release, lookups, false)));
+        awaitRunningOrWaiting(coalescer, 0);
+        Future<Delivered> follower = clients.submit(() -> request(coalescer, work()));
+        awaitRunningOrWaiting(coalescer, 1);
+        release.countDown();
+
+        leader.get(10, TimeUnit.SECONDS);
+        Delivered delivered = follower.get(10, TimeUnit.SECONDS);
+        assertArrayEquals(SMALL, delivered.data().get(0));
+        assertEquals("original", delivered.metadata().get(0).resizeSource());
+        assertEquals(2, runs.get());
+        assertEquals(0, coalescer.mergedCount());
+    }
+
+    @Test
+    void testDisabledCoalescerRunsEveryRequest() throws Exception {
+        properties.getCoalesce().setEnabled(false);
+        UploadCoalescer coalescer = new UploadCoalescer(properties);
+
+        request(coalescer, work());
+        Delivered second = request(coalescer, work());
+
+        assertEquals(2, runs.get());
+        assertEquals("original", second.metadata().get(0).resizeSource());
+    }
+
+    private UploadCoalescer.Work work() {
+        return sink -> {
+            runs.incrementAndGet();
+            List<ThumbnailMetadata> thumbnails = List.of(metadata("small", SMALL), metadata("64x64", TINY));
+            // Out of order, as generated sizes are delivered when they finish
+            sink.accept(1, thumbnails.get(1), ThumbnailPayload.of(TINY));
+            sink.accept(0, thumbnails.get(0), ThumbnailPayload.of(SMALL));
+            return thumbnails;
+        };
+    }
+
+    private UploadCoalescer.Work blockingWork(CountDownLatch release) {
+        return blockingWork(release, work());
+    }
+
+    /**
+     * Counts the start, then waits for the latch before doing the work.
+     */
+    private UploadCoalescer.Work blockingWork(CountDownLatch release, UploadCoalescer.Work work) {
+        return sink -> {
+            started.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return work.run(sink);
+        };
+    }
+
+    /**
+     * Delivers both sizes from pooled buffers before blocking on the latch, so a
+     * follower joins after they were delivered. Each payload looks the bytes up
+     * again if asked for, finding them only when {@code retained} is set.
+     */
+    private UploadCoalescer.Work deliveredThenBlocking(CountDownLatch release, AtomicInteger lookups,
+                                                      boolean retained) {
+        return sink -> {
+            runs.incrementAndGet();
+            List<ThumbnailMetadata> thumbnails = List.of(metadata("small", SMALL), metadata("64x64", TINY));
+            sink.accept(0, thumbnails.get(0), pooled(SMALL, lookups, retained));
+            sink.accept(1, thumbnails.get(1), pooled(TINY, lookups, retained));
+            started.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return thumbnails;
+        };
+    }
+
+    private static ThumbnailPayload pooled(byte[] data, AtomicInteger lookups, boolean retained) {
+        return ThumbnailPayload.of(ByteBuffer.wrap(data.clone()), () -> {
+            lookups.incrementAndGet();
+            return retained ? ThumbnailPayload.of(data) : null;
+        });
+    }
+
+    /**
+     * Waits until the leader runs and the given number of followers wait for it.
+     */
+    private void awaitRunningOrWaiting(UploadCoalescer coalescer, int followers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (started.get() < 1 || coalescer.waitingCount() < followers) {
+            assertTrue(System.nanoTime() < deadline, "Requests did not start in time");
+            Thread.sleep(5);
+        }
+    }
+
+    private static Delivered request(UploadCoalescer coalescer, UploadCoalescer.Work work) throws IOException {
+        byte[][] data = new byte[2][];
+        List<ThumbnailMetadata> metadata = coalescer.run(KEY, (index, thumbnail, payload) -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            payload.writeTo(out);
+            data[index] = out.toByteArray();
+        }, work);
+        return new Delivered(metadata, List.of(data));
+    }
+
+    private static ThumbnailMetadata metadata(String size, byte[] data) {
+        return ThumbnailMetadata.create(size, 10, 10, "PNG", data.length, 5, "original", "balanced", 3, 2);
+    }
+
+    private record Delivered(List<ThumbnailMetadata> metadata, List<byte[]> data) {
+    }
+}
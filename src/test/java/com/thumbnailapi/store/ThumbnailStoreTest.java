@@ -0,0 +1,169 @@
+package com.thumbnailapi.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import com.thumbnailapi.cache.ThumbnailKey;
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.util.ContentHasher;
+
+/**
+ * Unit tests for ThumbnailStore.
+ */
+class ThumbnailStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testStoresAndTransfersThumbnail() throws IOException {
+        ThumbnailStore store = openStore(DataSize.ofMegabytes(1), DataSize.ofKilobytes(64));
+        byte[] encoded = bytes(100, 7);
+
+        store.put(key("a"), encoded, 150, 120);
+        StoredThumbnail stored = store.find(key("a"));
+
+        assertNotNull(stored);
+        assertEquals(150, stored.width());
+        assertEquals(120, stored.height());
+        assertEquals("PNG", stored.format());
+        assertArrayEquals(encoded, transfer(store, stored));
+        assertNull(store.find(key("b")));
+        store.destroy();
+    }
+
+    @Test
+    void testTransfersByteRange() throws IOException {
+        ThumbnailStore store = openStore(DataSize.ofMegabytes(1), DataSize.ofKilobytes(64));
+        byte[] encoded = bytes(100, 3);
+        store.put(key("a"), encoded, 10, 10);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        store.transferTo(store.find(key("a")), 10, 5, Channels.newChannel(out));
+
+        assertArrayEquals(new byte[]{13, 14, 15, 16, 17}, out.toByteArray());
+        store.destroy();
+    }
+
+    @Test
+    void testReopenReusesIndex() throws IOException {
+        ThumbnailStore store = openStore(DataSize.ofMegabytes(1), DataSize.ofKilobytes(64));
+        store.put(key("a"), bytes(50, 1), 10, 10);
+        store.put(key("b"), bytes(60, 2), 20, 20);
+        store.destroy();
+
+        ThumbnailStore reopened = openStore(DataSize.ofMegabytes(1), DataSize.ofKilobytes(64));
+
+        assertArrayEquals(bytes(60, 2), transfer(reopened, reopened.find(key("b"))));
+        assertEquals(50, reopened.find(key("a")).length());
+        reopened.destroy();
+    }
+
+    @Test
+    void testRebuildsLostIndexAndDropsTornRecord() throws IOException {
+        ThumbnailStore store = openStore(DataSize.ofMegabytes(1), DataSize.ofKilobytes(64));
+        store.put(key("a"), bytes(50, 1), 10, 10);
+        store.put(key("b"), bytes(60, 2), 20, 20);
+        store.destroy();
+
+        Files.delete(directory.resolve("index.bin"));
+        Path segment = directory.resolve("segment-000001.dat");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10);
+        }
+
+        ThumbnailStore reopened = openStore(DataSize.ofMegabytes(1), DataSize.ofKilobytes(64));
+
+        assertArrayEquals(bytes(50, 1), transfer(reopened, reopened.find(key("a"))));
+        assertNull(reopened.find(key("b")));
+        reopened.destroy();
+    }
+
+    @Test
+    void testEtagOfBytesSurvivesIndexRebuild() throws IOException {
+        ThumbnailStore store = openStore(DataSize.ofMegabytes(1), DataSize.ofKilobytes(64));
+        store.put(key("a"), bytes(50, 1), 10, 10);
+        String etag = store.find(key("a")).etag();
+        store.destroy();
+
+        Files.delete(directory.resolve("index.bin"));
+        ThumbnailStore reopened = openStore(DataSize.ofMegabytes(1), DataSize.ofKilobytes(64));
+
+        assertEquals(ContentHasher.formatEtag(ContentHasher.etagDigest(ByteBuffer.wrap(bytes(50, 1)))), etag);
+        assertEquals(etag, reopened.find(key("a")).etag());
+        reopened.destroy();
+    }
+
+    @Test
+    void testFullIndexSkipsTheWrite() throws IOException {
+        ThumbnailStore store = openStore(DataSize.ofMegabytes(1), DataSize.ofKilobytes(64));
+        for (int i = 0; i < 64; i++) {
+            store.put(key("k" + i), bytes(10, i), 10, 10);
+        }
+        long size = Files.size(directory.resolve("segment-000001.dat"));
+
+        store.put(key("overflow"), bytes(10, 99), 10, 10);
+
+        assertNull(store.find(key("overflow")));
+        assertEquals(size, Files.size(directory.resolve("segment-000001.dat")));
+        assertNotNull(store.find(key("k63")));
+        store.destroy();
+    }
+
+    @Test
+    void testEvictsOldestSegmentBeyondQuota() throws IOException {
+        // Each record is ~1 KB, so every segment holds one record
+        ThumbnailStore store = openStore(DataSize.ofKilobytes(3), DataSize.ofBytes(1100));
+        store.put(key("a"), bytes(1000, 1), 10, 10);
+        store.put(key("b"), bytes(1000, 2), 10, 10);
+        store.put(key("c"), bytes(1000, 3), 10, 10);
+        store.put(key("d"), bytes(1000, 4), 10, 10);
+
+        assertNull(store.find(key("a")));
+        assertNotNull(store.find(key("d")));
+        assertEquals(false, Files.exists(directory.resolve("segment-000001.dat")));
+        store.destroy();
+    }
+
+    private ThumbnailStore openStore(DataSize maxSize, DataSize segmentSize) {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getStore().setEnabled(true);
+        properties.getStore().setDirectory(directory.toString());
+        properties.getStore().setMaxSize(maxSize);
+        properties.getStore().setSegmentSize(segmentSize);
+        properties.getStore().setIndexSlots(64);
+        return new ThumbnailStore(properties);
+    }
+
+    private static byte[] transfer(ThumbnailStore store, StoredThumbnail stored) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        store.transferTo(stored, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private static ThumbnailKey key(String contentHash) {
+        return new ThumbnailKey(contentHash, 150, 150, "PNG", "default");
+    }
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (seed + i);
+        }
+        return data;
+    }
+}
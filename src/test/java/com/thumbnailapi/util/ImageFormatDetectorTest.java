@@ -1,6 +1,13 @@
 package com.thumbnailapi.util;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -80,4 +87,37 @@ class ImageFormatDetectorTest {
         
         assertEquals("UNKNOWN", format);
     }
+
+    @Test
+    void testReadImageDimensionsFromHeader() throws IOException {
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", baos);
+
+        ImageFormatDetector.ImageDimensions dimensions = formatDetector.readImageDimensions(baos.toByteArray());
+
+        assertEquals(320, dimensions.width());
+        assertEquals(240, dimensions.height());
+        assertEquals(3, dimensions.bytesPerPixel());
+        assertEquals(false, dimensions.needsNormalization());
+    }
+
+    @Test
+    void testSixteenBitHeaderNeedsNormalization() throws IOException {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_USHORT_GRAY);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", baos);
+
+        ImageFormatDetector.ImageDimensions dimensions = formatDetector.readImageDimensions(baos.toByteArray());
+
+        assertEquals(2, dimensions.bytesPerPixel());
+        assertEquals(true, dimensions.needsNormalization());
+    }
+
+    @Test
+    void testReadImageDimensionsRejectsUnknownData() {
+        byte[] data = "not an image".getBytes();
+
+        assertThrows(IOException.class, () -> formatDetector.readImageDimensions(data));
+    }
 }
@@ -0,0 +1,118 @@
+package com.thumbnailapi.util;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for ImageHeaderProbe.
+ */
+class ImageHeaderProbeTest {
+
+    @Test
+    void testProbeReadsDimensionsOfEveryWrittenFormat() throws IOException {
+        for (String format : new String[] {"JPEG", "PNG", "GIF", "BMP", "TIFF"}) {
+            byte[] bytes = write(new BufferedImage(321, 123, BufferedImage.TYPE_INT_RGB), format);
+
+            ImageHeader header = ImageHeaderProbe.probe(bytes, bytes.length, format);
+
+            assertEquals(321, header.width(), format);
+            assertEquals(123, header.height(), format);
+            assertEquals(1, header.frames(), format);
+        }
+    }
+
+    @Test
+    void testProbeCountsGifFrames() throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(baos)) {
+            writer.setOutput(output);
+            writer.prepareWriteSequence(null);
+            for (int i = 0; i < 3; i++) {
+                writer.writeToSequence(new IIOImage(
+                    new BufferedImage(40, 30, BufferedImage.TYPE_BYTE_INDEXED), null, null), null);
+            }
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+        }
+        byte[] bytes = baos.toByteArray();
+
+        ImageHeader header = ImageHeaderProbe.probe(bytes, bytes.length, "GIF");
+
+        assertEquals(3, header.frames());
+        assertEquals(40, header.width());
+        assertEquals(30, header.height());
+    }
+
+    @Test
+    void testProbeReadsForgedPngHeaderWithoutImageData() {
+        byte[] bytes = forgedPng(100_000, 90_000);
+
+        ImageHeader header = ImageHeaderProbe.probe(bytes, bytes.length, "PNG");
+
+        assertEquals(100_000, header.width());
+        assertEquals(90_000, header.height());
+        assertEquals(9_000_000_000L, header.pixels());
+    }
+
+    @Test
+    void testProbeReadsWebpCanvasAndAnimationFrames() {
+        ByteBuffer webp = ByteBuffer.allocate(12 + 18 + 8 * 2).order(ByteOrder.LITTLE_ENDIAN);
+        webp.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(0).put("WEBP".getBytes(StandardCharsets.US_ASCII));
+        webp.put("VP8X".getBytes(StandardCharsets.US_ASCII)).putInt(10).put(new byte[4]);
+        // 24-bit canvas width and height, minus one
+        webp.put((byte) 0x3F).put((byte) 0x42).put((byte) 0x0F);
+        webp.put((byte) 0x1F).put((byte) 0xA1).put((byte) 0x07);
+        webp.put("ANMF".getBytes(StandardCharsets.US_ASCII)).putInt(0);
+        webp.put("ANMF".getBytes(StandardCharsets.US_ASCII)).putInt(0);
+        byte[] bytes = webp.array();
+
+        ImageHeader header = ImageHeaderProbe.probe(bytes, bytes.length, "WEBP");
+
+        assertEquals(1_000_000, header.width());
+        assertEquals(500_000, header.height());
+        assertEquals(2, header.frames());
+    }
+
+    @Test
+    void testProbeOfTruncatedHeaderLeavesDimensionsUnknown() throws IOException {
+        byte[] bytes = write(new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB), "JPEG");
+
+        ImageHeader header = ImageHeaderProbe.probe(bytes, 20, "JPEG");
+
+        assertFalse(header.hasDimensions());
+        assertEquals(0, header.pixels());
+    }
+
+    /**
+     * Builds a PNG signature and IHDR chunk declaring the given size, with no image data.
+     */
+    static byte[] forgedPng(int width, int height) {
+        ByteBuffer png = ByteBuffer.allocate(8 + 25);
+        png.put(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'});
+        png.putInt(13).put("IHDR".getBytes(StandardCharsets.US_ASCII));
+        png.putInt(width).putInt(height).put(new byte[] {8, 2, 0, 0, 0});
+        png.putInt(0);
+        return png.array();
+    }
+
+    private static byte[] write(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, format, baos);
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,203 @@
+package com.thumbnailapi.util;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.thumbnailapi.config.ThumbnailProperties;
+import com.thumbnailapi.exception.FileSizeLimitExceededException;
+import com.thumbnailapi.exception.ImageTooLargeException;
+import com.thumbnailapi.exception.InvalidImageException;
+import com.thumbnailapi.exception.UnsupportedFormatException;
+
+/**
+ * Unit tests for ImageUploadReader.
+ */
+class ImageUploadReaderTest {
+
+    private ImageUploadReader uploadReader;
+    private byte[] pngBytes;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        uploadReader = new ImageUploadReader(new ImageValidator());
+
+        // Large enough to span several read chunks
+        BufferedImage image = new BufferedImage(400, 400, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 400; y++) {
+            for (int x = 0; x < 400; x++) {
+                image.setRGB(x, y, x * 7919 ^ y * 104729);
+            }
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", baos);
+        pngBytes = baos.toByteArray();
+    }
+
+    @Test
+    void testReadReturnsContentFormatAndHash() {
+        MockMultipartFile file = new MockMultipartFile("file", "test.png", "image/png", pngBytes);
+
+        ImageUpload upload = uploadReader.read(file);
+
+        assertArrayEquals(pngBytes, upload.data());
+        assertEquals("PNG", upload.format());
+        assertEquals(ContentHasher.sha256Hex(pngBytes), upload.contentHash());
+    }
+
+    @Test
+    void testReadRejectsInvalidSignatureBeforeReadingContent() {
+        byte[] data = new byte[1024 * 1024];
+        CountingFile file = new CountingFile(data);
+
+        assertThrows(InvalidImageException.class, () -> uploadReader.read(file));
+        assertEquals(ImageSignature.MAX_SIGNATURE_BYTES, file.bytesRead);
+    }
+
+    @Test
+    void testReadRejectsDecompressionBombBeforeBufferingBody() {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getLimits().setEnabled(true);
+        properties.getLimits().setMaxPixels(50_000_000L);
+        ImageUploadReader limitedReader = new ImageUploadReader(new ImageValidator(properties));
+
+        byte[] forged = ImageHeaderProbeTest.forgedPng(60_000, 60_000);
+        byte[] data = new byte[4 * 1024 * 1024];
+        System.arraycopy(forged, 0, data, 0, forged.length);
+        CountingFile file = new CountingFile(data, "bomb.png", "image/png");
+
+        assertThrows(ImageTooLargeException.class, () -> limitedReader.read(file));
+        assertTrue(file.bytesRead <= properties.getLimits().getProbeSize().toBytes(),
+            "Read " + file.bytesRead + " bytes before rejecting");
+    }
+
+    @Test
+    void testReadWithLimitsAcceptsImageWithinLimits() {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getLimits().setEnabled(true);
+        properties.getLimits().setMaxPixels(400 * 400);
+        ImageUploadReader limitedReader = new ImageUploadReader(new ImageValidator(properties));
+        MockMultipartFile file = new MockMultipartFile("file", "test.png", "image/png", pngBytes);
+
+        assertArrayEquals(pngBytes, limitedReader.read(file).data());
+
+        properties.getLimits().setMaxPixels(400 * 400 - 1);
+        ImageUploadReader strictReader = new ImageUploadReader(new ImageValidator(properties));
+        assertThrows(ImageTooLargeException.class, () -> strictReader.read(file));
+    }
+
+    @Test
+    void testReadRejectsTruncatedStream() {
+        MockMultipartFile file = new MockMultipartFile("file", "test.png", "image/png", pngBytes) {
+            @Override
+            public long getSize() {
+                return pngBytes.length + 10L;
+            }
+        };
+
+        assertThrows(InvalidImageException.class, () -> uploadReader.read(file));
+    }
+
+    @Test
+    void testReadRejectsUnsupportedMimeType() {
+        MockMultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", pngBytes);
+
+        assertThrows(UnsupportedFormatException.class, () -> uploadReader.read(file));
+    }
+
+    @Test
+    void testIncrementalUploadMatchesSinglePassRead() {
+        for (long sizeHint : new long[] {0, pngBytes.length, pngBytes.length + 1000L}) {
+            IncrementalUpload incremental = uploadReader.begin("image/png", sizeHint);
+            for (int offset = 0; offset < pngBytes.length; offset += 7001) {
+                incremental.append(ByteBuffer.wrap(pngBytes, offset, Math.min(7001, pngBytes.length - offset)));
+            }
+
+            ImageUpload upload = incremental.finish();
+            assertArrayEquals(pngBytes, upload.data());
+            assertEquals("PNG", upload.format());
+            assertEquals(ContentHasher.sha256Hex(pngBytes), upload.contentHash());
+        }
+    }
+
+    @Test
+    void testIncrementalUploadRejectsInvalidSignatureOnFirstChunk() {
+        IncrementalUpload incremental = uploadReader.begin("image/jpeg", 0);
+
+        assertThrows(InvalidImageException.class,
+            () -> incremental.append(ByteBuffer.wrap(new byte[ImageSignature.MAX_SIGNATURE_BYTES])));
+        assertThrows(UnsupportedFormatException.class, () -> uploadReader.begin("text/plain", 0));
+        assertThrows(InvalidImageException.class, () -> uploadReader.begin("image/png", 0).finish());
+    }
+
+    @Test
+    void testIncrementalUploadRejectsDecompressionBombOnceProbeIsFilled() {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.getLimits().setEnabled(true);
+        properties.getLimits().setMaxPixels(50_000_000L);
+        ImageUploadReader limitedReader = new ImageUploadReader(new ImageValidator(properties));
+        int probeBytes = (int) properties.getLimits().getProbeSize().toBytes();
+
+        byte[] forged = ImageHeaderProbeTest.forgedPng(60_000, 60_000);
+        byte[] data = new byte[probeBytes];
+        System.arraycopy(forged, 0, data, 0, forged.length);
+        IncrementalUpload incremental = limitedReader.begin("image/png", 0);
+
+        incremental.append(ByteBuffer.wrap(data, 0, probeBytes - 1));
+        assertThrows(ImageTooLargeException.class, () -> incremental.append(ByteBuffer.wrap(data, 0, 1)));
+    }
+
+    @Test
+    void testIncrementalUploadEnforcesSizeLimit() {
+        IncrementalUpload incremental = uploadReader.begin("image/png", 0);
+        incremental.append(ByteBuffer.wrap(pngBytes));
+
+        ByteBuffer oversized = ByteBuffer.allocate((int) Constants.MAX_FILE_SIZE_BYTES);
+        assertThrows(FileSizeLimitExceededException.class, () -> incremental.append(oversized));
+        assertEquals(pngBytes.length, incremental.size());
+    }
+
+    /**
+     * Upload that records how many bytes were read from its stream.
+     */
+    private static final class CountingFile extends MockMultipartFile {
+
+        private final byte[] content;
+        private int bytesRead;
+
+        CountingFile(byte[] content) {
+            this(content, "test.jpg", "image/jpeg");
+        }
+
+        CountingFile(byte[] content, String filename, String contentType) {
+            super("file", filename, contentType, content);
+            this.content = content;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(content) {
+                @Override
+                public synchronized int read(byte[] buffer, int offset, int length) {
+                    int read = super.read(buffer, offset, length);
+                    bytesRead += Math.max(read, 0);
+                    return read;
+                }
+            };
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.thumbnailapi.util;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import org.junit.jupiter.api.BeforeEach;
@@ -78,4 +79,12 @@ class ImageValidatorTest {
         var exception = assertThrows(InvalidImageException.class, () -> imageValidator.validate(file));
         assertNotNull(exception);
     }
+
+    @Test
+    void testValidateSignatureIdentifiesFormat() {
+        byte[] gifBytes = new byte[]{0x47, 0x49, 0x46, 0x38, 0x39, 0x61};
+
+        assertEquals("GIF", imageValidator.validateSignature(gifBytes, gifBytes.length));
+        assertThrows(InvalidImageException.class, () -> imageValidator.validateSignature(gifBytes, 3));
+    }
 }